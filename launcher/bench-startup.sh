@@ -0,0 +1,40 @@
+#!/usr/bin/env bash
+# Compare CLI time-to-prompt with and without the AppCDS archive.
+# Usage: ./bench-startup.sh [runs]
+# Needs src/vaultify.jar and src/vaultify.jsa (./gradlew cdsArchive, or one
+# launch through vaultify.sh). Time-to-prompt is the JVM uptime reported by
+# --timings when "vaultify> " is first printed.
+set -euo pipefail
+RUNS="${1:-10}"
+SCRIPT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)"
+JAR_PATH="${SCRIPT_DIR}/src/vaultify.jar"
+CDS_ARCHIVE="${SCRIPT_DIR}/src/vaultify.jsa"
+
+if [ ! -f "${JAR_PATH}" ] || [ ! -f "${CDS_ARCHIVE}" ]; then
+  echo "[Bench] Missing ${JAR_PATH} or ${CDS_ARCHIVE}" >&2
+  exit 1
+fi
+
+# Scratch working directory so runs never touch the real vault_data
+WORK_DIR="$(mktemp -d)"
+trap 'rm -rf "${WORK_DIR}"' EXIT
+
+measure() {
+  local label="$1"
+  shift
+  local samples=()
+  for ((i = 0; i < RUNS; i++)); do
+    samples+=("$(cd "${WORK_DIR}" && echo exit |
+      UPDATE_CHECK_ENABLED=false SCRUB_ENABLED=false java "$@" -jar "${JAR_PATH}" --timings 2>/dev/null |
+      sed -n 's/.*time-to-prompt \([0-9]*\) ms.*/\1/p')")
+  done
+  local sorted
+  sorted="$(printf '%s\n' "${samples[@]}" | sort -n)"
+  printf '%-12s median %5s ms   min %5s ms   max %5s ms   (%s runs)\n' "${label}" \
+    "$(sed -n "$(((RUNS + 1) / 2))p" <<<"${sorted}")" "$(head -n 1 <<<"${sorted}")" "$(tail -n 1 <<<"${sorted}")" "${RUNS}"
+}
+
+# Baseline still uses the JDK's default CDS archive, as a plain `java -jar` does
+measure "default CDS" -Xshare:auto
+# -Xshare:on fails loudly instead of silently ignoring a stale archive
+measure "AppCDS" -Xshare:on "-XX:SharedArchiveFile=${CDS_ARCHIVE}" -Xlog:cds=off -Xlog:cds+dynamic=off
@@ -33,8 +33,12 @@ if exist ".env" (
 echo [INFO] Starting Vaultify...
 echo.
 
+REM Class-data archive next to the jar (see vaultify.sh); VAULTIFY_CDS=0 disables
+set CDS_OPTS=
+if not "%VAULTIFY_CDS%"=="0" set CDS_OPTS=-XX:+AutoCreateSharedArchive -XX:SharedArchiveFile=vaultify.jsa -Xlog:cds=off -Xlog:cds+dynamic=off
+
 REM Run the jar (Java will find .env in current directory)
-java -jar vaultify.jar
+java %CDS_OPTS% -jar vaultify.jar
 
 if errorlevel 1 (
     echo.
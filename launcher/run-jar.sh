@@ -32,8 +32,17 @@ fi
 echo "[INFO] Starting Vaultify..."
 echo ""
 
+# Class-data archive next to the jar (see vaultify.sh); VAULTIFY_CDS=0 disables
+CDS_OPTS=""
+if [ "${VAULTIFY_CDS:-1}" != "0" ]; then
+    if [ vaultify.jar -nt vaultify.jsa ]; then
+        rm -f vaultify.jsa
+    fi
+    CDS_OPTS="-XX:+AutoCreateSharedArchive -XX:SharedArchiveFile=vaultify.jsa -Xlog:cds=off -Xlog:cds+dynamic=off"
+fi
+
 # Run the jar (Java will find .env in current directory)
-java -jar vaultify.jar
+java $CDS_OPTS -jar vaultify.jar
 
 if [ $? -ne 0 ]; then
     echo ""
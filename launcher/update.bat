@@ -5,6 +5,7 @@ set REPO_NAME=Vaultify
 set RELEASE_URL=https://github.com/HetMistri/Vaultify/releases/download/Latest/vaultify.jar
 set SCRIPT_DIR=%~dp0
 set JAR_PATH=%SCRIPT_DIR%src\vaultify.jar
+set CDS_ARCHIVE=%SCRIPT_DIR%src\vaultify.jsa
 set DATA_DIR=%SCRIPT_DIR%vault_data
 
 if not exist "%SCRIPT_DIR%src" mkdir "%SCRIPT_DIR%src"
@@ -16,6 +17,8 @@ if errorlevel 1 (
     echo [Vaultify] Update failed. Please check your network.
     exit /b 1
 )
+REM The class-data archive belongs to the old jar; the next launch rebuilds it
+if exist "%CDS_ARCHIVE%" del /f "%CDS_ARCHIVE%"
 
 echo [Vaultify] Update complete. Launch with vaultify.bat
 endlocal
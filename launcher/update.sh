@@ -3,6 +3,7 @@ set -euo pipefail
 RELEASE_URL="https://github.com/HetMistri/Vaultify/releases/download/Latest/vaultify.jar"
 SCRIPT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)"
 JAR_PATH="${SCRIPT_DIR}/src/vaultify.jar"
+CDS_ARCHIVE="${SCRIPT_DIR}/src/vaultify.jsa"
 DATA_DIR="${SCRIPT_DIR}/vault_data"
 
 mkdir -p "${SCRIPT_DIR}/src" "${DATA_DIR}"
@@ -12,5 +13,7 @@ if ! curl -fL "${RELEASE_URL}" -o "${JAR_PATH}"; then
   echo "[Vaultify] Update failed. Please check your network." >&2
   exit 1
 fi
+# The class-data archive belongs to the old jar; the next launch rebuilds it
+rm -f "${CDS_ARCHIVE}"
 
 echo "[Vaultify] Update complete. Launch with ./vaultify.sh"
@@ -3,6 +3,7 @@ setlocal enableextensions
 set RELEASE_URL=https://github.com/HetMistri/Vaultify/releases/download/Release/vaultify.jar
 set SCRIPT_DIR=%~dp0
 set JAR_PATH=%SCRIPT_DIR%src\vaultify.jar
+set CDS_ARCHIVE=%SCRIPT_DIR%src\vaultify.jsa
 set DATA_DIR=%SCRIPT_DIR%vault_data
 
 if not exist "%SCRIPT_DIR%src" mkdir "%SCRIPT_DIR%src"
@@ -15,8 +16,14 @@ if not exist "%JAR_PATH%" (
         echo [Vaultify] Download failed. Please check your network or try again later.
         exit /b 1
     )
+    if exist "%CDS_ARCHIVE%" del /f "%CDS_ARCHIVE%"
 )
 
+REM Class-data sharing archive (see vaultify.sh); the JVM writes it on exit
+REM and update.bat removes it with the old jar. VAULTIFY_CDS=0 disables.
+set JAVA_OPTS=
+if not "%VAULTIFY_CDS%"=="0" set JAVA_OPTS=-XX:+AutoCreateSharedArchive "-XX:SharedArchiveFile=%CDS_ARCHIVE%" -Xlog:cds=off -Xlog:cds+dynamic=off
+
 echo [Vaultify] Launching...
-java -jar "%JAR_PATH%"
+java %JAVA_OPTS% -jar "%JAR_PATH%"
 pause
@@ -3,6 +3,7 @@ set -euo pipefail
 RELEASE_URL="https://github.com/HetMistri/Vaultify/releases/download/Release/vaultify.jar"
 SCRIPT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)"
 JAR_PATH="${SCRIPT_DIR}/src/vaultify.jar"
+CDS_ARCHIVE="${SCRIPT_DIR}/src/vaultify.jsa"
 DATA_DIR="${SCRIPT_DIR}/vault_data"
 
 mkdir -p "${SCRIPT_DIR}/src" "${DATA_DIR}"
@@ -15,5 +16,17 @@ if [ ! -f "${JAR_PATH}" ]; then
   fi
 fi
 
+# Class-data sharing: the JVM maps the classes a session needs from
+# src/vaultify.jsa instead of loading them from the jar. The archive is only
+# valid for this jar, so a newer jar drops it; -XX:+AutoCreateSharedArchive
+# writes a fresh one on exit (and after JDK changes). VAULTIFY_CDS=0 disables.
+JAVA_OPTS=()
+if [ "${VAULTIFY_CDS:-1}" != "0" ]; then
+  if [ "${JAR_PATH}" -nt "${CDS_ARCHIVE}" ]; then
+    rm -f "${CDS_ARCHIVE}"
+  fi
+  JAVA_OPTS+=(-XX:+AutoCreateSharedArchive "-XX:SharedArchiveFile=${CDS_ARCHIVE}" -Xlog:cds=off -Xlog:cds+dynamic=off)
+fi
+
 echo "[Vaultify] Launching..."
-java -jar "${JAR_PATH}"
+java ${JAVA_OPTS[@]+"${JAVA_OPTS[@]}"} -jar "${JAR_PATH}" "$@"
@@ -30,4 +30,13 @@ CREATE TABLE tokens (
     credential_id INT REFERENCES credentials(id) ON DELETE CASCADE,
     token TEXT UNIQUE NOT NULL,
     expiry TIMESTAMP NOT NULL
+);
+
+CREATE TABLE credential_recipients (
+    credential_id INT NOT NULL REFERENCES credentials(id) ON DELETE CASCADE,
+    recipient_user_id INT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    encrypted_key TEXT NOT NULL,
+    granted_by INT,
+    granted_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (credential_id, recipient_user_id)
 );
\ No newline at end of file
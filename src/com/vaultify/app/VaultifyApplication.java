@@ -4,38 +4,110 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.concurrent.TimeUnit;
 
 import com.vaultify.cli.CommandRouter;
+import com.vaultify.crypto.KeyPairPool;
+import com.vaultify.crypto.PasswordKdf;
+import com.vaultify.repository.RepositoryFactory;
+import com.vaultify.server.RequestHandler;
+import com.vaultify.server.VaultServer;
+import com.vaultify.service.AuthService;
+import com.vaultify.service.LedgerService;
+import com.vaultify.service.SessionRegistry;
+import com.vaultify.service.TokenService;
+import com.vaultify.service.VaultService;
+import com.vaultify.service.VerificationService;
 import com.vaultify.threading.ActivityLogger;
 import com.vaultify.threading.ThreadManager;
 import com.vaultify.threading.TokenCleanupTask;
+import com.vaultify.util.ChunkStore;
+import com.vaultify.util.Config;
+import com.vaultify.util.IntegrityScrubber;
+import com.vaultify.util.PackedSegmentStore;
+import com.vaultify.util.StartupTimer;
 
 public class VaultifyApplication {
     private static final String CURRENT_VERSION = "0.0.1-beta";
     private static final String LATEST_RELEASE_API = "https://api.github.com/repos/HetMistri/Vaultify/releases/latest";
 
     public static void main(String[] args) {
-        System.out.println("Vaultify CLI v0.1 Beta starting...");
+        StartupTimer.start();
+        boolean serverMode = hasFlag(args, "--server");
+        System.out.println("Vaultify " + (serverMode ? "server" : "CLI") + " v0.1 Beta starting...");
+
+        StartupTimer.phase("config", () -> {
+            if (Config.getBoolean("startup.timings", false) || hasFlag(args, "--timings")) {
+                StartupTimer.printAtPrompt();
+            }
+            Config.startWatching();
+        });
 
         // Start background activity logger
-        ActivityLogger logger = new ActivityLogger();
-        ThreadManager.runAsync(logger);
+        ActivityLogger logger = StartupTimer.phase("activity-logger", () -> {
+            ActivityLogger l = new ActivityLogger();
+            ThreadManager.startDedicated("vaultify-activity-logger", l);
+            return l;
+        });
         System.out.println("Activity logger started");
 
-        // Schedule token expiry cleanup (runs every hour)
-        ThreadManager.scheduleAtFixedRate(
-                new TokenCleanupTask(),
-                0, // Initial delay
-                3600, // Period: 1 hour
-                TimeUnit.SECONDS);
+        StartupTimer.phase("schedulers", () -> {
+            // Token expiry cleanup (hourly); the first run is delayed so it does not
+            // compete with startup for a DB connection
+            ThreadManager.scheduleAtFixedRate(
+                    new TokenCleanupTask(),
+                    Math.max(1, Config.getInt("token.cleanup.initialDelaySeconds", 60)),
+                    3600, // Period: 1 hour
+                    TimeUnit.SECONDS);
+
+            // Remove dedup chunks orphaned by an interrupted upload
+            if (ChunkStore.isEnabled()) {
+                ThreadManager.runAsync(() -> {
+                    try {
+                        int removed = ChunkStore.collectGarbage();
+                        if (removed > 0) {
+                            System.out.println("[ChunkStore] Removed " + removed + " orphaned chunk(s)");
+                        }
+                    } catch (Exception e) {
+                        System.err.println("[ChunkStore] Garbage collection failed: " + e.getMessage());
+                    }
+                });
+            }
+
+            // Pre-generated RSA key pairs for registration, filled in the background
+            KeyPairPool.start(Math.max(0, Config.getInt("vault.keyPool.initialDelaySeconds", 5)));
+
+            // Measure the password KDF cost once; later runs reuse the stored count
+            ThreadManager.submitCpu(PasswordKdf::calibrateIfNeeded);
+
+            // Throttled re-hash of stored ciphertexts, resuming from its checkpoint
+            if (IntegrityScrubber.isEnabled()) {
+                IntegrityScrubber.schedule();
+            }
+        });
         System.out.println("Token cleanup scheduler started (runs hourly)");
+
+        if (serverMode) {
+            runServer(args, logger);
+            return;
+        }
+
         System.out.println("===============================================");
         System.out.println("  Welcome to Vaultify v0.1-beta");
         System.out.println("  Secure Credential Vault System");
         System.out.println("===============================================");
-        maybeNotifyUpdate();
+        // Network probe off the startup path, started once the prompt is up; a
+        // result is shown before the next prompt
+        if (Config.getBoolean("update.check.enabled", true)) {
+            ThreadManager.schedule(() -> {
+                String notice = checkForUpdate();
+                if (notice != null) {
+                    CommandRouter.postNotice(notice);
+                }
+            }, Math.max(0, Config.getInt("update.check.delaySeconds", 2)), TimeUnit.SECONDS);
+        }
         System.out.println("Type 'help' for commands or 'register' to start");
         System.out.println();
 
@@ -43,15 +115,78 @@ public class VaultifyApplication {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             System.out.println("\nShutting down Vaultify...");
             logger.shutdown();
+            SessionRegistry.get().closeAll();
             ThreadManager.shutdown();
+            PackedSegmentStore.closeIfOpen();
             System.out.println("Vaultify shutdown complete");
         }));
 
-        // Start CLI
+        // Start CLI (services are wired lazily on first command)
         new CommandRouter().start();
     }
 
-    private static void maybeNotifyUpdate() {
+    /**
+     * Headless daemon: serve vault operations over a local socket until the
+     * process is terminated.
+     */
+    private static void runServer(String[] args, ActivityLogger logger) {
+        String socket = optionValue(args, "--socket", Config.get("server.socket"));
+        int port = Integer.parseInt(optionValue(args, "--port", String.valueOf(Config.getInt("server.port", 7423))));
+
+        LedgerService ledgerService = new LedgerService();
+        RequestHandler handler = StartupTimer.phase("services",
+                () -> new RequestHandler(new AuthService(ledgerService),
+                        new VaultService(ledgerService, RepositoryFactory.get().credentialRepository()),
+                        new TokenService(ledgerService), new VerificationService(ledgerService)));
+        VaultServer server;
+        try {
+            server = (socket != null && !socket.isEmpty())
+                    ? VaultServer.bindUnix(Paths.get(socket), handler)
+                    : VaultServer.bindLoopback(port, handler);
+        } catch (Exception e) {
+            System.err.println("✗ Could not start server: " + e.getMessage());
+            logger.shutdown();
+            ThreadManager.shutdown();
+            return;
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("\nStopping Vaultify server...");
+            server.close();
+            logger.shutdown();
+            SessionRegistry.get().closeAll();
+            ThreadManager.shutdown();
+            PackedSegmentStore.closeIfOpen();
+            System.out.println("Vaultify server stopped");
+        }));
+
+        System.out.println("✓ Vaultify server listening on " + server.describeAddress());
+        StartupTimer.ready();
+        server.serve();
+    }
+
+    private static boolean hasFlag(String[] args, String flag) {
+        for (String arg : args) {
+            if (arg.equals(flag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String optionValue(String[] args, String option, String defaultValue) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(option)) {
+                return args[i + 1];
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * @return an update notice, or null when up to date or the check failed
+     */
+    private static String checkForUpdate() {
         try {
             HttpClient client = HttpClient.newBuilder()
                     .connectTimeout(Duration.ofSeconds(3))
@@ -65,19 +200,19 @@ public class VaultifyApplication {
 
             HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
             if (response.statusCode() != 200) {
-                return; // quietly ignore on failure
+                return null; // quietly ignore on failure
             }
 
             String body = response.body();
             String tag = extractTagName(body);
             if (tag != null && !tag.equalsIgnoreCase(CURRENT_VERSION)) {
-                System.out.println("⚠️  A newer Vaultify version is available: " + tag);
-                System.out.println("Run update.bat (Windows) or update.sh (Mac/Linux) to update.");
-                System.out.println();
+                return "⚠️  A newer Vaultify version is available: " + tag + "\n"
+                        + "Run update.bat (Windows) or update.sh (Mac/Linux) to update.\n";
             }
         } catch (Exception ignored) {
-            // Do not block startup on update check failures
+            // Update check failures are never reported
         }
+        return null;
     }
 
     private static String extractTagName(String json) {
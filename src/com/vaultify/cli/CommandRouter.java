@@ -1,17 +1,22 @@
 package com.vaultify.cli;
 
+import java.util.Queue;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import com.vaultify.cli.handlers.AuthHandler;
 import com.vaultify.cli.handlers.SystemHandler;
 import com.vaultify.cli.handlers.TokenHandler;
 import com.vaultify.cli.handlers.VaultHandler;
+import com.vaultify.repository.RepositoryFactory;
 import com.vaultify.service.AuthService;
 import com.vaultify.service.LedgerService;
 import com.vaultify.service.TokenService;
 import com.vaultify.service.VaultService;
 import com.vaultify.service.VerificationService;
 import com.vaultify.util.Config;
+import com.vaultify.util.Lazy;
+import com.vaultify.util.StartupTimer;
 
 /**
  * CommandRouter for Vaultify CLI.
@@ -19,35 +24,61 @@ import com.vaultify.util.Config;
  */
 public class CommandRouter {
 
-    // Services
-    private static final AuthService authService = new AuthService();
-    private static final VerificationService verificationService = new VerificationService();
-    private static final VaultService vaultService = new VaultService();
-    private static final TokenService tokenService = new TokenService();
-    private static final LedgerService ledgerService = new LedgerService();
+    // Services and handlers are built on first use, so reaching the prompt
+    // never waits on the repository factory, the DB driver or the ledger.
+    // One LedgerService is shared by every service.
+    private static final Lazy<LedgerService> ledgerService = Lazy.of(LedgerService::new);
+    private static final Lazy<AuthService> authService = Lazy.of(() -> new AuthService(ledgerService.get()));
+    private static final Lazy<VerificationService> verificationService = Lazy
+            .of(() -> new VerificationService(ledgerService.get()));
+    private static final Lazy<VaultService> vaultService = Lazy.of(() -> new VaultService(ledgerService.get(),
+            RepositoryFactory.get().credentialRepository()));
+    private static final Lazy<TokenService> tokenService = Lazy.of(() -> new TokenService(ledgerService.get()));
 
     // Handlers
-    private static final AuthHandler authHandler = new AuthHandler(authService);
-    private static final VaultHandler vaultHandler = new VaultHandler(authService, vaultService, tokenService,
-            verificationService);
-    private static final TokenHandler tokenHandler = new TokenHandler(authService, tokenService);
-    private static final SystemHandler systemHandler = new SystemHandler(ledgerService, authService);
+    private static final Lazy<AuthHandler> authHandler = Lazy.of(() -> new AuthHandler(authService.get()));
+    private static final Lazy<VaultHandler> vaultHandler = Lazy.of(() -> new VaultHandler(authService.get(),
+            vaultService.get(), tokenService.get(), verificationService.get()));
+    private static final Lazy<TokenHandler> tokenHandler = Lazy
+            .of(() -> new TokenHandler(authService.get(), tokenService.get()));
+    private static final Lazy<SystemHandler> systemHandler = Lazy
+            .of(() -> new SystemHandler(ledgerService.get(), authService.get()));
+
+    // Messages from background startup work, shown before the next prompt
+    private static final Queue<String> notices = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Queue a message (e.g. an available update) for display before the next
+     * prompt instead of printing over the user's input.
+     */
+    public static void postNotice(String message) {
+        notices.add(message);
+    }
 
     // -------------------------
     // Instance entrypoint used by VaultifyApplication
     // -------------------------
     public void start() {
+        prompt();
+        StartupTimer.ready();
+        // Scanner setup (regex/locale init) overlaps with the user typing
         try (Scanner scanner = new Scanner(System.in)) {
             while (true) {
-                System.out.print("vaultify> ");
                 String command = scanner.nextLine().trim();
-                if (command.isEmpty())
-                    continue;
-                handle(command, scanner);
+                if (!command.isEmpty())
+                    handle(command, scanner);
+                prompt();
             }
         }
     }
 
+    private static void prompt() {
+        for (String notice; (notice = notices.poll()) != null;) {
+            System.out.println(notice);
+        }
+        System.out.print("vaultify> ");
+    }
+
     // -------------------------
     // Static router (reusable)
     // -------------------------
@@ -55,14 +86,16 @@ public class CommandRouter {
         boolean devMode = Config.isDevMode();
 
         switch (command) {
-            case "register" -> authHandler.register(scanner);
-            case "login" -> authHandler.login(scanner);
-            case "logout" -> authHandler.logout();
-            case "whoami" -> authHandler.whoami();
-            case "vault" -> vaultHandler.handleVaultCommand(scanner);
-            case "revoke-token" -> tokenHandler.revokeToken(scanner);
-            case "list-tokens" -> tokenHandler.listTokens();
-            case "verify-ledger" -> systemHandler.verifyLedger();
+            case "register" -> authHandler.get().register(scanner);
+            case "provision" -> authHandler.get().provision(scanner);
+            case "login" -> authHandler.get().login(scanner);
+            case "logout" -> authHandler.get().logout();
+            case "whoami" -> authHandler.get().whoami();
+            case "rotate-keys" -> authHandler.get().rotateKeys(scanner);
+            case "vault" -> vaultHandler.get().handleVaultCommand(scanner);
+            case "revoke-token" -> tokenHandler.get().revokeToken(scanner);
+            case "list-tokens" -> tokenHandler.get().listTokens();
+            case "verify-ledger" -> systemHandler.get().verifyLedger();
             case "help" -> printHelp();
             case "exit" -> {
                 System.out.println("Exiting Vaultify CLI...");
@@ -70,33 +103,36 @@ public class CommandRouter {
             }
 
             // New commands (non-invasive)
-            case "stats" -> systemHandler.showStats();
-            case "health" -> systemHandler.showHealth();
-            case "reconcile", "drift-report" -> systemHandler.reconcileAndReport(scanner);
+            case "stats" -> systemHandler.get().showStats();
+            case "health" -> systemHandler.get().showHealth();
+            case "reconcile", "drift-report" -> systemHandler.get().reconcileAndReport(scanner);
+            case "activity" -> systemHandler.get().showActivity(scanner);
+            case "migrate-storage" -> systemHandler.get().migrateStorage(scanner);
+            case "scrub" -> systemHandler.get().scrub(scanner);
 
             // Dev-only commands
             case "test-ledger" -> {
                 if (devMode) {
-                    systemHandler.testLedgerConnection();
+                    systemHandler.get().testLedgerConnection();
                 } else {
                     System.out.println("✗ Command 'test-ledger' is only available in development mode.");
                 }
             }
             case "test-db" -> {
                 if (devMode) {
-                    systemHandler.testDatabaseConnection();
+                    systemHandler.get().testDatabaseConnection();
                 } else {
                     System.out.println("✗ Command 'test-db' is only available in development mode.");
                 }
             }
             case "reset-all", "reset" -> {
                 if (devMode) {
-                    systemHandler.resetAll(scanner);
+                    systemHandler.get().resetAll(scanner);
                 } else {
                     System.out.println("✗ Command 'reset-all' is only available in development mode.");
                 }
             }
-            case "dev-mode" -> systemHandler.showDevModeStatus();
+            case "dev-mode" -> systemHandler.get().showDevModeStatus();
 
             default -> System.out.println("Unknown command: " + command);
         }
@@ -112,9 +148,11 @@ public class CommandRouter {
         System.out.println("\n=== Vaultify CLI v0.1 Beta Help" + (devMode ? " [DEV MODE]" : " [PRODUCTION]") + " ===");
         System.out.println("\nCore Commands:");
         System.out.println("  register       - create a new user with RSA key pair");
+        System.out.println("  provision      - create many users from a username,password CSV file");
         System.out.println("  login          - login with username/password");
         System.out.println("  logout         - logout current user");
         System.out.println("  whoami         - show current logged-in user");
+        System.out.println("  rotate-keys    - replace your RSA key pair (rewraps keys, no re-encryption)");
         System.out.println("  vault          - vault operations (add/list/view/delete credentials)");
         System.out.println("  revoke-token   - revoke a previously generated token");
         System.out.println("  list-tokens    - list all tokens you've generated");
@@ -125,6 +163,9 @@ public class CommandRouter {
         System.out.println("  health         - run health checks (DB, ledger, storage)");
         System.out.println("  reconcile      - reconcile DB, stored files and ledger; produce drift report");
         System.out.println("  drift-report   - alias for reconcile");
+        System.out.println("  activity       - query the activity log by user and time range");
+        System.out.println("  migrate-storage - move flat credential files into the sharded layout");
+        System.out.println("  scrub          - integrity scrubber status; start a pass now");
 
         if (devMode) {
             System.out.println("\n⚠️  Development Commands (dev.mode=true):");
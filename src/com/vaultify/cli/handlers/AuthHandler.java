@@ -1,9 +1,17 @@
 package com.vaultify.cli.handlers;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
 
 import com.vaultify.models.User;
+import com.vaultify.repository.KeyRotationRepository;
 import com.vaultify.service.AuthService;
+import com.vaultify.service.KeyRotationService;
 
 public class AuthHandler {
     private final AuthService authService;
@@ -87,4 +95,115 @@ public class AuthHandler {
         System.out.println("User ID: " + user.getId());
         System.out.println("User Public Key:\n" + user.getPublicKey());
     }
+
+    public void rotateKeys(Scanner scanner) {
+        if (!authService.isLoggedIn()) {
+            System.out.println("Please login first.");
+            return;
+        }
+        try {
+            KeyRotationRepository.Pending pending = authService.pendingKeyRotation();
+            if (pending != null) {
+                System.out.println("A key rotation started " + new java.util.Date(pending.startedAt)
+                        + " was not finished.");
+                System.out.print("[r]esume or [a]bort? ");
+                String choice = scanner.nextLine().trim().toLowerCase();
+                if (choice.startsWith("a")) {
+                    authService.abortKeyRotation();
+                    System.out.println("Key rotation aborted; your current key pair stays in use.");
+                    return;
+                }
+                if (!choice.startsWith("r")) {
+                    System.out.println("Cancelled.");
+                    return;
+                }
+            } else {
+                System.out.println("This generates a new RSA key pair and rewraps every credential key for it.");
+                System.out.println("Your other sessions will be logged out when it completes.");
+                System.out.print("Continue? [y/N]: ");
+                String confirm = scanner.nextLine().trim().toLowerCase();
+                if (!confirm.equals("y") && !confirm.equals("yes")) {
+                    System.out.println("Cancelled.");
+                    return;
+                }
+            }
+
+            System.out.print("Password: ");
+            String password = scanner.nextLine();
+            KeyRotationService.Result result = authService.rotateKeys(password, System.out);
+            System.out.printf("✓ Key pair rotated: %d credential key(s) and %d shared key(s) rewrapped in %.1f s%n",
+                    result.owned, result.shared, result.seconds);
+        } catch (Exception e) {
+            System.out.println("✗ Key rotation failed: " + e.getMessage());
+            System.out.println("  Your current key pair is still valid; run rotate-keys again to resume.");
+        }
+    }
+
+    public void provision(Scanner scanner) {
+        System.out.print("CSV file (username,password per line): ");
+        Path file = Paths.get(scanner.nextLine().trim());
+        List<AuthService.NewAccount> accounts;
+        try {
+            accounts = readAccounts(file);
+        } catch (IOException e) {
+            System.out.println("Cannot read " + file + ": " + e.getMessage());
+            return;
+        }
+        if (accounts.isEmpty()) {
+            System.out.println("No accounts in " + file + ".");
+            return;
+        }
+
+        System.out.print("Create up to " + accounts.size() + " account(s)? [y/N]: ");
+        String confirm = scanner.nextLine().trim().toLowerCase();
+        if (!confirm.equals("y") && !confirm.equals("yes")) {
+            System.out.println("Cancelled.");
+            return;
+        }
+
+        try {
+            AuthService.ProvisionResult result = authService.provisionUsers(accounts, System.out);
+            System.out.printf("✓ %d account(s) created in %.1f s%n", result.created, result.seconds);
+            if (!result.existing.isEmpty()) {
+                System.out.println("  Already taken (" + result.existing.size() + "): " + summarize(result.existing));
+            }
+            if (!result.rejected.isEmpty()) {
+                System.out.println("  Skipped, empty or repeated (" + result.rejected.size() + "): "
+                        + summarize(result.rejected));
+            }
+        } catch (Exception e) {
+            System.out.println("✗ Provisioning failed: " + e.getMessage());
+            System.out.println("  Accounts already created are kept; running it again skips them.");
+        }
+    }
+
+    /**
+     * One account per line, username and password separated by the first
+     * comma (passwords may contain commas). Blank lines, lines starting with
+     * '#' and a leading "username,password" header are ignored.
+     */
+    private static List<AuthService.NewAccount> readAccounts(Path file) throws IOException {
+        List<AuthService.NewAccount> accounts = new ArrayList<>();
+        boolean first = true;
+        for (String line : Files.readAllLines(file)) {
+            if (line.isBlank() || line.stripLeading().startsWith("#")) {
+                continue;
+            }
+            int comma = line.indexOf(',');
+            String username = (comma < 0 ? line : line.substring(0, comma)).trim();
+            String password = comma < 0 ? "" : line.substring(comma + 1);
+            if (first && username.equalsIgnoreCase("username") && password.trim().equalsIgnoreCase("password")) {
+                first = false;
+                continue;
+            }
+            first = false;
+            accounts.add(new AuthService.NewAccount(username, password));
+        }
+        return accounts;
+    }
+
+    private static String summarize(List<String> names) {
+        return names.size() <= 10 ? String.join(", ", names)
+                : String.join(", ", names.subList(0, 10)) + ", ...";
+    }
 }
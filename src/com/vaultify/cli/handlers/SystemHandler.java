@@ -9,23 +9,34 @@ import java.nio.file.Paths;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
 
+import com.vaultify.crypto.KeyPairPool;
+import com.vaultify.repository.ActivitySegmentStore;
 import com.vaultify.service.AuthService;
 import com.vaultify.service.LedgerService;
+import com.vaultify.threading.ActivityRecord;
+import com.vaultify.threading.InstrumentedExecutor;
+import com.vaultify.threading.ThreadManager;
+import com.vaultify.util.BufferPool;
+import com.vaultify.util.ChunkStore;
+import com.vaultify.util.CiphertextStores;
 import com.vaultify.util.Config;
+import com.vaultify.util.DurableWriter;
+import com.vaultify.util.IntegrityScrubber;
+import com.vaultify.util.PackedSegmentStore;
 import com.vaultify.util.PathValidator;
+import com.vaultify.util.ReconcileEngine;
+import com.vaultify.util.StartupTimer;
+import com.vaultify.util.StorageLayout;
 
 public class SystemHandler {
     private final LedgerService ledgerService;
     private final AuthService authService;
-    private static final Path STORAGE_DIR = Paths.get("vault_data/credentials");
+    private static final Path STORAGE_DIR = StorageLayout.root();
     private static final Path KEYS_DIR = Paths.get("vault_data/keys");
 
     public SystemHandler(LedgerService ledgerService, AuthService authService) {
@@ -49,13 +60,15 @@ public class SystemHandler {
             System.out.println("✗ Could not query database: " + e.getMessage());
         }
 
-        // Disk usage for vault_data
+        // Disk usage for vault_data (shards are walked in parallel)
         try {
-            long[] usage = directorySizeAndCount(STORAGE_DIR);
-            if (usage != null) {
-                System.out.println("\nStorage directory: " + STORAGE_DIR.toAbsolutePath());
-                System.out.println("  Files: " + usage[1]);
-                System.out.println("  Size : " + PathValidator.formatSize(usage[0]));
+            if (Files.isDirectory(STORAGE_DIR)) {
+                List<StorageLayout.StoredFile> files = StorageLayout.scan();
+                long bytes = files.stream().mapToLong(f -> f.size).sum();
+                System.out.println("\nStorage directory: " + STORAGE_DIR.toAbsolutePath()
+                        + (StorageLayout.isSharded() ? " (sharded)" : " (flat)"));
+                System.out.println("  Files: " + files.size());
+                System.out.println("  Size : " + PathValidator.formatSize(bytes));
             } else {
                 System.out.println("\nStorage directory not found: " + STORAGE_DIR.toAbsolutePath());
             }
@@ -63,6 +76,48 @@ public class SystemHandler {
             System.out.println("✗ Could not inspect storage dir: " + ex.getMessage());
         }
 
+        long[] durable = DurableWriter.stats();
+        if (durable[0] > 0) {
+            System.out.println("  Durable writes: " + durable[0] + " in " + durable[1] + " group commit(s), "
+                    + durable[2] + " fsync(s)");
+        }
+
+        BufferPool.Stats pool = BufferPool.stats();
+        if (pool.acquires > 0) {
+            System.out.println("  Buffer pool: " + pool.acquires + " acquire(s), " + pool.hits + " reused, "
+                    + PathValidator.formatSize(pool.retainedBytes) + " retained, " + pool.outstanding + " in use"
+                    + (pool.leaks > 0 ? ", " + pool.leaks + " leaked" : ""));
+        }
+
+        KeyPairPool.Stats keys = KeyPairPool.stats();
+        if (KeyPairPool.isEnabled() || keys.taken > 0) {
+            System.out.println("  Key pool: " + keys.ready + " ready, " + keys.taken + " taken (" + keys.hits
+                    + " pre-generated), " + keys.generated + " generated in background");
+        }
+
+        // Packed small-credential store
+        try {
+            PackedSegmentStore packed = CiphertextStores.packedIfPresent();
+            if (packed != null) {
+                long[] p = packed.stats();
+                System.out.println("\nPacked store: " + p[0] + " credential(s) in " + p[1] + " segment(s), "
+                        + PathValidator.formatSize(p[2]) + " on disk, " + PathValidator.formatSize(p[3]) + " live");
+            }
+        } catch (Exception ex) {
+            System.out.println("✗ Could not inspect packed store: " + ex.getMessage());
+        }
+
+        // Dedup chunk store
+        if (ChunkStore.isEnabled()) {
+            try {
+                long[] chunks = ChunkStore.usage();
+                System.out.println("\nDedup chunks: " + chunks[0] + " (" + PathValidator.formatSize(chunks[1])
+                        + "), references: " + chunks[2]);
+            } catch (Exception ex) {
+                System.out.println("✗ Could not inspect chunk store: " + ex.getMessage());
+            }
+        }
+
         // Ledger status
         try {
             boolean ledgerAvailable = com.vaultify.client.LedgerClient.isServerAvailable();
@@ -75,6 +130,14 @@ public class SystemHandler {
             System.out.println("✗ Could not contact ledger: " + e.getMessage());
         }
 
+        // Executor metrics
+        System.out.println("\nExecutors:");
+        for (InstrumentedExecutor.Metrics m : ThreadManager.metrics()) {
+            System.out.println("  " + m);
+        }
+
+        System.out.println("\nStartup: " + StartupTimer.summary());
+
         System.out.println("======================\n");
     }
 
@@ -163,7 +226,10 @@ public class SystemHandler {
         System.out.println("This operation will inspect:");
         System.out.println("  - DB 'credentials' table entries");
         System.out.println("  - Stored files under: " + STORAGE_DIR.toAbsolutePath());
-        System.out.println("  - Ledger blocks (if ledger server available)\n");
+        System.out.println("  - Packed segments (if present)");
+        System.out.println("  - Ledger blocks (if ledger server available)");
+        System.out.println("Both sides are streamed in credential-id order; a JSON-lines report is written to "
+                + Config.get("reconcile.reportDir", "./vault_data/reports/") + "\n");
 
         System.out.print("Proceed? [y/N]: ");
         String proceed = scanner.nextLine().trim().toLowerCase();
@@ -172,229 +238,38 @@ public class SystemHandler {
             return;
         }
 
-        try (java.sql.Connection conn = com.vaultify.db.Database.getConnection()) {
+        System.out.print("Verify ciphertext hashes (reads all stored data)? [y/N]: ");
+        String verifyIn = scanner.nextLine().trim().toLowerCase();
+        boolean verify = verifyIn.isEmpty() ? Config.getBoolean("reconcile.verifyHashes", false)
+                : verifyIn.equals("y") || verifyIn.equals("yes");
 
-            // 1) Load DB credentials
-            Map<String, DbCred> dbCreds = new HashMap<>();
-            try {
-                // Detect whether 'credential_id_string' exists; fall back safely if not present
-                boolean hasCredIdString = columnExists(conn, "credentials", "credential_id_string");
+        Set<String> ledgerCredIds = collectLedgerTokens();
 
-                StringBuilder select = new StringBuilder("SELECT id, filename, file_size, user_id");
-                if (hasCredIdString)
-                    select.append(", credential_id_string");
-                select.append(" FROM credentials");
-
-                try (PreparedStatement ps = conn.prepareStatement(select.toString());
-                        ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        long id = rs.getLong("id");
-                        String cid = null;
-                        if (hasCredIdString) {
-                            try {
-                                cid = rs.getString("credential_id_string");
-                            } catch (SQLException ignore) {
-                                cid = null;
-                            }
-                        }
-
-                        String filename = null;
-                        try {
-                            filename = rs.getString("filename");
-                        } catch (SQLException ignore) {
-                            filename = null;
-                        }
-
-                        long size = 0L;
-                        try {
-                            size = rs.getLong("file_size");
-                        } catch (SQLException ignore) {
-                            size = 0L;
-                        }
-
-                        long userId = 0L;
-                        try {
-                            userId = rs.getLong("user_id");
-                        } catch (SQLException ignore) {
-                            userId = 0L;
-                        }
-
-                        // If credential id string missing, fall back to filename or id-based
-                        // placeholder
-                        String effectiveCid = cid;
-                        boolean isFallback = false;
-                        if (effectiveCid == null || effectiveCid.trim().isEmpty()) {
-                            isFallback = true;
-                            if (filename != null && !filename.trim().isEmpty()) {
-                                effectiveCid = filename;
-                            } else {
-                                effectiveCid = String.valueOf(id);
-                            }
-                        }
-
-                        dbCreds.put(effectiveCid, new DbCred(effectiveCid, id, filename, size, userId, isFallback));
-                    }
-                }
-
-            } catch (SQLException ex) {
-                System.out.println("✗ Failed to read credentials from DB: " + ex.getMessage());
-            }
-
-            System.out.println("DB credentials found: " + dbCreds.size());
-
-            // 2) Inspect storage directory for files (map: credential-id -> path)
-            Map<String, Path> storedFiles = new HashMap<>();
-            if (Files.exists(STORAGE_DIR) && Files.isDirectory(STORAGE_DIR)) {
-                try (DirectoryStream<Path> ds = Files.newDirectoryStream(STORAGE_DIR)) {
-                    for (Path p : ds) {
-                        if (Files.isRegularFile(p)) {
-                            String name = p.getFileName().toString();
-                            String key = name;
-                            if (name.contains(".")) {
-                                key = name.substring(0, name.indexOf('.'));
-                            }
-                            storedFiles.put(key, p);
-                            storedFiles.put(name, p);
-                        }
-                    }
-                } catch (IOException e) {
-                    System.out.println("✗ Could not list storage dir: " + e.getMessage());
-                }
-            } else {
-                System.out.println("✗ Storage directory not present: " + STORAGE_DIR.toAbsolutePath());
-            }
-
-            System.out.println("Stored files discovered: " + storedFiles.size());
-
-            // 3) Ledger extraction (best-effort, reflection-friendly)
-            Set<String> ledgerCredIds = new HashSet<>();
-            boolean ledgerAvailable = false;
-            try {
-                ledgerAvailable = com.vaultify.client.LedgerClient.isServerAvailable();
-                if (ledgerAvailable) {
-                    List<com.vaultify.models.LedgerBlock> blocks = com.vaultify.client.LedgerClient.getAllBlocks();
-
-                    for (com.vaultify.models.LedgerBlock b : blocks) {
-                        String maybe = extractTextFromLedgerBlock(b);
-                        if (maybe != null && !maybe.isEmpty()) {
-                            String[] tokens = maybe.split("[\\s,\\:\\{\\}\\[\\]\"'\\(\\)<>]+");
-                            for (String tok : tokens) {
-                                if (tok.length() >= 6 && tok.length() <= 128) {
-                                    if (tok.matches(".*[0-9].*") || tok.contains("-")) {
-                                        ledgerCredIds.add(tok);
-                                    }
-                                }
-                            }
-                        }
-                    }
-                    System.out.println("Ledger referenced credential-like tokens found: " + ledgerCredIds.size());
-                } else {
-                    System.out.println("Ledger server not available; skipping ledger checks.");
-                }
-            } catch (Exception e) {
-                System.out.println("✗ Ledger check error: " + e.getMessage());
-            }
-
-            // 4) Compare sets and produce report
-            List<String> missingFiles = new ArrayList<>();
-            List<String> orphanFiles = new ArrayList<>();
-            List<String> mismatchedSizes = new ArrayList<>();
-
-            // DB -> File
-            for (DbCred d : dbCreds.values()) {
-                boolean matched = false;
-                if (storedFiles.containsKey(d.credentialId)) {
-                    matched = true;
-                    Path p = storedFiles.get(d.credentialId);
-                    try {
-                        long actual = Files.size(p);
-                        if (actual != d.fileSize) {
-                            mismatchedSizes.add(d.credentialId + " (DB: " + d.fileSize + " vs FS: " + actual + ") -> "
-                                    + p.getFileName());
-                        }
-                    } catch (IOException ioe) {
-                        mismatchedSizes.add(d.credentialId + " (could not read file) -> " + p.getFileName());
-                    }
-                } else {
-                    if (d.filename != null && storedFiles.containsKey(d.filename)) {
-                        matched = true;
-                        Path p = storedFiles.get(d.filename);
-                        try {
-                            long actual = Files.size(p);
-                            if (actual != d.fileSize) {
-                                mismatchedSizes.add(d.credentialId + " (DB: " + d.fileSize + " vs FS: " + actual
-                                        + ") -> " + p.getFileName());
-                            }
-                        } catch (IOException ioe) {
-                            mismatchedSizes.add(d.credentialId + " (could not read file) -> " + p.getFileName());
-                        }
-                    }
-                }
-
-                if (!matched) {
-                    if (d.isFallbackId) {
-                        missingFiles.add(d.credentialId + " (ID missing in DB, expected file: " + d.filename + ")");
-                    } else {
-                        missingFiles.add(d.credentialId + " (expected file: " + d.filename + ")");
-                    }
-                }
-            }
-
-            // File -> DB (orphan files)
-            // Start with all files as potential orphans
-            Set<Path> potentialOrphans = new HashSet<>(storedFiles.values());
-
-            // Remove files that are referenced by DB entries
-            for (DbCred d : dbCreds.values()) {
-                if (storedFiles.containsKey(d.credentialId)) {
-                    potentialOrphans.remove(storedFiles.get(d.credentialId));
-                } else if (d.filename != null && storedFiles.containsKey(d.filename)) {
-                    potentialOrphans.remove(storedFiles.get(d.filename));
-                }
-            }
+        try (java.sql.Connection conn = com.vaultify.db.Database.getConnection()) {
+            ReconcileEngine.Report report = ReconcileEngine.run(conn, ledgerCredIds, verify);
 
-            for (Path p : potentialOrphans) {
-                orphanFiles.add(p.getFileName().toString() + " -> " + p.toAbsolutePath());
+            System.out.println("\n=== Reconciliation Results ===");
+            System.out.println("DB credentials: " + report.dbRows);
+            System.out.println("Stored ids    : " + report.storedIds);
+            if (verify) {
+                System.out.println("Hashes checked: " + report.hashed);
             }
-
-            // Ledger -> DB: tokens present in ledger but not in DB
-            List<String> ledgerOnly = new ArrayList<>();
-            if (!ledgerCredIds.isEmpty()) {
-                for (String ledgerId : ledgerCredIds) {
-                    if (!dbCreds.containsKey(ledgerId)) {
-                        ledgerOnly.add(ledgerId);
-                    }
-                }
+            if (ledgerCredIds != null) {
+                System.out.println("Ledger tokens : " + ledgerCredIds.size());
             }
 
-            // 5) Present report
-            System.out.println("\n=== Reconciliation Results ===");
-            System.out.println("DB credentials: " + dbCreds.size());
-            System.out.println("Stored files : " + storedFiles.size());
-            if (ledgerAvailable) {
-                System.out.println("Ledger tokens: " + ledgerCredIds.size());
+            printDrift(report, ReconcileEngine.Drift.MISSING_FILE, "Missing files for DB entries");
+            printDrift(report, ReconcileEngine.Drift.ORPHAN_FILE, "Orphan files on disk");
+            printDrift(report, ReconcileEngine.Drift.ORPHAN_REFS, "Orphan .refs sidecars");
+            printDrift(report, ReconcileEngine.Drift.MISSING_REFS, "Dedup credentials without .refs");
+            printDrift(report, ReconcileEngine.Drift.DUPLICATE_FILE, "Stored in both flat and sharded layout");
+            printDrift(report, ReconcileEngine.Drift.SIZE_MISMATCH, "Mismatched sizes");
+            if (verify) {
+                printDrift(report, ReconcileEngine.Drift.HASH_MISMATCH, "Hash mismatches");
+                printDrift(report, ReconcileEngine.Drift.UNREADABLE, "Unreadable ciphertexts");
             }
-
-            System.out.println("\n-- Missing files for DB entries (" + missingFiles.size() + ")");
-            missingFiles.stream().limit(200).forEach(s -> System.out.println("  • " + s));
-            if (missingFiles.size() > 200)
-                System.out.println("  ... (" + (missingFiles.size() - 200) + " more)");
-
-            System.out.println("\n-- Orphan files on disk (" + orphanFiles.size() + ")");
-            orphanFiles.stream().limit(200).forEach(s -> System.out.println("  • " + s));
-            if (orphanFiles.size() > 200)
-                System.out.println("  ... (" + (orphanFiles.size() - 200) + " more)");
-
-            System.out.println("\n-- Mismatched sizes (" + mismatchedSizes.size() + ")");
-            mismatchedSizes.stream().limit(200).forEach(s -> System.out.println("  • " + s));
-            if (mismatchedSizes.size() > 200)
-                System.out.println("  ... (" + (mismatchedSizes.size() - 200) + " more)");
-
-            if (ledgerAvailable) {
-                System.out.println("\n-- Ledger-only tokens/ids (" + ledgerOnly.size() + ")");
-                ledgerOnly.stream().limit(200).forEach(s -> System.out.println("  • " + s));
-                if (ledgerOnly.size() > 200)
-                    System.out.println("  ... (" + (ledgerOnly.size() - 200) + " more)");
+            if (ledgerCredIds != null) {
+                printDrift(report, ReconcileEngine.Drift.LEDGER_ONLY, "Ledger-only tokens/ids");
             }
 
             System.out.println("\n=== Suggested next steps ===");
@@ -403,11 +278,13 @@ public class SystemHandler {
             System.out.println(
                     "  2) Investigate orphan files: determine if they belong to old users or are transient temp files.");
             System.out.println(
-                    "  3) For mismatched sizes: re-download from storage or re-encrypt original source if available.");
-            if (ledgerAvailable) {
+                    "  3) For mismatched sizes or hashes: restore the ciphertext from backup; it cannot be decrypted as is.");
+            if (ledgerCredIds != null) {
                 System.out.println(
                         "  4) For ledger-only IDs: inspect ledger block payloads (structure differs between deployments).");
             }
+            System.out.println("\n" + report.total() + " drift item(s) in " + report.elapsedMs + " ms");
+            System.out.println("Machine-readable report: " + report.file.toAbsolutePath());
             System.out.println("\nReconciliation finished.\n");
 
         } catch (SQLException e) {
@@ -417,6 +294,174 @@ public class SystemHandler {
         }
     }
 
+    private static void printDrift(ReconcileEngine.Report report, ReconcileEngine.Drift kind, String title) {
+        long count = report.count(kind);
+        System.out.println("\n-- " + title + " (" + count + ")");
+        List<String> samples = report.samples.getOrDefault(kind, List.of());
+        samples.forEach(s -> System.out.println("  • " + s));
+        if (count > samples.size())
+            System.out.println("  ... (" + (count - samples.size()) + " more in the report file)");
+    }
+
+    /**
+     * Credential-like tokens referenced by ledger blocks (best-effort,
+     * reflection-friendly), or null when the ledger server is unavailable.
+     */
+    private Set<String> collectLedgerTokens() {
+        try {
+            if (!com.vaultify.client.LedgerClient.isServerAvailable()) {
+                System.out.println("Ledger server not available; skipping ledger checks.");
+                return null;
+            }
+            Set<String> ledgerCredIds = new HashSet<>();
+            List<com.vaultify.models.LedgerBlock> blocks = com.vaultify.client.LedgerClient.getAllBlocks();
+            for (com.vaultify.models.LedgerBlock b : blocks) {
+                String maybe = extractTextFromLedgerBlock(b);
+                if (maybe != null && !maybe.isEmpty()) {
+                    String[] tokens = maybe.split("[\\s,\\:\\{\\}\\[\\]\"'\\(\\)<>]+");
+                    for (String tok : tokens) {
+                        if (tok.length() >= 6 && tok.length() <= 128) {
+                            if (tok.matches(".*[0-9].*") || tok.contains("-")) {
+                                ledgerCredIds.add(tok);
+                            }
+                        }
+                    }
+                }
+            }
+            System.out.println("Ledger referenced credential-like tokens found: " + ledgerCredIds.size());
+            return ledgerCredIds;
+        } catch (Exception e) {
+            System.out.println("✗ Ledger check error: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Query the indexed activity store for one user within a time window.
+     * Outside dev mode users may only view their own activity.
+     */
+    public void showActivity(Scanner scanner) {
+        if (!authService.isLoggedIn()) {
+            System.out.println("✗ Please login first.");
+            return;
+        }
+        if (!Config.getBoolean("activity.store.enabled", true)) {
+            System.out.println("✗ Activity store is disabled (activity.store.enabled=false); see the activity log file.");
+            return;
+        }
+        String self = authService.getCurrentUser().getUsername();
+
+        System.out.print("User [" + self + "]: ");
+        String user = scanner.nextLine().trim();
+        if (user.isEmpty()) {
+            user = self;
+        } else if (user.equals("*") && Config.isDevMode()) {
+            user = null; // all users
+        }
+        if (user != null && !user.equals(self) && !Config.isDevMode()) {
+            System.out.println("✗ You can only view your own activity.");
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        System.out.print("From (yyyy-MM-dd[THH:mm], or e.g. 24h / 7d ago) [24h]: ");
+        String fromIn = scanner.nextLine().trim();
+        System.out.print("To (yyyy-MM-dd[THH:mm]) [now]: ");
+        String toIn = scanner.nextLine().trim();
+        long from;
+        long to;
+        try {
+            from = parseActivityTime(fromIn.isEmpty() ? "24h" : fromIn, now);
+            to = toIn.isEmpty() ? now : parseActivityTime(toIn, now);
+        } catch (IllegalArgumentException e) {
+            System.out.println("✗ " + e.getMessage());
+            return;
+        }
+
+        int limit = Config.getInt("activity.query.limit", 500);
+        List<ActivityRecord> records = ActivitySegmentStore.get().query(user, from, to, limit);
+        System.out.println("\n=== Activity" + (user != null ? " for " + user : "") + " ===");
+        java.time.format.DateTimeFormatter fmt = java.time.format.DateTimeFormatter
+                .ofPattern("yyyy-MM-dd HH:mm:ss").withZone(java.time.ZoneId.systemDefault());
+        for (ActivityRecord r : records) {
+            System.out.printf("  %s  %-8s %-18s %s%n", fmt.format(java.time.Instant.ofEpochMilli(r.epochMs)),
+                    r.user != null ? r.user : "-", r.action, r.details != null ? r.details : "");
+        }
+        System.out.println("  " + records.size() + " record(s)" + (records.size() >= limit ? " (limit reached)" : ""));
+        System.out.println("================================\n");
+    }
+
+    private static long parseActivityTime(String value, long now) {
+        java.util.regex.Matcher m = java.util.regex.Pattern.compile("(\\d+)([mhd])").matcher(value);
+        if (m.matches()) {
+            long n = Long.parseLong(m.group(1));
+            long unit = switch (m.group(2)) {
+                case "m" -> 60_000L;
+                case "h" -> 3_600_000L;
+                default -> 86_400_000L;
+            };
+            return now - n * unit;
+        }
+        try {
+            java.time.LocalDateTime t = value.contains("T")
+                    ? java.time.LocalDateTime.parse(value)
+                    : java.time.LocalDate.parse(value).atStartOfDay();
+            return t.atZone(java.time.ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (java.time.format.DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid time: " + value);
+        }
+    }
+
+    /**
+     * Move credential files from the flat layout into shards. Runs online:
+     * reads fall back to the flat location until a file has been moved.
+     */
+    public void migrateStorage(Scanner scanner) {
+        System.out.println("\n=== Storage Layout Migration ===");
+        if (!StorageLayout.isSharded()) {
+            System.out.println("✗ vault.storage.layout=flat; set it to 'sharded' to migrate.");
+            return;
+        }
+        System.out.println("Moves flat files under " + STORAGE_DIR.toAbsolutePath() + " into xx/yy/ shards.");
+        System.out.print("Proceed? [y/N]: ");
+        String proceed = scanner.nextLine().trim().toLowerCase();
+        if (!proceed.equals("y") && !proceed.equals("yes")) {
+            System.out.println("Cancelled.");
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            long[] result = StorageLayout.migrateToSharded();
+            System.out.println("✓ Moved " + result[0] + " file(s), skipped " + result[1] + " in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        } catch (IOException e) {
+            System.out.println("✗ Migration stopped: " + e.getMessage() + " (safe to re-run)");
+        }
+    }
+
+    public void scrub(Scanner scanner) {
+        System.out.println("\n=== Integrity Scrubber ===");
+        IntegrityScrubber.Status s = IntegrityScrubber.status();
+        System.out.println("Scheduled : " + (IntegrityScrubber.isEnabled()
+                ? "every " + Config.getInt("scrub.intervalMinutes", 60) + " min at "
+                        + Config.getInt("scrub.budgetMBps", 8) + " MB/s"
+                : "no (scrub.enabled=false)"));
+        System.out.println("Pass      : " + s.pass + (s.running ? " (running)" : "") + ", " + s.passesCompleted
+                + " completed");
+        System.out.println("Progress  : " + s.checked + " credential(s), " + PathValidator.formatSize(s.bytes)
+                + (s.position.isEmpty() ? "" : ", at " + s.position));
+        System.out.println("Problems  : " + s.corrupt + " this pass (see "
+                + Paths.get(Config.get("scrub.dir", "./vault_data/scrub/"), "corruptions.jsonl") + ")");
+        if (s.running) {
+            return;
+        }
+        System.out.print("Continue the pass now in the background? [y/N]: ");
+        String proceed = scanner.nextLine().trim().toLowerCase();
+        if (proceed.equals("y") || proceed.equals("yes")) {
+            System.out.println(IntegrityScrubber.runInBackground() ? "✓ Scrub started" : "Scrub already running");
+        }
+    }
+
     public void verifyLedger() {
         try {
             List<String> errors = ledgerService.verifyIntegrity();
@@ -560,7 +605,7 @@ public class SystemHandler {
 
         boolean devMode = Config.isDevMode();
         System.out.println("\nCurrent Mode: " + (devMode ? "🔧 DEVELOPMENT" : "🔒 PRODUCTION"));
-        System.out.println("Config Source: config.properties");
+        System.out.println("Config Source: config.properties, .env (" + Config.dotenvSource() + ")");
         System.out.println("Setting: dev.mode=" + devMode);
 
         if (devMode) {
@@ -731,27 +776,6 @@ public class SystemHandler {
         return 0;
     }
 
-    private long[] directorySizeAndCount(Path dir) throws IOException {
-        if (!Files.exists(dir) || !Files.isDirectory(dir))
-            return null;
-        final long[] acc = new long[] { 0L, 0L };
-        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
-            for (Path p : ds) {
-                if (Files.isRegularFile(p)) {
-                    acc[1] += 1;
-                    acc[0] += Files.size(p);
-                } else if (Files.isDirectory(p)) {
-                    long[] sub = directorySizeAndCount(p);
-                    if (sub != null) {
-                        acc[0] += sub[0];
-                        acc[1] += sub[1];
-                    }
-                }
-            }
-        }
-        return acc;
-    }
-
     private int deleteDirectoryContents(Path dir) throws IOException {
         int count = 0;
         if (!Files.exists(dir) || !Files.isDirectory(dir)) {
@@ -804,30 +828,4 @@ public class SystemHandler {
             return null;
         }
     }
-
-    private boolean columnExists(java.sql.Connection conn, String table, String column) {
-        try (ResultSet rs = conn.getMetaData().getColumns(null, "public", table, column)) {
-            return rs.next();
-        } catch (SQLException e) {
-            return false;
-        }
-    }
-
-    private static class DbCred {
-        String credentialId;
-        long id;
-        String filename;
-        long fileSize;
-        long userId;
-        boolean isFallbackId;
-
-        DbCred(String credentialId, long id, String filename, long fileSize, long userId, boolean isFallbackId) {
-            this.credentialId = credentialId;
-            this.id = id;
-            this.filename = filename;
-            this.fileSize = fileSize;
-            this.userId = userId;
-            this.isFallbackId = isFallbackId;
-        }
-    }
 }
@@ -40,7 +40,7 @@ public class TokenHandler {
                 return;
             }
 
-            tokenService.revokeToken(tokenString);
+            tokenService.revokeToken(authService.requireCurrentSession(), tokenString);
 
         } catch (Exception e) {
             System.out.println("✗ Error revoking token: " + e.getMessage());
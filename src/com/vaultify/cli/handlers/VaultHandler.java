@@ -1,14 +1,20 @@
 package com.vaultify.cli.handlers;
 
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.security.PublicKey;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Scanner;
 
+import com.vaultify.crypto.SecureBuffer;
 import com.vaultify.models.CredentialMetadata;
+import com.vaultify.models.CredentialRecipient;
 import com.vaultify.models.Token;
 import com.vaultify.models.User;
 import com.vaultify.service.AuthService;
@@ -75,6 +81,29 @@ public class VaultHandler {
                     viewCredential(id, scanner);
                 }
                 case "share" -> shareCredential(scanner);
+                case "grant" -> {
+                    if (parts.length < 3) {
+                        System.out.println("Usage: grant <id> <user>[,<user>...]");
+                    } else {
+                        String users = String.join(",", Arrays.copyOfRange(parts, 2, parts.length));
+                        grantAccess(parts[1], Arrays.asList(users.split(",")));
+                    }
+                }
+                case "revoke" -> {
+                    if (parts.length < 3) {
+                        System.out.println("Usage: revoke <id> <user>");
+                    } else {
+                        revokeAccess(parts[1], parts[2]);
+                    }
+                }
+                case "recipients" -> {
+                    if (parts.length < 2) {
+                        System.out.println("Usage: recipients <id>");
+                    } else {
+                        listRecipients(parts[1]);
+                    }
+                }
+                case "shared" -> listSharedWithMe();
                 case "delete" -> {
                     String id = parts.length > 1 ? parts[1] : null;
                     if (id == null || id.isEmpty()) {
@@ -100,8 +129,12 @@ public class VaultHandler {
         System.out.println("  add                   - add credential (interactive)");
         System.out.println("  delete <id>           - delete a credential");
         System.out.println("  list                  - list stored credentials");
-        System.out.println("  view <id>             - view credential details");
+        System.out.println("  view <id>             - view credential details (own or shared with you)");
         System.out.println("  share                 - generate share token + signed certificate for credential");
+        System.out.println("  grant <id> <users>    - let users decrypt a credential with their own key (comma-separated)");
+        System.out.println("  revoke <id> <user>    - remove a user's access to a credential");
+        System.out.println("  recipients <id>       - list users a credential is shared with");
+        System.out.println("  shared                - list credentials shared with you");
         System.out.println("  verify-cert           - verify a certificate file with public key");
         System.out.println("  back                  - return to top-level CLI");
     }
@@ -135,7 +168,8 @@ public class VaultHandler {
             }
 
             // Add credential
-            String credentialId = vaultService.addCredential(user.getId(), validation.normalizedPath, publicKey);
+            String credentialId = vaultService.addCredential(authService.requireCurrentSession(),
+                    validation.normalizedPath);
             System.out.println("\n✓ Credential added successfully!");
             System.out.println("  ID: " + credentialId);
 
@@ -199,7 +233,7 @@ public class VaultHandler {
             }
 
             // Add credential
-            String credentialId = vaultService.addCredential(user.getId(), tempFile, publicKey);
+            String credentialId = vaultService.addCredential(authService.requireCurrentSession(), tempFile);
 
             // Clean up temp file
             Files.deleteIfExists(tempFile);
@@ -253,22 +287,27 @@ public class VaultHandler {
                 return;
             }
 
-            // Retrieve and decrypt
-            byte[] plaintext = vaultService.retrieveCredential(id, privateKey);
-
-            // Display as text (assuming text content)
-            System.out.println("\n=== Credential Content ===");
-            System.out.println(new String(plaintext, StandardCharsets.UTF_8));
-            System.out.println("\n==========================");
-
-            // Ask if user wants to save to file
-            System.out.print("\nSave to file? [y/N]: ");
-            String save = scanner.nextLine().trim().toLowerCase();
-            if (save.equals("y") || save.equals("yes")) {
-                System.out.print("Output file path: ");
-                String outPath = scanner.nextLine().trim();
-                Files.write(Paths.get(outPath), plaintext);
-                System.out.println("✓ Saved to: " + outPath);
+            // Retrieve and decrypt (ownership enforced by the session-aware overload);
+            // the plaintext stays off-heap and is zeroed when this block exits
+            try (SecureBuffer plaintext = vaultService.retrieveCredentialBuffer(authService.requireCurrentSession(),
+                    id)) {
+                // Display as text (assuming text content)
+                System.out.println("\n=== Credential Content ===");
+                printText(plaintext);
+                System.out.println("\n==========================");
+
+                // Ask if user wants to save to file
+                System.out.print("\nSave to file? [y/N]: ");
+                String save = scanner.nextLine().trim().toLowerCase();
+                if (save.equals("y") || save.equals("yes")) {
+                    System.out.print("Output file path: ");
+                    String outPath = scanner.nextLine().trim();
+                    try (FileChannel out = FileChannel.open(Paths.get(outPath), StandardOpenOption.CREATE,
+                            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                        plaintext.writeTo(out);
+                    }
+                    System.out.println("✓ Saved to: " + outPath);
+                }
             }
 
         } catch (Exception e) {
@@ -276,6 +315,21 @@ public class VaultHandler {
         }
     }
 
+    /**
+     * Print UTF-8 content without building a String, then zero the decoded chars.
+     */
+    private static void printText(SecureBuffer content) {
+        CharBuffer decoded = StandardCharsets.UTF_8.decode(content.readOnlyView());
+        char[] text = new char[decoded.remaining()];
+        try {
+            decoded.get(text);
+            System.out.println(text);
+        } finally {
+            Arrays.fill(decoded.array(), '\0');
+            Arrays.fill(text, '\0');
+        }
+    }
+
     private void deleteCredential(String id) {
         if (id == null || id.isEmpty()) {
             System.out.println("Invalid credential id.");
@@ -283,8 +337,7 @@ public class VaultHandler {
         }
 
         try {
-            User user = authService.getCurrentUser();
-            vaultService.deleteCredential(id, user.getId());
+            vaultService.deleteCredential(authService.requireCurrentSession(), id);
             System.out.println("✓ Credential deleted: " + id);
 
         } catch (Exception e) {
@@ -321,43 +374,12 @@ public class VaultHandler {
             String exp = scanner.nextLine().trim();
             int expiryHours = exp.isEmpty() ? 48 : Integer.parseInt(exp);
 
-            // Generate token (not yet persisted) then persist
-            // Use credential ID or hash of UUID string as numeric reference
-            long credIdNum = (cred.id != 0) ? cred.id : Math.abs(cred.credentialIdString.hashCode());
-            Token token = tokenService.generateToken(user.getId(), credIdNum, expiryHours);
-            tokenService.persistToken(token);
-
-            // Get user's private key for signing certificate
-            java.security.PrivateKey privateKey = authService.getUserPrivateKey(user.getUsername());
-            if (privateKey == null) {
-                System.out.println("✗ Failed to load your private key.");
-                return;
-            }
-
-            // Get user's public key path for certificate (auto-create if missing)
-            Path publicKeyPath = Paths.get("vault_data", "keys", user.getUsername() + "_public.pem");
-            if (!Files.exists(publicKeyPath)) {
-                try {
-                    Files.createDirectories(publicKeyPath.getParent());
-                    // Reconstruct PEM from Base64 stored in user (X.509 encoded bytes)
-                    byte[] pubDer = java.util.Base64.getDecoder().decode(user.getPublicKey());
-                    String pemBody = java.util.Base64.getMimeEncoder(64, "\n".getBytes()).encodeToString(pubDer);
-                    String pem = "-----BEGIN PUBLIC KEY-----\n" + pemBody + "\n-----END PUBLIC KEY-----\n";
-                    Files.writeString(publicKeyPath, pem);
-                    System.out.println("[Auto-Recovery] Public key file recreated: " + publicKeyPath);
-                } catch (Exception pkEx) {
-                    System.out.println("✗ Public key not found and could not be recreated: " + pkEx.getMessage());
-                    return;
-                }
-            }
-
-            // Generate certificate
-            Path certOutputDir = Paths.get("vault_data/certificates");
-            Files.createDirectories(certOutputDir);
-            String tokenHash = com.vaultify.crypto.HashUtil.sha256(token.getToken());
-            Path certPath = certOutputDir.resolve("cert-" + tokenHash.substring(0, 16) + ".json");
-
-            tokenService.createCertificate(token, cred, privateKey, publicKeyPath, certPath);
+            // Issue token, persist it and write the signed certificate
+            TokenService.ShareResult share = tokenService.shareCredential(authService.requireCurrentSession(),
+                    cred, expiryHours);
+            Token token = share.token;
+            String tokenHash = share.tokenHash;
+            Path certPath = share.certificatePath;
 
             System.out.println("\n✅ Share token and certificate generated!");
             System.out.println("===========================================");
@@ -383,6 +405,65 @@ public class VaultHandler {
         }
     }
 
+    private void grantAccess(String id, List<String> usernames) {
+        try {
+            List<String> granted = vaultService.grantAccess(authService.requireCurrentSession(), id, usernames);
+            System.out.println("✓ Access granted to " + String.join(", ", granted));
+            System.out.println("  Recipients can now 'view " + id + "' with their own key.");
+        } catch (Exception e) {
+            System.out.println("✗ Failed to grant access: " + e.getMessage());
+        }
+    }
+
+    private void revokeAccess(String id, String username) {
+        try {
+            if (vaultService.revokeAccess(authService.requireCurrentSession(), id, username)) {
+                System.out.println("✓ Access revoked for " + username);
+            } else {
+                System.out.println(username + " had no access to " + id);
+            }
+        } catch (Exception e) {
+            System.out.println("✗ Failed to revoke access: " + e.getMessage());
+        }
+    }
+
+    private void listRecipients(String id) {
+        try {
+            List<CredentialRecipient> recipients = vaultService.listRecipients(authService.requireCurrentSession(),
+                    id);
+            if (recipients.isEmpty()) {
+                System.out.println("Credential is not shared with anyone.");
+                return;
+            }
+            System.out.println("\n=== Recipients of " + id + " ===");
+            for (CredentialRecipient r : recipients) {
+                System.out.println("  " + r.recipientUsername + " (since " + new java.util.Date(r.grantedAt) + ")");
+            }
+        } catch (Exception e) {
+            System.out.println("✗ Failed to list recipients: " + e.getMessage());
+        }
+    }
+
+    private void listSharedWithMe() {
+        try {
+            List<CredentialMetadata> credentials = vaultService.listSharedWithMe(authService.requireCurrentSession());
+            if (credentials.isEmpty()) {
+                System.out.println("No credentials shared with you.");
+                return;
+            }
+            System.out.println("\n=== Shared With You ===");
+            for (CredentialMetadata meta : credentials) {
+                System.out.println("\nID: " + meta.credentialIdString);
+                System.out.println("  File: " + meta.filename);
+                System.out.println("  Size: " + PathValidator.formatSize(meta.fileSize));
+                System.out.println("  Owner: user " + meta.userId);
+            }
+            System.out.println("\nTotal: " + credentials.size() + " credential(s)");
+        } catch (Exception e) {
+            System.out.println("✗ Failed to list shared credentials: " + e.getMessage());
+        }
+    }
+
     private void verifyCertificate(Scanner scanner) {
         try {
             System.out.print("Enter certificate path: ");
@@ -1,11 +1,13 @@
 package com.vaultify.crypto;
 
+import java.nio.ByteBuffer;
 import java.security.Key;
 import java.security.SecureRandom;
 import java.util.Arrays;
 
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
@@ -21,14 +23,12 @@ public class AESEngine implements CryptoEngine {
         if (!(key instanceof SecretKey)) {
             throw new IllegalArgumentException("AES encryption requires a SecretKey");
         }
-        byte[] iv = generateIv();
-        byte[] cipher = encryptWithParams(data, key.getEncoded(), iv);
-
-        // Prepend IV to ciphertext so caller can store both (IV || Ciphertext)
-        byte[] out = new byte[iv.length + cipher.length];
-        System.arraycopy(iv, 0, out, 0, iv.length);
-        System.arraycopy(cipher, 0, out, iv.length, cipher.length);
-        return out;
+        byte[] raw = key.getEncoded();
+        try {
+            return encryptFramed(data, raw);
+        } finally {
+            Arrays.fill(raw, (byte) 0);
+        }
     }
 
     @Override
@@ -36,15 +36,79 @@ public class AESEngine implements CryptoEngine {
         if (!(key instanceof SecretKey)) {
             throw new IllegalArgumentException("AES decryption requires a SecretKey");
         }
-        if (data == null || data.length < GCM_IV_BYTES + 1) {
+        byte[] raw = key.getEncoded();
+        try {
+            return decryptFramed(data, raw);
+        } finally {
+            Arrays.fill(raw, (byte) 0);
+        }
+    }
+
+    // Framed format: IV || ciphertext || tag, written and read in place
+
+    /**
+     * Size of the framed output for a plaintext of the given length.
+     */
+    public static int framedSize(int plaintextLength) {
+        return GCM_IV_BYTES + plaintextLength + GCM_TAG_BITS / 8;
+    }
+
+    /**
+     * Encrypt the remaining bytes of {@code in} with a fresh IV, writing
+     * IV || ciphertext || tag into {@code out} at its position. Works with
+     * heap or direct buffers; nothing is copied into intermediate arrays.
+     *
+     * @return number of bytes written ({@link #framedSize} of the input)
+     */
+    public static int encrypt(ByteBuffer in, ByteBuffer out, byte[] key) throws Exception {
+        if (out.remaining() < framedSize(in.remaining())) {
+            throw new ShortBufferException("Need " + framedSize(in.remaining()) + " bytes, have " + out.remaining());
+        }
+        byte[] iv = generateIv();
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new GCMParameterSpec(GCM_TAG_BITS, iv));
+        out.put(iv);
+        return GCM_IV_BYTES + cipher.doFinal(in, out);
+    }
+
+    /**
+     * Reverse of {@link #encrypt(ByteBuffer, ByteBuffer, byte[])}: reads the IV
+     * from the front of {@code in} and decrypts the rest into {@code out}.
+     *
+     * @return number of plaintext bytes written
+     */
+    public static int decrypt(ByteBuffer in, ByteBuffer out, byte[] key) throws Exception {
+        if (in.remaining() < GCM_IV_BYTES + GCM_TAG_BITS / 8) {
             throw new IllegalArgumentException("Invalid ciphertext format");
         }
-        // Extract IV from start
         byte[] iv = new byte[GCM_IV_BYTES];
-        System.arraycopy(data, 0, iv, 0, GCM_IV_BYTES);
-        byte[] cipher = Arrays.copyOfRange(data, GCM_IV_BYTES, data.length);
+        in.get(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key, "AES"), new GCMParameterSpec(GCM_TAG_BITS, iv));
+        return cipher.doFinal(in, out);
+    }
 
-        return decryptWithParams(cipher, key.getEncoded(), iv);
+    /**
+     * Array form of the framed encrypt: one output allocation, no copies.
+     */
+    public static byte[] encryptFramed(byte[] plaintext, byte[] key) throws Exception {
+        if (plaintext == null)
+            plaintext = new byte[0];
+        byte[] out = new byte[framedSize(plaintext.length)];
+        encrypt(ByteBuffer.wrap(plaintext), ByteBuffer.wrap(out), key);
+        return out;
+    }
+
+    /**
+     * Array form of the framed decrypt; the ciphertext is read in place.
+     */
+    public static byte[] decryptFramed(byte[] framed, byte[] key) throws Exception {
+        if (framed == null || framed.length < GCM_IV_BYTES + GCM_TAG_BITS / 8) {
+            throw new IllegalArgumentException("Invalid ciphertext format");
+        }
+        byte[] out = new byte[framed.length - GCM_IV_BYTES - GCM_TAG_BITS / 8];
+        decrypt(ByteBuffer.wrap(framed), ByteBuffer.wrap(out), key);
+        return out;
     }
 
     // Utilities
@@ -78,4 +142,79 @@ public class AESEngine implements CryptoEngine {
         cipher.init(Cipher.DECRYPT_MODE, secretKey, spec);
         return cipher.doFinal(ciphertext);
     }
+
+    // SecureBuffer variants: key and plaintext stay off-heap except for the
+    // copy the JCE provider keeps inside the initialised Cipher.
+
+    public static SecureBuffer generateSecureKey() {
+        return SecureBuffer.moveFrom(generateKey());
+    }
+
+    public static byte[] encryptWithParams(SecureBuffer plaintext, SecureBuffer key, byte[] iv) throws Exception {
+        Cipher cipher = init(Cipher.ENCRYPT_MODE, key, iv);
+        ByteBuffer in = plaintext.readOnlyView();
+        byte[] out = new byte[cipher.getOutputSize(in.remaining())];
+        int n = cipher.doFinal(in, ByteBuffer.wrap(out));
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Decrypt straight into a new SecureBuffer; the plaintext never exists as
+     * a heap array. The caller owns (and must close) the result.
+     */
+    public static SecureBuffer decryptToBuffer(byte[] ciphertext, SecureBuffer key, byte[] iv) throws Exception {
+        return decryptToBuffer(ByteBuffer.wrap(ciphertext), key, iv);
+    }
+
+    /**
+     * {@link #decryptToBuffer(byte[], SecureBuffer, byte[])} reading the
+     * remaining bytes of a (typically pooled direct) buffer.
+     */
+    public static SecureBuffer decryptToBuffer(ByteBuffer ciphertext, SecureBuffer key, byte[] iv) throws Exception {
+        Cipher cipher = init(Cipher.DECRYPT_MODE, key, iv);
+        SecureBuffer out = SecureBuffer.allocate(cipher.getOutputSize(ciphertext.remaining()));
+        try {
+            out.truncate(cipher.doFinal(ciphertext, out.view()));
+            return out;
+        } catch (Exception e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Decrypt into the remaining space of {@code out} (e.g. a slice of a
+     * SecureBuffer view). Returns the number of bytes written.
+     */
+    public static int decryptInto(byte[] ciphertext, byte[] key, byte[] iv, ByteBuffer out) throws Exception {
+        return decryptInto(ByteBuffer.wrap(ciphertext), key, iv, out);
+    }
+
+    public static int decryptInto(ByteBuffer ciphertext, byte[] key, byte[] iv, ByteBuffer out) throws Exception {
+        SecretKey secretKey = new SecretKeySpec(key, "AES");
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(GCM_TAG_BITS, iv));
+        return cipher.doFinal(ciphertext, out);
+    }
+
+    /**
+     * Encrypt with an explicit IV into the remaining space of {@code out}
+     * (ciphertext || tag, no IV framing). Returns the number of bytes written.
+     */
+    public static int encryptInto(ByteBuffer plaintext, byte[] key, byte[] iv, ByteBuffer out) throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new GCMParameterSpec(GCM_TAG_BITS, iv));
+        return cipher.doFinal(plaintext, out);
+    }
+
+    private static Cipher init(int mode, SecureBuffer key, byte[] iv) throws Exception {
+        byte[] raw = key.toByteArray();
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(mode, new SecretKeySpec(raw, "AES"), new GCMParameterSpec(GCM_TAG_BITS, iv));
+            return cipher;
+        } finally {
+            SecureBuffer.wipe(raw);
+        }
+    }
 }
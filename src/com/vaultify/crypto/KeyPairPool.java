@@ -0,0 +1,173 @@
+package com.vaultify.crypto;
+
+import java.security.KeyPair;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.vaultify.threading.ThreadManager;
+import com.vaultify.util.Config;
+
+/**
+ * Pre-generated 2048-bit RSA key pairs for registration.
+ *
+ * RSA key generation is a prime search, so one pair takes anywhere from a
+ * few tens to several hundred milliseconds. A scheduler tick (at most
+ * vault.keyPool.refillPerSecond times a second) generates one pair at a time
+ * on the CPU executor once the pool drops below vault.keyPool.lowWatermark,
+ * until it holds vault.keyPool.capacity pairs again; {@link #take()} then
+ * hands out a finished pair at once and only generates inline when the pool
+ * is empty. {@link #take(int)} drains the pool and generates the rest in
+ * parallel, for provisioning many users at once.
+ *
+ * Pooled private keys exist only in memory, unencrypted until a user's
+ * password encrypts them; they are lost with the process, never written.
+ */
+public final class KeyPairPool {
+    public static final int KEY_SIZE = 2048;
+
+    private static final boolean ENABLED = Config.getBoolean("vault.keyPool.enabled", true);
+    private static final int CAPACITY = Math.max(1, Config.getInt("vault.keyPool.capacity", 16));
+    private static final int LOW_WATERMARK = Math.max(0,
+            Math.min(CAPACITY, Config.getInt("vault.keyPool.lowWatermark", 4)));
+    private static final int REFILL_PER_SECOND = Math.max(1, Config.getInt("vault.keyPool.refillPerSecond", 2));
+
+    private static final LinkedBlockingQueue<KeyPair> READY = new LinkedBlockingQueue<>(CAPACITY);
+    private static final AtomicBoolean STARTED = new AtomicBoolean();
+    private static final AtomicBoolean GENERATING = new AtomicBoolean();
+
+    private static final AtomicLong TAKEN = new AtomicLong();
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong GENERATED = new AtomicLong();
+
+    // Set below the low watermark, cleared once the pool is full again
+    private static volatile boolean refilling = true;
+
+    private KeyPairPool() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Start background refills after {@code initialDelaySeconds}. Idempotent;
+     * {@link #take()} starts them too, without the delay.
+     */
+    public static void start(int initialDelaySeconds) {
+        if (!ENABLED || !STARTED.compareAndSet(false, true)) {
+            return;
+        }
+        long period = Math.max(1, 1000 / REFILL_PER_SECOND);
+        ThreadManager.scheduleAtFixedRate(KeyPairPool::tick, Math.max(0, initialDelaySeconds) * 1000L, period,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * A key pair, pre-generated when one is ready.
+     */
+    public static KeyPair take() {
+        TAKEN.incrementAndGet();
+        if (!ENABLED) {
+            return RSAEngine.generateKeyPair(KEY_SIZE);
+        }
+        start(0);
+        KeyPair pair = READY.poll();
+        if (pair != null) {
+            HITS.incrementAndGet();
+            return pair;
+        }
+        return RSAEngine.generateKeyPair(KEY_SIZE);
+    }
+
+    /**
+     * {@code count} key pairs: pre-generated ones first, the rest generated in
+     * parallel on the CPU executor, one per core at a time so other CPU work
+     * (logins, retrievals) is not queued behind the whole batch.
+     */
+    public static List<KeyPair> take(int count) throws Exception {
+        List<KeyPair> pairs = new ArrayList<>(count);
+        if (ENABLED) {
+            start(0);
+            READY.drainTo(pairs, count);
+            HITS.addAndGet(pairs.size());
+        }
+        TAKEN.addAndGet(count);
+        int window = Runtime.getRuntime().availableProcessors();
+        ArrayDeque<Future<KeyPair>> pending = new ArrayDeque<>(window);
+        for (int i = pairs.size(); i < count || !pending.isEmpty();) {
+            if (i < count && pending.size() < window) {
+                pending.add(ThreadManager.submitCpu(() -> RSAEngine.generateKeyPair(KEY_SIZE)));
+                i++;
+                continue;
+            }
+            try {
+                pairs.add(pending.poll().get());
+            } catch (ExecutionException e) {
+                pending.forEach(f -> f.cancel(false));
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Counters since startup.
+     */
+    public static final class Stats {
+        public final int ready;
+        public final long taken;
+        public final long hits; // taken pairs that were pre-generated
+        public final long generated; // pairs generated in the background
+
+        Stats(int ready, long taken, long hits, long generated) {
+            this.ready = ready;
+            this.taken = taken;
+            this.hits = hits;
+            this.generated = generated;
+        }
+    }
+
+    public static Stats stats() {
+        return new Stats(READY.size(), TAKEN.get(), HITS.get(), GENERATED.get());
+    }
+
+    /**
+     * One refill step: start a single generation when the pool needs one and
+     * none is running, so background work stays within the configured rate.
+     */
+    private static void tick() {
+        int size = READY.size();
+        if (size < LOW_WATERMARK) {
+            refilling = true;
+        } else if (size >= CAPACITY) {
+            refilling = false;
+        }
+        if (!refilling || !GENERATING.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            ThreadManager.submitCpu(() -> {
+                try {
+                    READY.offer(RSAEngine.generateKeyPair(KEY_SIZE));
+                    GENERATED.incrementAndGet();
+                } catch (RuntimeException e) {
+                    System.err.println("[KeyPool] Key generation failed: " + e.getMessage());
+                } finally {
+                    GENERATING.set(false);
+                }
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            GENERATING.set(false);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.vaultify.crypto;
+
+import java.security.Key;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+
+import com.vaultify.util.Config;
+
+/**
+ * KeyWrap - wraps and unwraps per-credential AES data keys with whichever
+ * scheme the user key belongs to, so rows written under either scheme stay
+ * readable side by side:
+ * - {@link #RSA_OAEP}: RSA-OAEP (SHA-256) with the user's RSA key pair
+ * - {@link #X25519}: X25519 + HKDF + AES key wrap ({@link X25519Engine})
+ *
+ * The scheme is recorded per credential (credentials.key_scheme); a missing
+ * value means RSA-OAEP, the only scheme before X25519 was added. Users keep
+ * their RSA pair for certificate signing either way.
+ */
+public final class KeyWrap {
+    public static final String RSA_OAEP = "rsa-oaep";
+    public static final String X25519 = "x25519-hkdf-aeswrap";
+
+    private KeyWrap() {
+    }
+
+    /**
+     * Scheme used for new wraps when the user has keys for both
+     * (vault.keyWrap.scheme: x25519 or rsa).
+     */
+    public static boolean preferX25519() {
+        return !"rsa".equalsIgnoreCase(Config.get("vault.keyWrap.scheme", "x25519"));
+    }
+
+    /**
+     * Key to wrap new data keys for a user: the X25519 key when the user has
+     * one and it is preferred, else the RSA key.
+     */
+    public static PublicKey preferred(PublicKey rsaKey, PublicKey x25519Key) {
+        return x25519Key != null && preferX25519() ? x25519Key : rsaKey;
+    }
+
+    public static String schemeOf(Key key) {
+        String algorithm = key.getAlgorithm();
+        if ("RSA".equals(algorithm)) {
+            return RSA_OAEP;
+        }
+        if (X25519Engine.ALGORITHM.equals(algorithm) || "XDH".equals(algorithm)) {
+            return X25519;
+        }
+        throw new IllegalArgumentException("Unsupported key-wrap key: " + algorithm);
+    }
+
+    /**
+     * Normalized scheme name (null and "" mean RSA-OAEP).
+     */
+    public static String normalize(String scheme) {
+        return scheme == null || scheme.isEmpty() ? RSA_OAEP : scheme;
+    }
+
+    public static byte[] wrap(byte[] dataKey, PublicKey publicKey) throws Exception {
+        return X25519.equals(schemeOf(publicKey)) ? X25519Engine.wrap(dataKey, publicKey)
+                : RSAEngine.encryptWithKey(dataKey, publicKey);
+    }
+
+    /**
+     * Unwrap a data key recorded under {@code scheme}; the private key must be
+     * of that scheme.
+     */
+    public static byte[] unwrap(String scheme, byte[] wrapped, PrivateKey privateKey) throws Exception {
+        String expected = normalize(scheme);
+        if (privateKey == null || !expected.equals(schemeOf(privateKey))) {
+            throw new IllegalArgumentException("No " + expected + " key available to unwrap this credential");
+        }
+        return X25519.equals(expected) ? X25519Engine.unwrap(wrapped, privateKey)
+                : RSAEngine.decryptWithKey(wrapped, privateKey);
+    }
+}
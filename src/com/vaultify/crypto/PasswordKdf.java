@@ -0,0 +1,345 @@
+package com.vaultify.crypto;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+import com.vaultify.threading.ThreadManager;
+import com.vaultify.util.Config;
+import com.vaultify.util.DurableWriter;
+
+/**
+ * PasswordKdf - salted, tunable-cost password derivation (PBKDF2-HMAC-SHA256).
+ *
+ * One derivation yields both the stored password verifier and the AES key
+ * that encrypts the user's private keys, so a login costs a single KDF run.
+ * Each user has a random salt, an iteration count and a lane count
+ * (users.password_salt / password_iterations / password_lanes). Lane i is
+ * PBKDF2(password, salt || i); lanes run in parallel on the CPU executor and
+ * both outputs are HKDF-derived from all of them, so an attacker has to pay
+ * for every lane while a login waits for one.
+ *
+ * The iteration count for new hashes is vault.kdf.iterations, or, when that
+ * is 0, calibrated once so one lane takes about vault.kdf.targetMillis on this
+ * machine (never below vault.kdf.minIterations). The result is kept in
+ * vault.kdf.calibrationFile and reused by later runs, so the target does not
+ * move between restarts; delete the file (or change the target) to measure
+ * again. Until the first calibration finishes the minimum count is used.
+ * At most vault.kdf.maxConcurrent derivations run at once (never more than
+ * the CPU executor can run with all their lanes); further callers
+ * wait up to vault.kdf.queueTimeoutMillis and are then turned away, which
+ * keeps login latency bounded when many users log in together.
+ */
+public final class PasswordKdf {
+    public static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+
+    private static final int SALT_BYTES = 16;
+    private static final int LANE_BYTES = 32;
+    private static final int KEY_BYTES = 32;
+    private static final int CALIBRATION_PROBE = 20_000;
+    private static final int CALIBRATION_PATIENCE = 10; // runs without a new best before stopping
+    private static final long CALIBRATION_MAX_NANOS = 8_000_000_000L;
+    private static final byte[] VERIFIER_INFO = "vaultify-password-verifier-v1".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] KEY_INFO = "vaultify-private-key-v1".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int FIXED_ITERATIONS = Math.max(0, Config.getInt("vault.kdf.iterations", 0));
+    private static final int TARGET_MILLIS = Math.max(10, Config.getInt("vault.kdf.targetMillis", 250));
+    private static final int MIN_ITERATIONS = Math.max(1000, Config.getInt("vault.kdf.minIterations", 100_000));
+    private static final int MAX_ITERATIONS = Math.max(MIN_ITERATIONS,
+            Config.getInt("vault.kdf.maxIterations", 10_000_000));
+    private static final int LANES = Math.max(1, Config.getInt("vault.kdf.lanes", 1));
+    private static final int MAX_CONCURRENT = Math.max(1, Math.min(
+            Config.getInt("vault.kdf.maxConcurrent", 0) > 0 ? Config.getInt("vault.kdf.maxConcurrent", 0)
+                    : Integer.MAX_VALUE,
+            ThreadManager.cpuThreads() / LANES));
+    private static final long QUEUE_TIMEOUT_MILLIS = Math.max(0, Config.getInt("vault.kdf.queueTimeoutMillis", 2000));
+    private static final Path CALIBRATION_FILE = Paths.get(
+            Config.get("vault.kdf.calibrationFile", "./vault_data/kdf/calibration.properties"));
+
+    private static final Semaphore PERMITS = new Semaphore(MAX_CONCURRENT, true);
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static volatile int calibrated = loadCalibration(); // 0 until measured
+
+    private PasswordKdf() {
+    }
+
+    /**
+     * Verifier and private-key encryption key from one derivation.
+     * {@link #close()} zeroes the key.
+     */
+    public static final class Derived implements AutoCloseable {
+        public final String verifierBase64;
+        public final byte[] encryptionKey;
+
+        Derived(String verifierBase64, byte[] encryptionKey) {
+            this.verifierBase64 = verifierBase64;
+            this.encryptionKey = encryptionKey;
+        }
+
+        /**
+         * Constant-time comparison with a stored verifier.
+         */
+        public boolean matches(String storedVerifierBase64) {
+            return storedVerifierBase64 != null && MessageDigest.isEqual(
+                    verifierBase64.getBytes(StandardCharsets.US_ASCII),
+                    storedVerifierBase64.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        @Override
+        public void close() {
+            SecureBuffer.wipe(encryptionKey);
+        }
+    }
+
+    public static String newSaltBase64() {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        return Base64.getEncoder().encodeToString(salt);
+    }
+
+    /**
+     * Lanes for new hashes (vault.kdf.lanes).
+     */
+    public static int lanes() {
+        return LANES;
+    }
+
+    /**
+     * Iteration count for new hashes: the configured value, else the
+     * calibrated one, else the minimum while calibration has not finished.
+     * Never blocks.
+     */
+    public static int iterations() {
+        if (FIXED_ITERATIONS > 0) {
+            return FIXED_ITERATIONS;
+        }
+        int n = calibrated;
+        return n > 0 ? n : MIN_ITERATIONS;
+    }
+
+    /**
+     * Measure and store the iteration count unless it is configured or was
+     * stored by an earlier run. Runs in the background at startup.
+     *
+     * @return the iteration count for new hashes afterwards
+     */
+    public static int calibrateIfNeeded() {
+        if (FIXED_ITERATIONS == 0 && calibrated == 0) {
+            synchronized (PasswordKdf.class) {
+                if (calibrated == 0) {
+                    int n = calibrate();
+                    saveCalibration(n);
+                    calibrated = n;
+                }
+            }
+        }
+        return iterations();
+    }
+
+    /**
+     * Whether a stored hash should be re-derived with the current settings:
+     * unsalted legacy hashes, fewer lanes, or clearly fewer iterations than
+     * the current target (the margin absorbs calibration noise).
+     */
+    public static boolean needsUpgrade(String saltBase64, int iterations, int lanes) {
+        return saltBase64 == null || lanes < LANES || iterations < iterations() * 3L / 4;
+    }
+
+    /**
+     * Derive the verifier and key. Waits for a free slot, at most
+     * vault.kdf.queueTimeoutMillis.
+     *
+     * @throws IllegalStateException when no slot became free in time
+     */
+    public static Derived derive(String password, String saltBase64, int iterations, int lanes)
+            throws Exception {
+        if (!PERMITS.tryAcquire(QUEUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Too many concurrent password checks; try again");
+        }
+        return deriveHoldingPermit(password, saltBase64, iterations, lanes);
+    }
+
+    /**
+     * Derive for background work (bulk provisioning): waits as long as it
+     * takes, in the same fair queue as logins, so it is never turned away
+     * and never jumps ahead of a waiting login.
+     */
+    public static Derived deriveQueued(String password, String saltBase64, int iterations, int lanes)
+            throws Exception {
+        PERMITS.acquire();
+        return deriveHoldingPermit(password, saltBase64, iterations, lanes);
+    }
+
+    /**
+     * Derivations allowed at once (vault.kdf.maxConcurrent).
+     */
+    public static int maxConcurrent() {
+        return MAX_CONCURRENT;
+    }
+
+    private static Derived deriveHoldingPermit(String password, String saltBase64, int iterations, int lanes)
+            throws Exception {
+        byte[] ikm = null;
+        try {
+            byte[] salt = Base64.getDecoder().decode(saltBase64);
+            ikm = lanes(password, salt, iterations, Math.max(1, lanes));
+            byte[] verifier = X25519Engine.hkdfSha256(ikm, salt, VERIFIER_INFO, KEY_BYTES);
+            byte[] key = X25519Engine.hkdfSha256(ikm, salt, KEY_INFO, KEY_BYTES);
+            return new Derived(Base64.getEncoder().encodeToString(verifier), key);
+        } finally {
+            SecureBuffer.wipe(ikm);
+            PERMITS.release();
+        }
+    }
+
+    /**
+     * All lanes concatenated; lane 0 on the calling thread, the rest offered
+     * to the CPU executor. A lane no worker has picked up by the time the
+     * caller needs it is computed by the caller itself, so a derivation never
+     * waits on queued work (the pool may be busy with tasks that are waiting
+     * for a KDF permit).
+     */
+    private static byte[] lanes(String password, byte[] salt, int iterations, int lanes) throws Exception {
+        List<AtomicBoolean> claimed = new ArrayList<>(lanes - 1);
+        List<Future<byte[]>> others = new ArrayList<>(lanes - 1);
+        for (int i = 1; i < lanes; i++) {
+            int lane = i;
+            AtomicBoolean claim = new AtomicBoolean();
+            claimed.add(claim);
+            others.add(ThreadManager.submitCpu(() -> claim.compareAndSet(false, true)
+                    ? pbkdf2(password, laneSalt(salt, lane), iterations)
+                    : null));
+        }
+        byte[] out = new byte[lanes * LANE_BYTES];
+        byte[] first = pbkdf2(password, laneSalt(salt, 0), iterations);
+        System.arraycopy(first, 0, out, 0, LANE_BYTES);
+        SecureBuffer.wipe(first);
+        for (int i = 1; i < lanes; i++) {
+            byte[] lane;
+            if (claimed.get(i - 1).compareAndSet(false, true)) {
+                lane = pbkdf2(password, laneSalt(salt, i), iterations);
+            } else {
+                try {
+                    lane = others.get(i - 1).get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+            System.arraycopy(lane, 0, out, i * LANE_BYTES, LANE_BYTES);
+            SecureBuffer.wipe(lane);
+        }
+        return out;
+    }
+
+    private static byte[] laneSalt(byte[] salt, int lane) {
+        byte[] s = Arrays.copyOf(salt, salt.length + 4);
+        s[salt.length] = (byte) (lane >>> 24);
+        s[salt.length + 1] = (byte) (lane >>> 16);
+        s[salt.length + 2] = (byte) (lane >>> 8);
+        s[salt.length + 3] = (byte) lane;
+        return s;
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) throws GeneralSecurityException {
+        char[] chars = password.toCharArray();
+        PBEKeySpec spec = new PBEKeySpec(chars, salt, iterations, LANE_BYTES * 8);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } finally {
+            spec.clearPassword();
+            Arrays.fill(chars, '\0');
+        }
+    }
+
+    /**
+     * Time short runs until the best one stops improving (the HMAC loop runs
+     * several times slower until the JIT has fully compiled it, which takes
+     * seconds on a single core), then scale the best to the target, rounded
+     * to thousands.
+     */
+    private static int calibrate() {
+        try {
+            byte[] salt = new byte[SALT_BYTES];
+            long best = Long.MAX_VALUE;
+            long deadline = System.nanoTime() + CALIBRATION_MAX_NANOS;
+            for (int sinceBest = 0; sinceBest < CALIBRATION_PATIENCE && System.nanoTime() < deadline;) {
+                long start = System.nanoTime();
+                pbkdf2("calibration", salt, CALIBRATION_PROBE);
+                long elapsed = System.nanoTime() - start;
+                if (elapsed < best * 0.95) {
+                    sinceBest = 0;
+                } else {
+                    sinceBest++;
+                }
+                best = Math.min(best, elapsed);
+            }
+            double perMillis = CALIBRATION_PROBE / (Math.max(best, 1) / 1e6);
+            long n = Math.round(perMillis * TARGET_MILLIS / 1000.0) * 1000;
+            int iterations = (int) Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, n));
+            if (Config.isDevMode()) {
+                System.out.println("[KDF] " + iterations + " PBKDF2 iterations per lane (~" + TARGET_MILLIS
+                        + " ms target)");
+            }
+            return iterations;
+        } catch (GeneralSecurityException e) {
+            System.err.println("[KDF] Calibration failed, using " + MIN_ITERATIONS + " iterations: " + e.getMessage());
+            return MIN_ITERATIONS;
+        }
+    }
+
+    /**
+     * Count stored by an earlier calibration for the same target, clamped to
+     * the current bounds; 0 when there is none.
+     */
+    private static int loadCalibration() {
+        if (FIXED_ITERATIONS > 0 || !Files.exists(CALIBRATION_FILE)) {
+            return 0;
+        }
+        try {
+            Properties p = new Properties();
+            p.load(new StringReader(Files.readString(CALIBRATION_FILE, StandardCharsets.UTF_8)));
+            if (Integer.parseInt(p.getProperty("targetMillis", "0")) != TARGET_MILLIS) {
+                return 0;
+            }
+            int n = Integer.parseInt(p.getProperty("iterations", "0"));
+            return n > 0 ? Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, n)) : 0;
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("[KDF] Ignoring unreadable " + CALIBRATION_FILE + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private static void saveCalibration(int iterations) {
+        Properties p = new Properties();
+        p.setProperty("iterations", String.valueOf(iterations));
+        p.setProperty("targetMillis", String.valueOf(TARGET_MILLIS));
+        try {
+            StringWriter out = new StringWriter();
+            p.store(out, "PBKDF2 iterations per lane calibrated on this machine");
+            DurableWriter.write(CALIBRATION_FILE, out.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            System.err.println("[KDF] Could not store calibration: " + e.getMessage());
+        }
+    }
+}
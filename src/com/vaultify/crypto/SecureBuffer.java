@@ -0,0 +1,173 @@
+package com.vaultify.crypto;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import com.vaultify.util.Config;
+
+/**
+ * SecureBuffer - off-heap holder for key material and decrypted plaintext.
+ *
+ * The bytes live in a direct buffer, so the garbage collector never copies
+ * them between heap regions, and {@link #close()} overwrites them with zeros
+ * before the memory is released. Any access after close throws
+ * {@link IllegalStateException}. Buffers that are dropped without being
+ * closed are still zeroed once they become unreachable (reported in dev mode),
+ * but callers should use try-with-resources so secrets live no longer than
+ * the operation that needs them.
+ *
+ * Not thread-safe: one owner at a time.
+ */
+public final class SecureBuffer implements AutoCloseable {
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static final byte[] ZEROS = new byte[4096];
+
+    private final Memory memory;
+    private final Cleaner.Cleanable cleanable;
+    private int length;
+
+    private SecureBuffer(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Negative buffer size: " + capacity);
+        }
+        this.memory = new Memory(ByteBuffer.allocateDirect(capacity));
+        this.cleanable = CLEANER.register(this, memory);
+        this.length = capacity;
+    }
+
+    /**
+     * Zero-filled buffer of the given size.
+     */
+    public static SecureBuffer allocate(int size) {
+        return new SecureBuffer(size);
+    }
+
+    /**
+     * Copy a heap array off-heap and zero-fill the source, so the returned
+     * buffer is the only copy left.
+     */
+    public static SecureBuffer moveFrom(byte[] source) {
+        SecureBuffer buf = new SecureBuffer(source.length);
+        buf.memory.buffer.put(0, source);
+        wipe(source);
+        return buf;
+    }
+
+    /**
+     * Zero-fill a heap array (null-safe).
+     */
+    public static void wipe(byte[] data) {
+        if (data != null) {
+            Arrays.fill(data, (byte) 0);
+        }
+    }
+
+    public int size() {
+        ensureOpen();
+        return length;
+    }
+
+    /**
+     * Writable view over the contents (position 0, limit {@link #size()}).
+     * The view shares this buffer's memory and must not outlive it.
+     */
+    public ByteBuffer view() {
+        ensureOpen();
+        return memory.buffer.duplicate().clear().limit(length);
+    }
+
+    /**
+     * Read-only view over the contents.
+     */
+    public ByteBuffer readOnlyView() {
+        return view().asReadOnlyBuffer();
+    }
+
+    /**
+     * Heap copy of the contents. The caller owns the copy and should
+     * {@link #wipe} it when done; prefer {@link #view()} or
+     * {@link #writeTo(WritableByteChannel)} where a heap copy is not needed.
+     */
+    public byte[] toByteArray() {
+        ensureOpen();
+        byte[] out = new byte[length];
+        memory.buffer.get(0, out);
+        return out;
+    }
+
+    /**
+     * Write the contents straight from off-heap memory to a channel.
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer src = view();
+        while (src.hasRemaining()) {
+            channel.write(src);
+        }
+    }
+
+    /**
+     * Shrink the visible size, zeroing the bytes cut off (used when a cipher
+     * produces less output than was reserved).
+     */
+    void truncate(int newLength) {
+        ensureOpen();
+        if (newLength < 0 || newLength > length) {
+            throw new IllegalArgumentException("Invalid length " + newLength + " for buffer of " + length);
+        }
+        zero(memory.buffer, newLength, length);
+        length = newLength;
+    }
+
+    public boolean isClosed() {
+        return memory.closed;
+    }
+
+    /**
+     * Overwrite the contents with zeros and release the buffer. Idempotent.
+     */
+    @Override
+    public void close() {
+        if (!memory.closed) {
+            memory.explicit = true;
+            cleanable.clean();
+        }
+    }
+
+    private void ensureOpen() {
+        if (memory.closed) {
+            throw new IllegalStateException("SecureBuffer already closed");
+        }
+    }
+
+    private static void zero(ByteBuffer buf, int from, int to) {
+        for (int pos = from; pos < to; pos += ZEROS.length) {
+            buf.put(pos, ZEROS, 0, Math.min(ZEROS.length, to - pos));
+        }
+    }
+
+    /**
+     * Cleaner state; must not reference the SecureBuffer itself.
+     */
+    private static final class Memory implements Runnable {
+        final ByteBuffer buffer;
+        volatile boolean closed;
+        boolean explicit;
+
+        Memory(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void run() {
+            zero(buffer, 0, buffer.capacity());
+            closed = true;
+            if (!explicit && Config.isDevMode()) {
+                System.err.println("[SecureBuffer] Buffer of " + buffer.capacity()
+                        + " bytes was not closed; zeroed by cleaner");
+            }
+        }
+    }
+}
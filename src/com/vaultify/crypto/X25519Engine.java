@@ -0,0 +1,186 @@
+package com.vaultify.crypto;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.NamedParameterSpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.security.spec.XECPublicKeySpec;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyAgreement;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * X25519Engine - key encapsulation for data keys with X25519 + HKDF-SHA256 +
+ * AES key wrap (RFC 7748, RFC 5869, RFC 3394).
+ *
+ * Wrapping draws an ephemeral X25519 key pair, agrees a shared secret with the
+ * recipient's public key, derives a 256-bit key-encryption key with HKDF
+ * (salt = ephemeral public key, info = label || recipient public key, so the
+ * KEK is bound to both ends of the exchange as in ECIES/HPKE) and AES-wraps
+ * the data key:
+ *
+ * wrapped = ephemeral public key (X.509, 44 bytes) || AESWrap(KEK, data key)
+ *
+ * Unwrapping costs two scalar multiplications instead of an RSA-2048 private
+ * key operation, and a wrapped 256-bit key takes 84 bytes instead of 256.
+ */
+public class X25519Engine implements CryptoEngine {
+    public static final String ALGORITHM = "X25519";
+    private static final int ENCODED_PUBLIC_KEY_LENGTH = 44; // X.509 SubjectPublicKeyInfo for X25519
+    private static final byte[] INFO = "vaultify-kem-v1".getBytes(java.nio.charset.StandardCharsets.US_ASCII);
+    private static final int RAW_KEY_LENGTH = 32;
+    private static final BigInteger BASE_POINT = BigInteger.valueOf(9);
+
+    @Override
+    public byte[] encrypt(byte[] data, Key key) throws Exception {
+        if (!(key instanceof PublicKey)) {
+            throw new IllegalArgumentException("X25519 key wrap requires a PublicKey");
+        }
+        return wrap(data, (PublicKey) key);
+    }
+
+    @Override
+    public byte[] decrypt(byte[] data, Key key) throws Exception {
+        if (!(key instanceof PrivateKey)) {
+            throw new IllegalArgumentException("X25519 key unwrap requires a PrivateKey");
+        }
+        return unwrap(data, (PrivateKey) key);
+    }
+
+    public static KeyPair generateKeyPair() {
+        try {
+            return KeyPairGenerator.getInstance(ALGORITHM).generateKeyPair();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Wrap a data key (a multiple of 8 bytes, at least 16) for the holder of
+     * the recipient's private key.
+     */
+    public static byte[] wrap(byte[] dataKey, PublicKey recipient) throws GeneralSecurityException {
+        KeyPair ephemeral = generateKeyPair();
+        byte[] ephemeralPublic = ephemeral.getPublic().getEncoded();
+        byte[] info = info(rawPublicKey(recipient));
+        byte[] kek = deriveKek(ephemeral.getPrivate(), recipient, ephemeralPublic, info);
+        try {
+            Cipher cipher = Cipher.getInstance("AESWrap");
+            cipher.init(Cipher.WRAP_MODE, new SecretKeySpec(kek, "AES"));
+            byte[] wrappedKey = cipher.wrap(new SecretKeySpec(dataKey, "AES"));
+            byte[] out = Arrays.copyOf(ephemeralPublic, ephemeralPublic.length + wrappedKey.length);
+            System.arraycopy(wrappedKey, 0, out, ephemeralPublic.length, wrappedKey.length);
+            return out;
+        } finally {
+            Arrays.fill(kek, (byte) 0);
+        }
+    }
+
+    /**
+     * Unwrap a data key produced by {@link #wrap}. Fails with a
+     * GeneralSecurityException when the key does not match (the AES key wrap
+     * integrity check).
+     */
+    public static byte[] unwrap(byte[] wrapped, PrivateKey privateKey) throws GeneralSecurityException {
+        if (wrapped.length <= ENCODED_PUBLIC_KEY_LENGTH) {
+            throw new GeneralSecurityException("Wrapped key too short: " + wrapped.length + " bytes");
+        }
+        byte[] ephemeralPublic = Arrays.copyOfRange(wrapped, 0, ENCODED_PUBLIC_KEY_LENGTH);
+        PublicKey ephemeral = KeyFactory.getInstance(ALGORITHM)
+                .generatePublic(new X509EncodedKeySpec(ephemeralPublic));
+        byte[] info = info(publicKeyOf(privateKey));
+        byte[] kek = deriveKek(privateKey, ephemeral, ephemeralPublic, info);
+        try {
+            Cipher cipher = Cipher.getInstance("AESWrap");
+            cipher.init(Cipher.UNWRAP_MODE, new SecretKeySpec(kek, "AES"));
+            Key dataKey = cipher.unwrap(
+                    Arrays.copyOfRange(wrapped, ENCODED_PUBLIC_KEY_LENGTH, wrapped.length), "AES",
+                    Cipher.SECRET_KEY);
+            return dataKey.getEncoded();
+        } finally {
+            Arrays.fill(kek, (byte) 0);
+        }
+    }
+
+    private static byte[] deriveKek(PrivateKey ownKey, PublicKey peerKey, byte[] ephemeralPublic, byte[] info)
+            throws GeneralSecurityException {
+        KeyAgreement agreement = KeyAgreement.getInstance(ALGORITHM);
+        agreement.init(ownKey);
+        agreement.doPhase(peerKey, true);
+        byte[] shared = agreement.generateSecret();
+        try {
+            return hkdfSha256(shared, ephemeralPublic, info, 32);
+        } finally {
+            Arrays.fill(shared, (byte) 0);
+        }
+    }
+
+    private static byte[] info(byte[] recipientPublic) {
+        byte[] info = Arrays.copyOf(INFO, INFO.length + recipientPublic.length);
+        System.arraycopy(recipientPublic, 0, info, INFO.length, recipientPublic.length);
+        return info;
+    }
+
+    /**
+     * The 32-byte u-coordinate (RFC 7748 encoding) of a public key: the tail
+     * of its X.509 encoding.
+     */
+    private static byte[] rawPublicKey(PublicKey key) throws GeneralSecurityException {
+        byte[] encoded = key.getEncoded();
+        if (encoded == null || encoded.length != ENCODED_PUBLIC_KEY_LENGTH) {
+            throw new GeneralSecurityException("Not an X25519 public key");
+        }
+        return Arrays.copyOfRange(encoded, encoded.length - RAW_KEY_LENGTH, encoded.length);
+    }
+
+    /**
+     * The recipient's own public key, recomputed as X25519(k, 9) so unwrapping
+     * needs only the private key.
+     */
+    static byte[] publicKeyOf(PrivateKey key) throws GeneralSecurityException {
+        PublicKey basePoint = KeyFactory.getInstance(ALGORITHM)
+                .generatePublic(new XECPublicKeySpec(NamedParameterSpec.X25519, BASE_POINT));
+        KeyAgreement agreement = KeyAgreement.getInstance(ALGORITHM);
+        agreement.init(key);
+        agreement.doPhase(basePoint, true);
+        return agreement.generateSecret();
+    }
+
+    /**
+     * HKDF-SHA256 (RFC 5869) extract-and-expand. An empty salt means a block
+     * of zeros, as the RFC specifies.
+     */
+    static byte[] hkdfSha256(byte[] ikm, byte[] salt, byte[] info, int length) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(salt.length > 0 ? salt : new byte[mac.getMacLength()], "HmacSHA256"));
+        byte[] prk = mac.doFinal(ikm);
+        try {
+            mac.init(new SecretKeySpec(prk, "HmacSHA256"));
+            byte[] out = new byte[length];
+            byte[] block = new byte[0];
+            for (int pos = 0, counter = 1; pos < length; counter++) {
+                mac.update(block);
+                mac.update(info);
+                mac.update((byte) counter);
+                block = mac.doFinal();
+                int n = Math.min(block.length, length - pos);
+                System.arraycopy(block, 0, out, pos, n);
+                pos += n;
+            }
+            Arrays.fill(block, (byte) 0);
+            return out;
+        } finally {
+            Arrays.fill(prk, (byte) 0);
+        }
+    }
+}
@@ -36,12 +36,46 @@ public class Database {
                 "ALTER TABLE credentials ADD COLUMN IF NOT EXISTS data_hash TEXT",
                 "ALTER TABLE credentials ADD COLUMN IF NOT EXISTS credential_hash TEXT",
                 "ALTER TABLE credentials ADD COLUMN IF NOT EXISTS file_size BIGINT",
+                "ALTER TABLE credentials ADD COLUMN IF NOT EXISTS storage_format TEXT DEFAULT 'plain'",
+                "ALTER TABLE credentials ADD COLUMN IF NOT EXISTS compression TEXT DEFAULT 'none'",
+                "ALTER TABLE credentials ADD COLUMN IF NOT EXISTS compression_level INT DEFAULT 0",
                 "ALTER TABLE tokens ADD COLUMN IF NOT EXISTS issuer_user_id INT",
                 "ALTER TABLE tokens ADD COLUMN IF NOT EXISTS revoked BOOLEAN DEFAULT FALSE",
                 "ALTER TABLE tokens ADD COLUMN IF NOT EXISTS created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP",
                 "CREATE INDEX IF NOT EXISTS idx_tokens_token ON tokens(token)",
                 "CREATE INDEX IF NOT EXISTS idx_tokens_issuer ON tokens(issuer_user_id)",
-                "CREATE INDEX IF NOT EXISTS idx_credentials_user ON credentials(user_id)"
+                "CREATE INDEX IF NOT EXISTS idx_credentials_user ON credentials(user_id)",
+                // Byte-order index for the streaming reconcile (ORDER BY filepath COLLATE "C")
+                "CREATE INDEX IF NOT EXISTS idx_credentials_filepath_c ON credentials(filepath COLLATE \"C\")",
+                // Per-recipient wrapped data keys for multi-recipient sharing
+                "CREATE TABLE IF NOT EXISTS credential_recipients ("
+                        + "credential_id INT NOT NULL REFERENCES credentials(id) ON DELETE CASCADE, "
+                        + "recipient_user_id INT NOT NULL REFERENCES users(id) ON DELETE CASCADE, "
+                        + "encrypted_key TEXT NOT NULL, "
+                        + "granted_by INT, "
+                        + "granted_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, "
+                        + "PRIMARY KEY (credential_id, recipient_user_id))",
+                "CREATE INDEX IF NOT EXISTS idx_credential_recipients_user ON credential_recipients(recipient_user_id)",
+                // Key rotation: new wraps are staged next to the current ones until the swap
+                "ALTER TABLE credentials ADD COLUMN IF NOT EXISTS encrypted_key_next TEXT",
+                "ALTER TABLE credential_recipients ADD COLUMN IF NOT EXISTS encrypted_key_next TEXT",
+                "ALTER TABLE users ADD COLUMN IF NOT EXISTS pending_public_key TEXT",
+                "ALTER TABLE users ADD COLUMN IF NOT EXISTS pending_private_key_encrypted TEXT",
+                "ALTER TABLE users ADD COLUMN IF NOT EXISTS key_rotation_checkpoint INT",
+                "ALTER TABLE users ADD COLUMN IF NOT EXISTS key_rotation_started_at TIMESTAMP",
+                "CREATE INDEX IF NOT EXISTS idx_credentials_user_id ON credentials(user_id, id)",
+                // Key-wrap scheme per wrapped key (rsa-oaep or x25519-hkdf-aeswrap) and X25519 user keys
+                "ALTER TABLE credentials ADD COLUMN IF NOT EXISTS key_scheme TEXT DEFAULT 'rsa-oaep'",
+                "ALTER TABLE credentials ADD COLUMN IF NOT EXISTS key_scheme_next TEXT",
+                "ALTER TABLE credential_recipients ADD COLUMN IF NOT EXISTS key_scheme TEXT DEFAULT 'rsa-oaep'",
+                "ALTER TABLE credential_recipients ADD COLUMN IF NOT EXISTS key_scheme_next TEXT",
+                "ALTER TABLE users ADD COLUMN IF NOT EXISTS kem_public_key TEXT",
+                "ALTER TABLE users ADD COLUMN IF NOT EXISTS kem_private_key_encrypted TEXT",
+                "ALTER TABLE users ADD COLUMN IF NOT EXISTS pending_kem_public_key TEXT",
+                "ALTER TABLE users ADD COLUMN IF NOT EXISTS pending_kem_private_key_encrypted TEXT",
+                "ALTER TABLE users ADD COLUMN IF NOT EXISTS password_salt TEXT",
+                "ALTER TABLE users ADD COLUMN IF NOT EXISTS password_iterations INT",
+                "ALTER TABLE users ADD COLUMN IF NOT EXISTS password_lanes INT"
         };
         try (Statement stmt = conn.createStatement()) {
             for (String sql : statements) {
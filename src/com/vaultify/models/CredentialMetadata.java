@@ -11,7 +11,12 @@ public class CredentialMetadata {
     public String dataHash; // SHA-256 hash of original file
     public long fileSize; // Original file size in bytes
     public long timestamp; // Creation timestamp
-    public String encryptedKeyBase64; // AES key encrypted with RSA, base64 encoded
+    public String encryptedKeyBase64; // AES key wrapped for the owner (see keyScheme), base64 encoded
+    public String keyScheme; // KeyWrap scheme of encryptedKeyBase64; null = "rsa-oaep"
+    public String wrapPublicKeyBase64; // public key encryptedKeyBase64 was wrapped for (set on add, not stored)
     public String ivBase64; // AES IV, base64 encoded
     public long userId; // Owner user ID
+    public String storageFormat; // "plain" (or null) = ciphertext in <uuid>.bin; "dedup-v1" = chunk manifest
+    public String compression; // "none" (or null) or "deflate", applied before encryption
+    public int compressionLevel; // Deflater level used (0 when not compressed)
 }
@@ -0,0 +1,16 @@
+package com.vaultify.models;
+
+/**
+ * One recipient of a shared credential: the credential's AES data key wrapped
+ * with the recipient's RSA public key. The ciphertext itself is shared.
+ */
+public class CredentialRecipient {
+    public int credentialId; // credentials.id
+    public long recipientUserId;
+    public String recipientUsername; // filled by listings
+    public String encryptedKeyBase64; // data key wrapped for the recipient, base64 encoded
+    public String keyScheme; // KeyWrap scheme of encryptedKeyBase64
+    public String wrapPublicKeyBase64; // recipient public key it was wrapped for (set on grant, not stored)
+    public long grantedByUserId;
+    public long grantedAt;
+}
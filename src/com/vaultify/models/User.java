@@ -5,9 +5,14 @@ import java.sql.Timestamp;
 public class User {
     private long id;
     private String username;
-    private String passwordHash;
+    private String passwordHash; // PasswordKdf verifier, or SHA-256 hex when passwordSalt is null (legacy)
+    private String passwordSalt;
+    private int passwordIterations;
+    private int passwordLanes;
     private String publicKey;
     private String privateKeyEncrypted;
+    private String kemPublicKey; // X25519 key for wrapping data keys (null for RSA-only users)
+    private String kemPrivateKeyEncrypted;
     private Timestamp createdAt;
 
     // Getters and Setters
@@ -36,6 +41,30 @@ public class User {
         this.passwordHash = passwordHash;
     }
 
+    public String getPasswordSalt() {
+        return passwordSalt;
+    }
+
+    public void setPasswordSalt(String passwordSalt) {
+        this.passwordSalt = passwordSalt;
+    }
+
+    public int getPasswordIterations() {
+        return passwordIterations;
+    }
+
+    public void setPasswordIterations(int passwordIterations) {
+        this.passwordIterations = passwordIterations;
+    }
+
+    public int getPasswordLanes() {
+        return passwordLanes;
+    }
+
+    public void setPasswordLanes(int passwordLanes) {
+        this.passwordLanes = passwordLanes;
+    }
+
     public String getPublicKey() {
         return publicKey;
     }
@@ -52,6 +81,22 @@ public class User {
         this.privateKeyEncrypted = privateKeyEncrypted;
     }
 
+    public String getKemPublicKey() {
+        return kemPublicKey;
+    }
+
+    public void setKemPublicKey(String kemPublicKey) {
+        this.kemPublicKey = kemPublicKey;
+    }
+
+    public String getKemPrivateKeyEncrypted() {
+        return kemPrivateKeyEncrypted;
+    }
+
+    public void setKemPrivateKeyEncrypted(String kemPrivateKeyEncrypted) {
+        this.kemPrivateKeyEncrypted = kemPrivateKeyEncrypted;
+    }
+
     public Timestamp getCreatedAt() {
         return createdAt;
     }
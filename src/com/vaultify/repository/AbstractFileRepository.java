@@ -1,11 +1,12 @@
 package com.vaultify.repository;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.UUID;
 import java.util.function.Function;
 
+import com.vaultify.util.FileStorageUtil;
+
 /**
  * Basic JSON file repository abstraction. Concrete classes define folder +
  * serialization.
@@ -33,8 +34,7 @@ public abstract class AbstractFileRepository<T> {
         Path p = resolvePath(id);
         try {
             Files.createDirectories(basePath());
-            Files.writeString(p, serialize(entity), StandardCharsets.UTF_8, StandardOpenOption.CREATE,
-                    StandardOpenOption.TRUNCATE_EXISTING);
+            FileStorageUtil.writeString(p, serialize(entity));
         } catch (IOException e) {
             throw new RepositoryException("Failed to save file entity: " + p, e);
         }
@@ -45,7 +45,7 @@ public abstract class AbstractFileRepository<T> {
         if (!Files.exists(p))
             return null;
         try {
-            String json = Files.readString(p, StandardCharsets.UTF_8);
+            String json = FileStorageUtil.readString(p);
             return deserialize(json);
         } catch (IOException e) {
             throw new RepositoryException("Failed to read file entity: " + p, e);
@@ -0,0 +1,502 @@
+package com.vaultify.repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.vaultify.threading.ActivityRecord;
+import com.vaultify.util.Config;
+
+/**
+ * Append-only, memory-mapped store for activity records with indexed queries.
+ *
+ * Layout under activity.store.dir (default vault_data/activity):
+ * - seg-<firstEpochMs>.jsonl : preallocated segment, written through a
+ * MappedByteBuffer; one JSON line per record, zero-filled tail
+ * - seg-<firstEpochMs>.tidx : sparse time index, (epochMs, offset) every
+ * TIME_INDEX_INTERVAL records
+ * - seg-<firstEpochMs>.uidx : per-user index, (user, epochMs, offset) for every
+ * record that has a user
+ *
+ * A query for user X between T1 and T2 only opens the segments whose time
+ * range overlaps [T1, T2] and jumps straight to the matching offsets through
+ * the per-user index (or the sparse time index when no user is given) instead
+ * of scanning the whole log.
+ */
+public class ActivitySegmentStore {
+    private static final int TIME_INDEX_INTERVAL = 64;
+    // Records are appended in arrival order; timestamps from concurrent producers may be this far out of order
+    private static final long SKEW_TOLERANCE_MS = 1000;
+    private static final Gson GSON = new Gson();
+    private static ActivitySegmentStore shared;
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment active;
+
+    ActivitySegmentStore(Path dir, int segmentBytes, int maxSegments) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        Files.createDirectories(dir);
+        load();
+    }
+
+    /**
+     * Process-wide store, opened on first use.
+     */
+    public static synchronized ActivitySegmentStore get() {
+        if (shared == null) {
+            try {
+                shared = new ActivitySegmentStore(
+                        Paths.get(Config.get("activity.store.dir", "vault_data/activity")),
+                        Config.getInt("activity.store.segmentMegabytes", 16) * 1024 * 1024,
+                        Config.getInt("activity.store.maxSegments", 64));
+            } catch (IOException e) {
+                throw new RepositoryException("Failed to open activity store", e);
+            }
+        }
+        return shared;
+    }
+
+    private void load() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "seg-*.jsonl")) {
+            ds.forEach(files::add);
+        }
+        // Zero-padded first timestamp in the name keeps lexical == chronological order
+        files.sort(null);
+        for (Path file : files) {
+            segments.add(new Segment(file));
+        }
+    }
+
+    // ---------------------------
+    // Writes (logger thread)
+    // ---------------------------
+
+    public synchronized void append(List<ActivityRecord> records) {
+        try {
+            for (ActivityRecord record : records) {
+                byte[] line = (record.toJson() + "\n").getBytes(StandardCharsets.UTF_8);
+                if (line.length > segmentBytes) {
+                    continue; // cannot ever fit; the text log still has it
+                }
+                if (active == null || active.remaining() < line.length) {
+                    roll(record.epochMs, line.length);
+                }
+                active.write(record, line);
+            }
+            if (active != null) {
+                active.flushIndexes();
+            }
+        } catch (IOException e) {
+            throw new RepositoryException("Failed to append activity records", e);
+        }
+    }
+
+    private void roll(long firstEpochMs, int needed) throws IOException {
+        if (active != null) {
+            active.seal();
+        } else if (!segments.isEmpty()) {
+            // Reopen the newest segment for appends after a restart
+            Segment last = segments.get(segments.size() - 1);
+            last.openForAppend(segmentBytes);
+            if (last.remaining() >= needed) {
+                active = last;
+                return;
+            }
+            last.seal();
+        }
+        Path file = dir.resolve(String.format("seg-%020d.jsonl", firstEpochMs));
+        for (int n = 1; Files.exists(file); n++) {
+            file = dir.resolve(String.format("seg-%020d-%d.jsonl", firstEpochMs, n));
+        }
+        Segment segment = new Segment(file);
+        segment.openForAppend(segmentBytes);
+        segments.add(segment);
+        active = segment;
+        prune();
+    }
+
+    private void prune() throws IOException {
+        while (maxSegments > 0 && segments.size() > maxSegments) {
+            segments.remove(0).delete();
+        }
+    }
+
+    public synchronized void close() {
+        if (active != null) {
+            try {
+                active.seal();
+            } catch (IOException e) {
+                System.err.println("[ActivityStore] Failed to close segment: " + e.getMessage());
+            }
+            active = null;
+        }
+    }
+
+    // ---------------------------
+    // Queries
+    // ---------------------------
+
+    /**
+     * Records in [fromMs, toMs], optionally restricted to one user, oldest
+     * first.
+     */
+    public synchronized List<ActivityRecord> query(String user, long fromMs, long toMs, int limit) {
+        List<ActivityRecord> out = new ArrayList<>();
+        try {
+            for (int i = 0; i < segments.size() && out.size() < limit; i++) {
+                Segment seg = segments.get(i);
+                long segEnd = (i + 1 < segments.size()) ? segments.get(i + 1).firstEpochMs : Long.MAX_VALUE;
+                if (seg.firstEpochMs - SKEW_TOLERANCE_MS > toMs || segEnd < fromMs - SKEW_TOLERANCE_MS) {
+                    continue; // segment time range does not overlap
+                }
+                if (user != null) {
+                    seg.queryByUser(user, fromMs, toMs, limit, out);
+                } else {
+                    seg.queryByTime(fromMs, toMs, limit, out);
+                }
+            }
+        } catch (IOException e) {
+            throw new RepositoryException("Failed to query activity store", e);
+        }
+        return out;
+    }
+
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    // ---------------------------
+    // Segment
+    // ---------------------------
+
+    private static final class Segment {
+        final Path file;
+        final Path timeIndexFile;
+        final Path userIndexFile;
+        final long firstEpochMs;
+
+        FileChannel channel;
+        MappedByteBuffer map;
+        int position;
+        long recordCount;
+
+        // Lazily loaded indexes
+        long[] timeKeys;
+        int[] timeOffsets;
+        int timeSize;
+        Map<String, UserPostings> userIndex;
+
+        // Index entries not yet written to disk (only while the segment is active)
+        ByteBuffer pendingTime;
+        ByteBuffer pendingUser;
+
+        Segment(Path file) {
+            this.file = file;
+            String base = file.getFileName().toString().replace(".jsonl", "");
+            this.timeIndexFile = file.resolveSibling(base + ".tidx");
+            this.userIndexFile = file.resolveSibling(base + ".uidx");
+            String digits = base.substring("seg-".length());
+            int dash = digits.indexOf('-');
+            this.firstEpochMs = Long.parseLong(dash >= 0 ? digits.substring(0, dash) : digits);
+        }
+
+        void openForAppend(int size) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            long mapSize = Math.max(size, channel.size());
+            map = channel.map(FileChannel.MapMode.READ_WRITE, 0, mapSize);
+            pendingTime = ByteBuffer.allocate(64 * 1024).order(ByteOrder.BIG_ENDIAN);
+            pendingUser = ByteBuffer.allocate(256 * 1024).order(ByteOrder.BIG_ENDIAN);
+            loadIndexes();
+            // Resume after the last indexed record, then skip to the zero-filled tail
+            int start = timeSize > 0 ? timeOffsets[timeSize - 1] : 0;
+            position = findEnd(map, start);
+            // Count rather than derive from the time index, which may have lost its unflushed tail
+            recordCount = countLines(map, position);
+        }
+
+        int remaining() {
+            return map == null ? 0 : map.capacity() - position;
+        }
+
+        void write(ActivityRecord record, byte[] line) {
+            int offset = position;
+            map.put(offset, line);
+            position += line.length;
+
+            if (recordCount++ % TIME_INDEX_INTERVAL == 0) {
+                addTime(record.epochMs, offset);
+                ensurePending(pendingTime, 12);
+                pendingTime.putLong(record.epochMs).putInt(offset);
+            }
+            if (record.user != null) {
+                userIndex.computeIfAbsent(record.user, u -> new UserPostings()).add(record.epochMs, offset);
+                byte[] u = record.user.getBytes(StandardCharsets.UTF_8);
+                ensurePending(pendingUser, 2 + u.length + 12);
+                pendingUser.putShort((short) u.length).put(u).putLong(record.epochMs).putInt(offset);
+            }
+        }
+
+        private void ensurePending(ByteBuffer buf, int needed) {
+            if (buf.remaining() < needed) {
+                try {
+                    flushIndexes();
+                } catch (IOException e) {
+                    throw new RepositoryException("Failed to write activity index", e);
+                }
+            }
+        }
+
+        void flushIndexes() throws IOException {
+            appendTo(timeIndexFile, pendingTime);
+            appendTo(userIndexFile, pendingUser);
+        }
+
+        private static void appendTo(Path target, ByteBuffer pending) throws IOException {
+            if (pending == null || pending.position() == 0) {
+                return;
+            }
+            pending.flip();
+            try (FileChannel ch = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                while (pending.hasRemaining()) {
+                    ch.write(pending);
+                }
+            }
+            pending.clear();
+        }
+
+        void seal() throws IOException {
+            flushIndexes();
+            if (map != null) {
+                map.force();
+            }
+            if (channel != null) {
+                channel.close();
+            }
+            channel = null;
+            map = null;
+            pendingTime = null;
+            pendingUser = null;
+        }
+
+        void delete() throws IOException {
+            seal();
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(timeIndexFile);
+            Files.deleteIfExists(userIndexFile);
+        }
+
+        private ByteBuffer readView() throws IOException {
+            if (map != null) {
+                return map.duplicate();
+            }
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                return ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            }
+        }
+
+        private void loadIndexes() throws IOException {
+            if (userIndex != null) {
+                return;
+            }
+            userIndex = new HashMap<>();
+            timeKeys = new long[256];
+            timeOffsets = new int[256];
+            timeSize = 0;
+            if (Files.exists(timeIndexFile)) {
+                ByteBuffer b = ByteBuffer.wrap(Files.readAllBytes(timeIndexFile));
+                while (b.remaining() >= 12) {
+                    addTime(b.getLong(), b.getInt());
+                }
+            }
+            if (Files.exists(userIndexFile)) {
+                ByteBuffer b = ByteBuffer.wrap(Files.readAllBytes(userIndexFile));
+                while (b.remaining() >= 2) {
+                    int len = b.getShort() & 0xFFFF;
+                    if (b.remaining() < len + 12) {
+                        break; // torn tail from a crash
+                    }
+                    byte[] u = new byte[len];
+                    b.get(u);
+                    userIndex.computeIfAbsent(new String(u, StandardCharsets.UTF_8), k -> new UserPostings())
+                            .add(b.getLong(), b.getInt());
+                }
+            }
+        }
+
+        private void addTime(long epochMs, int offset) {
+            if (timeSize == timeKeys.length) {
+                timeKeys = java.util.Arrays.copyOf(timeKeys, timeSize * 2);
+                timeOffsets = java.util.Arrays.copyOf(timeOffsets, timeSize * 2);
+            }
+            timeKeys[timeSize] = epochMs;
+            timeOffsets[timeSize] = offset;
+            timeSize++;
+        }
+
+        void queryByUser(String user, long fromMs, long toMs, int limit, List<ActivityRecord> out)
+                throws IOException {
+            loadIndexes();
+            UserPostings postings = userIndex.get(user);
+            if (postings == null) {
+                return;
+            }
+            ByteBuffer view = readView();
+            for (int i = postings.lowerBound(fromMs); i < postings.size && out.size() < limit; i++) {
+                if (postings.times[i] > toMs) {
+                    break;
+                }
+                ActivityRecord r = readRecord(view, postings.offsets[i]);
+                if (r != null) {
+                    out.add(r);
+                }
+            }
+        }
+
+        void queryByTime(long fromMs, long toMs, int limit, List<ActivityRecord> out) throws IOException {
+            loadIndexes();
+            // Last sparse entry at or before fromMs; records between entries may be
+            // slightly out of order (multi-threaded producers), hence the filter below
+            int lo = 0;
+            int hi = timeSize - 1;
+            int start = 0;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (timeKeys[mid] <= fromMs) {
+                    start = timeOffsets[mid];
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            ByteBuffer view = readView();
+            int pos = start;
+            while (pos < view.limit() && view.get(pos) != 0 && out.size() < limit) {
+                int end = lineEnd(view, pos);
+                ActivityRecord r = parse(view, pos, end);
+                pos = end + 1;
+                if (r == null) {
+                    continue;
+                }
+                if (r.epochMs - SKEW_TOLERANCE_MS > toMs) {
+                    break; // past the window (with tolerance for producer skew)
+                }
+                if (r.epochMs >= fromMs && r.epochMs <= toMs) {
+                    out.add(r);
+                }
+            }
+        }
+
+        private static ActivityRecord readRecord(ByteBuffer view, int offset) {
+            if (offset < 0 || offset >= view.limit()) {
+                return null;
+            }
+            return parse(view, offset, lineEnd(view, offset));
+        }
+
+        private static int lineEnd(ByteBuffer view, int pos) {
+            int i = pos;
+            while (i < view.limit() && view.get(i) != '\n' && view.get(i) != 0) {
+                i++;
+            }
+            return i;
+        }
+
+        private static ActivityRecord parse(ByteBuffer view, int start, int end) {
+            byte[] bytes = new byte[end - start];
+            view.get(start, bytes);
+            try {
+                JsonObject o = GSON.fromJson(new String(bytes, StandardCharsets.UTF_8), JsonObject.class);
+                return new ActivityRecord(o.get("epochMs").getAsLong(), text(o, "user"), text(o, "action"),
+                        text(o, "details"));
+            } catch (JsonParseException | NullPointerException | IllegalStateException e) {
+                return null; // torn or foreign line
+            }
+        }
+
+        private static String text(JsonObject o, String field) {
+            return o.has(field) && !o.get(field).isJsonNull() ? o.get(field).getAsString() : null;
+        }
+
+        private static long countLines(ByteBuffer view, int end) {
+            long lines = 0;
+            for (int i = 0; i < end; i++) {
+                if (view.get(i) == '\n') {
+                    lines++;
+                }
+            }
+            return lines;
+        }
+
+        private static int findEnd(ByteBuffer view, int from) {
+            int pos = from;
+            while (pos < view.limit() && view.get(pos) != 0) {
+                pos++;
+            }
+            return pos;
+        }
+    }
+
+    /**
+     * Time-ordered (epochMs, offset) postings for one user within a segment.
+     * Records arrive almost in time order, so an out-of-order one is inserted
+     * a few places back rather than appended, keeping lowerBound exact.
+     */
+    private static final class UserPostings {
+        long[] times = new long[16];
+        int[] offsets = new int[16];
+        int size;
+
+        void add(long epochMs, int offset) {
+            if (size == times.length) {
+                times = java.util.Arrays.copyOf(times, size * 2);
+                offsets = java.util.Arrays.copyOf(offsets, size * 2);
+            }
+            int i = size;
+            while (i > 0 && times[i - 1] > epochMs) {
+                times[i] = times[i - 1];
+                offsets[i] = offsets[i - 1];
+                i--;
+            }
+            times[i] = epochMs;
+            offsets[i] = offset;
+            size++;
+        }
+
+        int lowerBound(long epochMs) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (times[mid] < epochMs) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.vaultify.repository;
+
+import java.util.List;
+
+import com.vaultify.models.CredentialMetadata;
+import com.vaultify.models.CredentialRecipient;
+
+/**
+ * CredentialRecipientRepository abstraction for per-recipient wrapped data
+ * keys of shared credentials.
+ */
+public interface CredentialRecipientRepository {
+    /** Insert or replace the wrapped keys of several recipients in one batch. */
+    void saveAll(List<CredentialRecipient> recipients);
+
+    /** Remove a recipient; returns false when it had no access. */
+    boolean delete(int credentialId, long recipientUserId);
+
+    /** Recipients of a credential, with usernames. */
+    List<CredentialRecipient> findByCredential(int credentialId);
+
+    /**
+     * Metadata of a credential shared with the user, carrying the user's own
+     * wrapped key in encryptedKeyBase64; null when not shared with them.
+     */
+    CredentialMetadata findShared(String credentialId, long recipientUserId);
+
+    /** Credentials shared with the user (recipient's wrapped keys, as above). */
+    List<CredentialMetadata> findSharedWith(long recipientUserId);
+}
@@ -1,7 +1,9 @@
 package com.vaultify.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 import com.vaultify.models.User;
 
@@ -66,6 +68,37 @@ public class DualUserRepository implements UserRepository {
         }
     }
 
+    @Override
+    public void update(User user) {
+        backup.update(user);
+        try {
+            primary.update(user);
+        } catch (RepositoryException e) {
+            System.err.println("[DualUserRepository] Primary update failed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Set<String> findExistingUsernames(Collection<String> usernames) {
+        try {
+            return primary.findExistingUsernames(usernames);
+        } catch (RepositoryException e) {
+            System.err.println("[DualUserRepository] Primary findExistingUsernames error: " + e.getMessage());
+            return backup.findExistingUsernames(usernames);
+        }
+    }
+
+    @Override
+    public List<User> saveAll(List<User> users) {
+        backup.saveAll(users);
+        try {
+            return primary.saveAll(users);
+        } catch (RepositoryException e) {
+            System.err.println("[DualUserRepository] Primary saveAll failed: " + e.getMessage());
+            return users; // backup already persisted
+        }
+    }
+
     @Override
     public void delete(long id) {
         try {
@@ -8,7 +8,10 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -46,6 +49,33 @@ public class FileUserRepository implements UserRepository {
         }
     }
 
+    @Override
+    public void update(User user) {
+        save(user);
+    }
+
+    @Override
+    public Set<String> findExistingUsernames(Collection<String> usernames) {
+        Set<String> existing = new HashSet<>();
+        for (String username : usernames) {
+            if (Files.exists(fileFor(username))) {
+                existing.add(username);
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public List<User> saveAll(List<User> users) {
+        List<User> saved = new ArrayList<>(users.size());
+        for (User user : users) {
+            if (!Files.exists(fileFor(user.getUsername()))) {
+                saved.add(save(user));
+            }
+        }
+        return saved;
+    }
+
     @Override
     public User findById(long id) {
         // File storage keyed by username only; cannot lookup by id efficiently.
@@ -0,0 +1,91 @@
+package com.vaultify.repository;
+
+import java.util.List;
+
+/**
+ * KeyRotationRepository abstraction for rotating a user's key pair.
+ *
+ * A rotation stores the new key pair as pending on the user, fills the
+ * encrypted_key_next column of every affected row (the user's credentials and
+ * the credentials shared with them, with its key_scheme_next) batch by batch,
+ * and finally swaps all
+ * columns in one transaction. Until the swap the old keys stay in force, so
+ * an interrupted rotation can be resumed or aborted at any point.
+ */
+public interface KeyRotationRepository {
+
+    /** Rows whose data key is wrapped for the rotating user. */
+    enum Scope {
+        OWNED, // credentials.encrypted_key of the user's credentials
+        SHARED // credential_recipients.encrypted_key of credentials shared with the user
+    }
+
+    /**
+     * One wrapped data key, identified by credentials.id, with the
+     * {@link com.vaultify.crypto.KeyWrap} scheme it is wrapped under.
+     */
+    final class WrappedKey {
+        public final int credentialId;
+        public final String encryptedKeyBase64;
+        public final String keyScheme;
+
+        public WrappedKey(int credentialId, String encryptedKeyBase64, String keyScheme) {
+            this.credentialId = credentialId;
+            this.encryptedKeyBase64 = encryptedKeyBase64;
+            this.keyScheme = keyScheme;
+        }
+    }
+
+    /**
+     * A rotation in progress.
+     */
+    final class Pending {
+        public final String publicKeyBase64;
+        public final String privateKeyEncrypted;
+        public final String kemPublicKeyBase64; // X25519 pair; null for an RSA-only rotation
+        public final String kemPrivateKeyEncrypted;
+        public final int checkpoint; // last OWNED credential id committed, 0 when none
+        public final long startedAt;
+
+        public Pending(String publicKeyBase64, String privateKeyEncrypted, String kemPublicKeyBase64,
+                String kemPrivateKeyEncrypted, int checkpoint, long startedAt) {
+            this.publicKeyBase64 = publicKeyBase64;
+            this.privateKeyEncrypted = privateKeyEncrypted;
+            this.kemPublicKeyBase64 = kemPublicKeyBase64;
+            this.kemPrivateKeyEncrypted = kemPrivateKeyEncrypted;
+            this.checkpoint = checkpoint;
+            this.startedAt = startedAt;
+        }
+    }
+
+    /** The rotation in progress for the user, or null. */
+    Pending findPending(long userId);
+
+    /** Record the new key pairs as pending (replaces an earlier pending pair). */
+    void begin(long userId, String publicKeyBase64, String privateKeyEncrypted, String kemPublicKeyBase64,
+            String kemPrivateKeyEncrypted);
+
+    /** Up to {@code limit} rows after {@code afterId} (by credential id) that still need a new wrap. */
+    List<WrappedKey> nextBatch(Scope scope, long userId, int afterId, int limit);
+
+    /**
+     * Store new wraps in encrypted_key_next (and their scheme in
+     * key_scheme_next) in one transaction; for
+     * {@link Scope#OWNED} the checkpoint advances in the same transaction.
+     */
+    void saveBatch(Scope scope, long userId, List<WrappedKey> rewrapped);
+
+    /** Rows of both scopes still without a new wrap. */
+    int countRemaining(long userId);
+
+    /**
+     * Atomically make the new wraps and key pair current. Returns false, with
+     * nothing changed, when rows without a new wrap exist (e.g. a credential
+     * was added meanwhile). Writers of wrapped keys must be serialized
+     * against it and must not commit a key wrapped for the old pair after it.
+     */
+    boolean swap(long userId);
+
+    /** Drop the pending key pair and every new wrap. */
+    void abort(long userId);
+}
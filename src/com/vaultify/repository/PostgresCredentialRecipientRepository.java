@@ -0,0 +1,154 @@
+package com.vaultify.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.vaultify.crypto.KeyWrap;
+import com.vaultify.db.Database;
+import com.vaultify.models.CredentialMetadata;
+import com.vaultify.models.CredentialRecipient;
+
+/**
+ * JDBC-backed implementation of CredentialRecipientRepository over the
+ * credential_recipients table (one row per credential and recipient).
+ */
+public class PostgresCredentialRecipientRepository implements CredentialRecipientRepository {
+
+    /**
+     * One transaction holding the recipients' rows FOR SHARE, with their
+     * wrap keys re-checked as in {@link PostgresCredentialRepository#save}.
+     */
+    @Override
+    public void saveAll(List<CredentialRecipient> recipients) {
+        if (recipients.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO credential_recipients (credential_id, recipient_user_id, encrypted_key, key_scheme, "
+                + "granted_by, granted_at) VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (credential_id, recipient_user_id) "
+                + "DO UPDATE SET encrypted_key = EXCLUDED.encrypted_key, key_scheme = EXCLUDED.key_scheme, "
+                + "granted_by = EXCLUDED.granted_by, granted_at = EXCLUDED.granted_at";
+        List<Long> userIds = new ArrayList<>(recipients.size());
+        List<String> wrapKeys = new ArrayList<>(recipients.size());
+        for (CredentialRecipient r : recipients) {
+            userIds.add(r.recipientUserId);
+            wrapKeys.add(r.wrapPublicKeyBase64 == null ? "" : r.wrapPublicKeyBase64);
+        }
+        try (Connection conn = Database.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                PostgresCredentialRepository.checkWrapKeys(conn, userIds, wrapKeys);
+                for (CredentialRecipient r : recipients) {
+                    ps.setInt(1, r.credentialId);
+                    ps.setLong(2, r.recipientUserId);
+                    ps.setString(3, r.encryptedKeyBase64);
+                    ps.setString(4, KeyWrap.normalize(r.keyScheme));
+                    ps.setLong(5, r.grantedByUserId);
+                    ps.setTimestamp(6, new Timestamp(r.grantedAt));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to save credential recipients", e);
+        }
+    }
+
+    @Override
+    public boolean delete(int credentialId, long recipientUserId) {
+        String sql = "DELETE FROM credential_recipients WHERE credential_id = ? AND recipient_user_id = ?";
+        try (Connection conn = Database.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, credentialId);
+            ps.setLong(2, recipientUserId);
+            return ps.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to delete credential recipient", e);
+        }
+    }
+
+    @Override
+    public List<CredentialRecipient> findByCredential(int credentialId) {
+        String sql = "SELECT r.*, u.username FROM credential_recipients r JOIN users u ON u.id = r.recipient_user_id "
+                + "WHERE r.credential_id = ? ORDER BY r.granted_at";
+        List<CredentialRecipient> list = new ArrayList<>();
+        try (Connection conn = Database.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, credentialId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    CredentialRecipient r = new CredentialRecipient();
+                    r.credentialId = rs.getInt("credential_id");
+                    r.recipientUserId = rs.getLong("recipient_user_id");
+                    r.recipientUsername = rs.getString("username");
+                    r.encryptedKeyBase64 = rs.getString("encrypted_key");
+                    r.keyScheme = rs.getString("key_scheme");
+                    r.grantedByUserId = rs.getLong("granted_by");
+                    r.grantedAt = rs.getTimestamp("granted_at").getTime();
+                    list.add(r);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed listing credential recipients", e);
+        }
+        return list;
+    }
+
+    @Override
+    public CredentialMetadata findShared(String credentialId, long recipientUserId) {
+        String sql = "SELECT c.*, r.encrypted_key AS recipient_key, r.key_scheme AS recipient_key_scheme "
+                + "FROM credentials c JOIN credential_recipients r ON r.credential_id = c.id "
+                + "WHERE c.filepath = ? AND r.recipient_user_id = ?";
+        try (Connection conn = Database.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, "vault_data/credentials/" + credentialId + ".bin");
+            ps.setLong(2, recipientUserId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    CredentialMetadata meta = hydrateShared(rs);
+                    meta.credentialIdString = credentialId;
+                    return meta;
+                }
+            }
+            return null;
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed findShared", e);
+        }
+    }
+
+    @Override
+    public List<CredentialMetadata> findSharedWith(long recipientUserId) {
+        String sql = "SELECT c.*, r.encrypted_key AS recipient_key, r.key_scheme AS recipient_key_scheme "
+                + "FROM credentials c JOIN credential_recipients r ON r.credential_id = c.id "
+                + "WHERE r.recipient_user_id = ? ORDER BY r.granted_at";
+        List<CredentialMetadata> list = new ArrayList<>();
+        try (Connection conn = Database.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, recipientUserId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    list.add(hydrateShared(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed findSharedWith", e);
+        }
+        return list;
+    }
+
+    private static CredentialMetadata hydrateShared(ResultSet rs) throws SQLException {
+        CredentialMetadata meta = PostgresCredentialRepository.hydrate(rs);
+        // The owner's wrapped key is of no use to the recipient
+        meta.encryptedKeyBase64 = rs.getString("recipient_key");
+        meta.keyScheme = rs.getString("recipient_key_scheme");
+        return meta;
+    }
+}
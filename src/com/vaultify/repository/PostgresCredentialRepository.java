@@ -7,8 +7,11 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import com.vaultify.crypto.KeyWrap;
 import com.vaultify.db.Database;
 import com.vaultify.models.CredentialMetadata;
 import com.vaultify.models.CredentialType;
@@ -19,11 +22,64 @@ import com.vaultify.models.CredentialType;
  */
 public class PostgresCredentialRepository implements CredentialRepository {
 
+    /**
+     * Holds the owner's row FOR SHARE while inserting, so a key rotation swap
+     * (which locks it FOR UPDATE) either counts this row or has committed
+     * before it; in the latter case the key wrapped for the old pair is
+     * refused instead of being stored unreadable.
+     */
     @Override
     public long save(CredentialMetadata meta, long userId) {
-        String sql = "INSERT INTO credentials (user_id, filename, filepath, encrypted_key, iv, data_hash, credential_hash, file_size, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        try (Connection conn = Database.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        String sql = "INSERT INTO credentials (user_id, filename, filepath, encrypted_key, iv, data_hash, credential_hash, file_size, created_at, storage_format, compression, compression_level, key_scheme) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try (Connection conn = Database.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                checkWrapKeys(conn, List.of(userId), List.of(meta.wrapPublicKeyBase64 == null ? ""
+                        : meta.wrapPublicKeyBase64));
+                long id = insert(conn, sql, meta, userId);
+                conn.commit();
+                return id;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to save credential metadata", e);
+        }
+    }
+
+    /**
+     * Lock the users' rows FOR SHARE (in id order) and check each wrap key is
+     * still one of that user's current public keys. An empty key skips the
+     * check (callers that did not record it).
+     */
+    static void checkWrapKeys(Connection conn, List<Long> userIds, List<String> wrapKeys) throws SQLException {
+        Map<Long, String[]> current = new HashMap<>();
+        String sql = "SELECT id, public_key, kem_public_key FROM users WHERE id = ANY(?) ORDER BY id FOR SHARE";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setArray(1, conn.createArrayOf("bigint", userIds.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    current.put(rs.getLong(1), new String[] { rs.getString(2), rs.getString(3) });
+                }
+            }
+        }
+        for (int i = 0; i < userIds.size(); i++) {
+            String[] keys = current.get(userIds.get(i));
+            if (keys == null) {
+                throw new RepositoryException("User not found: " + userIds.get(i));
+            }
+            String wrapKey = wrapKeys.get(i);
+            if (!wrapKey.isEmpty() && !wrapKey.equals(keys[0]) && !wrapKey.equals(keys[1])) {
+                throw new RepositoryException("Key pair of user " + userIds.get(i)
+                        + " was rotated meanwhile; log in again and retry");
+            }
+        }
+    }
+
+    private static long insert(Connection conn, String sql, CredentialMetadata meta, long userId)
+            throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ps.setLong(1, userId);
             ps.setString(2, meta.filename);
             ps.setString(3, "vault_data/credentials/" + meta.credentialIdString + ".bin");
@@ -33,6 +89,10 @@ public class PostgresCredentialRepository implements CredentialRepository {
             ps.setString(7, meta.credentialHash);
             ps.setLong(8, meta.fileSize);
             ps.setTimestamp(9, new Timestamp(meta.timestamp));
+            ps.setString(10, meta.storageFormat);
+            ps.setString(11, meta.compression);
+            ps.setInt(12, meta.compressionLevel);
+            ps.setString(13, KeyWrap.normalize(meta.keyScheme));
             ps.executeUpdate();
             try (ResultSet keys = ps.getGeneratedKeys()) {
                 if (keys.next()) {
@@ -42,8 +102,6 @@ public class PostgresCredentialRepository implements CredentialRepository {
                 }
             }
             return -1L;
-        } catch (SQLException e) {
-            throw new RepositoryException("Failed to save credential metadata", e);
         }
     }
 
@@ -97,7 +155,7 @@ public class PostgresCredentialRepository implements CredentialRepository {
         }
     }
 
-    private CredentialMetadata hydrate(ResultSet rs) throws SQLException {
+    static CredentialMetadata hydrate(ResultSet rs) throws SQLException {
         CredentialMetadata meta = new CredentialMetadata();
         meta.id = rs.getInt("id");
         meta.userId = rs.getLong("user_id");
@@ -114,6 +172,10 @@ public class PostgresCredentialRepository implements CredentialRepository {
         meta.dataHash = rs.getString("data_hash");
         meta.credentialHash = rs.getString("credential_hash");
         meta.fileSize = rs.getLong("file_size");
+        meta.storageFormat = rs.getString("storage_format");
+        meta.compression = rs.getString("compression");
+        meta.compressionLevel = rs.getInt("compression_level");
+        meta.keyScheme = rs.getString("key_scheme");
 
         return meta;
     }
@@ -0,0 +1,250 @@
+package com.vaultify.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.vaultify.db.Database;
+
+/**
+ * JDBC-backed implementation of KeyRotationRepository. Batches are written
+ * with JDBC batch updates inside one transaction each. The swap locks the
+ * user row FOR UPDATE before counting what is left; credential and recipient
+ * inserts lock the same row FOR SHARE and re-check the key they wrapped for
+ * (see {@link PostgresCredentialRepository#save}), so an insert either
+ * commits before the swap counts it or sees the new key and is refused.
+ */
+public class PostgresKeyRotationRepository implements KeyRotationRepository {
+    private static final String REMAINING_SQL = "SELECT (SELECT COUNT(*) FROM credentials WHERE user_id = ? "
+            + "AND encrypted_key_next IS NULL AND encrypted_key IS NOT NULL) + (SELECT COUNT(*) "
+            + "FROM credential_recipients WHERE recipient_user_id = ? AND encrypted_key_next IS NULL)";
+
+    @Override
+    public Pending findPending(long userId) {
+        String sql = "SELECT pending_public_key, pending_private_key_encrypted, pending_kem_public_key, "
+                + "pending_kem_private_key_encrypted, key_rotation_checkpoint, key_rotation_started_at FROM users WHERE id = ? AND pending_public_key IS NOT NULL";
+        try (Connection conn = Database.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                Timestamp started = rs.getTimestamp("key_rotation_started_at");
+                return new Pending(rs.getString("pending_public_key"), rs.getString("pending_private_key_encrypted"),
+                        rs.getString("pending_kem_public_key"), rs.getString("pending_kem_private_key_encrypted"),
+                        rs.getInt("key_rotation_checkpoint"), started != null ? started.getTime() : 0L);
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to read pending key rotation", e);
+        }
+    }
+
+    @Override
+    public void begin(long userId, String publicKeyBase64, String privateKeyEncrypted, String kemPublicKeyBase64,
+            String kemPrivateKeyEncrypted) {
+        // A replaced pending pair invalidates any wraps made for it
+        String[] sql = {
+                "UPDATE credentials SET encrypted_key_next = NULL, key_scheme_next = NULL "
+                        + "WHERE user_id = ? AND encrypted_key_next IS NOT NULL",
+                "UPDATE credential_recipients SET encrypted_key_next = NULL, key_scheme_next = NULL "
+                        + "WHERE recipient_user_id = ? AND encrypted_key_next IS NOT NULL",
+                "UPDATE users SET pending_public_key = ?, pending_private_key_encrypted = ?, "
+                        + "pending_kem_public_key = ?, pending_kem_private_key_encrypted = ?, key_rotation_checkpoint = 0, key_rotation_started_at = CURRENT_TIMESTAMP WHERE id = ?"
+        };
+        try (Connection conn = Database.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (int i = 0; i < 2; i++) {
+                    try (PreparedStatement ps = conn.prepareStatement(sql[i])) {
+                        ps.setLong(1, userId);
+                        ps.executeUpdate();
+                    }
+                }
+                try (PreparedStatement ps = conn.prepareStatement(sql[2])) {
+                    ps.setString(1, publicKeyBase64);
+                    ps.setString(2, privateKeyEncrypted);
+                    ps.setString(3, kemPublicKeyBase64);
+                    ps.setString(4, kemPrivateKeyEncrypted);
+                    ps.setLong(5, userId);
+                    if (ps.executeUpdate() == 0) {
+                        throw new RepositoryException("User not found: " + userId);
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to begin key rotation", e);
+        }
+    }
+
+    @Override
+    public List<WrappedKey> nextBatch(Scope scope, long userId, int afterId, int limit) {
+        String sql = scope == Scope.OWNED
+                ? "SELECT id, encrypted_key, key_scheme FROM credentials WHERE user_id = ? AND id > ? "
+                        + "AND encrypted_key_next IS NULL AND encrypted_key IS NOT NULL ORDER BY id LIMIT ?"
+                : "SELECT credential_id AS id, encrypted_key, key_scheme FROM credential_recipients WHERE recipient_user_id = ? "
+                        + "AND credential_id > ? AND encrypted_key_next IS NULL ORDER BY credential_id LIMIT ?";
+        List<WrappedKey> list = new ArrayList<>();
+        try (Connection conn = Database.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, userId);
+            ps.setInt(2, afterId);
+            ps.setInt(3, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    list.add(new WrappedKey(rs.getInt("id"), rs.getString("encrypted_key"), rs.getString("key_scheme")));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to read key rotation batch", e);
+        }
+        return list;
+    }
+
+    @Override
+    public void saveBatch(Scope scope, long userId, List<WrappedKey> rewrapped) {
+        if (rewrapped.isEmpty()) {
+            return;
+        }
+        String sql = scope == Scope.OWNED
+                ? "UPDATE credentials SET encrypted_key_next = ?, key_scheme_next = ? WHERE id = ? AND user_id = ?"
+                : "UPDATE credential_recipients SET encrypted_key_next = ?, key_scheme_next = ? "
+                        + "WHERE credential_id = ? AND recipient_user_id = ?";
+        try (Connection conn = Database.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    for (WrappedKey k : rewrapped) {
+                        ps.setString(1, k.encryptedKeyBase64);
+                        ps.setString(2, k.keyScheme);
+                        ps.setInt(3, k.credentialId);
+                        ps.setLong(4, userId);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                if (scope == Scope.OWNED) {
+                    try (PreparedStatement ps = conn.prepareStatement(
+                            "UPDATE users SET key_rotation_checkpoint = GREATEST(key_rotation_checkpoint, ?) WHERE id = ?")) {
+                        ps.setInt(1, rewrapped.get(rewrapped.size() - 1).credentialId);
+                        ps.setLong(2, userId);
+                        ps.executeUpdate();
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to save key rotation batch", e);
+        }
+    }
+
+    @Override
+    public int countRemaining(long userId) {
+        try (Connection conn = Database.getConnection();
+                PreparedStatement ps = conn.prepareStatement(REMAINING_SQL)) {
+            ps.setLong(1, userId);
+            ps.setLong(2, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to count key rotation progress", e);
+        }
+    }
+
+    @Override
+    public boolean swap(long userId) {
+        try (Connection conn = Database.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // Waits for inserts holding FOR SHARE; later ones wait for this commit
+                try (PreparedStatement ps = conn.prepareStatement("SELECT id FROM users WHERE id = ? FOR UPDATE")) {
+                    ps.setLong(1, userId);
+                    ps.executeQuery().close();
+                }
+                int remaining;
+                try (PreparedStatement ps = conn.prepareStatement(REMAINING_SQL)) {
+                    ps.setLong(1, userId);
+                    ps.setLong(2, userId);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        remaining = rs.getInt(1);
+                    }
+                }
+                if (remaining > 0) {
+                    conn.rollback();
+                    return false;
+                }
+                String[] sql = {
+                        "UPDATE credentials SET encrypted_key = encrypted_key_next, key_scheme = key_scheme_next, "
+                                + "encrypted_key_next = NULL, key_scheme_next = NULL "
+                                + "WHERE user_id = ? AND encrypted_key_next IS NOT NULL",
+                        "UPDATE credential_recipients SET encrypted_key = encrypted_key_next, "
+                                + "key_scheme = key_scheme_next, encrypted_key_next = NULL, key_scheme_next = NULL "
+                                + "WHERE recipient_user_id = ? AND encrypted_key_next IS NOT NULL",
+                        "UPDATE users SET public_key = pending_public_key, "
+                                + "private_key_encrypted = pending_private_key_encrypted, "
+                                + "kem_public_key = pending_kem_public_key, "
+                                + "kem_private_key_encrypted = pending_kem_private_key_encrypted, pending_public_key = NULL, "
+                                + "pending_private_key_encrypted = NULL, pending_kem_public_key = NULL, "
+                                + "pending_kem_private_key_encrypted = NULL, key_rotation_checkpoint = NULL, "
+                                + "key_rotation_started_at = NULL WHERE id = ? AND pending_public_key IS NOT NULL"
+                };
+                for (String s : sql) {
+                    try (PreparedStatement ps = conn.prepareStatement(s)) {
+                        ps.setLong(1, userId);
+                        ps.executeUpdate();
+                    }
+                }
+                conn.commit();
+                return true;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to swap rotated keys", e);
+        }
+    }
+
+    @Override
+    public void abort(long userId) {
+        String[] sql = {
+                "UPDATE credentials SET encrypted_key_next = NULL, key_scheme_next = NULL "
+                        + "WHERE user_id = ? AND encrypted_key_next IS NOT NULL",
+                "UPDATE credential_recipients SET encrypted_key_next = NULL, key_scheme_next = NULL "
+                        + "WHERE recipient_user_id = ? AND encrypted_key_next IS NOT NULL",
+                "UPDATE users SET pending_public_key = NULL, pending_private_key_encrypted = NULL, "
+                        + "pending_kem_public_key = NULL, pending_kem_private_key_encrypted = NULL, key_rotation_checkpoint = NULL, key_rotation_started_at = NULL WHERE id = ?"
+        };
+        try (Connection conn = Database.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (String s : sql) {
+                    try (PreparedStatement ps = conn.prepareStatement(s)) {
+                        ps.setLong(1, userId);
+                        ps.executeUpdate();
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to abort key rotation", e);
+        }
+    }
+}
@@ -6,7 +6,12 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import com.vaultify.db.Database;
 import com.vaultify.models.User;
@@ -15,6 +20,7 @@ import com.vaultify.models.User;
  * JDBC-backed implementation of UserRepository using PostgreSQL.
  */
 public class PostgresUserRepository extends AbstractJdbcRepository<User> implements UserRepository {
+    private static final int INSERT_BATCH_SIZE = 500;
 
     @Override
     protected String tableName() {
@@ -23,7 +29,7 @@ public class PostgresUserRepository extends AbstractJdbcRepository<User> impleme
 
     @Override
     protected String insertSql() {
-        return "INSERT INTO users (username, password_hash, public_key, private_key_encrypted, created_at) VALUES (?, ?, ?, ?, ?)";
+        return "INSERT INTO users (username, password_hash, public_key, private_key_encrypted, kem_public_key, kem_private_key_encrypted, created_at, password_salt, password_iterations, password_lanes) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
     }
 
     @Override
@@ -35,7 +41,12 @@ public class PostgresUserRepository extends AbstractJdbcRepository<User> impleme
         stmt.setString(2, user.getPasswordHash());
         stmt.setString(3, user.getPublicKey());
         stmt.setString(4, user.getPrivateKeyEncrypted());
-        stmt.setTimestamp(5, user.getCreatedAt());
+        stmt.setString(5, user.getKemPublicKey());
+        stmt.setString(6, user.getKemPrivateKeyEncrypted());
+        stmt.setTimestamp(7, user.getCreatedAt());
+        stmt.setString(8, user.getPasswordSalt());
+        stmt.setInt(9, user.getPasswordIterations());
+        stmt.setInt(10, user.getPasswordLanes());
     }
 
     @Override
@@ -44,8 +55,13 @@ public class PostgresUserRepository extends AbstractJdbcRepository<User> impleme
         u.setId(rs.getLong("id"));
         u.setUsername(rs.getString("username"));
         u.setPasswordHash(rs.getString("password_hash"));
+        u.setPasswordSalt(rs.getString("password_salt"));
+        u.setPasswordIterations(rs.getInt("password_iterations"));
+        u.setPasswordLanes(rs.getInt("password_lanes"));
         u.setPublicKey(rs.getString("public_key"));
         u.setPrivateKeyEncrypted(rs.getString("private_key_encrypted"));
+        u.setKemPublicKey(rs.getString("kem_public_key"));
+        u.setKemPrivateKeyEncrypted(rs.getString("kem_private_key_encrypted"));
         u.setCreatedAt(rs.getTimestamp("created_at"));
         return u;
     }
@@ -93,6 +109,89 @@ public class PostgresUserRepository extends AbstractJdbcRepository<User> impleme
         return list;
     }
 
+    @Override
+    public void update(User user) {
+        String sql = "UPDATE users SET password_hash = ?, public_key = ?, private_key_encrypted = ?, "
+                + "kem_public_key = ?, kem_private_key_encrypted = ?, password_salt = ?, password_iterations = ?, "
+                + "password_lanes = ? WHERE id = ?";
+        try (Connection conn = Database.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, user.getPasswordHash());
+            ps.setString(2, user.getPublicKey());
+            ps.setString(3, user.getPrivateKeyEncrypted());
+            ps.setString(4, user.getKemPublicKey());
+            ps.setString(5, user.getKemPrivateKeyEncrypted());
+            ps.setString(6, user.getPasswordSalt());
+            ps.setInt(7, user.getPasswordIterations());
+            ps.setInt(8, user.getPasswordLanes());
+            ps.setLong(9, user.getId());
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed update", e);
+        }
+    }
+
+    @Override
+    public Set<String> findExistingUsernames(Collection<String> usernames) {
+        Set<String> existing = new HashSet<>();
+        if (usernames.isEmpty()) {
+            return existing;
+        }
+        String sql = "SELECT username FROM users WHERE username = ANY(?)";
+        try (Connection conn = Database.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setArray(1, conn.createArrayOf("text", usernames.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    existing.add(rs.getString(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed findExistingUsernames", e);
+        }
+        return existing;
+    }
+
+    /**
+     * JDBC batches of {@value #INSERT_BATCH_SIZE} rows in a single
+     * transaction, so a failure inserts nobody; ids come back through
+     * RETURNING, and rows skipped by ON CONFLICT return none.
+     */
+    @Override
+    public List<User> saveAll(List<User> users) {
+        List<User> saved = new ArrayList<>(users.size());
+        String sql = insertSql() + " ON CONFLICT (username) DO NOTHING";
+        try (Connection conn = Database.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql, new String[] { "id", "username" })) {
+                for (int from = 0; from < users.size(); from += INSERT_BATCH_SIZE) {
+                    List<User> batch = users.subList(from, Math.min(users.size(), from + INSERT_BATCH_SIZE));
+                    Map<String, User> byName = new HashMap<>();
+                    for (User user : batch) {
+                        bindInsert(ps, user);
+                        ps.addBatch();
+                        byName.put(user.getUsername(), user);
+                    }
+                    ps.executeBatch();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        while (keys.next()) {
+                            User user = byName.get(keys.getString("username"));
+                            user.setId(keys.getLong("id"));
+                            saved.add(user);
+                        }
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to insert users", e);
+        }
+        return saved;
+    }
+
     @Override
     public void delete(long id) {
         String sql = "DELETE FROM users WHERE id = ?";
@@ -60,6 +60,16 @@ public final class RepositoryFactory {
         return new PostgresCredentialRepository();
     }
 
+    // Credential Recipient Repository (shared data keys)
+    public CredentialRecipientRepository credentialRecipientRepository() {
+        return new PostgresCredentialRecipientRepository();
+    }
+
+    // Key Rotation Repository
+    public KeyRotationRepository keyRotationRepository() {
+        return new PostgresKeyRotationRepository();
+    }
+
     // Token Repository
     public TokenRepository tokenRepository() {
         // Enforce JDBC-only repositories
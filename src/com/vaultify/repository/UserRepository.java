@@ -1,6 +1,9 @@
 package com.vaultify.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+
 import com.vaultify.models.User;
 
 /**
@@ -16,5 +19,17 @@ public interface UserRepository {
 
     List<User> findAll();
 
+    /** Update an existing user's password hash and key columns. */
+    void update(User user);
+
+    /** Those of the given usernames that are already taken, in one lookup. */
+    Set<String> findExistingUsernames(Collection<String> usernames);
+
+    /**
+     * Insert many new users, setting their ids. A user whose username was
+     * taken in the meantime is skipped; returns the users actually inserted.
+     */
+    List<User> saveAll(List<User> users);
+
     void delete(long id);
 }
@@ -0,0 +1,337 @@
+package com.vaultify.server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.vaultify.crypto.SecureBuffer;
+import com.vaultify.models.CredentialMetadata;
+import com.vaultify.service.AuthService;
+import com.vaultify.service.ServiceException;
+import com.vaultify.service.Session;
+import com.vaultify.service.TokenService;
+import com.vaultify.service.VaultService;
+import com.vaultify.service.VerificationService;
+import com.vaultify.util.Config;
+import com.vaultify.util.PathValidator;
+import com.vaultify.verifier.CertificateVerifier;
+
+/**
+ * Dispatches framed JSON requests from {@link VaultServer} to the services.
+ *
+ * Every request is an object with an "op" field; authenticated operations also
+ * carry the "session" id returned by login. Responses always contain "ok" and
+ * either the result fields or "error".
+ *
+ * Operations:
+ * - ping
+ * - login {username, password} -> {session}
+ * - logout {session}
+ * - add {session, filename, content(base64)} | {session, path} -> {id}
+ * - list {session} -> {credentials[]}
+ * - retrieve {session, id} -> {filename, content(base64)} (own or shared credential)
+ * - delete {session, id}
+ * - share {session, id, expiryHours?} -> {token, tokenHash, certificate, certificateContent(base64), expiry}
+ * - grant {session, id, users[]} -> {granted[]}
+ * - revoke {session, id, user} -> {revoked}
+ * - shared {session} -> {credentials[]} (shared with the session's user)
+ * - verify {certificate(base64), token} | {session, certPath, token} -> {valid, message}
+ *
+ * The path forms make the daemon open files with its own OS user's rights,
+ * which any client that can log in would borrow. They are refused unless
+ * server.paths.enabled is set, and even then only paths below
+ * server.paths.root/&lt;username&gt;/ of the session's user are accepted.
+ *
+ * Thread-safe: one instance is shared by all connection threads.
+ */
+public class RequestHandler {
+    private static final Gson GSON = new Gson();
+    private static final boolean PATHS_ENABLED = Config.getBoolean("server.paths.enabled", false);
+    private static final String PATHS_ROOT = Config.get("server.paths.root", "");
+
+    private final AuthService authService;
+    private final VaultService vaultService;
+    private final TokenService tokenService;
+    private final VerificationService verificationService;
+
+    public RequestHandler(AuthService authService, VaultService vaultService, TokenService tokenService,
+            VerificationService verificationService) {
+        this.authService = authService;
+        this.vaultService = vaultService;
+        this.tokenService = tokenService;
+        this.verificationService = verificationService;
+    }
+
+    public String handle(String requestJson) {
+        JsonObject request;
+        try {
+            request = GSON.fromJson(requestJson, JsonObject.class);
+        } catch (JsonParseException e) {
+            return error("Malformed request: " + e.getMessage());
+        }
+        if (request == null) {
+            return error("Missing 'op'");
+        }
+
+        String op = null;
+        try {
+            JsonElement opField = request.get("op");
+            if (opField == null || opField.isJsonNull()) {
+                throw new ServiceException("Missing 'op'");
+            }
+            if (!opField.isJsonPrimitive() || !opField.getAsJsonPrimitive().isString()) {
+                throw new ServiceException("'op' must be a string");
+            }
+            op = opField.getAsString();
+            JsonObject result = switch (op) {
+                case "ping" -> ok();
+                case "login" -> login(request);
+                case "logout" -> logout(request);
+                case "add" -> add(request);
+                case "list" -> list(request);
+                case "retrieve" -> retrieve(request);
+                case "delete" -> delete(request);
+                case "share" -> share(request);
+                case "grant" -> grant(request);
+                case "revoke" -> revoke(request);
+                case "shared" -> shared(request);
+                case "verify" -> verify(request);
+                default -> throw new ServiceException("Unknown op: " + op);
+            };
+            return GSON.toJson(result);
+        } catch (ServiceException | SecurityException | IllegalArgumentException e) {
+            return error(e.getMessage());
+        } catch (Exception e) {
+            System.err.println("[VaultServer] " + op + " failed: " + e.getMessage());
+            return error(op + " failed: " + e.getMessage());
+        }
+    }
+
+    private JsonObject login(JsonObject req) {
+        Session session = authService.openSession(string(req, "username"), string(req, "password"));
+        if (session == null) {
+            throw new ServiceException("Invalid credentials");
+        }
+        JsonObject res = ok();
+        res.addProperty("session", session.getId());
+        res.addProperty("userId", session.getUserId());
+        return res;
+    }
+
+    private JsonObject logout(JsonObject req) {
+        authService.logout(string(req, "session"));
+        return ok();
+    }
+
+    private JsonObject add(JsonObject req) throws Exception {
+        Session session = session(req);
+        String id;
+        if (req.has("path")) {
+            Path path = clientPath(session, string(req, "path"));
+            PathValidator.ValidationResult validation = PathValidator.validateFilePath(path.toString());
+            if (!validation.valid) {
+                throw new ServiceException("Validation failed: " + validation.message);
+            }
+            id = vaultService.addCredential(session, validation.normalizedPath);
+        } else {
+            // Inline content: stage in a private temp dir so the stored filename is kept
+            String filename = Paths.get(string(req, "filename")).getFileName().toString();
+            byte[] content = Base64.getDecoder().decode(string(req, "content"));
+            if (content.length > PathValidator.getMaxFileSize()) {
+                throw new ServiceException("Content too large: " + content.length + " bytes");
+            }
+            Path dir = Files.createTempDirectory("vaultify-srv-");
+            Path file = dir.resolve(filename);
+            try {
+                Files.write(file, content);
+                id = vaultService.addCredential(session, file);
+            } finally {
+                Files.deleteIfExists(file);
+                Files.deleteIfExists(dir);
+            }
+        }
+        JsonObject res = ok();
+        res.addProperty("id", id);
+        return res;
+    }
+
+    private JsonObject list(JsonObject req) {
+        List<CredentialMetadata> credentials = vaultService.listCredentials(session(req));
+        JsonArray items = new JsonArray();
+        for (CredentialMetadata meta : credentials) {
+            JsonObject item = new JsonObject();
+            item.addProperty("id", meta.credentialIdString);
+            item.addProperty("filename", meta.filename);
+            item.addProperty("size", meta.fileSize);
+            item.addProperty("added", meta.timestamp);
+            items.add(item);
+        }
+        JsonObject res = ok();
+        res.add("credentials", items);
+        return res;
+    }
+
+    private JsonObject retrieve(JsonObject req) throws Exception {
+        Session session = session(req);
+        String id = string(req, "id");
+        CredentialMetadata meta = vaultService.requireReadable(id, session.getUserId());
+        JsonObject res = ok();
+        res.addProperty("filename", meta.filename);
+        // Base64-encode straight from the off-heap plaintext
+        try (SecureBuffer plaintext = vaultService.retrieveCredentialBuffer(session, id)) {
+            ByteBuffer encoded = Base64.getEncoder().encode(plaintext.readOnlyView());
+            res.addProperty("content", new String(encoded.array(), 0, encoded.remaining(), StandardCharsets.ISO_8859_1));
+            SecureBuffer.wipe(encoded.array());
+        }
+        return res;
+    }
+
+    private JsonObject delete(JsonObject req) throws Exception {
+        vaultService.deleteCredential(session(req), string(req, "id"));
+        return ok();
+    }
+
+    private JsonObject share(JsonObject req) throws Exception {
+        Session session = session(req);
+        CredentialMetadata cred = vaultService.requireOwned(string(req, "id"), session.getUserId());
+        int expiryHours = req.has("expiryHours") ? req.get("expiryHours").getAsInt() : 48;
+        TokenService.ShareResult share = tokenService.shareCredential(session, cred, expiryHours);
+        JsonObject res = ok();
+        res.addProperty("token", share.token.getToken());
+        res.addProperty("tokenHash", share.tokenHash);
+        res.addProperty("certificate", share.certificatePath.toAbsolutePath().toString());
+        res.addProperty("certificateContent",
+                Base64.getEncoder().encodeToString(Files.readAllBytes(share.certificatePath)));
+        res.addProperty("expiry", share.token.getExpiry().getTime());
+        return res;
+    }
+
+    private JsonObject grant(JsonObject req) throws Exception {
+        if (!req.has("users") || !req.get("users").isJsonArray()) {
+            throw new ServiceException("Missing 'users'");
+        }
+        List<String> users = new ArrayList<>();
+        for (JsonElement user : req.getAsJsonArray("users")) {
+            users.add(user.getAsString());
+        }
+        List<String> granted = vaultService.grantAccess(session(req), string(req, "id"), users);
+        JsonArray items = new JsonArray();
+        granted.forEach(items::add);
+        JsonObject res = ok();
+        res.add("granted", items);
+        return res;
+    }
+
+    private JsonObject revoke(JsonObject req) {
+        boolean revoked = vaultService.revokeAccess(session(req), string(req, "id"), string(req, "user"));
+        JsonObject res = ok();
+        res.addProperty("revoked", revoked);
+        return res;
+    }
+
+    private JsonObject shared(JsonObject req) {
+        List<CredentialMetadata> credentials = vaultService.listSharedWithMe(session(req));
+        JsonArray items = new JsonArray();
+        for (CredentialMetadata meta : credentials) {
+            JsonObject item = new JsonObject();
+            item.addProperty("id", meta.credentialIdString);
+            item.addProperty("filename", meta.filename);
+            item.addProperty("size", meta.fileSize);
+            item.addProperty("owner", meta.userId);
+            items.add(item);
+        }
+        JsonObject res = ok();
+        res.add("credentials", items);
+        return res;
+    }
+
+    private JsonObject verify(JsonObject req) throws Exception {
+        CertificateVerifier.Result result;
+        if (req.has("certificate")) {
+            byte[] certificate = Base64.getDecoder().decode(string(req, "certificate"));
+            if (certificate.length > PathValidator.getMaxFileSize()) {
+                throw new ServiceException("Certificate too large: " + certificate.length + " bytes");
+            }
+            Path dir = Files.createTempDirectory("vaultify-srv-");
+            Path file = dir.resolve("certificate.json");
+            try {
+                Files.write(file, certificate);
+                result = verificationService.verifyCertificate(file, string(req, "token"));
+            } finally {
+                Files.deleteIfExists(file);
+                Files.deleteIfExists(dir);
+            }
+        } else {
+            result = verificationService.verifyCertificate(clientPath(session(req), string(req, "certPath")),
+                    string(req, "token"));
+        }
+        JsonObject res = ok();
+        res.addProperty("valid", result.valid);
+        res.addProperty("message", result.message);
+        return res;
+    }
+
+    // ---------------------------
+    // Helpers
+    // ---------------------------
+
+    private Session session(JsonObject req) {
+        return authService.getSession(string(req, "session"));
+    }
+
+    /**
+     * A client-supplied path, resolved against server.paths.root/&lt;username&gt;
+     * and refused unless path requests are enabled and the file (after
+     * following symlinks) lies below that directory.
+     */
+    private static Path clientPath(Session session, String path) throws Exception {
+        if (!PATHS_ENABLED || PATHS_ROOT.isBlank()) {
+            throw new ServiceException("File paths are not accepted by this server; send the content inline");
+        }
+        Path root = Paths.get(PATHS_ROOT).toAbsolutePath().normalize();
+        Path userRoot = root.resolve(session.getUsername()).normalize();
+        if (!root.equals(userRoot.getParent())) {
+            throw new SecurityException("No path access for user " + session.getUsername());
+        }
+        Path file = userRoot.resolve(path).normalize();
+        if (!file.startsWith(userRoot) || !Files.exists(file)
+                || !file.toRealPath().startsWith(userRoot.toRealPath())) {
+            throw new SecurityException("Path not allowed: " + path);
+        }
+        return file.toRealPath();
+    }
+
+    private static String string(JsonObject req, String field) {
+        JsonElement value = req.get(field);
+        if (value == null || value.isJsonNull()) {
+            throw new ServiceException("Missing '" + field + "'");
+        }
+        if (!value.isJsonPrimitive()) {
+            throw new ServiceException("'" + field + "' must be a string");
+        }
+        return value.getAsString();
+    }
+
+    private static JsonObject ok() {
+        JsonObject res = new JsonObject();
+        res.addProperty("ok", true);
+        return res;
+    }
+
+    static String error(String message) {
+        JsonObject res = new JsonObject();
+        res.addProperty("ok", false);
+        res.addProperty("error", message);
+        return GSON.toJson(res);
+    }
+}
@@ -0,0 +1,169 @@
+package com.vaultify.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.vaultify.util.Config;
+
+/**
+ * Headless Vaultify daemon.
+ *
+ * Listens on a Unix domain socket (preferred) or a loopback-only TCP port and
+ * serves vault operations to local scripts on a warm JVM. Every connection is
+ * handled on its own virtual thread.
+ *
+ * Wire format (both directions): 4-byte big-endian length + UTF-8 JSON body.
+ * A connection may carry any number of request/response pairs. See
+ * {@link RequestHandler} for the supported operations.
+ *
+ * Config:
+ * - server.socket (Unix socket path; takes precedence when set)
+ * - server.port (loopback TCP port, default 7423)
+ * - server.maxFrameBytes (default 32 MB)
+ */
+public class VaultServer implements AutoCloseable {
+    private final ServerSocketChannel channel;
+    private final Path socketPath;
+    private final RequestHandler handler;
+    private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+    private final int maxFrameBytes;
+    private volatile boolean running = true;
+
+    private VaultServer(ServerSocketChannel channel, Path socketPath, RequestHandler handler) {
+        this.channel = channel;
+        this.socketPath = socketPath;
+        this.handler = handler;
+        this.maxFrameBytes = Config.getInt("server.maxFrameBytes", 32 * 1024 * 1024);
+    }
+
+    /**
+     * Bind a Unix domain socket. A stale socket file from a previous run is
+     * replaced; the new one is restricted to the owner where supported.
+     */
+    public static VaultServer bindUnix(Path socketPath, RequestHandler handler) throws IOException {
+        Path absolute = socketPath.toAbsolutePath();
+        if (absolute.getParent() != null) {
+            Files.createDirectories(absolute.getParent());
+        }
+        Files.deleteIfExists(absolute);
+        ServerSocketChannel ch = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        ch.bind(UnixDomainSocketAddress.of(absolute));
+        try {
+            Files.setPosixFilePermissions(absolute, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException | IOException ignored) {
+            // Non-POSIX filesystem: rely on directory permissions
+        }
+        return new VaultServer(ch, absolute, handler);
+    }
+
+    /**
+     * Bind a TCP port on the loopback interface only.
+     */
+    public static VaultServer bindLoopback(int port, RequestHandler handler) throws IOException {
+        ServerSocketChannel ch = ServerSocketChannel.open();
+        ch.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        return new VaultServer(ch, null, handler);
+    }
+
+    public String describeAddress() {
+        try {
+            return socketPath != null ? "unix:" + socketPath : "tcp:" + channel.getLocalAddress();
+        } catch (IOException e) {
+            return "unknown";
+        }
+    }
+
+    /**
+     * Accept connections until {@link #close()} is called. Blocks the caller.
+     */
+    public void serve() {
+        while (running) {
+            try {
+                SocketChannel client = channel.accept();
+                connections.submit(() -> handleConnection(client));
+            } catch (ClosedChannelException e) {
+                break;
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("[VaultServer] Accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void handleConnection(SocketChannel client) {
+        try (client;
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(client)));
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(client)))) {
+            while (running) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException eof) {
+                    return; // client closed the connection
+                }
+                if (length < 0 || length > maxFrameBytes) {
+                    writeFrame(out, RequestHandler.error("Frame too large: " + length + " bytes"));
+                    return;
+                }
+                byte[] body = new byte[length];
+                in.readFully(body);
+                String response = handler.handle(new String(body, StandardCharsets.UTF_8));
+                writeFrame(out, response);
+            }
+        } catch (IOException e) {
+            System.err.println("[VaultServer] Connection error: " + e.getMessage());
+        }
+    }
+
+    private static void writeFrame(DataOutputStream out, String json) throws IOException {
+        byte[] payload = json.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.flush();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        connections.shutdown();
+        try {
+            if (!connections.awaitTermination(5, TimeUnit.SECONDS)) {
+                connections.shutdownNow();
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            connections.shutdownNow();
+        }
+        if (socketPath != null) {
+            try {
+                Files.deleteIfExists(socketPath);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
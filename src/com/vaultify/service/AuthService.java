@@ -1,42 +1,73 @@
 package com.vaultify.service;
 
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.security.KeyPair;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import com.vaultify.crypto.AESEngine;
 import com.vaultify.crypto.HashUtil;
-import com.vaultify.crypto.RSAEngine;
+import com.vaultify.crypto.KeyPairPool;
+import com.vaultify.crypto.KeyWrap;
+import com.vaultify.crypto.PasswordKdf;
+import com.vaultify.crypto.X25519Engine;
 import com.vaultify.models.User;
+import com.vaultify.repository.KeyRotationRepository;
 import com.vaultify.repository.RepositoryFactory;
 import com.vaultify.repository.UserRepository;
+import com.vaultify.threading.ActivityLogger;
 import com.vaultify.threading.ThreadManager;
 
 /**
  * AuthService handles authentication operations: login, registration, session
  * management.
+ * Sessions live in the process-wide {@link SessionRegistry}, so several users
+ * can be logged in at once; the CLI simply tracks one of them as "current".
  * Uses DUAL storage: File-based for backup/portability + JDBC for querying.
- * Uses crypto for password hashing, RSA key generation, and AES private key
- * encryption.
+ * Uses crypto for password hashing ({@link PasswordKdf}), RSA and X25519 key
+ * generation, and AES private key encryption. The RSA pair signs certificates; new data keys are
+ * wrapped with the X25519 pair when there is one (see {@link KeyWrap}).
  */
 public class AuthService {
     private final UserRepository userRepository; // dual/selected repository
     private final LedgerService ledgerService;
 
-    // Current session
-    private User currentUser;
-    private PrivateKey currentUserPrivateKey;
+    private final SessionRegistry sessionRegistry;
+    private final KeyRotationService keyRotationService;
+
+    // Interactive (CLI) session; other callers hold their own session ids
+    private volatile String currentSessionId;
 
     public AuthService() {
+        this(new LedgerService());
+    }
+
+    public AuthService(LedgerService ledgerService) {
         // Acquire repository from factory for configured storage.mode
         this.userRepository = RepositoryFactory.get().userRepository();
-        this.ledgerService = new LedgerService();
+        this.ledgerService = ledgerService;
+        this.sessionRegistry = SessionRegistry.get();
+        this.keyRotationService = new KeyRotationService();
     }
 
     /**
      * Register a new user with username and password.
-     * Generates RSA key pair, encrypts private key with password-derived AES key.
+     * Generates RSA and X25519 key pairs, encrypts the private keys with the
+     * AES key derived from the password together with its salted hash.
      * 
      * @param username Username for the new user
      * @param password Plain text password
@@ -53,69 +84,17 @@ public class AuthService {
         }
 
         try {
-            // Create new user
-            User user = new User();
-            user.setUsername(username);
-
-            // Hash password with SHA-256
-            String passwordHash = HashUtil.sha256(password);
-            user.setPasswordHash(passwordHash);
-
-            // Generate RSA key pair (2048-bit)
-            KeyPair keyPair = RSAEngine.generateKeyPair(2048);
-
-            // Store public key as Base64-encoded X.509 format
-            String publicKeyBase64 = Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded());
-            user.setPublicKey(publicKeyBase64);
-
-            // Encrypt private key with AES using password-derived key
-            // Use first 32 bytes of password hash as AES key
-            byte[] aesKey = Base64.getDecoder().decode(Base64.getEncoder().encodeToString(
-                    HashUtil.sha256(password).substring(0, 32).getBytes()));
-            if (aesKey.length < 32) {
-                // Ensure 32 bytes for AES-256
-                aesKey = HashUtil.sha256(password).substring(0, 32).getBytes();
-                if (aesKey.length < 32) {
-                    byte[] padded = new byte[32];
-                    System.arraycopy(aesKey, 0, padded, 0, aesKey.length);
-                    aesKey = padded;
-                }
-            }
-
-            byte[] iv = AESEngine.generateIv();
-            byte[] privateKeyBytes = keyPair.getPrivate().getEncoded();
-            byte[] encryptedPrivateKey = AESEngine.encryptWithParams(privateKeyBytes, aesKey, iv);
-
-            // Store as Base64: IV || encrypted_private_key
-            byte[] combined = new byte[iv.length + encryptedPrivateKey.length];
-            System.arraycopy(iv, 0, combined, 0, iv.length);
-            System.arraycopy(encryptedPrivateKey, 0, combined, iv.length, encryptedPrivateKey.length);
-            String encryptedPrivateKeyBase64 = Base64.getEncoder().encodeToString(combined);
-            user.setPrivateKeyEncrypted(encryptedPrivateKeyBase64);
+            // RSA key pair (2048-bit), pre-generated when the pool has one
+            KeyPair keyPair = KeyPairPool.take();
+            User user = newUser(username, password, keyPair, false);
+            String publicKeyBase64 = user.getPublicKey();
 
             // Persist key artifacts to filesystem for features that expect PEM presence.
-            // We do NOT write the raw unencrypted private key; instead we store the
-            // encrypted blob.
-            try {
-                java.nio.file.Path keysDir = java.nio.file.Paths.get("vault_data", "keys");
-                java.nio.file.Files.createDirectories(keysDir);
-
-                // Public key PEM encoding (RFC 7468 style, 64-char lines)
-                String pubPem = "-----BEGIN PUBLIC KEY-----\n"
-                        + java.util.Base64.getMimeEncoder(64, "\n".getBytes())
-                                .encodeToString(keyPair.getPublic().getEncoded())
-                        + "\n-----END PUBLIC KEY-----\n";
-                java.nio.file.Files.writeString(keysDir.resolve(username + "_public.pem"), pubPem);
-
-                // Encrypted private key blob (IV||ciphertext base64) – not a standard PEM,
-                // store with .enc
-                java.nio.file.Files.writeString(keysDir.resolve(username + "_private.enc"), encryptedPrivateKeyBase64);
-            } catch (Exception ioEx) {
-                System.err.println("[Warning] Failed to write key files: " + ioEx.getMessage());
-            }
+            writeKeyFiles(username, keyPair.getPublic(), user.getPrivateKeyEncrypted());
 
             // Persist via repository abstraction (handles dual strategy internally)
             userRepository.save(user);
+            ActivityLogger.log(username, "USER_REGISTERED", "userId=" + user.getId());
 
             // Log registration to ledger
             String dataHash = HashUtil.sha256("REGISTER:" + username + ":" + publicKeyBase64);
@@ -128,58 +107,231 @@ public class AuthService {
         }
     }
 
+    /**
+     * An account to create with {@link #provisionUsers}.
+     */
+    public static final class NewAccount {
+        public final String username;
+        public final String password;
+
+        public NewAccount(String username, String password) {
+            this.username = username;
+            this.password = password;
+        }
+    }
+
+    /**
+     * Outcome of {@link #provisionUsers}.
+     */
+    public static final class ProvisionResult {
+        public final int created;
+        public final List<String> existing; // already taken, including names taken during the run
+        public final List<String> rejected; // empty username or password, or repeated in the input
+        public final double seconds;
+
+        ProvisionResult(int created, List<String> existing, List<String> rejected, double seconds) {
+            this.created = created;
+            this.existing = existing;
+            this.rejected = rejected;
+            this.seconds = seconds;
+        }
+    }
+
+    /**
+     * Register many users at once, as {@link #register} would one by one:
+     * <ol>
+     * <li>one lookup for usernames that are already taken;</li>
+     * <li>RSA key pairs from {@link KeyPairPool#take(int)} (pool first, the
+     * rest generated in parallel);</li>
+     * <li>password hashes and key encryption for at most
+     * {@link PasswordKdf#maxConcurrent()} users at a time, queued fairly
+     * behind interactive logins; the workers run on the I/O executor so the
+     * KDF lanes they hand to the CPU executor always find a free thread;</li>
+     * <li>batched inserts ({@link UserRepository#saveAll});</li>
+     * <li>one activity log entry and one USERS_PROVISIONED ledger block over
+     * all new accounts, instead of one per user.</li>
+     * </ol>
+     * A username taken between the lookup and the insert is reported as
+     * existing. Invalid entries are skipped, not fatal.
+     */
+    public ProvisionResult provisionUsers(List<NewAccount> accounts, PrintStream out) {
+        long start = System.nanoTime();
+        Map<String, String> wanted = new LinkedHashMap<>();
+        List<String> rejected = new ArrayList<>();
+        for (NewAccount a : accounts) {
+            String username = a.username == null ? "" : a.username;
+            if (username.isEmpty() || a.password == null || a.password.isEmpty()
+                    || wanted.putIfAbsent(username, a.password) != null) {
+                rejected.add(username.isEmpty() ? "(empty)" : username);
+            }
+        }
+
+        List<String> existing = new ArrayList<>(userRepository.findExistingUsernames(wanted.keySet()));
+        existing.forEach(wanted::remove);
+        out.printf("[Provision] %d new, %d existing, %d rejected%n", wanted.size(), existing.size(),
+                rejected.size());
+        if (wanted.isEmpty()) {
+            return new ProvisionResult(0, existing, rejected, (System.nanoTime() - start) / 1e9);
+        }
+
+        try {
+            List<KeyPair> keyPairs = KeyPairPool.take(wanted.size());
+            out.printf("[Provision] %d key pair(s) ready%n", keyPairs.size());
+
+            // Bounded window on the I/O executor: CPU threads stay free for KDF lanes and other work
+            List<User> users = new ArrayList<>(wanted.size());
+            ArrayDeque<Future<User>> pending = new ArrayDeque<>();
+            int window = PasswordKdf.maxConcurrent();
+            int progressStep = Math.max(1, wanted.size() / 10);
+            Iterator<Map.Entry<String, String>> it = wanted.entrySet().iterator();
+            for (int i = 0; it.hasNext() || !pending.isEmpty();) {
+                if (it.hasNext() && pending.size() < window) {
+                    Map.Entry<String, String> e = it.next();
+                    KeyPair keyPair = keyPairs.get(i++);
+                    pending.add(ThreadManager.submit(() -> newUser(e.getKey(), e.getValue(), keyPair, true)));
+                    continue;
+                }
+                try {
+                    users.add(pending.poll().get());
+                } catch (ExecutionException e) {
+                    pending.forEach(f -> f.cancel(false));
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
+                if (users.size() % progressStep == 0 && users.size() < wanted.size()) {
+                    out.printf("[Provision] %d/%d password hash(es)%n", users.size(), wanted.size());
+                }
+            }
+
+            List<User> saved = userRepository.saveAll(users);
+            if (saved.size() < users.size()) {
+                Set<String> savedNames = new HashSet<>();
+                saved.forEach(u -> savedNames.add(u.getUsername()));
+                users.stream().map(User::getUsername).filter(n -> !savedNames.contains(n)).forEach(existing::add);
+            }
+
+            StringBuilder digest = new StringBuilder("PROVISION");
+            for (User user : saved) {
+                writeKeyFiles(user.getUsername(), decodePublicKey(user.getPublicKey()), user.getPrivateKeyEncrypted());
+                digest.append(':').append(user.getId()).append(':').append(user.getUsername()).append(':')
+                        .append(user.getPublicKey());
+            }
+            if (!saved.isEmpty()) {
+                String dataHash = HashUtil.sha256(digest.toString());
+                String detail = "count=" + saved.size() + " firstId=" + saved.get(0).getId() + " lastId="
+                        + saved.get(saved.size() - 1).getId();
+                ActivityLogger.log("USERS_PROVISIONED", detail);
+                ThreadManager.runAsync(() -> ledgerService.appendBlock("USERS_PROVISIONED", dataHash));
+            }
+            return new ProvisionResult(saved.size(), existing, rejected, (System.nanoTime() - start) / 1e9);
+        } catch (Exception e) {
+            throw new ServiceException("Failed to provision users: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * A new, unsaved user with the given RSA pair, a fresh X25519 pair and a
+     * salted password hash; both private keys are encrypted with the key from
+     * the same derivation. {@code queued} waits for the KDF without a timeout.
+     */
+    private static User newUser(String username, String password, KeyPair keyPair, boolean queued)
+            throws Exception {
+        User user = new User();
+        user.setUsername(username);
+
+        // Store public key as Base64-encoded X.509 format
+        user.setPublicKey(Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+
+        // Salted password hash; the same derivation gives the private key encryption key
+        try (PasswordKdf.Derived derived = hashPassword(user, password, queued)) {
+            // Store as Base64: IV || encrypted_private_key
+            user.setPrivateKeyEncrypted(encryptPrivateKey(keyPair.getPrivate(), derived.encryptionKey));
+
+            // X25519 pair for wrapping data keys
+            setKemKeys(user, X25519Engine.generateKeyPair(), derived.encryptionKey);
+        }
+        return user;
+    }
+
     /**
      * Login with username and password.
-     * Verifies password hash and decrypts private key.
+     * Verifies password hash and decrypts private key. The resulting session
+     * becomes this service's interactive (CLI) session.
      * 
      * @param username Username
      * @param password Plain text password
      * @return true if login successful, false otherwise
      */
     public boolean login(String username, String password) {
-        if (username == null || username.isEmpty() || password == null || password.isEmpty()) {
+        Session session = openSession(username, password);
+        if (session == null) {
             return false;
         }
+        // Replace any previous interactive session
+        sessionRegistry.close(this.currentSessionId);
+        this.currentSessionId = session.getId();
+        return true;
+    }
+
+    /**
+     * Authenticate a user and register a new session for them.
+     * Independent sessions can be opened concurrently for any number of users.
+     *
+     * @param username Username
+     * @param password Plain text password
+     * @return the new Session, or null if authentication failed
+     */
+    public Session openSession(String username, String password) {
+        if (username == null || username.isEmpty() || password == null || password.isEmpty()) {
+            return null;
+        }
 
         try {
             // Unified repository lookup (dual strategy inside repository)
             User user = userRepository.findByUsername(username);
 
             if (user == null) {
-                return false;
-            }
-
-            // Verify password
-            String passwordHash = HashUtil.sha256(password);
-            if (!passwordHash.equals(user.getPasswordHash())) {
-                return false;
+                return null;
             }
 
-            // Decrypt private key
-            byte[] aesKey = HashUtil.sha256(password).substring(0, 32).getBytes();
-            if (aesKey.length < 32) {
-                byte[] padded = new byte[32];
-                System.arraycopy(aesKey, 0, padded, 0, aesKey.length);
-                aesKey = padded;
+            // Verify password; yields the key the private keys are encrypted with
+            byte[] passwordKey = unlock(user, password);
+            if (passwordKey == null) {
+                return null;
             }
 
-            byte[] combined = Base64.getDecoder().decode(user.getPrivateKeyEncrypted());
-            byte[] iv = new byte[AESEngine.GCM_IV_BYTES];
-            System.arraycopy(combined, 0, iv, 0, AESEngine.GCM_IV_BYTES);
-            byte[] encryptedPrivateKey = new byte[combined.length - AESEngine.GCM_IV_BYTES];
-            System.arraycopy(combined, AESEngine.GCM_IV_BYTES, encryptedPrivateKey, 0, encryptedPrivateKey.length);
-
-            byte[] privateKeyBytes = AESEngine.decryptWithParams(encryptedPrivateKey, aesKey, iv);
+            PrivateKey privateKey;
+            PrivateKey kemPrivateKey = null;
+            PublicKey kemPublicKey = null;
+            try {
+                // Decrypt private keys
+                privateKey = decryptPrivateKey(user.getPrivateKeyEncrypted(), passwordKey, "RSA");
+                if (user.getKemPrivateKeyEncrypted() != null) {
+                    kemPrivateKey = decryptPrivateKey(user.getKemPrivateKeyEncrypted(), passwordKey,
+                            X25519Engine.ALGORITHM);
+                    kemPublicKey = decodePublicKey(user.getKemPublicKey(), X25519Engine.ALGORITHM);
+                }
 
-            // Reconstruct private key
-            java.security.spec.PKCS8EncodedKeySpec keySpec = new java.security.spec.PKCS8EncodedKeySpec(
-                    privateKeyBytes);
-            java.security.KeyFactory keyFactory = java.security.KeyFactory.getInstance("RSA");
-            PrivateKey privateKey = keyFactory.generatePrivate(keySpec);
+                boolean rehash = PasswordKdf.needsUpgrade(user.getPasswordSalt(), user.getPasswordIterations(),
+                        user.getPasswordLanes());
+                if (rehash || kemPrivateKey == null) {
+                    KeyPair newKem = kemPrivateKey == null ? X25519Engine.generateKeyPair() : null;
+                    User upgraded = upgrade(user, password, passwordKey, rehash, privateKey,
+                            newKem != null ? newKem : new KeyPair(kemPublicKey, kemPrivateKey));
+                    if (upgraded != null) {
+                        user = upgraded;
+                        if (newKem != null) {
+                            kemPrivateKey = newKem.getPrivate();
+                            kemPublicKey = newKem.getPublic();
+                        }
+                    }
+                }
+            } finally {
+                Arrays.fill(passwordKey, (byte) 0);
+            }
 
-            // Set session
-            this.currentUser = user;
-            this.currentUserPrivateKey = privateKey;
+            Session session = sessionRegistry.open(user, privateKey, decodePublicKey(user.getPublicKey()),
+                    kemPrivateKey, kemPublicKey);
+            ActivityLogger.log(username, "USER_LOGIN", "session opened");
 
             // Log successful login to ledger
             final long userId = user.getId();
@@ -187,11 +339,142 @@ public class AuthService {
             String dataHash = HashUtil.sha256("LOGIN:" + username + ":" + System.currentTimeMillis());
             ThreadManager.runAsync(() -> ledgerService.appendBlock(userId, usernameForLog, "USER_LOGIN", dataHash));
 
-            return true;
+            return session;
         } catch (Exception e) {
-            // Log error but return false for security
+            // Log error but return null for security
             System.err.println("Login failed: " + e.getMessage());
-            return false;
+            return null;
+        }
+    }
+
+    /**
+     * Transparent upgrade at login, the only time the password is at hand: a
+     * legacy or under-strength password hash is re-derived with the current
+     * {@link PasswordKdf} settings (both private keys re-encrypted under the
+     * new key), and a user registered before X25519 key wrapping gets the
+     * given new pair. Existing credentials are untouched.
+     *
+     * @return the stored user, or null when nothing was changed (during a key
+     *         rotation, whose pending keys are encrypted under the current
+     *         key, or on failure; the login goes on with the old settings)
+     */
+    private User upgrade(User user, String password, byte[] passwordKey, boolean rehash, PrivateKey privateKey,
+            KeyPair kemPair) {
+        try {
+            if (keyRotationService.findPending(user.getId()) != null) {
+                return null;
+            }
+            User upgraded = copyOf(user);
+            PasswordKdf.Derived derived = rehash ? hashPassword(upgraded, password) : null;
+            try {
+                byte[] key = derived != null ? derived.encryptionKey : passwordKey;
+                if (derived != null) {
+                    upgraded.setPrivateKeyEncrypted(encryptPrivateKey(privateKey, key));
+                }
+                setKemKeys(upgraded, kemPair, key);
+            } finally {
+                if (derived != null) {
+                    derived.close();
+                }
+            }
+            userRepository.update(upgraded);
+            if (rehash) {
+                writeKeyFiles(upgraded.getUsername(), decodePublicKey(upgraded.getPublicKey()),
+                        upgraded.getPrivateKeyEncrypted());
+                ActivityLogger.log(user.getUsername(), "PASSWORD_HASH_UPGRADED",
+                        upgraded.getPasswordIterations() + " iterations x " + upgraded.getPasswordLanes() + " lane(s)");
+            }
+            if (user.getKemPublicKey() == null) {
+                ActivityLogger.log(user.getUsername(), "KEM_KEYS_ADDED", "X25519 key pair generated");
+            }
+            return upgraded;
+        } catch (Exception e) {
+            System.err.println("[Auth] Could not upgrade stored keys for " + user.getUsername() + ": "
+                    + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Check the password. Returns the key the user's private keys are
+     * encrypted with (the caller zeroes it), or null for a wrong password.
+     * Users without a salt still have the legacy unsalted SHA-256 hash.
+     */
+    private static byte[] unlock(User user, String password) throws Exception {
+        if (user.getPasswordSalt() == null) {
+            boolean ok = user.getPasswordHash() != null && MessageDigest.isEqual(
+                    HashUtil.sha256(password).getBytes(StandardCharsets.US_ASCII),
+                    user.getPasswordHash().getBytes(StandardCharsets.US_ASCII));
+            return ok ? legacyPasswordKey(password) : null;
+        }
+        try (PasswordKdf.Derived derived = PasswordKdf.derive(password, user.getPasswordSalt(),
+                user.getPasswordIterations(), user.getPasswordLanes())) {
+            return derived.matches(user.getPasswordHash()) ? derived.encryptionKey.clone() : null;
+        }
+    }
+
+    /**
+     * New salt and current cost settings for the user, and the password hash
+     * derived with them. The caller closes the result.
+     */
+    private static PasswordKdf.Derived hashPassword(User user, String password) throws Exception {
+        return hashPassword(user, password, false);
+    }
+
+    private static PasswordKdf.Derived hashPassword(User user, String password, boolean queued) throws Exception {
+        String salt = PasswordKdf.newSaltBase64();
+        int iterations = PasswordKdf.iterations();
+        int lanes = PasswordKdf.lanes();
+        PasswordKdf.Derived derived = queued ? PasswordKdf.deriveQueued(password, salt, iterations, lanes)
+                : PasswordKdf.derive(password, salt, iterations, lanes);
+        user.setPasswordHash(derived.verifierBase64);
+        user.setPasswordSalt(salt);
+        user.setPasswordIterations(iterations);
+        user.setPasswordLanes(lanes);
+        return derived;
+    }
+
+    private static void setKemKeys(User user, KeyPair kemPair, byte[] passwordKey) throws Exception {
+        user.setKemPublicKey(Base64.getEncoder().encodeToString(kemPair.getPublic().getEncoded()));
+        user.setKemPrivateKeyEncrypted(encryptPrivateKey(kemPair.getPrivate(), passwordKey));
+    }
+
+    private static User copyOf(User user) {
+        User u = new User();
+        u.setId(user.getId());
+        u.setUsername(user.getUsername());
+        u.setPasswordHash(user.getPasswordHash());
+        u.setPasswordSalt(user.getPasswordSalt());
+        u.setPasswordIterations(user.getPasswordIterations());
+        u.setPasswordLanes(user.getPasswordLanes());
+        u.setPublicKey(user.getPublicKey());
+        u.setPrivateKeyEncrypted(user.getPrivateKeyEncrypted());
+        u.setKemPublicKey(user.getKemPublicKey());
+        u.setKemPrivateKeyEncrypted(user.getKemPrivateKeyEncrypted());
+        u.setCreatedAt(user.getCreatedAt());
+        return u;
+    }
+
+    /**
+     * Resolve a live session by id (refreshes its idle timer).
+     *
+     * @throws ServiceException if the session is unknown or expired
+     */
+    public Session getSession(String sessionId) {
+        return sessionRegistry.require(sessionId);
+    }
+
+    /**
+     * Close a session and release its key handle.
+     */
+    public void logout(String sessionId) {
+        Session session = sessionRegistry.find(sessionId);
+        if (session != null) {
+            ActivityLogger.log(session.getUsername(), "USER_LOGOUT", "session closed");
+        }
+        sessionRegistry.close(sessionId);
+        if (sessionId != null && sessionId.equals(currentSessionId)) {
+            currentSessionId = null;
         }
     }
 
@@ -199,42 +482,61 @@ public class AuthService {
      * Logout current user.
      */
     public void logout() {
-        this.currentUser = null;
-        this.currentUserPrivateKey = null;
+        logout(currentSessionId);
+    }
+
+    /**
+     * Interactive session of this service, or null if not logged in (or the
+     * session was evicted for inactivity).
+     */
+    public Session getCurrentSession() {
+        Session session = sessionRegistry.find(currentSessionId);
+        if (session == null) {
+            currentSessionId = null;
+        }
+        return session;
+    }
+
+    /**
+     * Interactive session, failing with a user-facing message if there is none.
+     */
+    public Session requireCurrentSession() {
+        Session session = getCurrentSession();
+        if (session == null) {
+            throw new ServiceException("Please login first.");
+        }
+        return session;
     }
 
     /**
      * Check if a user is currently logged in.
      */
     public boolean isLoggedIn() {
-        return currentUser != null;
+        return getCurrentSession() != null;
     }
 
     /**
      * Get current logged-in user.
      */
     public User getCurrentUser() {
-        return currentUser;
+        Session session = getCurrentSession();
+        return session != null ? session.getUser() : null;
     }
 
     /**
      * Get current user's private key (decrypted).
      */
     public PrivateKey getCurrentUserPrivateKey() {
-        return currentUserPrivateKey;
+        Session session = getCurrentSession();
+        return session != null ? session.getPrivateKey() : null;
     }
 
     /**
      * Get current user's public key.
      */
     public PublicKey getCurrentUserPublicKey() throws Exception {
-        if (currentUser == null) {
-            return null;
-        }
-        byte[] publicKeyBytes = Base64.getDecoder().decode(currentUser.getPublicKey());
-        java.security.spec.X509EncodedKeySpec keySpec = new java.security.spec.X509EncodedKeySpec(publicKeyBytes);
-        java.security.KeyFactory keyFactory = java.security.KeyFactory.getInstance("RSA");
-        return keyFactory.generatePublic(keySpec);
+        Session session = getCurrentSession();
+        return session != null ? session.getPublicKey() : null;
     }
 
     /**
@@ -247,8 +549,9 @@ public class AuthService {
     public PublicKey getUserPublicKey(String username) {
         try {
             // Try current user first
-            if (currentUser != null && currentUser.getUsername().equals(username)) {
-                return getCurrentUserPublicKey();
+            Session session = getCurrentSession();
+            if (session != null && session.getUsername().equals(username)) {
+                return session.getPublicKey();
             }
 
             // Load user from storage
@@ -258,10 +561,7 @@ public class AuthService {
                 return null;
             }
 
-            byte[] publicKeyBytes = Base64.getDecoder().decode(user.getPublicKey());
-            java.security.spec.X509EncodedKeySpec keySpec = new java.security.spec.X509EncodedKeySpec(publicKeyBytes);
-            java.security.KeyFactory keyFactory = java.security.KeyFactory.getInstance("RSA");
-            return keyFactory.generatePublic(keySpec);
+            return decodePublicKey(user.getPublicKey());
 
         } catch (Exception e) {
             System.err.println("Failed to load public key for user " + username + ": " + e.getMessage());
@@ -278,10 +578,193 @@ public class AuthService {
      */
     public PrivateKey getUserPrivateKey(String username) {
         // Security check: only return private key for current logged-in user
-        if (currentUser == null || !currentUser.getUsername().equals(username)) {
+        Session session = getCurrentSession();
+        if (session == null || !session.getUsername().equals(username)) {
             System.err.println("Security violation: attempted to access private key for user " + username);
             return null;
         }
-        return currentUserPrivateKey;
+        return session.getPrivateKey();
+    }
+
+    // -------------------------
+    // Key rotation
+    // -------------------------
+
+    /**
+     * Key rotation left unfinished for the current user, or null.
+     */
+    public KeyRotationRepository.Pending pendingKeyRotation() {
+        return keyRotationService.findPending(requireCurrentSession().getUserId());
+    }
+
+    /**
+     * Discard an unfinished key rotation of the current user; the old key pair
+     * stays in use.
+     */
+    public void abortKeyRotation() {
+        Session session = requireCurrentSession();
+        keyRotationService.abort(session.getUserId());
+        ActivityLogger.log(session.getUsername(), "KEY_ROTATION_ABORTED", "pending key pair discarded");
+    }
+
+    /**
+     * Replace the current user's RSA and X25519 key pairs, or finish a
+     * rotation started earlier. Every data key wrapped for the user is
+     * rewrapped for the new preferred public key (see
+     * {@link KeyRotationService}); afterwards the user's other
+     * sessions are closed, since they hold the old private key, and the
+     * interactive session continues with the new one.
+     */
+    public KeyRotationService.Result rotateKeys(String password, PrintStream out) throws Exception {
+        Session session = requireCurrentSession();
+        User user = userRepository.findById(session.getUserId());
+        byte[] passwordKey = user == null ? null : unlock(user, password);
+        if (passwordKey == null) {
+            throw new ServiceException("Invalid password");
+        }
+        try {
+            return rotateKeys(session, user, passwordKey, out);
+        } finally {
+            Arrays.fill(passwordKey, (byte) 0);
+        }
+    }
+
+    private KeyRotationService.Result rotateKeys(Session session, User user, byte[] passwordKey, PrintStream out)
+            throws Exception {
+        long userId = user.getId();
+        String username = user.getUsername();
+
+        KeyRotationRepository.Pending pending = keyRotationService.findPending(userId);
+        PrivateKey newPrivate;
+        PublicKey newPublic;
+        PrivateKey newKemPrivate;
+        PublicKey newKemPublic;
+        String encryptedPrivateKeyBase64;
+        if (pending == null) {
+            KeyPair keyPair = KeyPairPool.take();
+            KeyPair kemPair = X25519Engine.generateKeyPair();
+            newPrivate = keyPair.getPrivate();
+            newPublic = keyPair.getPublic();
+            newKemPrivate = kemPair.getPrivate();
+            newKemPublic = kemPair.getPublic();
+            encryptedPrivateKeyBase64 = encryptPrivateKey(newPrivate, passwordKey);
+            // Durable before any key is wrapped for it
+            keyRotationService.begin(userId, Base64.getEncoder().encodeToString(newPublic.getEncoded()),
+                    encryptedPrivateKeyBase64, Base64.getEncoder().encodeToString(newKemPublic.getEncoded()),
+                    encryptPrivateKey(newKemPrivate, passwordKey));
+        } else {
+            out.println("[KeyRotation] Resuming rotation started " + new java.util.Date(pending.startedAt));
+            newPrivate = decryptPrivateKey(pending.privateKeyEncrypted, passwordKey, "RSA");
+            newPublic = decodePublicKey(pending.publicKeyBase64);
+            encryptedPrivateKeyBase64 = pending.privateKeyEncrypted;
+            // Rotations begun before X25519 support carry an RSA pair only
+            newKemPrivate = pending.kemPrivateKeyEncrypted == null ? null
+                    : decryptPrivateKey(pending.kemPrivateKeyEncrypted, passwordKey, X25519Engine.ALGORITHM);
+            newKemPublic = pending.kemPublicKeyBase64 == null ? null
+                    : decodePublicKey(pending.kemPublicKeyBase64, X25519Engine.ALGORITHM);
+        }
+
+        KeyRotationService.Result result = keyRotationService.run(session, KeyWrap.preferred(newPublic, newKemPublic),
+                pending == null ? 0 : pending.checkpoint, out);
+
+        // The new pairs are current from here on
+        writeKeyFiles(username, newPublic, encryptedPrivateKeyBase64);
+        sessionRegistry.closeUser(userId);
+        Session rotated = sessionRegistry.open(userRepository.findById(userId), newPrivate, newPublic,
+                newKemPrivate, newKemPublic);
+        this.currentSessionId = rotated.getId();
+
+        ActivityLogger.log(username, "KEY_ROTATED", (result.owned + result.shared) + " key(s) rewrapped");
+        String dataHash = HashUtil.sha256("KEY_ROTATED:" + username + ":"
+                + Base64.getEncoder().encodeToString(newPublic.getEncoded()));
+        ThreadManager.runAsync(() -> ledgerService.appendBlock(userId, username, "KEY_ROTATED", dataHash));
+        return result;
+    }
+
+    /**
+     * Encrypt a private key (PKCS#8) with the password-derived AES key;
+     * Base64 of IV || ciphertext.
+     */
+    private static String encryptPrivateKey(PrivateKey privateKey, byte[] passwordKey) throws Exception {
+        byte[] privateKeyBytes = privateKey.getEncoded();
+        try {
+            return Base64.getEncoder().encodeToString(AESEngine.encryptFramed(privateKeyBytes, passwordKey));
+        } finally {
+            Arrays.fill(privateKeyBytes, (byte) 0);
+        }
+    }
+
+    /**
+     * Decrypt a private key blob of {@link #encryptPrivateKey}; {@code algorithm}
+     * is the key's KeyFactory algorithm ("RSA" or "X25519").
+     */
+    private static PrivateKey decryptPrivateKey(String encryptedPrivateKeyBase64, byte[] passwordKey,
+            String algorithm) throws Exception {
+        // Key material only lives as long as the decrypt itself
+        byte[] privateKeyBytes = null;
+        try {
+            privateKeyBytes = AESEngine.decryptFramed(Base64.getDecoder().decode(encryptedPrivateKeyBase64),
+                    passwordKey);
+            java.security.spec.PKCS8EncodedKeySpec keySpec = new java.security.spec.PKCS8EncodedKeySpec(
+                    privateKeyBytes);
+            return java.security.KeyFactory.getInstance(algorithm).generatePrivate(keySpec);
+        } finally {
+            if (privateKeyBytes != null) {
+                Arrays.fill(privateKeyBytes, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * AES key for private key blobs of users without a salt (before
+     * {@link PasswordKdf}): the first 32 characters of the password's SHA-256
+     * hex digest.
+     */
+    private static byte[] legacyPasswordKey(String password) {
+        return HashUtil.sha256(password).substring(0, 32).getBytes();
+    }
+
+    /**
+     * Key artifacts for features that expect PEM presence. The raw private key
+     * is never written; the encrypted blob is stored instead.
+     */
+    private static void writeKeyFiles(String username, PublicKey publicKey, String encryptedPrivateKeyBase64) {
+        try {
+            java.nio.file.Path keysDir = java.nio.file.Paths.get("vault_data", "keys");
+            java.nio.file.Files.createDirectories(keysDir);
+
+            // Public key PEM encoding (RFC 7468 style, 64-char lines)
+            String pubPem = "-----BEGIN PUBLIC KEY-----\n"
+                    + java.util.Base64.getMimeEncoder(64, "\n".getBytes()).encodeToString(publicKey.getEncoded())
+                    + "\n-----END PUBLIC KEY-----\n";
+            java.nio.file.Files.writeString(keysDir.resolve(username + "_public.pem"), pubPem);
+
+            // Encrypted private key blob (IV||ciphertext base64) – not a standard PEM,
+            // store with .enc
+            java.nio.file.Files.writeString(keysDir.resolve(username + "_private.enc"), encryptedPrivateKeyBase64);
+        } catch (Exception ioEx) {
+            System.err.println("[Warning] Failed to write key files: " + ioEx.getMessage());
+        }
+    }
+
+    static PublicKey decodePublicKey(String publicKeyBase64) throws Exception {
+        return decodePublicKey(publicKeyBase64, "RSA");
+    }
+
+    static PublicKey decodePublicKey(String publicKeyBase64, String algorithm) throws Exception {
+        byte[] publicKeyBytes = Base64.getDecoder().decode(publicKeyBase64);
+        java.security.spec.X509EncodedKeySpec keySpec = new java.security.spec.X509EncodedKeySpec(publicKeyBytes);
+        java.security.KeyFactory keyFactory = java.security.KeyFactory.getInstance(algorithm);
+        return keyFactory.generatePublic(keySpec);
+    }
+
+    /**
+     * Public key to wrap data keys for another user: their X25519 key when
+     * they have one and it is preferred, else their RSA key.
+     */
+    static PublicKey wrapKeyOf(User user) throws Exception {
+        PublicKey rsa = decodePublicKey(user.getPublicKey());
+        return user.getKemPublicKey() == null ? rsa
+                : KeyWrap.preferred(rsa, decodePublicKey(user.getKemPublicKey(), X25519Engine.ALGORITHM));
     }
 }
@@ -0,0 +1,188 @@
+package com.vaultify.service;
+
+import java.io.PrintStream;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import com.vaultify.crypto.KeyWrap;
+import com.vaultify.crypto.SecureBuffer;
+import com.vaultify.repository.KeyRotationRepository;
+import com.vaultify.repository.KeyRotationRepository.Scope;
+import com.vaultify.repository.KeyRotationRepository.WrappedKey;
+import com.vaultify.repository.RepositoryFactory;
+import com.vaultify.threading.ThreadManager;
+import com.vaultify.util.Config;
+
+/**
+ * KeyRotationService - moves a user's data keys to a new key pair.
+ *
+ * Only the wrapped AES keys change: each is unwrapped with the old private
+ * key of its scheme and wrapped with the new public key (RSA or X25519, see
+ * {@link KeyWrap}), the .bin ciphertexts are never read. Rows are processed in keyset batches of
+ * vault.keyRotation.batchSize, each batch split over up to
+ * vault.keyRotation.parallelism CPU workers while the previous batch is
+ * written in its own transaction. New wraps are staged beside the current
+ * ones and made current by a single swap at the end (see
+ * {@link KeyRotationRepository}); a crash leaves the old keys working and the
+ * next run continues after the last committed batch.
+ */
+public class KeyRotationService {
+    private static final int BATCH_SIZE = Math.max(1, Config.getInt("vault.keyRotation.batchSize", 500));
+    private static final int PARALLELISM = Config.getInt("vault.keyRotation.parallelism", 0) > 0
+            ? Config.getInt("vault.keyRotation.parallelism", 0)
+            : Runtime.getRuntime().availableProcessors();
+    private static final int MIN_SLICE = 16; // fewer keys than this are not worth another task
+    private static final int MAX_SWAP_ATTEMPTS = 5;
+
+    private final KeyRotationRepository repository;
+
+    public KeyRotationService() {
+        this(RepositoryFactory.get().keyRotationRepository());
+    }
+
+    public KeyRotationService(KeyRotationRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Outcome of a completed rotation.
+     */
+    public static final class Result {
+        public final int owned; // credential keys rewrapped
+        public final int shared; // recipient keys rewrapped
+        public final boolean resumed;
+        public final double seconds;
+
+        Result(int owned, int shared, boolean resumed, double seconds) {
+            this.owned = owned;
+            this.shared = shared;
+            this.resumed = resumed;
+            this.seconds = seconds;
+        }
+    }
+
+    public KeyRotationRepository.Pending findPending(long userId) {
+        return repository.findPending(userId);
+    }
+
+    public void begin(long userId, String publicKeyBase64, String privateKeyEncrypted, String kemPublicKeyBase64,
+            String kemPrivateKeyEncrypted) {
+        repository.begin(userId, publicKeyBase64, privateKeyEncrypted, kemPublicKeyBase64, kemPrivateKeyEncrypted);
+    }
+
+    public void abort(long userId) {
+        repository.abort(userId);
+    }
+
+    /**
+     * Rewrap every remaining key of the session's user for {@code newKey} and
+     * swap. Keys added while this runs are picked up by a catch-up pass before
+     * the swap.
+     *
+     * @param oldKeys    session holding the current private keys
+     * @param checkpoint last credential id committed by an earlier run (0 to start over)
+     */
+    public Result run(Session oldKeys, PublicKey newKey, int checkpoint, PrintStream out) throws Exception {
+        long userId = oldKeys.getUserId();
+        long start = System.nanoTime();
+        int owned = 0;
+        int shared = 0;
+        int afterId = checkpoint;
+        for (int attempt = 1; attempt <= MAX_SWAP_ATTEMPTS; attempt++) {
+            owned += rewrapScope(Scope.OWNED, userId, afterId, oldKeys, newKey, out);
+            shared += rewrapScope(Scope.SHARED, userId, 0, oldKeys, newKey, out);
+            if (repository.swap(userId)) {
+                return new Result(owned, shared, checkpoint > 0, (System.nanoTime() - start) / 1e9);
+            }
+            // Rows were added meanwhile: catch up from the start
+            afterId = 0;
+            out.println("[KeyRotation] " + repository.countRemaining(userId) + " key(s) changed during rotation; "
+                    + "catching up");
+        }
+        throw new ServiceException("Credentials kept changing during key rotation; run it again to finish");
+    }
+
+    private int rewrapScope(Scope scope, long userId, int afterId, Session oldKeys, PublicKey newKey,
+            PrintStream out) throws Exception {
+        long start = System.nanoTime();
+        int done = 0;
+        Future<?> saving = null;
+        List<WrappedKey> batch = repository.nextBatch(scope, userId, afterId, BATCH_SIZE);
+        while (!batch.isEmpty()) {
+            List<WrappedKey> rewrapped = rewrap(batch, oldKeys, newKey);
+            // One write in flight at a time keeps batches, and the checkpoint, in order
+            await(saving);
+            saving = ThreadManager.submit(() -> {
+                repository.saveBatch(scope, userId, rewrapped);
+                return null;
+            });
+            done += rewrapped.size();
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            out.printf("[KeyRotation] %s: %d key(s) rewrapped (%.0f/s)%n", scope.name().toLowerCase(), done,
+                    done / Math.max(elapsed, 1e-3));
+            batch = repository.nextBatch(scope, userId, batch.get(batch.size() - 1).credentialId, BATCH_SIZE);
+        }
+        await(saving);
+        return done;
+    }
+
+    /**
+     * Rewrap one batch on the CPU pool, in order.
+     */
+    private static List<WrappedKey> rewrap(List<WrappedKey> batch, Session oldKeys, PublicKey newKey)
+            throws Exception {
+        int slices = Math.max(1, Math.min(PARALLELISM, batch.size() / MIN_SLICE));
+        int per = (batch.size() + slices - 1) / slices;
+        List<Future<List<WrappedKey>>> parts = new ArrayList<>(slices);
+        for (int from = 0; from < batch.size(); from += per) {
+            List<WrappedKey> slice = batch.subList(from, Math.min(batch.size(), from + per));
+            parts.add(ThreadManager.submitCpu(() -> rewrapSlice(slice, oldKeys, newKey)));
+        }
+        List<WrappedKey> result = new ArrayList<>(batch.size());
+        for (Future<List<WrappedKey>> part : parts) {
+            try {
+                result.addAll(part.get());
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+        return result;
+    }
+
+    private static List<WrappedKey> rewrapSlice(List<WrappedKey> slice, Session oldKeys, PublicKey newKey) {
+        String newScheme = KeyWrap.schemeOf(newKey);
+        List<WrappedKey> out = new ArrayList<>(slice.size());
+        for (WrappedKey k : slice) {
+            byte[] aesKey = null;
+            try {
+                String scheme = KeyWrap.normalize(k.keyScheme);
+                PrivateKey oldKey = oldKeys.privateKeyFor(scheme);
+                aesKey = KeyWrap.unwrap(scheme, Base64.getDecoder().decode(k.encryptedKeyBase64), oldKey);
+                String wrapped = Base64.getEncoder().encodeToString(KeyWrap.wrap(aesKey, newKey));
+                out.add(new WrappedKey(k.credentialId, wrapped, newScheme));
+            } catch (Exception e) {
+                throw new ServiceException("Cannot rewrap data key of credential #" + k.credentialId + ": "
+                        + e.getMessage(), e);
+            } finally {
+                SecureBuffer.wipe(aesKey);
+            }
+        }
+        return out;
+    }
+
+    private static void await(Future<?> task) throws Exception {
+        if (task == null) {
+            return;
+        }
+        try {
+            task.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.vaultify.service;
+
+import java.security.PrivateKey;
+import java.security.PublicKey;
+
+import javax.security.auth.DestroyFailedException;
+
+import com.vaultify.crypto.KeyWrap;
+import com.vaultify.models.User;
+
+/**
+ * Session - one authenticated user inside a (possibly shared) Vaultify process.
+ *
+ * Holds the user record, the decrypted private key handles (RSA, plus X25519
+ * for users that have one) and the last access time used for idle eviction. Sessions are created and tracked by
+ * {@link SessionRegistry}; once closed the key handle is released and every
+ * accessor fails.
+ */
+public class Session {
+    private final String id;
+    private final User user;
+    private final PublicKey publicKey;
+    private final PublicKey kemPublicKey; // null for RSA-only users
+    private final long createdAt;
+
+    private volatile PrivateKey privateKey;
+    private volatile PrivateKey kemPrivateKey;
+    private volatile long lastAccess;
+    private volatile boolean closed;
+
+    Session(String id, User user, PrivateKey privateKey, PublicKey publicKey, PrivateKey kemPrivateKey,
+            PublicKey kemPublicKey) {
+        this.id = id;
+        this.user = user;
+        this.privateKey = privateKey;
+        this.publicKey = publicKey;
+        this.kemPrivateKey = kemPrivateKey;
+        this.kemPublicKey = kemPublicKey;
+        this.createdAt = System.currentTimeMillis();
+        this.lastAccess = createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public User getUser() {
+        ensureOpen();
+        return user;
+    }
+
+    public long getUserId() {
+        return getUser().getId();
+    }
+
+    public String getUsername() {
+        return getUser().getUsername();
+    }
+
+    public PublicKey getPublicKey() {
+        ensureOpen();
+        return publicKey;
+    }
+
+    public PrivateKey getPrivateKey() {
+        ensureOpen();
+        return privateKey;
+    }
+
+    /**
+     * X25519 private key, or null for a user without one.
+     */
+    public PrivateKey getKemPrivateKey() {
+        ensureOpen();
+        return kemPrivateKey;
+    }
+
+    public PublicKey getKemPublicKey() {
+        ensureOpen();
+        return kemPublicKey;
+    }
+
+    /**
+     * Public key new data keys are wrapped with ({@link KeyWrap#preferred}).
+     */
+    public PublicKey getWrapKey() {
+        ensureOpen();
+        return KeyWrap.preferred(publicKey, kemPublicKey);
+    }
+
+    /**
+     * Private key that unwraps data keys recorded under the given scheme.
+     */
+    public PrivateKey privateKeyFor(String keyScheme) {
+        ensureOpen();
+        if (KeyWrap.X25519.equals(keyScheme)) {
+            if (kemPrivateKey == null) {
+                throw new ServiceException("No X25519 key in this session");
+            }
+            return kemPrivateKey;
+        }
+        return privateKey;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getLastAccess() {
+        return lastAccess;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Mark the session as used now (resets the idle timer).
+     */
+    public void touch() {
+        ensureOpen();
+        lastAccess = System.currentTimeMillis();
+    }
+
+    boolean isIdle(long now, long idleTimeoutMs) {
+        return idleTimeoutMs > 0 && now - lastAccess > idleTimeoutMs;
+    }
+
+    /**
+     * Reset the idle timer unless the session is closed or already idle.
+     * Atomic with {@link #closeIfIdle}, so the evictor cannot close a session
+     * between the idle check and the touch.
+     *
+     * @return false if the session is no longer live
+     */
+    synchronized boolean touchIfLive(long now, long idleTimeoutMs) {
+        if (closed || isIdle(now, idleTimeoutMs)) {
+            return false;
+        }
+        lastAccess = now;
+        return true;
+    }
+
+    /**
+     * Close the session if it is idle (or closed already).
+     *
+     * @return true if the session is closed now
+     */
+    synchronized boolean closeIfIdle(long now, long idleTimeoutMs) {
+        if (!closed && !isIdle(now, idleTimeoutMs)) {
+            return false;
+        }
+        close();
+        return true;
+    }
+
+    /**
+     * Release the private key handle. The JDK RSA key implementation does not
+     * support {@code destroy()}, so this is best-effort: the key is destroyed
+     * where the provider allows it and the reference is always dropped.
+     */
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        destroy(privateKey);
+        destroy(kemPrivateKey);
+        privateKey = null;
+        kemPrivateKey = null;
+    }
+
+    private static void destroy(PrivateKey key) {
+        if (key != null && !key.isDestroyed()) {
+            try {
+                key.destroy();
+            } catch (DestroyFailedException ignored) {
+                // Provider keeps key material internally; reference dropped by the caller
+            }
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new ServiceException("Session expired or logged out");
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.vaultify.service;
+
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.vaultify.models.User;
+import com.vaultify.threading.ThreadManager;
+import com.vaultify.util.Config;
+
+/**
+ * Process-wide registry of authenticated sessions.
+ *
+ * Maps session id -> {@link Session} in a ConcurrentHashMap so many users can
+ * work in parallel inside one JVM. Idle sessions are evicted by a periodic
+ * task on the ThreadManager scheduler and their key handles released. A slot
+ * counter is reserved before a session is added and released when it is
+ * removed, so concurrent logins cannot exceed the limit.
+ *
+ * Config:
+ * - session.idleTimeoutMinutes (default 30, 0 disables eviction)
+ * - session.maxSessions (default 1000)
+ */
+public final class SessionRegistry {
+    private static final SessionRegistry INSTANCE = new SessionRegistry();
+    private static final SecureRandom RNG = new SecureRandom();
+    private static final long EVICTION_PERIOD_SECONDS = 60;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger slots = new AtomicInteger(); // reserved or in the map
+    private final long idleTimeoutMs;
+    private final int maxSessions;
+
+    private SessionRegistry() {
+        this.idleTimeoutMs = TimeUnit.MINUTES.toMillis(Config.getInt("session.idleTimeoutMinutes", 30));
+        this.maxSessions = Config.getInt("session.maxSessions", 1000);
+        if (idleTimeoutMs > 0) {
+            ThreadManager.scheduleAtFixedRate(this::evictIdle, EVICTION_PERIOD_SECONDS, EVICTION_PERIOD_SECONDS,
+                    TimeUnit.SECONDS);
+        }
+    }
+
+    public static SessionRegistry get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Register a new session for an authenticated user.
+     */
+    public Session open(User user, PrivateKey privateKey, PublicKey publicKey) {
+        return open(user, privateKey, publicKey, null, null);
+    }
+
+    /**
+     * Register a new session for a user with both an RSA and an X25519 key pair.
+     */
+    public Session open(User user, PrivateKey privateKey, PublicKey publicKey, PrivateKey kemPrivateKey,
+            PublicKey kemPublicKey) {
+        if (!reserveSlot()) {
+            evictIdle();
+            if (!reserveSlot()) {
+                throw new ServiceException("Too many active sessions (max " + maxSessions + ")");
+            }
+        }
+        Session session = new Session(newSessionId(), user, privateKey, publicKey, kemPrivateKey, kemPublicKey);
+        sessions.put(session.getId(), session);
+        return session;
+    }
+
+    /**
+     * Look up a live session and refresh its idle timer.
+     *
+     * @return session, or null if unknown, closed or idle-expired
+     */
+    public Session find(String sessionId) {
+        if (sessionId == null) {
+            return null;
+        }
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            return null;
+        }
+        if (!session.touchIfLive(System.currentTimeMillis(), idleTimeoutMs)) {
+            close(sessionId);
+            return null;
+        }
+        return session;
+    }
+
+    /**
+     * Like {@link #find(String)} but fails if the session is not live.
+     */
+    public Session require(String sessionId) {
+        Session session = find(sessionId);
+        if (session == null) {
+            throw new ServiceException("Session expired or invalid. Please login again.");
+        }
+        return session;
+    }
+
+    public void close(String sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+        Session session = sessions.remove(sessionId);
+        if (session != null) {
+            slots.decrementAndGet();
+            session.close();
+        }
+    }
+
+    /**
+     * Close every session whose last access is older than the idle timeout.
+     *
+     * @return number of evicted sessions
+     */
+    public int evictIdle() {
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+        for (Session session : sessions.values()) {
+            if (session.closeIfIdle(now, idleTimeoutMs)) {
+                remove(session);
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Close every session of one user (e.g. after their key pair changed).
+     *
+     * @return number of closed sessions
+     */
+    public int closeUser(long userId) {
+        int closed = 0;
+        for (Session session : sessions.values()) {
+            boolean owned;
+            try {
+                owned = session.getUserId() == userId;
+            } catch (ServiceException alreadyClosed) {
+                owned = false; // whoever closed it removes it
+            }
+            if (owned && remove(session)) {
+                session.close();
+                closed++;
+            }
+        }
+        return closed;
+    }
+
+    /**
+     * Close all sessions (used on shutdown).
+     */
+    public void closeAll() {
+        for (String id : new ArrayList<>(sessions.keySet())) {
+            close(id);
+        }
+    }
+
+    public int activeCount() {
+        return sessions.size();
+    }
+
+    public Collection<Session> snapshot() {
+        return List.copyOf(sessions.values());
+    }
+
+    private boolean reserveSlot() {
+        for (;;) {
+            int n = slots.get();
+            if (n >= maxSessions) {
+                return false;
+            }
+            if (slots.compareAndSet(n, n + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Remove this exact session if it is still registered; true only for the
+     * caller that removed it.
+     */
+    private boolean remove(Session session) {
+        if (sessions.remove(session.getId(), session)) {
+            slots.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private static String newSessionId() {
+        byte[] raw = new byte[24];
+        RNG.nextBytes(raw);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+}
@@ -2,6 +2,7 @@ package com.vaultify.service;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.security.PrivateKey;
 import java.security.Signature;
 import java.sql.Timestamp;
@@ -15,6 +16,7 @@ import com.vaultify.models.LedgerBlock;
 import com.vaultify.models.Token;
 import com.vaultify.repository.RepositoryFactory;
 import com.vaultify.repository.TokenRepository;
+import com.vaultify.threading.ActivityLogger;
 import com.vaultify.util.TokenUtil;
 import com.vaultify.verifier.Certificate;
 import com.vaultify.verifier.CertificateParser;
@@ -35,7 +37,11 @@ public class TokenService {
     private final TokenRepository tokenRepository; // dual repository abstraction
 
     public TokenService() {
-        this.ledgerService = new LedgerService();
+        this(new LedgerService());
+    }
+
+    public TokenService(LedgerService ledgerService) {
+        this.ledgerService = ledgerService;
         this.tokenRepository = RepositoryFactory.get().tokenRepository();
     }
 
@@ -154,6 +160,65 @@ public class TokenService {
         return cert;
     }
 
+    /**
+     * Full share flow for a session's user: issue + persist a token, make sure
+     * the issuer public key PEM exists and write the signed certificate under
+     * vault_data/certificates.
+     *
+     * @param session     Issuer session (provides the signing key)
+     * @param cred        Credential being shared (must be owned by the session)
+     * @param expiryHours Token validity in hours
+     * @return token + certificate location
+     */
+    public ShareResult shareCredential(Session session, CredentialMetadata cred, int expiryHours) throws Exception {
+        session.touch();
+        if (cred.userId != session.getUserId()) {
+            throw new SecurityException("Unauthorized: credential belongs to different user");
+        }
+        if (expiryHours <= 0) {
+            throw new ServiceException("Expiry hours must be positive");
+        }
+
+        // Use credential ID or hash of UUID string as numeric reference
+        long credIdNum = (cred.id != 0) ? cred.id : Math.abs(cred.credentialIdString.hashCode());
+        Token token = generateToken(session.getUserId(), credIdNum, expiryHours);
+        persistToken(token);
+
+        // Issuer public key path for certificate (auto-create if missing)
+        Path publicKeyPath = Paths.get("vault_data", "keys", session.getUsername() + "_public.pem");
+        if (!Files.exists(publicKeyPath)) {
+            Files.createDirectories(publicKeyPath.getParent());
+            // Reconstruct PEM from Base64 stored in user (X.509 encoded bytes)
+            byte[] pubDer = Base64.getDecoder().decode(session.getUser().getPublicKey());
+            String pemBody = Base64.getMimeEncoder(64, "\n".getBytes()).encodeToString(pubDer);
+            String pem = "-----BEGIN PUBLIC KEY-----\n" + pemBody + "\n-----END PUBLIC KEY-----\n";
+            Files.writeString(publicKeyPath, pem);
+            System.out.println("[Auto-Recovery] Public key file recreated: " + publicKeyPath);
+        }
+
+        Path certOutputDir = Paths.get("vault_data/certificates");
+        Files.createDirectories(certOutputDir);
+        String tokenHash = HashUtil.sha256(token.getToken());
+        Path certPath = certOutputDir.resolve("cert-" + tokenHash.substring(0, 16) + ".json");
+
+        createCertificate(token, cred, session.getPrivateKey(), publicKeyPath, certPath);
+        ActivityLogger.log(session.getUsername(), "SHARE_CREDENTIAL",
+                cred.credentialIdString + " tokenHash=" + tokenHash);
+        return new ShareResult(token, tokenHash, certPath);
+    }
+
+    public static class ShareResult {
+        public final Token token;
+        public final String tokenHash;
+        public final Path certificatePath;
+
+        public ShareResult(Token token, String tokenHash, Path certificatePath) {
+            this.token = token;
+            this.tokenHash = tokenHash;
+            this.certificatePath = certificatePath;
+        }
+    }
+
     /**
      * Create a signed certificate for a token.
      * 
@@ -224,6 +289,36 @@ public class TokenService {
         }
     }
 
+    /**
+     * Issue and persist a share token on behalf of a session's user.
+     */
+    public Token generateAndSaveToken(Session session, long credentialId, int expiryHours) {
+        session.touch();
+        return generateAndSaveToken(session.getUserId(), credentialId, expiryHours);
+    }
+
+    /**
+     * Revoke a token, allowing only the session's user to revoke tokens they
+     * issued.
+     */
+    public void revokeToken(Session session, String tokenString) {
+        session.touch();
+        Token token = tokenRepository.findByTokenString(tokenString);
+        if (token == null) {
+            throw new ServiceException("Token not found");
+        }
+        if (token.getIssuerUserId() != session.getUserId()) {
+            throw new SecurityException("You can only revoke tokens you issued");
+        }
+        revokeToken(tokenString);
+        ActivityLogger.log(session.getUsername(), "REVOKE_TOKEN", "tokenHash=" + HashUtil.sha256(tokenString));
+    }
+
+    public List<Token> listUserTokens(Session session) {
+        session.touch();
+        return listUserTokens(session.getUserId());
+    }
+
     /**
      * List all tokens for a user.
      */
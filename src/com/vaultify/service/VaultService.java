@@ -3,35 +3,65 @@ package com.vaultify.service;
 import java.nio.file.Path;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import com.vaultify.crypto.HashUtil;
+import com.vaultify.crypto.KeyWrap;
+import com.vaultify.crypto.SecureBuffer;
 import com.vaultify.models.CredentialMetadata;
+import com.vaultify.models.CredentialRecipient;
+import com.vaultify.models.User;
+import com.vaultify.repository.CredentialRecipientRepository;
 import com.vaultify.repository.CredentialRepository;
 import com.vaultify.repository.RepositoryFactory;
+import com.vaultify.repository.UserRepository;
+import com.vaultify.threading.ActivityLogger;
 import com.vaultify.threading.ThreadManager;
 import com.vaultify.util.CredentialFileManager;
 
 public class VaultService {
     private final LedgerService ledgerService;
     private final CredentialRepository credentialRepository;
+    private final CredentialRecipientRepository recipientRepository;
+    private final UserRepository userRepository;
 
     public VaultService() {
-        this.ledgerService = new LedgerService();
-        this.credentialRepository = RepositoryFactory.get().credentialRepository();
+        this(new LedgerService(), RepositoryFactory.get().credentialRepository());
     }
 
     public VaultService(LedgerService ledgerService, CredentialRepository credentialRepository) {
+        this(ledgerService, credentialRepository, RepositoryFactory.get().credentialRecipientRepository(),
+                RepositoryFactory.get().userRepository());
+    }
+
+    public VaultService(LedgerService ledgerService, CredentialRepository credentialRepository,
+            CredentialRecipientRepository recipientRepository, UserRepository userRepository) {
         this.ledgerService = ledgerService;
         this.credentialRepository = credentialRepository;
+        this.recipientRepository = recipientRepository;
+        this.userRepository = userRepository;
     }
 
     public String addCredential(long userId, Path filePath, PublicKey userPublicKey) throws Exception {
         if (filePath == null || !filePath.toFile().exists()) {
             throw new ServiceException("File does not exist: " + filePath);
         }
+        // The ciphertext is durable before the row exists; undo it if the insert fails
         CredentialMetadata meta = CredentialFileManager.encryptAndStore(filePath, userPublicKey, userId);
-        credentialRepository.save(meta, userId);
+        try {
+            credentialRepository.save(meta, userId);
+        } catch (RuntimeException e) {
+            try {
+                CredentialFileManager.deleteEncryptedFile(meta.credentialIdString);
+            } catch (Exception cleanup) {
+                e.addSuppressed(cleanup);
+            }
+            throw e;
+        }
         String dataHash = HashUtil.sha256(meta.credentialIdString + ":" + meta.dataHash);
         ThreadManager.runAsync(() -> ledgerService.appendBlock(userId, "user_" + userId, "ADD_CREDENTIAL", dataHash));
         return meta.credentialIdString;
@@ -49,11 +79,189 @@ public class VaultService {
         if (meta == null) {
             throw new ServiceException("Credential not found: " + credentialId);
         }
-        return CredentialFileManager.decryptAndRetrieve(
-                credentialId,
-                meta.encryptedKeyBase64,
-                meta.ivBase64,
-                userPrivateKey);
+        return CredentialFileManager.decryptAndRetrieve(meta, userPrivateKey);
+    }
+
+    // -------------------------
+    // Session-aware operations
+    // -------------------------
+
+    public String addCredential(Session session, Path filePath) throws Exception {
+        session.touch();
+        String credentialId = addCredential(session.getUserId(), filePath, session.getWrapKey());
+        ActivityLogger.log(session.getUsername(), "ADD_CREDENTIAL", credentialId);
+        return credentialId;
+    }
+
+    public List<CredentialMetadata> listCredentials(Session session) {
+        session.touch();
+        return listCredentials(session.getUserId());
+    }
+
+    /**
+     * Retrieve a credential owned by or shared with the session's user.
+     */
+    public byte[] retrieveCredential(Session session, String credentialId) throws Exception {
+        try (SecureBuffer plaintext = retrieveCredentialBuffer(session, credentialId)) {
+            return plaintext.toByteArray();
+        }
+    }
+
+    /**
+     * Retrieve a credential owned by or shared with the session's user into
+     * off-heap memory. The caller must close the returned buffer.
+     */
+    public SecureBuffer retrieveCredentialBuffer(Session session, String credentialId) throws Exception {
+        session.touch();
+        CredentialMetadata meta = requireReadable(credentialId, session.getUserId());
+        SecureBuffer plaintext = CredentialFileManager.decryptToBuffer(meta,
+                session.privateKeyFor(KeyWrap.normalize(meta.keyScheme)));
+        ActivityLogger.log(session.getUsername(), "RETRIEVE_CREDENTIAL", credentialId);
+        return plaintext;
+    }
+
+    public void deleteCredential(Session session, String credentialId) throws Exception {
+        session.touch();
+        deleteCredential(credentialId, session.getUserId());
+        ActivityLogger.log(session.getUsername(), "DELETE_CREDENTIAL", credentialId);
+    }
+
+    /**
+     * Lookup credential metadata and enforce ownership.
+     */
+    public CredentialMetadata requireOwned(String credentialId, long userId) {
+        if (credentialId == null || credentialId.isEmpty()) {
+            throw new ServiceException("Credential ID cannot be empty");
+        }
+        CredentialMetadata meta = credentialRepository.findByCredentialId(credentialId);
+        if (meta == null) {
+            throw new ServiceException("Credential not found: " + credentialId);
+        }
+        if (meta.userId != userId) {
+            throw new SecurityException("Unauthorized: credential belongs to different user");
+        }
+        return meta;
+    }
+
+    /**
+     * Lookup credential metadata the user may decrypt: their own, or one
+     * shared with them, in which case encryptedKeyBase64 holds the data key
+     * wrapped for them.
+     */
+    public CredentialMetadata requireReadable(String credentialId, long userId) {
+        if (credentialId == null || credentialId.isEmpty()) {
+            throw new ServiceException("Credential ID cannot be empty");
+        }
+        CredentialMetadata meta = credentialRepository.findByCredentialId(credentialId);
+        if (meta == null) {
+            throw new ServiceException("Credential not found: " + credentialId);
+        }
+        if (meta.userId == userId) {
+            return meta;
+        }
+        CredentialMetadata shared = recipientRepository.findShared(credentialId, userId);
+        if (shared == null) {
+            throw new SecurityException("Unauthorized: credential belongs to different user");
+        }
+        return shared;
+    }
+
+    // -------------------------
+    // Multi-recipient sharing
+    // -------------------------
+
+    /**
+     * Give other users access to a credential with their own keys. The data
+     * key is unwrapped once and wrapped with each recipient's public key; the
+     * stored ciphertext is not touched. Granting again replaces the wrapped key.
+     *
+     * @return usernames granted, in the given order
+     */
+    public List<String> grantAccess(Session session, String credentialId, List<String> usernames)
+            throws Exception {
+        session.touch();
+        CredentialMetadata meta = requireOwned(credentialId, session.getUserId());
+        List<User> recipients = new ArrayList<>();
+        List<PublicKey> publicKeys = new ArrayList<>();
+        Set<String> seen = new LinkedHashSet<>();
+        for (String username : usernames) {
+            if (username == null || username.isBlank() || !seen.add(username)) {
+                continue;
+            }
+            User user = userRepository.findByUsername(username);
+            if (user == null) {
+                throw new ServiceException("User not found: " + username);
+            }
+            if (user.getId() == session.getUserId()) {
+                throw new ServiceException("Cannot share a credential with its owner");
+            }
+            recipients.add(user);
+            publicKeys.add(AuthService.wrapKeyOf(user));
+        }
+        if (recipients.isEmpty()) {
+            throw new ServiceException("No recipients given");
+        }
+
+        String ownerScheme = KeyWrap.normalize(meta.keyScheme);
+        List<String> wrappedKeys = CredentialFileManager.wrapForRecipients(ownerScheme, meta.encryptedKeyBase64,
+                session.privateKeyFor(ownerScheme), publicKeys);
+        long now = System.currentTimeMillis();
+        List<CredentialRecipient> rows = new ArrayList<>(recipients.size());
+        List<String> granted = new ArrayList<>(recipients.size());
+        for (int i = 0; i < recipients.size(); i++) {
+            CredentialRecipient r = new CredentialRecipient();
+            r.credentialId = meta.id;
+            r.recipientUserId = recipients.get(i).getId();
+            r.recipientUsername = recipients.get(i).getUsername();
+            r.encryptedKeyBase64 = wrappedKeys.get(i);
+            r.keyScheme = KeyWrap.schemeOf(publicKeys.get(i));
+            r.wrapPublicKeyBase64 = Base64.getEncoder().encodeToString(publicKeys.get(i).getEncoded());
+            r.grantedByUserId = session.getUserId();
+            r.grantedAt = now;
+            rows.add(r);
+            granted.add(r.recipientUsername);
+        }
+        recipientRepository.saveAll(rows);
+
+        long userId = session.getUserId();
+        String dataHash = HashUtil.sha256("GRANT:" + credentialId + ":" + String.join(",", granted));
+        ThreadManager.runAsync(() -> ledgerService.appendBlock(userId, "user_" + userId, "GRANT_ACCESS", dataHash));
+        ActivityLogger.log(session.getUsername(), "GRANT_ACCESS", credentialId + " -> " + String.join(",", granted));
+        return granted;
+    }
+
+    /**
+     * Remove a recipient's wrapped key. This stops future retrievals; it does
+     * not re-encrypt, so a recipient who already read the credential keeps what
+     * they read.
+     *
+     * @return false when the user had no access
+     */
+    public boolean revokeAccess(Session session, String credentialId, String username) {
+        session.touch();
+        CredentialMetadata meta = requireOwned(credentialId, session.getUserId());
+        User user = userRepository.findByUsername(username);
+        if (user == null) {
+            throw new ServiceException("User not found: " + username);
+        }
+        if (!recipientRepository.delete(meta.id, user.getId())) {
+            return false;
+        }
+        long userId = session.getUserId();
+        String dataHash = HashUtil.sha256("REVOKE:" + credentialId + ":" + username);
+        ThreadManager.runAsync(() -> ledgerService.appendBlock(userId, "user_" + userId, "REVOKE_ACCESS", dataHash));
+        ActivityLogger.log(session.getUsername(), "REVOKE_ACCESS", credentialId + " -> " + username);
+        return true;
+    }
+
+    public List<CredentialRecipient> listRecipients(Session session, String credentialId) {
+        session.touch();
+        return recipientRepository.findByCredential(requireOwned(credentialId, session.getUserId()).id);
+    }
+
+    public List<CredentialMetadata> listSharedWithMe(Session session) {
+        session.touch();
+        return recipientRepository.findSharedWith(session.getUserId());
     }
 
     public void deleteCredential(String credentialId, long userId) throws Exception {
@@ -1,60 +1,198 @@
 package com.vaultify.threading;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.vaultify.repository.ActivitySegmentStore;
+import com.vaultify.repository.RepositoryException;
+import com.vaultify.util.Config;
 
 /**
  * Background activity logger for async log writing.
- * Processes log entries from a queue without blocking main operations.
+ *
+ * Callers only capture a timestamp and enqueue an {@link ActivityRecord} into
+ * a bounded ring buffer; the logger thread drains it in batches, renders JSON
+ * lines and group-commits them (one flush per batch, or when the flush
+ * interval elapses). Files are rotated by size/time and archived as .gz by
+ * {@link RotatingLogWriter}.
+ *
+ * When activity.store.enabled is true each batch is also appended to the
+ * memory-mapped {@link ActivitySegmentStore}, which backs indexed queries
+ * (per user and time range) without scanning the text log.
+ *
+ * Overflow policy (activity.log.overflow) when the buffer is full:
+ * - drop-newest (default): the new record is dropped
+ * - drop-oldest: the oldest queued record is evicted to make room
+ * - block: the caller waits up to activity.log.blockMillis, then drops
+ * Dropped records are counted and reported as a LOG_DROPPED record.
  */
 public class ActivityLogger implements Runnable {
-    private static final BlockingQueue<String> logQueue = new LinkedBlockingQueue<>();
-    private static final Path LOG_FILE = Paths.get("vault_data/activity.log");
-    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    public enum OverflowPolicy {
+        DROP_NEWEST, DROP_OLDEST, BLOCK
+    }
+
+    private static final Path LOG_FILE = Paths.get(Config.get("activity.log.file", "vault_data/activity.log"));
+    private static final int CAPACITY = Math.max(16, Config.getInt("activity.log.capacity", 8192));
+    private static final OverflowPolicy OVERFLOW = parsePolicy(Config.get("activity.log.overflow", "drop-newest"));
+    private static final long BLOCK_MILLIS = Config.getInt("activity.log.blockMillis", 50);
+    private static final int BATCH_SIZE = Math.max(1, Config.getInt("activity.log.batchSize", 256));
+    private static final long FLUSH_INTERVAL_MS = Math.max(1, Config.getInt("activity.log.flushMillis", 200));
+    private static final long ROTATE_BYTES = Config.getInt("activity.log.rotate.maxMegabytes", 10) * 1024L * 1024L;
+    private static final long ROTATE_INTERVAL_MS = TimeUnit.HOURS
+            .toMillis(Config.getInt("activity.log.rotate.intervalHours", 24));
+    private static final int MAX_ARCHIVES = Config.getInt("activity.log.rotate.maxArchives", 14);
+    private static final boolean STORE_ENABLED = Config.getBoolean("activity.store.enabled", true);
+
+    private static final BlockingQueue<ActivityRecord> logQueue = new ArrayBlockingQueue<>(CAPACITY);
+    private static final AtomicLong dropped = new AtomicLong();
+    private static final AtomicLong written = new AtomicLong();
+
     private volatile boolean running = true;
 
     public static void log(String action, String details) {
-        String timestamp = LocalDateTime.now().format(FORMATTER);
-        String logEntry = String.format("[%s] %s: %s", timestamp, action, details);
-        logQueue.offer(logEntry);
+        log(null, action, details);
+    }
+
+    public static void log(String username, String action, String details) {
+        enqueue(new ActivityRecord(System.currentTimeMillis(), username, action, details));
+    }
+
+    private static void enqueue(ActivityRecord record) {
+        if (logQueue.offer(record)) {
+            return;
+        }
+        switch (OVERFLOW) {
+            case DROP_OLDEST -> {
+                // Evict until there is room; give up if other producers keep filling it
+                for (int attempt = 0; attempt < 4; attempt++) {
+                    if (logQueue.poll() != null) {
+                        dropped.incrementAndGet();
+                    }
+                    if (logQueue.offer(record)) {
+                        return;
+                    }
+                }
+                dropped.incrementAndGet();
+            }
+            case BLOCK -> {
+                try {
+                    if (!logQueue.offer(record, BLOCK_MILLIS, TimeUnit.MILLISECONDS)) {
+                        dropped.incrementAndGet();
+                    }
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    dropped.incrementAndGet();
+                }
+            }
+            default -> dropped.incrementAndGet();
+        }
     }
 
     @Override
     public void run() {
-        try {
-            Files.createDirectories(LOG_FILE.getParent());
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(LOG_FILE.toFile(), true))) {
-                while (running || !logQueue.isEmpty()) {
-                    String logEntry = logQueue.poll();
-                    if (logEntry != null) {
-                        writer.write(logEntry);
-                        writer.newLine();
-                        writer.flush();
-                    } else {
-                        // Use blocking poll with timeout instead of sleep
-                        try {
-                            logQueue.poll(100, java.util.concurrent.TimeUnit.MILLISECONDS);
-                        } catch (InterruptedException ie) {
-                            Thread.currentThread().interrupt();
-                            break;
+        List<ActivityRecord> batch = new ArrayList<>(BATCH_SIZE);
+        long reportedDrops = 0;
+        long lastFlush = System.currentTimeMillis();
+        int pending = 0;
+        ActivitySegmentStore store = openStore();
+
+        try (RotatingLogWriter writer = new RotatingLogWriter(LOG_FILE, ROTATE_BYTES, ROTATE_INTERVAL_MS,
+                MAX_ARCHIVES)) {
+            while (running || !logQueue.isEmpty()) {
+                logQueue.drainTo(batch, BATCH_SIZE);
+                if (batch.isEmpty()) {
+                    try {
+                        // Block for the next record (do not discard it) or until a flush is due
+                        ActivityRecord next = logQueue.poll(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                        if (next != null) {
+                            batch.add(next);
                         }
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        running = false;
+                    }
+                }
+
+                long drops = dropped.get();
+                if (drops > reportedDrops) {
+                    batch.add(new ActivityRecord(System.currentTimeMillis(), null, "LOG_DROPPED",
+                            Long.toString(drops - reportedDrops)));
+                    reportedDrops = drops;
+                }
+
+                for (ActivityRecord record : batch) {
+                    writer.writeLine(record.toJson());
+                }
+                if (store != null && !batch.isEmpty()) {
+                    try {
+                        store.append(batch);
+                    } catch (RepositoryException e) {
+                        System.err.println("[ActivityLogger] Segment store disabled: " + e.getMessage());
+                        store = null;
                     }
                 }
+                pending += batch.size();
+                written.addAndGet(batch.size());
+                batch.clear();
+
+                // Group commit: one flush per full batch or per flush interval
+                long now = System.currentTimeMillis();
+                if (pending > 0 && (pending >= BATCH_SIZE || now - lastFlush >= FLUSH_INTERVAL_MS)) {
+                    writer.flush();
+                    pending = 0;
+                    lastFlush = now;
+                }
             }
+            writer.flush();
         } catch (IOException e) {
             System.err.println("Activity logger error: " + e.getMessage());
+        } finally {
+            if (store != null) {
+                store.close();
+            }
+        }
+    }
+
+    private static ActivitySegmentStore openStore() {
+        if (!STORE_ENABLED) {
+            return null;
+        }
+        try {
+            return ActivitySegmentStore.get();
+        } catch (RepositoryException e) {
+            System.err.println("[ActivityLogger] Segment store unavailable: " + e.getMessage());
+            return null;
         }
     }
 
     public void shutdown() {
         running = false;
     }
+
+    public static long droppedCount() {
+        return dropped.get();
+    }
+
+    public static long writtenCount() {
+        return written.get();
+    }
+
+    public static int queueDepth() {
+        return logQueue.size();
+    }
+
+    private static OverflowPolicy parsePolicy(String value) {
+        try {
+            return OverflowPolicy.valueOf(value.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            return OverflowPolicy.DROP_NEWEST;
+        }
+    }
 }
@@ -0,0 +1,61 @@
+package com.vaultify.threading;
+
+import java.time.Instant;
+
+/**
+ * One activity log entry. Created on the caller thread with only a clock read
+ * and field assignments; all formatting happens on the logger thread.
+ */
+public class ActivityRecord {
+    public final long epochMs;
+    public final String user;
+    public final String action;
+    public final String details;
+
+    public ActivityRecord(long epochMs, String user, String action, String details) {
+        this.epochMs = epochMs;
+        this.user = user;
+        this.action = action;
+        this.details = details;
+    }
+
+    /**
+     * Render as a single JSON line (no trailing newline).
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder(96 + (details != null ? details.length() : 0));
+        sb.append("{\"ts\":\"").append(Instant.ofEpochMilli(epochMs)).append('"');
+        sb.append(",\"epochMs\":").append(epochMs);
+        appendField(sb, "user", user);
+        appendField(sb, "action", action);
+        appendField(sb, "details", details);
+        return sb.append('}').toString();
+    }
+
+    private static void appendField(StringBuilder sb, String name, String value) {
+        sb.append(",\"").append(name).append("\":");
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        sb.append('"');
+    }
+}
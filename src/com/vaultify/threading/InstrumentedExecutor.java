@@ -0,0 +1,152 @@
+package com.vaultify.threading;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ExecutorService wrapper that counts submitted / running / finished tasks so
+ * every ThreadManager executor can report queue depth and active tasks the
+ * same way, whatever the underlying pool (fixed, virtual-thread-per-task...).
+ * Rejected tasks are not counted, and futures cancelled before a thread
+ * picked them up leave the queue depth as they would leave the queue.
+ */
+public class InstrumentedExecutor {
+    private final String name;
+    private final String kind;
+    private final ExecutorService delegate;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong(); // before starting
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public InstrumentedExecutor(String name, String kind, ExecutorService delegate) {
+        this.name = name;
+        this.kind = kind;
+        this.delegate = delegate;
+    }
+
+    public void execute(Runnable task) {
+        submitted.incrementAndGet();
+        try {
+            delegate.execute(wrap(task));
+        } catch (RejectedExecutionException e) {
+            submitted.decrementAndGet();
+            throw e;
+        }
+    }
+
+    public <T> Future<T> submit(Callable<T> task) {
+        AtomicBoolean claimed = new AtomicBoolean(); // by the worker, or by a cancel before it
+        FutureTask<T> future = new FutureTask<>(() -> {
+            if (!claimed.compareAndSet(false, true)) {
+                return null; // cancelled just before it started; the result is discarded
+            }
+            started.incrementAndGet();
+            try {
+                return task.call();
+            } catch (Exception | Error e) {
+                failed.incrementAndGet();
+                throw e;
+            } finally {
+                completed.incrementAndGet();
+            }
+        }) {
+            @Override
+            protected void done() {
+                if (isCancelled() && claimed.compareAndSet(false, true)) {
+                    cancelled.incrementAndGet();
+                }
+            }
+        };
+        submitted.incrementAndGet();
+        try {
+            delegate.execute(future);
+        } catch (RejectedExecutionException e) {
+            submitted.decrementAndGet();
+            throw e;
+        }
+        return future;
+    }
+
+    private Runnable wrap(Runnable task) {
+        return () -> {
+            started.incrementAndGet();
+            try {
+                task.run();
+            } catch (RuntimeException | Error e) {
+                failed.incrementAndGet();
+                throw e;
+            } finally {
+                completed.incrementAndGet();
+            }
+        };
+    }
+
+    /** Tasks submitted but not yet picked up by a thread. */
+    public long queueDepth() {
+        return Math.max(0, submitted.get() - started.get() - cancelled.get());
+    }
+
+    /** Tasks currently running. */
+    public long activeCount() {
+        return Math.max(0, started.get() - completed.get());
+    }
+
+    public Metrics metrics() {
+        return new Metrics(name, kind, queueDepth(), activeCount(), submitted.get(), completed.get(), failed.get());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    public void shutdownNow() {
+        delegate.shutdownNow();
+    }
+
+    /**
+     * Point-in-time executor counters.
+     */
+    public static class Metrics {
+        public final String name;
+        public final String kind;
+        public final long queueDepth;
+        public final long active;
+        public final long submitted;
+        public final long completed;
+        public final long failed;
+
+        public Metrics(String name, String kind, long queueDepth, long active, long submitted, long completed,
+                long failed) {
+            this.name = name;
+            this.kind = kind;
+            this.queueDepth = queueDepth;
+            this.active = active;
+            this.submitted = submitted;
+            this.completed = completed;
+            this.failed = failed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-8s %-22s queued=%d active=%d submitted=%d completed=%d failed=%d",
+                    name, "(" + kind + ")", queueDepth, active, submitted, completed, failed);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.vaultify.threading;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Append-only line writer with size/time based rotation.
+ *
+ * When the active file exceeds maxBytes or has been open longer than
+ * intervalMs it is renamed to {@code <name>-yyyyMMdd-HHmmss.log}, gzip
+ * compressed in the background and the oldest archives beyond maxArchives are
+ * removed. Not thread-safe: owned by the ActivityLogger thread.
+ */
+public class RotatingLogWriter implements Closeable {
+    private static final DateTimeFormatter ARCHIVE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path file;
+    private final long maxBytes;
+    private final long intervalMs;
+    private final int maxArchives;
+
+    private OutputStream out;
+    private long size;
+    private long openedAt;
+
+    public RotatingLogWriter(Path file, long maxBytes, long intervalMs, int maxArchives) throws IOException {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.intervalMs = intervalMs;
+        this.maxArchives = maxArchives;
+        open();
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        if (Files.exists(file)) {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            size = attrs.size();
+            openedAt = attrs.creationTime().toMillis();
+        } else {
+            size = 0;
+            openedAt = System.currentTimeMillis();
+        }
+        out = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND), 64 * 1024);
+    }
+
+    /**
+     * Append one line (a newline is added).
+     */
+    public void writeLine(String line) throws IOException {
+        if (shouldRotate()) {
+            rotate();
+        }
+        byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+        out.write(bytes);
+        size += bytes.length;
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private boolean shouldRotate() {
+        if (size == 0) {
+            return false;
+        }
+        if (maxBytes > 0 && size >= maxBytes) {
+            return true;
+        }
+        return intervalMs > 0 && System.currentTimeMillis() - openedAt >= intervalMs;
+    }
+
+    private void rotate() throws IOException {
+        out.close();
+        String base = file.getFileName().toString().replaceFirst("\\.log$", "");
+        String stamp = base + "-" + LocalDateTime.now().format(ARCHIVE_STAMP);
+        Path archive = file.resolveSibling(stamp + ".log");
+        for (int n = 1; Files.exists(archive)
+                || Files.exists(archive.resolveSibling(archive.getFileName() + ".gz")); n++) {
+            archive = file.resolveSibling(stamp + "." + n + ".log");
+        }
+        Files.move(file, archive);
+        open();
+
+        Path rotated = archive;
+        Runnable compress = () -> compressAndPrune(rotated, base);
+        try {
+            ThreadManager.runAsync(compress);
+        } catch (RejectedExecutionException e) {
+            compress.run(); // executors already shut down
+        }
+    }
+
+    private void compressAndPrune(Path archive, String base) {
+        Path gz = archive.resolveSibling(archive.getFileName() + ".gz");
+        try (InputStream in = Files.newInputStream(archive);
+                OutputStream zip = new GZIPOutputStream(Files.newOutputStream(gz), 64 * 1024)) {
+            in.transferTo(zip);
+        } catch (IOException e) {
+            System.err.println("[ActivityLogger] Failed to compress " + archive + ": " + e.getMessage());
+            return;
+        }
+        try {
+            Files.deleteIfExists(archive);
+            prune(base);
+        } catch (IOException e) {
+            System.err.println("[ActivityLogger] Failed to prune archives: " + e.getMessage());
+        }
+    }
+
+    private void prune(String base) throws IOException {
+        if (maxArchives <= 0) {
+            return;
+        }
+        List<Path> archives = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(file.toAbsolutePath().getParent(),
+                base + "-*.log.gz")) {
+            ds.forEach(archives::add);
+        }
+        // Timestamped names sort chronologically
+        archives.sort(null);
+        for (int i = 0; i < archives.size() - maxArchives; i++) {
+            Files.deleteIfExists(archives.get(i));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
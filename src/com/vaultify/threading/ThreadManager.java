@@ -1,33 +1,130 @@
 package com.vaultify.threading;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.vaultify.util.Config;
 
 /**
- * Day 1 Thread layer skeleton.
  * Centralizes executors for async and scheduled work.
+ *
+ * Work is split by profile so one kind cannot starve another:
+ * - IO executor: blocking I/O (ledger HTTP, JDBC). Virtual-thread-per-task by
+ * default (threads.io.mode=virtual), or a fixed platform pool
+ * (threads.io.mode=platform, threads.io.size).
+ * - CPU executor: crypto and hashing, fixed pool sized to the core count
+ * (threads.cpu.size, 0 = auto).
+ * - Dedicated threads: long-running loops such as the ActivityLogger get their
+ * own thread instead of occupying a pool worker forever.
+ * - Scheduler: periodic tasks.
  */
 public class ThreadManager {
-    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(4);
-    private static final ScheduledExecutorService SCHEDULER = Executors.newScheduledThreadPool(2);
+    private static final InstrumentedExecutor IO = createIoExecutor();
+    private static final InstrumentedExecutor CPU = createCpuExecutor();
+    private static final ScheduledExecutorService SCHEDULER = Executors.newScheduledThreadPool(2,
+            namedFactory("vaultify-sched-", true));
+    private static final List<Thread> DEDICATED = new CopyOnWriteArrayList<>();
+    private static final List<Runnable> STOP_HOOKS = new CopyOnWriteArrayList<>();
+
+    private static InstrumentedExecutor createIoExecutor() {
+        String mode = Config.get("threads.io.mode", "virtual").trim().toLowerCase();
+        if ("platform".equals(mode)) {
+            int size = Math.max(1, Config.getInt("threads.io.size", 8));
+            return new InstrumentedExecutor("io", "platform x" + size,
+                    Executors.newFixedThreadPool(size, namedFactory("vaultify-io-", false)));
+        }
+        ThreadFactory factory = Thread.ofVirtual().name("vaultify-io-", 0).factory();
+        return new InstrumentedExecutor("io", "virtual", Executors.newThreadPerTaskExecutor(factory));
+    }
+
+    private static InstrumentedExecutor createCpuExecutor() {
+        int size = cpuThreads();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), namedFactory("vaultify-cpu-", false));
+        return new InstrumentedExecutor("cpu", "platform x" + size, pool);
+    }
+
+    /**
+     * Size of the CPU executor (threads.cpu.size, 0 = core count).
+     */
+    public static int cpuThreads() {
+        int size = Config.getInt("threads.cpu.size", 0);
+        return size > 0 ? size : Runtime.getRuntime().availableProcessors();
+    }
+
+    private static ThreadFactory namedFactory(String prefix, boolean daemon) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + counter.getAndIncrement());
+            t.setDaemon(daemon);
+            return t;
+        };
+    }
 
     /**
-     * Submit a Runnable for asynchronous execution.
+     * Submit a Runnable for asynchronous execution (blocking I/O profile).
      */
     public static void runAsync(Runnable task) {
-        EXECUTOR.submit(task);
+        IO.execute(task);
     }
 
     /**
-     * Submit a value-returning task.
+     * Submit a value-returning task (blocking I/O profile).
      */
     public static <T> Future<T> submit(Callable<T> task) {
-        return EXECUTOR.submit(task);
+        return IO.submit(task);
+    }
+
+    /**
+     * Submit a CPU-bound task (encryption, hashing, key generation).
+     */
+    public static <T> Future<T> submitCpu(Callable<T> task) {
+        return CPU.submit(task);
+    }
+
+    /**
+     * Run a long-lived loop on its own platform thread. The thread is joined
+     * (briefly) on shutdown so loops that drain on stop get a chance to finish.
+     */
+    public static Thread startDedicated(String name, Runnable task) {
+        return startDedicated(name, task, null);
+    }
+
+    /**
+     * {@link #startDedicated(String, Runnable)} for a loop that blocks
+     * indefinitely: stop is run on shutdown, before the join, and must make
+     * the loop return (close what it waits on, queue a stop marker). Threads
+     * are not interrupted, since that would also close any interruptible
+     * channel they happen to be using.
+     */
+    public static Thread startDedicated(String name, Runnable task, Runnable stop) {
+        Thread t = new Thread(task, name);
+        t.setDaemon(true);
+        if (stop != null) {
+            STOP_HOOKS.add(stop);
+        }
+        DEDICATED.add(t);
+        t.start();
+        return t;
+    }
+
+    /**
+     * Run a task once after a delay.
+     */
+    public static ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        return SCHEDULER.schedule(task, delay, unit);
     }
 
     /**
@@ -37,22 +134,50 @@ public class ThreadManager {
         return SCHEDULER.scheduleAtFixedRate(task, initialDelay, period, unit);
     }
 
+    /**
+     * Queue depth / active task counters for every executor.
+     */
+    public static List<InstrumentedExecutor.Metrics> metrics() {
+        List<InstrumentedExecutor.Metrics> list = new ArrayList<>();
+        list.add(IO.metrics());
+        list.add(CPU.metrics());
+        long aliveDedicated = DEDICATED.stream().filter(Thread::isAlive).count();
+        list.add(new InstrumentedExecutor.Metrics("dedicated", "threads", 0, aliveDedicated, DEDICATED.size(),
+                DEDICATED.size() - aliveDedicated, 0));
+        return list;
+    }
+
     /**
      * Gracefully shutdown all executors.
      */
     public static void shutdown() {
-        EXECUTOR.shutdown();
+        IO.shutdown();
+        CPU.shutdown();
         SCHEDULER.shutdown();
         try {
-            if (!EXECUTOR.awaitTermination(5, TimeUnit.SECONDS)) {
-                EXECUTOR.shutdownNow();
+            if (!IO.awaitTermination(5, TimeUnit.SECONDS)) {
+                IO.shutdownNow();
+            }
+            if (!CPU.awaitTermination(5, TimeUnit.SECONDS)) {
+                CPU.shutdownNow();
             }
             if (!SCHEDULER.awaitTermination(5, TimeUnit.SECONDS)) {
                 SCHEDULER.shutdownNow();
             }
+            for (Runnable stop : STOP_HOOKS) {
+                try {
+                    stop.run();
+                } catch (RuntimeException e) {
+                    System.err.println("[ThreadManager] Stop hook failed: " + e.getMessage());
+                }
+            }
+            for (Thread t : DEDICATED) {
+                t.join(2000);
+            }
         } catch (InterruptedException ie) {
             Thread.currentThread().interrupt();
-            EXECUTOR.shutdownNow();
+            IO.shutdownNow();
+            CPU.shutdownNow();
             SCHEDULER.shutdownNow();
         }
     }
@@ -1,6 +1,7 @@
 package com.vaultify.threading;
 
 import com.vaultify.service.TokenService;
+import com.vaultify.util.Lazy;
 
 /**
  * TokenCleanupTask - Periodic cleanup of expired tokens
@@ -9,17 +10,14 @@ import com.vaultify.service.TokenService;
  * clean.
  */
 public class TokenCleanupTask implements Runnable {
-    private final TokenService tokenService;
-
-    public TokenCleanupTask() {
-        this.tokenService = new TokenService();
-    }
+    // Built on the first run so scheduling the task costs nothing at startup
+    private final Lazy<TokenService> tokenService = Lazy.of(TokenService::new);
 
     @Override
     public void run() {
         try {
             System.out.println("[TokenCleanup] Running expired token cleanup...");
-            tokenService.cleanupExpiredTokens();
+            tokenService.get().cleanupExpiredTokens();
         } catch (Exception e) {
             System.err.println("[TokenCleanup] ✗ Error during cleanup: " + e.getMessage());
         }
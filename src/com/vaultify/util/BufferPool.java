@@ -0,0 +1,261 @@
+package com.vaultify.util;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pooled direct buffers for the storage and crypto I/O paths.
+ *
+ * Requests are rounded up to a power-of-two size class between 4 KiB and
+ * vault.bufferPool.maxPooledKiB. A released buffer goes to a small per-thread
+ * cache (platform threads, classes up to vault.bufferPool.threadCacheKiB) or to
+ * a shared free list bounded by vault.bufferPool.maxRetainedMegabytes in
+ * total, so a steady ingest/retrieve load reuses the same native memory
+ * instead of allocating a payload-sized heap array (plus the JDK's temporary
+ * direct copy) per file. Larger requests, and every request while pooling is
+ * off, get a plain heap buffer.
+ *
+ * Released buffers are zeroed (vault.bufferPool.zeroOnRelease) since they
+ * can hold plaintext. In dev mode every lease records where it was acquired
+ * and one that becomes unreachable without {@link Lease#close()} is reported.
+ */
+public final class BufferPool {
+    private static final int MIN_CLASS_SHIFT = 12; // 4 KiB
+    private static final int MAX_CLASS_SHIFT = shiftFor(
+            Math.max(4, Config.getInt("vault.bufferPool.maxPooledKiB", 16384)) * 1024);
+    private static final int THREAD_CACHE_MAX_SHIFT = Math.min(MAX_CLASS_SHIFT,
+            shiftFor(Math.max(4, Config.getInt("vault.bufferPool.threadCacheKiB", 256)) * 1024));
+    private static final int THREAD_CACHE_DEPTH = Math.max(0, Config.getInt("vault.bufferPool.threadCacheSize", 2));
+    private static final long MAX_RETAINED_BYTES = Math.max(0,
+            Config.getInt("vault.bufferPool.maxRetainedMegabytes", 64)) * 1024L * 1024L;
+    private static final boolean ZERO_ON_RELEASE = Config.getBoolean("vault.bufferPool.zeroOnRelease", true);
+    private static final byte[] ZEROS = new byte[8192];
+
+    private static final Cleaner LEAK_CLEANER = Cleaner.create();
+
+    @SuppressWarnings("unchecked")
+    private static final ConcurrentLinkedDeque<ByteBuffer>[] SHARED =
+            (ConcurrentLinkedDeque<ByteBuffer>[]) new ConcurrentLinkedDeque<?>[MAX_CLASS_SHIFT + 1];
+    private static final ThreadLocal<ArrayDeque<ByteBuffer>[]> LOCAL = ThreadLocal.withInitial(BufferPool::newCache);
+
+    private static final AtomicLong ACQUIRES = new AtomicLong();
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong ALLOCATED_BYTES = new AtomicLong();
+    private static final AtomicLong RETAINED_BYTES = new AtomicLong();
+    private static final AtomicLong OUTSTANDING = new AtomicLong();
+    private static final AtomicLong LEAKS = new AtomicLong();
+
+    private static volatile boolean enabled = Config.getBoolean("vault.bufferPool.enabled", true);
+
+    static {
+        for (int i = MIN_CLASS_SHIFT; i <= MAX_CLASS_SHIFT; i++) {
+            SHARED[i] = new ConcurrentLinkedDeque<>();
+        }
+    }
+
+    private BufferPool() {
+    }
+
+    /**
+     * A buffer on loan from the pool. {@link #buffer()} starts at position 0
+     * with the requested size as limit; {@link #close()} hands it back, after
+     * which the lease (and any view of its buffer) must not be used.
+     */
+    public static final class Lease implements AutoCloseable {
+        private final ByteBuffer buffer;
+        private final int shift; // size class, or -1 when not pooled
+        private final LeakCheck leakCheck;
+        private final Cleaner.Cleanable cleanable;
+        private boolean released;
+
+        private Lease(ByteBuffer buffer, int shift) {
+            this.buffer = buffer;
+            this.shift = shift;
+            OUTSTANDING.incrementAndGet();
+            if (Config.isDevMode()) {
+                leakCheck = new LeakCheck(buffer.capacity(), new Throwable("Buffer acquired here"));
+                cleanable = LEAK_CLEANER.register(this, leakCheck);
+            } else {
+                leakCheck = null;
+                cleanable = null;
+            }
+        }
+
+        public ByteBuffer buffer() {
+            if (released) {
+                throw new IllegalStateException("Buffer already released to the pool");
+            }
+            return buffer;
+        }
+
+        @Override
+        public void close() {
+            if (released) {
+                return;
+            }
+            released = true;
+            OUTSTANDING.decrementAndGet();
+            if (leakCheck != null) {
+                leakCheck.released = true;
+                cleanable.clean();
+            }
+            if (shift >= 0) {
+                recycle(buffer, shift);
+            }
+        }
+    }
+
+    /**
+     * Borrow a buffer with at least {@code size} bytes of room.
+     */
+    public static Lease acquire(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Negative buffer size: " + size);
+        }
+        ACQUIRES.incrementAndGet();
+        int shift = shiftFor(size);
+        if (!enabled || shift > MAX_CLASS_SHIFT) {
+            // Unpooled: a plain heap buffer, as the I/O paths used before pooling
+            ALLOCATED_BYTES.addAndGet(size);
+            return new Lease(ByteBuffer.allocate(size), -1);
+        }
+        ByteBuffer buf = null;
+        if (useLocalCache(shift)) {
+            buf = LOCAL.get()[shift].pollFirst();
+        }
+        if (buf == null) {
+            buf = SHARED[shift].pollFirst();
+            if (buf != null) {
+                RETAINED_BYTES.addAndGet(-buf.capacity());
+            }
+        }
+        if (buf != null) {
+            HITS.incrementAndGet();
+        } else {
+            buf = ByteBuffer.allocateDirect(1 << shift);
+            ALLOCATED_BYTES.addAndGet(buf.capacity());
+        }
+        buf.clear().limit(size);
+        return new Lease(buf, shift);
+    }
+
+    /**
+     * Wrap a buffer that does not belong to the pool (e.g. a heap array read
+     * by a store without pooled reads); closing the lease just drops it.
+     */
+    public static Lease wrap(ByteBuffer buffer) {
+        return new Lease(buffer, -1);
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Switch pooling on or off at runtime (used by the storage load test to
+     * compare both modes in one process). Buffers already pooled are kept.
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * Counters since startup.
+     */
+    public static final class Stats {
+        public final long acquires;
+        public final long hits;
+        public final long allocatedBytes;
+        public final long retainedBytes;
+        public final long outstanding;
+        public final long leaks;
+
+        Stats(long acquires, long hits, long allocatedBytes, long retainedBytes, long outstanding, long leaks) {
+            this.acquires = acquires;
+            this.hits = hits;
+            this.allocatedBytes = allocatedBytes;
+            this.retainedBytes = retainedBytes;
+            this.outstanding = outstanding;
+            this.leaks = leaks;
+        }
+    }
+
+    public static Stats stats() {
+        return new Stats(ACQUIRES.get(), HITS.get(), ALLOCATED_BYTES.get(), RETAINED_BYTES.get(),
+                OUTSTANDING.get(), LEAKS.get());
+    }
+
+    private static void recycle(ByteBuffer buf, int shift) {
+        buf.clear();
+        if (ZERO_ON_RELEASE) {
+            int end = buf.capacity();
+            for (int pos = 0; pos < end; pos += ZEROS.length) {
+                buf.put(pos, ZEROS, 0, Math.min(ZEROS.length, end - pos));
+            }
+        }
+        if (useLocalCache(shift)) {
+            ArrayDeque<ByteBuffer> local = LOCAL.get()[shift];
+            if (local.size() < THREAD_CACHE_DEPTH) {
+                local.addFirst(buf);
+                return;
+            }
+        }
+        // Shared list, within the retention budget; otherwise left to the GC
+        if (RETAINED_BYTES.addAndGet(buf.capacity()) <= MAX_RETAINED_BYTES) {
+            SHARED[shift].addFirst(buf);
+        } else {
+            RETAINED_BYTES.addAndGet(-buf.capacity());
+        }
+    }
+
+    /**
+     * Virtual threads are not reused, so buffers cached on one would be lost
+     * with it; they go through the shared lists only.
+     */
+    private static boolean useLocalCache(int shift) {
+        return shift <= THREAD_CACHE_MAX_SHIFT && THREAD_CACHE_DEPTH > 0 && !Thread.currentThread().isVirtual();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArrayDeque<ByteBuffer>[] newCache() {
+        ArrayDeque<ByteBuffer>[] cache = (ArrayDeque<ByteBuffer>[]) new ArrayDeque<?>[THREAD_CACHE_MAX_SHIFT + 1];
+        for (int i = MIN_CLASS_SHIFT; i <= THREAD_CACHE_MAX_SHIFT; i++) {
+            cache[i] = new ArrayDeque<>(THREAD_CACHE_DEPTH);
+        }
+        return cache;
+    }
+
+    private static int shiftFor(int size) {
+        if (size <= 1 << MIN_CLASS_SHIFT) {
+            return MIN_CLASS_SHIFT;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    /**
+     * Dev-mode leak report; must not reference the Lease itself.
+     */
+    private static final class LeakCheck implements Runnable {
+        final int capacity;
+        final Throwable site;
+        volatile boolean released;
+
+        LeakCheck(int capacity, Throwable site) {
+            this.capacity = capacity;
+            this.site = site;
+        }
+
+        @Override
+        public void run() {
+            if (!released) {
+                LEAKS.incrementAndGet();
+                OUTSTANDING.decrementAndGet();
+                System.err.println("[BufferPool] " + capacity + "-byte buffer was never released");
+                site.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,556 @@
+package com.vaultify.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.vaultify.crypto.AESEngine;
+import com.vaultify.crypto.SecureBuffer;
+
+/**
+ * Content-addressed, deduplicated chunk store (vault.dedup.enabled=true).
+ *
+ * Plaintext is split into fixed-size chunks. Each chunk gets a key derived
+ * from its content:
+ * - convergent (vault.dedup.keyMode=convergent): HMAC-SHA256 under a fixed
+ * label, so identical chunks dedupe across all users
+ * - user (default): HMAC-SHA256 under a per-user key derived from a server
+ * secret, so chunks only dedupe within one user's vault and chunk ids cannot
+ * be confirmed by anyone without the secret
+ * The chunk id is SHA-256(chunkKey); chunks are encrypted with AES-GCM under
+ * their own key (deterministic IV, safe because the key is unique per
+ * content) and written once to vault_data/chunks/ab/<id>.chk.
+ *
+ * A credential then stores an encrypted manifest (chunk ids, keys, lengths)
+ * as its usual <uuid>.bin, plus a plaintext <uuid>.refs sidecar listing the
+ * chunk ids it references. The sidecars are the source of truth for
+ * reference counts; the in-memory counts are rebuilt from them on first use
+ * and a chunk file is deleted when its last reference is released. References
+ * taken by {@link #put} whose sidecar is not written yet are also kept in
+ * memory, so garbage collection never takes chunks of an upload in progress.
+ */
+public final class ChunkStore {
+    public static final String FORMAT = "dedup-v1";
+    private static final byte[] MANIFEST_MAGIC = { 'V', 'C', 'M', '1' };
+    private static final byte[] CONVERGENT_LABEL = "vaultify-convergent-chunk-v1".getBytes(StandardCharsets.UTF_8);
+    private static final HexFormat HEX = HexFormat.of();
+
+    private static final boolean ENABLED = Config.getBoolean("vault.dedup.enabled", false);
+    private static final boolean CONVERGENT = "convergent"
+            .equalsIgnoreCase(Config.get("vault.dedup.keyMode", "user").trim());
+    private static final int CHUNK_BYTES = Math.max(4, Config.getInt("vault.dedup.chunkKiB", 64)) * 1024;
+    private static final Path CHUNK_DIR = Paths.get(Config.get("vault.dedup.dir", "./vault_data/chunks/"));
+
+    private static final Object LOCK = new Object();
+    private static final Map<String, CompletableFuture<Void>> IN_FLIGHT = new ConcurrentHashMap<>();
+    // References of uploads between put() and writeRefs(), guarded by LOCK
+    private static final Map<String, Integer> UNCOMMITTED = new HashMap<>();
+    // Held shared while a sidecar is written, exclusively while GC rebuilds the counts
+    private static final ReentrantReadWriteLock GC_GATE = new ReentrantReadWriteLock();
+    private static Map<String, Integer> refCounts;
+    private static byte[] serverSecret;
+
+    private ChunkStore() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Chunk references of one stored credential, serialized into the
+     * encrypted manifest.
+     */
+    public static final class Manifest {
+        public final long totalSize;
+        final List<byte[]> ids = new ArrayList<>();
+        final List<byte[]> keys = new ArrayList<>();
+        final List<Integer> lengths = new ArrayList<>();
+
+        Manifest(long totalSize) {
+            this.totalSize = totalSize;
+        }
+
+        public int chunkCount() {
+            return ids.size();
+        }
+
+        /**
+         * Distinct chunk ids (hex), in first-use order.
+         */
+        public Set<String> chunkIds() {
+            Set<String> out = new LinkedHashSet<>();
+            for (byte[] id : ids) {
+                out.add(HEX.formatHex(id));
+            }
+            return out;
+        }
+
+        /**
+         * Zero the per-chunk keys once the manifest has been serialized.
+         */
+        public void wipeKeys() {
+            keys.forEach(SecureBuffer::wipe);
+        }
+
+        public byte[] serialize() {
+            ByteBuffer buf = ByteBuffer.allocate(4 + 4 + 8 + ids.size() * (32 + 32 + 4));
+            buf.put(MANIFEST_MAGIC).putInt(ids.size()).putLong(totalSize);
+            for (int i = 0; i < ids.size(); i++) {
+                buf.put(ids.get(i)).put(keys.get(i)).putInt(lengths.get(i));
+            }
+            return buf.array();
+        }
+
+        static Manifest parse(byte[] data) throws IOException {
+            if (data.length < 16 || !Arrays.equals(data, 0, 4, MANIFEST_MAGIC, 0, 4)) {
+                throw new IOException("Not a chunk manifest");
+            }
+            ByteBuffer buf = ByteBuffer.wrap(data, 4, data.length - 4);
+            int count = buf.getInt();
+            Manifest m = new Manifest(buf.getLong());
+            if (count < 0 || buf.remaining() != (long) count * (32 + 32 + 4)) {
+                throw new IOException("Corrupt chunk manifest");
+            }
+            for (int i = 0; i < count; i++) {
+                byte[] id = new byte[32];
+                byte[] key = new byte[32];
+                buf.get(id).get(key);
+                m.ids.add(id);
+                m.keys.add(key);
+                m.lengths.add(buf.getInt());
+            }
+            return m;
+        }
+    }
+
+    // ---------------------------
+    // Write / read
+    // ---------------------------
+
+    /**
+     * Split, encrypt and store the chunks of a plaintext. Chunks that already
+     * exist are not rewritten. References are taken immediately so a
+     * concurrent delete cannot collect them; the caller must persist the
+     * returned manifest's sidecar with {@link #writeRefs}, or give the
+     * references back with {@link #abort} if the credential is not stored.
+     *
+     * Only the reservation (references, and the in-flight marker of each new
+     * chunk) happens under the store lock; chunks are encrypted and written
+     * outside it, so uploads of different credentials proceed in parallel.
+     */
+    public static Manifest put(byte[] plaintext, long userId) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(scopeKey(userId), "HmacSHA256"));
+        MessageDigest sha = MessageDigest.getInstance("SHA-256");
+
+        Manifest manifest = new Manifest(plaintext.length);
+        for (int off = 0; off < plaintext.length; off += CHUNK_BYTES) {
+            int len = Math.min(CHUNK_BYTES, plaintext.length - off);
+            mac.update(plaintext, off, len);
+            byte[] key = mac.doFinal();
+            byte[] id = sha.digest(key);
+            manifest.ids.add(id);
+            manifest.keys.add(key);
+            manifest.lengths.add(len);
+        }
+
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        Map<Integer, CompletableFuture<Void>> toWrite = new HashMap<>(); // chunk index -> its in-flight marker
+        synchronized (LOCK) {
+            Map<String, Integer> counts = counts();
+            Set<String> seen = new LinkedHashSet<>();
+            for (int i = 0; i < manifest.ids.size(); i++) {
+                String hex = HEX.formatHex(manifest.ids.get(i));
+                if (!seen.add(hex)) {
+                    continue; // repeated within this file
+                }
+                CompletableFuture<Void> inflight = IN_FLIGHT.get(hex);
+                if (inflight != null) {
+                    pending.add(inflight); // another upload is still writing this chunk
+                } else if (!counts.containsKey(hex)) {
+                    CompletableFuture<Void> marker = new CompletableFuture<>();
+                    IN_FLIGHT.put(hex, marker);
+                    toWrite.put(i, marker);
+                    pending.add(marker);
+                }
+                counts.merge(hex, 1, Integer::sum);
+                UNCOMMITTED.merge(hex, 1, Integer::sum);
+            }
+        }
+
+        for (Map.Entry<Integer, CompletableFuture<Void>> e : toWrite.entrySet()) {
+            writeChunk(plaintext, manifest, e.getKey(), e.getValue());
+        }
+        try {
+            // New chunks must be durable before the manifest referencing them is written
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).get();
+        } catch (Exception e) {
+            abort(manifest);
+            throw e;
+        }
+        return manifest;
+    }
+
+    /**
+     * Encrypt and write chunk i unless a file from an earlier run is already
+     * there; the marker completes (and leaves IN_FLIGHT) once it is durable.
+     * A failed marker stays in IN_FLIGHT, failing every upload that reserved
+     * the chunk meanwhile, until {@link #abort} drops the last reference.
+     */
+    private static void writeChunk(byte[] plaintext, Manifest manifest, int i, CompletableFuture<Void> marker) {
+        String hex = HEX.formatHex(manifest.ids.get(i));
+        try {
+            Path file = chunkPath(hex);
+            if (Files.exists(file)) {
+                IN_FLIGHT.remove(hex, marker);
+                marker.complete(null);
+                return;
+            }
+            int len = manifest.lengths.get(i);
+            byte[] key = manifest.keys.get(i);
+            CompletableFuture<Void> write;
+            // The buffer is copied into the temp file before writeAsync returns
+            try (BufferPool.Lease out = BufferPool.acquire(len + AESEngine.GCM_TAG_BITS / 8)) {
+                AESEngine.encryptInto(ByteBuffer.wrap(plaintext, i * CHUNK_BYTES, len), key, chunkIv(key),
+                        out.buffer());
+                write = DurableWriter.writeAsync(file, out.buffer().flip());
+            }
+            write.whenComplete((v, t) -> {
+                if (t != null) {
+                    marker.completeExceptionally(t);
+                } else {
+                    IN_FLIGHT.remove(hex, marker);
+                    marker.complete(null);
+                }
+            });
+        } catch (Exception e) {
+            marker.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Reassemble the plaintext described by a decrypted manifest.
+     */
+    public static byte[] assemble(byte[] manifestBytes) throws Exception {
+        Manifest m = Manifest.parse(manifestBytes);
+        if (m.totalSize > Integer.MAX_VALUE) {
+            throw new IOException("Credential too large to assemble");
+        }
+        byte[] out = new byte[(int) m.totalSize];
+        int pos = 0;
+        for (int i = 0; i < m.ids.size(); i++) {
+            String hex = HEX.formatHex(m.ids.get(i));
+            Path file = chunkPath(hex);
+            if (!Files.exists(file)) {
+                throw new IOException("Missing chunk: " + hex);
+            }
+            byte[] key = m.keys.get(i);
+            byte[] chunk = AESEngine.decryptWithParams(Files.readAllBytes(file), key, chunkIv(key));
+            if (chunk.length != m.lengths.get(i) || pos + chunk.length > out.length) {
+                throw new IOException("Chunk length mismatch: " + hex);
+            }
+            System.arraycopy(chunk, 0, out, pos, chunk.length);
+            pos += chunk.length;
+        }
+        if (pos != out.length) {
+            throw new IOException("Manifest size mismatch");
+        }
+        return out;
+    }
+
+    /**
+     * {@link #assemble(byte[])} for an off-heap manifest: chunks are decrypted
+     * straight into the returned buffer, and the manifest copy and chunk keys
+     * are wiped afterwards. The caller owns the result; the manifest buffer is
+     * left open.
+     */
+    public static SecureBuffer assemble(SecureBuffer manifestBytes) throws Exception {
+        byte[] raw = manifestBytes.toByteArray();
+        Manifest m;
+        try {
+            m = Manifest.parse(raw);
+        } finally {
+            SecureBuffer.wipe(raw);
+        }
+        try {
+            if (m.totalSize > Integer.MAX_VALUE) {
+                throw new IOException("Credential too large to assemble");
+            }
+            SecureBuffer out = SecureBuffer.allocate((int) m.totalSize);
+            try {
+                ByteBuffer dst = out.view();
+                for (int i = 0; i < m.ids.size(); i++) {
+                    String hex = HEX.formatHex(m.ids.get(i));
+                    Path file = chunkPath(hex);
+                    if (!Files.exists(file)) {
+                        throw new IOException("Missing chunk: " + hex);
+                    }
+                    int len = m.lengths.get(i);
+                    if (len > dst.remaining()) {
+                        throw new IOException("Chunk length mismatch: " + hex);
+                    }
+                    byte[] key = m.keys.get(i);
+                    int n;
+                    try (BufferPool.Lease chunk = FileStorageUtil.read(file)) {
+                        n = AESEngine.decryptInto(chunk.buffer(), key, chunkIv(key), dst.slice(dst.position(), len));
+                    }
+                    if (n != len) {
+                        throw new IOException("Chunk length mismatch: " + hex);
+                    }
+                    dst.position(dst.position() + n);
+                }
+                if (dst.hasRemaining()) {
+                    throw new IOException("Manifest size mismatch");
+                }
+                return out;
+            } catch (Exception e) {
+                out.close();
+                throw e;
+            }
+        } finally {
+            m.wipeKeys();
+        }
+    }
+
+    // ---------------------------
+    // References and GC
+    // ---------------------------
+
+    /**
+     * Persist the sidecar of a manifest from {@link #put}; from then on its
+     * references are counted from the sidecar. On failure no sidecar is left
+     * behind and the references are still the caller's to {@link #abort}.
+     */
+    public static void writeRefs(Path sidecar, Manifest manifest) throws IOException {
+        Set<String> ids = manifest.chunkIds();
+        GC_GATE.readLock().lock();
+        try {
+            try {
+                DurableWriter.write(sidecar, String.join("\n", ids).getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                Files.deleteIfExists(sidecar);
+                throw e;
+            }
+            synchronized (LOCK) {
+                for (String id : ids) {
+                    UNCOMMITTED.computeIfPresent(id, (k, v) -> v > 1 ? v - 1 : null);
+                }
+            }
+        } finally {
+            GC_GATE.readLock().unlock();
+        }
+    }
+
+    /**
+     * Give back the references a {@link #put} took for a credential that will
+     * not be stored (its sidecar was never written); chunks left without any
+     * reference are deleted.
+     *
+     * @return number of chunk files deleted
+     */
+    public static int abort(Manifest manifest) throws IOException {
+        int deleted = 0;
+        synchronized (LOCK) {
+            Map<String, Integer> counts = counts();
+            for (String id : manifest.chunkIds()) {
+                UNCOMMITTED.computeIfPresent(id, (k, v) -> v > 1 ? v - 1 : null);
+                Integer left = counts.computeIfPresent(id, (k, v) -> v > 1 ? v - 1 : null);
+                if (left != null) {
+                    continue;
+                }
+                IN_FLIGHT.computeIfPresent(id, (k, f) -> f.isCompletedExceptionally() ? null : f);
+                if (!IN_FLIGHT.containsKey(id) && Files.deleteIfExists(chunkPath(id))) {
+                    deleted++;
+                }
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Drop the references listed in a sidecar (and the sidecar itself);
+     * chunks whose count reaches zero are deleted.
+     *
+     * @return number of chunk files deleted
+     */
+    public static int release(Path sidecar) throws IOException {
+        List<String> ids;
+        try {
+            ids = readRefs(sidecar);
+        } catch (NoSuchFileException e) {
+            return 0; // none, or moved by a layout migration
+        }
+        int deleted = 0;
+        synchronized (LOCK) {
+            Map<String, Integer> counts = counts();
+            if (!Files.deleteIfExists(sidecar)) {
+                return 0; // moved meanwhile; its references go with the new path
+            }
+            for (String id : ids) {
+                Integer left = counts.computeIfPresent(id, (k, v) -> v > 1 ? v - 1 : null);
+                if (left == null && Files.deleteIfExists(chunkPath(id))) {
+                    deleted++;
+                }
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Delete chunk files nothing references (left behind by a crash between
+     * {@link #put} and {@link #writeRefs}). Counts are rebuilt from the
+     * sidecars first, plus the references of uploads still in progress; waits
+     * for sidecars being written so none is counted twice or missed.
+     *
+     * @return number of orphaned chunk files deleted
+     */
+    public static int collectGarbage() throws IOException {
+        GC_GATE.writeLock().lock();
+        try {
+            synchronized (LOCK) {
+                refCounts = null;
+                Map<String, Integer> counts = counts();
+                UNCOMMITTED.forEach((id, n) -> counts.merge(id, n, Integer::sum));
+                if (!Files.isDirectory(CHUNK_DIR)) {
+                    return 0;
+                }
+                List<Path> orphans = new ArrayList<>();
+                try (Stream<Path> files = Files.walk(CHUNK_DIR, 2)) {
+                    files.filter(p -> p.getFileName().toString().endsWith(".chk")).filter(p -> {
+                        String id = p.getFileName().toString().replace(".chk", "");
+                        return !counts.containsKey(id) && !IN_FLIGHT.containsKey(id);
+                    }).forEach(orphans::add);
+                }
+                for (Path p : orphans) {
+                    Files.deleteIfExists(p);
+                }
+                return orphans.size();
+            }
+        } finally {
+            GC_GATE.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {chunk files, bytes on disk, total references}.
+     */
+    public static long[] usage() throws IOException {
+        long files = 0;
+        long bytes = 0;
+        if (Files.isDirectory(CHUNK_DIR)) {
+            try (Stream<Path> s = Files.walk(CHUNK_DIR, 2)) {
+                for (Path p : (Iterable<Path>) s.filter(x -> x.toString().endsWith(".chk"))::iterator) {
+                    files++;
+                    bytes += Files.size(p);
+                }
+            }
+        }
+        long refs;
+        synchronized (LOCK) {
+            refs = counts().values().stream().mapToLong(Integer::longValue).sum();
+        }
+        return new long[] { files, bytes, refs };
+    }
+
+    // ---------------------------
+    // Internals
+    // ---------------------------
+
+    private static Map<String, Integer> counts() throws IOException {
+        if (refCounts == null) {
+            Map<String, Integer> counts = new HashMap<>();
+            for (StorageLayout.StoredFile f : StorageLayout.scan()) {
+                if (f.name.endsWith(".refs")) {
+                    for (String id : readRefs(f.path)) {
+                        counts.merge(id, 1, Integer::sum);
+                    }
+                }
+            }
+            refCounts = counts;
+        }
+        return refCounts;
+    }
+
+    private static List<String> readRefs(Path sidecar) throws IOException {
+        List<String> ids = new ArrayList<>();
+        for (String line : Files.readAllLines(sidecar, StandardCharsets.UTF_8)) {
+            if (line.length() == 64) {
+                ids.add(line);
+            }
+        }
+        return ids;
+    }
+
+    static Path chunkPath(String hexId) {
+        return CHUNK_DIR.resolve(hexId.substring(0, 2)).resolve(hexId + ".chk");
+    }
+
+    private static byte[] chunkIv(byte[] chunkKey) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(chunkKey, "HmacSHA256"));
+        return Arrays.copyOf(mac.doFinal("iv".getBytes(StandardCharsets.UTF_8)), AESEngine.GCM_IV_BYTES);
+    }
+
+    private static byte[] scopeKey(long userId) throws Exception {
+        if (CONVERGENT) {
+            return CONVERGENT_LABEL;
+        }
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(serverSecret(), "HmacSHA256"));
+        return mac.doFinal(("user:" + userId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * vault.dedup.secret (hex) if configured, otherwise a random secret
+     * generated once and kept next to the chunks.
+     */
+    private static synchronized byte[] serverSecret() throws IOException {
+        if (serverSecret != null) {
+            return serverSecret;
+        }
+        String configured = Config.get("vault.dedup.secret", "").trim();
+        if (!configured.isEmpty()) {
+            serverSecret = HEX.parseHex(configured);
+            return serverSecret;
+        }
+        Path file = CHUNK_DIR.resolve(".secret");
+        if (Files.exists(file)) {
+            serverSecret = HEX.parseHex(Files.readString(file, StandardCharsets.UTF_8).trim());
+            return serverSecret;
+        }
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        Files.createDirectories(CHUNK_DIR);
+        Files.writeString(file, HEX.formatHex(secret), StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW);
+        try {
+            Files.setPosixFilePermissions(file, java.nio.file.attribute.PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            // non-POSIX file system
+        }
+        serverSecret = secret;
+        return serverSecret;
+    }
+}
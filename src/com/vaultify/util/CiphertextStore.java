@@ -0,0 +1,51 @@
+package com.vaultify.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Where encrypted credential payloads (the <uuid>.bin bytes) are kept.
+ *
+ * Implementations:
+ * - {@link FileCiphertextStore}: one file per credential (see StorageLayout)
+ * - {@link PackedSegmentStore}: small payloads packed into append-only
+ * segment files
+ * {@link CiphertextStores} routes between them.
+ */
+public interface CiphertextStore {
+
+    void put(String credentialId, byte[] ciphertext) throws IOException;
+
+    /**
+     * @return the stored bytes, or null when this store does not hold the id
+     */
+    byte[] get(String credentialId) throws IOException;
+
+    /**
+     * Store the remaining bytes of a buffer. Stores that write through a
+     * channel override this to avoid the heap copy.
+     */
+    default void put(String credentialId, ByteBuffer ciphertext) throws IOException {
+        byte[] data = new byte[ciphertext.remaining()];
+        ciphertext.get(data);
+        put(credentialId, data);
+    }
+
+    /**
+     * Like {@link #get}, but into a buffer the caller must close (pooled
+     * where the store supports it).
+     *
+     * @return the stored bytes, or null when this store does not hold the id
+     */
+    default BufferPool.Lease read(String credentialId) throws IOException {
+        byte[] data = get(credentialId);
+        return data == null ? null : BufferPool.wrap(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * @return true if something was deleted
+     */
+    boolean delete(String credentialId) throws IOException;
+
+    boolean contains(String credentialId);
+}
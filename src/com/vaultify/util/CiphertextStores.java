@@ -0,0 +1,99 @@
+package com.vaultify.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Routes credential ciphertexts to a {@link CiphertextStore}.
+ *
+ * With vault.packed.enabled, payloads up to vault.packed.maxEntryBytes go to
+ * the {@link PackedSegmentStore}; everything else (and everything when packing
+ * is off) is stored as one file per credential. Reads and deletes check the
+ * packed index first (an in-memory lookup) and fall back to the file store,
+ * so toggling the setting never strands existing credentials.
+ */
+public final class CiphertextStores {
+    private static final boolean PACKED_ENABLED = Config.getBoolean("vault.packed.enabled", false);
+    private static final int PACKED_MAX_BYTES = Config.getInt("vault.packed.maxEntryBytes", 4096);
+    private static final FileCiphertextStore FILES = new FileCiphertextStore();
+
+    private CiphertextStores() {
+    }
+
+    public static void put(String credentialId, byte[] ciphertext) throws IOException {
+        if (PACKED_ENABLED && ciphertext.length <= PACKED_MAX_BYTES) {
+            PackedSegmentStore.get().put(credentialId, ciphertext);
+        } else {
+            FILES.put(credentialId, ciphertext);
+        }
+    }
+
+    public static void put(String credentialId, ByteBuffer ciphertext) throws IOException {
+        if (PACKED_ENABLED && ciphertext.remaining() <= PACKED_MAX_BYTES) {
+            PackedSegmentStore.get().put(credentialId, ciphertext);
+        } else {
+            FILES.put(credentialId, ciphertext);
+        }
+    }
+
+    /**
+     * @return the ciphertext, or null when no store holds the id
+     */
+    public static byte[] get(String credentialId) throws IOException {
+        PackedSegmentStore packed = packedIfPresent();
+        if (packed != null) {
+            byte[] data = packed.get(credentialId);
+            if (data != null) {
+                return data;
+            }
+        }
+        return FILES.get(credentialId);
+    }
+
+    /**
+     * {@link #get} into a buffer (pooled for the file store); the caller
+     * must close the returned lease.
+     *
+     * @return the ciphertext, or null when no store holds the id
+     */
+    public static BufferPool.Lease read(String credentialId) throws IOException {
+        PackedSegmentStore packed = packedIfPresent();
+        if (packed != null) {
+            BufferPool.Lease data = packed.read(credentialId);
+            if (data != null) {
+                return data;
+            }
+        }
+        return FILES.read(credentialId);
+    }
+
+    public static boolean delete(String credentialId) throws IOException {
+        PackedSegmentStore packed = packedIfPresent();
+        boolean deleted = packed != null && packed.delete(credentialId);
+        return FILES.delete(credentialId) || deleted;
+    }
+
+    public static boolean contains(String credentialId) {
+        try {
+            PackedSegmentStore packed = packedIfPresent();
+            if (packed != null && packed.contains(credentialId)) {
+                return true;
+            }
+        } catch (IOException e) {
+            // fall through to the file store
+        }
+        return FILES.contains(credentialId);
+    }
+
+    /**
+     * The packed store when enabled or when it already holds data from an
+     * earlier run; null otherwise (avoids creating it for file-only vaults).
+     */
+    public static PackedSegmentStore packedIfPresent() throws IOException {
+        if (PACKED_ENABLED || java.nio.file.Files.isDirectory(
+                java.nio.file.Paths.get(Config.get("vault.packed.dir", "./vault_data/packed/")))) {
+            return PackedSegmentStore.get();
+        }
+        return null;
+    }
+}
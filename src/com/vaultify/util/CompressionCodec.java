@@ -0,0 +1,223 @@
+package com.vaultify.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.vaultify.crypto.SecureBuffer;
+
+/**
+ * Optional compress-then-encrypt stage for credential payloads
+ * (vault.compression.enabled).
+ *
+ * Payloads are deflated (raw DEFLATE, no zlib header) before encryption.
+ * An entropy probe over a sample of the input skips data that is already
+ * compressed or encrypted (zip, images, keystores), and the result is only
+ * kept if it actually saves at least vault.compression.minSavingsPercent.
+ */
+public final class CompressionCodec {
+    public static final String NONE = "none";
+    public static final String DEFLATE = "deflate";
+
+    private static final boolean ENABLED = Config.getBoolean("vault.compression.enabled", false);
+    private static final int LEVEL = clampLevel(Config.getInt("vault.compression.level", 6));
+    private static final double MAX_ENTROPY = parseDouble(Config.get("vault.compression.maxEntropyBits", "7.5"));
+    private static final int MIN_SAVINGS_PERCENT = Config.getInt("vault.compression.minSavingsPercent", 5);
+    private static final int MIN_BYTES = Config.getInt("vault.compression.minBytes", 256);
+    private static final int PROBE_BYTES = 16 * 1024;
+
+    private CompressionCodec() {
+    }
+
+    /**
+     * Outcome of {@link #compress}: the bytes to encrypt plus the algorithm and
+     * level to record in the credential metadata.
+     */
+    public static final class Result {
+        public final byte[] data;
+        public final String algorithm;
+        public final int level;
+
+        Result(byte[] data, String algorithm, int level) {
+            this.data = data;
+            this.algorithm = algorithm;
+            this.level = level;
+        }
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Compress with the configured level when enabled and worthwhile,
+     * otherwise pass the input through unchanged.
+     */
+    public static Result compress(byte[] input) {
+        if (!ENABLED || input.length < MIN_BYTES || estimateEntropy(input) > MAX_ENTROPY) {
+            return new Result(input, NONE, 0);
+        }
+        byte[] out = deflate(input, LEVEL);
+        if (out.length > (long) input.length * (100 - MIN_SAVINGS_PERCENT) / 100) {
+            return new Result(input, NONE, 0);
+        }
+        return new Result(out, DEFLATE, LEVEL);
+    }
+
+    /**
+     * Reverse {@link #compress}. originalSize bounds the output so a corrupt or
+     * hostile payload cannot inflate without limit.
+     */
+    public static byte[] decompress(byte[] data, String algorithm, long originalSize) throws IOException {
+        if (algorithm == null || NONE.equals(algorithm)) {
+            return data;
+        }
+        if (!DEFLATE.equals(algorithm)) {
+            throw new IOException("Unsupported compression: " + algorithm);
+        }
+        if (originalSize < 0 || originalSize > Integer.MAX_VALUE) {
+            throw new IOException("Invalid original size: " + originalSize);
+        }
+        return inflate(data, (int) originalSize);
+    }
+
+    /**
+     * {@link #decompress(byte[], String, long)} for off-heap plaintext. Takes
+     * ownership of {@code data}: it is returned as-is when uncompressed,
+     * otherwise closed once inflated into the returned buffer.
+     */
+    public static SecureBuffer decompress(SecureBuffer data, String algorithm, long originalSize)
+            throws IOException {
+        if (algorithm == null || NONE.equals(algorithm)) {
+            return data;
+        }
+        try (data) {
+            if (!DEFLATE.equals(algorithm)) {
+                throw new IOException("Unsupported compression: " + algorithm);
+            }
+            if (originalSize < 0 || originalSize > Integer.MAX_VALUE) {
+                throw new IOException("Invalid original size: " + originalSize);
+            }
+            SecureBuffer out = SecureBuffer.allocate((int) originalSize);
+            try {
+                inflate(data.view(), out.view(), (int) originalSize);
+                return out;
+            } catch (IOException | RuntimeException e) {
+                out.close();
+                throw e;
+            }
+        }
+    }
+
+    public static byte[] deflate(byte[] input, int level) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, input.length / 2));
+            byte[] buf = new byte[16 * 1024];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buf);
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static byte[] inflate(byte[] data, int originalSize) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data);
+            byte[] out = new byte[originalSize];
+            int pos = 0;
+            while (pos < out.length && !inflater.finished()) {
+                int n = inflater.inflate(out, pos, out.length - pos);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                pos += n;
+            }
+            if (pos != out.length || !inflater.finished()) {
+                throw new IOException("Decompressed size mismatch (expected " + originalSize + " bytes)");
+            }
+            return out;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed payload", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void inflate(ByteBuffer in, ByteBuffer out, int originalSize) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(in);
+            while (out.hasRemaining() && !inflater.finished()) {
+                int n = inflater.inflate(out);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+            }
+            if (out.hasRemaining() || !inflater.finished()) {
+                throw new IOException("Decompressed size mismatch (expected " + originalSize + " bytes)");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed payload", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Shannon entropy in bits per byte over up to PROBE_BYTES sampled from the
+     * start, middle and end of the input. Values near 8 mean the data is
+     * already compressed or encrypted.
+     */
+    public static double estimateEntropy(byte[] input) {
+        int[] counts = new int[256];
+        int sampled = 0;
+        if (input.length <= PROBE_BYTES) {
+            for (byte b : input) {
+                counts[b & 0xFF]++;
+            }
+            sampled = input.length;
+        } else {
+            int part = PROBE_BYTES / 3;
+            int[] starts = { 0, (input.length - part) / 2, input.length - part };
+            for (int start : starts) {
+                for (int i = start; i < start + part; i++) {
+                    counts[input[i] & 0xFF]++;
+                }
+                sampled += part;
+            }
+        }
+        if (sampled == 0) {
+            return 0;
+        }
+        double entropy = 0;
+        for (int c : counts) {
+            if (c > 0) {
+                double p = (double) c / sampled;
+                entropy -= p * (Math.log(p) / Math.log(2));
+            }
+        }
+        return entropy;
+    }
+
+    private static int clampLevel(int level) {
+        return Math.max(Deflater.BEST_SPEED, Math.min(Deflater.BEST_COMPRESSION, level));
+    }
+
+    private static double parseDouble(String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return 7.5;
+        }
+    }
+}
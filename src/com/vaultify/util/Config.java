@@ -1,185 +1,377 @@
 package com.vaultify.util;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
-
-import io.github.cdimascio.dotenv.Dotenv;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Configuration loader with layered approach:
  * 1. Loads .env file (for sensitive credentials like DB passwords, API keys)
  * 2. Loads config.properties from classpath (for non-sensitive defaults)
  * 3. Allows environment variable overrides
- * 
+ *
  * Priority: System.getenv() > .env > config.properties
+ *
+ * The layers are merged once into an immutable {@link Snapshot}: every key in
+ * config.properties is resolved up front, other keys on first use, and the
+ * settings read on every command are typed fields, so lookups are map or
+ * field reads rather than getenv + dotenv + properties each time. With
+ * config.reload.enabled=true the .env file is watched and a changed file
+ * swaps in a new snapshot; that reaches values read per call (dev.mode,
+ * query limits, ...), not settings classes captured at startup.
  */
 public class Config {
-    private static final Properties props = new Properties();
-    private static final Dotenv dotenv;
+    private static final Properties props = loadProperties();
+    private static final EnvSource source = locateDotenv();
+    private static volatile Snapshot current = new Snapshot(props, source.load(), System.getenv());
+    private static volatile boolean watching;
+
+    /**
+     * Immutable, fully resolved configuration.
+     */
+    public static final class Snapshot {
+        public final boolean devMode;
+        public final long maxFileSize;
+        public final Path basePath;
+        public final Set<String> blacklistedExtensions;
+
+        private final Map<String, String> values; // resolved config.properties keys
+        private final Map<String, String> overrides; // ENV_STYLE key -> env over .env
+        private final Map<String, Optional<String>> extra = new ConcurrentHashMap<>(); // other keys, on first use
+
+        private Snapshot(Properties props, Map<String, String> dotenv, Map<String, String> env) {
+            Map<String, String> o = new HashMap<>(dotenv);
+            env.forEach((k, v) -> {
+                if (!v.isEmpty()) {
+                    o.put(k, v);
+                }
+            });
+            this.overrides = o;
+
+            Map<String, String> v = new HashMap<>();
+            for (String key : props.stringPropertyNames()) {
+                String override = o.get(envKey(key));
+                v.put(key, override != null ? override : props.getProperty(key));
+            }
+            this.values = v;
+
+            this.devMode = Boolean.parseBoolean(get("dev.mode"));
+            this.maxFileSize = parseLong(get("vault.maxFileSize"), 10485760L); // 10MB default
+            this.basePath = Paths.get(or(get("vault.basePath"), "./vault_data")).toAbsolutePath().normalize();
+            this.blacklistedExtensions = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(
+                    or(get("vault.blacklist.extensions"), ".mp4,.avi,.mov,.mkv,.flv,.wmv,.webm,.gif,.m4v,.mpg,"
+                            + ".mpeg,.3gp,.ogv").toLowerCase().split(","))));
+        }
+
+        /**
+         * Resolved value, or null when no layer sets the key.
+         */
+        public String get(String key) {
+            String v = values.get(key);
+            if (v != null) {
+                return v;
+            }
+            // Not in config.properties: only env/.env can set it; remember the answer
+            return extra.computeIfAbsent(key, k -> Optional.ofNullable(overrides.get(envKey(k)))).orElse(null);
+        }
+    }
+
+    /**
+     * The current snapshot; hold on to it for a consistent view across reads.
+     */
+    public static Snapshot snapshot() {
+        return current;
+    }
+
+    public static String get(String key) {
+        return current.get(key);
+    }
+
+    public static String get(String key, String defaultValue) {
+        String value = current.get(key);
+        return (value == null || value.isEmpty()) ? defaultValue : value;
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        try {
+            String value = current.get(key);
+            return value != null ? Integer.parseInt(value) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = current.get(key);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    public static boolean isDevMode() {
+        return current.devMode;
+    }
+
+    /**
+     * Where the .env layer came from, for status output.
+     */
+    public static String dotenvSource() {
+        return source.description;
+    }
+
+    /**
+     * With config.reload.enabled=true, watch the .env file and swap in a new
+     * snapshot when it changes. No-op for a bundled or missing .env.
+     */
+    public static synchronized void startWatching() {
+        if (watching || !getBoolean("config.reload.enabled", false) || source.file == null) {
+            return;
+        }
+        Path file = source.file.toAbsolutePath();
+        WatchService watcher;
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            System.err.println("[Config] Cannot watch " + file + ": " + e.getMessage());
+            return;
+        }
+        watching = true;
+        com.vaultify.threading.ThreadManager.startDedicated("vaultify-config-watch", () -> watch(watcher, file), () -> {
+            try {
+                watcher.close(); // wakes take() with ClosedWatchServiceException
+            } catch (IOException e) {
+                // Already closed
+            }
+        });
+    }
+
+    /**
+     * Rebuild the snapshot from the same sources (the .env file is re-read).
+     */
+    public static void reload() {
+        current = new Snapshot(props, source.load(), System.getenv());
+    }
+
+    private static void watch(WatchService watcher, Path file) {
+        try (watcher) {
+            while (true) {
+                WatchKey key = watcher.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (file.getFileName().equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    // Editors often write in several steps; let the file settle
+                    Thread.sleep(200);
+                    for (WatchKey more; (more = watcher.poll()) != null;) {
+                        more.pollEvents();
+                        more.reset();
+                    }
+                    try {
+                        reload();
+                        System.out.println("[Config] Reloaded " + file);
+                    } catch (RuntimeException e) {
+                        System.err.println("[Config] Reload failed, keeping previous settings: " + e.getMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Shutdown
+        } catch (IOException e) {
+            System.err.println("[Config] Watch stopped: " + e.getMessage());
+        }
+    }
 
-    static {
-        // Load .env file from multiple possible locations
-        dotenv = loadDotenv();
+    // ---------------------------
+    // Loading
+    // ---------------------------
 
-        // Load config.properties for non-sensitive defaults
+    private static Properties loadProperties() {
+        Properties p = new Properties();
         try (InputStream is = Config.class.getClassLoader().getResourceAsStream("config.properties")) {
             if (is == null) {
                 throw new RuntimeException("config.properties missing in resources/");
             }
-            props.load(is);
+            p.load(is);
         } catch (IOException e) {
             throw new RuntimeException("Failed to load config.properties", e);
         }
+        return p;
     }
 
     /**
-     * Attempts to load .env from multiple locations with fallback to jar resources:
+     * Where the .env layer is read from: a file, the copy bundled in the jar,
+     * or nothing.
+     */
+    private static final class EnvSource {
+        final Path file; // null for bundled / none
+        final boolean bundled;
+        final String description;
+
+        EnvSource(Path file, boolean bundled, String description) {
+            this.file = file;
+            this.bundled = bundled;
+            this.description = description;
+        }
+
+        Map<String, String> load() {
+            try {
+                if (file != null) {
+                    if (!Files.isRegularFile(file)) {
+                        return Map.of();
+                    }
+                    try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                        return parseEnv(r);
+                    }
+                }
+                if (bundled) {
+                    try (InputStream is = Config.class.getClassLoader().getResourceAsStream(".env")) {
+                        if (is != null) {
+                            return parseEnv(new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8)));
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Warning: Could not read .env (" + description + "): " + e.getMessage());
+            }
+            return Map.of();
+        }
+    }
+
+    /**
+     * KEY=VALUE lines as dotenv-java reads them: blank lines and # comments
+     * skipped, trailing # comments dropped from unquoted values, surrounding
+     * double quotes removed, empty values ignored. Malformed lines are skipped.
+     */
+    static Map<String, String> parseEnv(BufferedReader reader) throws IOException {
+        Map<String, String> m = new HashMap<>();
+        for (String line; (line = reader.readLine()) != null;) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#") || line.startsWith("////")) {
+                continue;
+            }
+            int eq = line.indexOf('=');
+            if (eq <= 0) {
+                continue;
+            }
+            String key = line.substring(0, eq).trim();
+            String value = line.substring(eq + 1).trim();
+            char quote = value.isEmpty() ? 0 : value.charAt(0);
+            int close = quote == '"' || quote == '\'' ? value.indexOf(quote, 1) : -1;
+            if (close > 0) {
+                value = quote == '"' ? value.substring(1, close) : value.substring(0, close + 1);
+            } else {
+                int hash = value.indexOf('#');
+                if (hash >= 0) {
+                    value = value.substring(0, hash).trim();
+                }
+            }
+            if (!value.isEmpty()) {
+                m.put(key, value);
+            }
+        }
+        return m;
+    }
+
+    /**
+     * Picks the .env to use with one existence check per location, then it is
+     * parsed once:
      * 1. Directory specified by DOTENV_PATH system property
      * 2. Current working directory
      * 3. Directory containing the jar file
-     * 4. User's home directory
+     * 4. User's home directory (.vaultify.env)
      * 5. Bundled in jar resources (packaged with application) - FALLBACK
      */
-    private static Dotenv loadDotenv() {
+    private static EnvSource locateDotenv() {
         // Check if custom path is specified via system property
         String customPath = System.getProperty("dotenv.path");
         if (customPath != null) {
-            try {
-                return Dotenv.configure()
-                        .directory(customPath)
-                        .ignoreIfMissing()
-                        .load();
-            } catch (Exception e) {
-                System.err.println("Warning: Could not load .env from custom path: " + customPath);
+            Path p = Paths.get(customPath, ".env");
+            if (Files.isRegularFile(p)) {
+                return found(p, "custom path: " + customPath);
             }
+            System.err.println("Warning: Could not load .env from custom path: " + customPath);
         }
 
-        // Try current working directory first
-        try {
-            Dotenv env = Dotenv.configure()
-                    .ignoreIfMissing()
-                    .load();
-            if (env.get("DB_URL") != null || env.get("LEDGER_API_URL") != null) {
-                System.out.println("✓ Loaded .env from current directory");
-                return env;
-            }
-        } catch (Exception e) {
-            // Silent fail, try next location
+        // Current working directory
+        Path cwd = Paths.get(".env");
+        if (Files.isRegularFile(cwd)) {
+            return found(cwd, "current directory");
         }
 
-        // Try jar directory (where the application is executed from)
+        // Jar directory (where the application is executed from)
         try {
-            String jarPath = Config.class.getProtectionDomain()
-                    .getCodeSource()
-                    .getLocation()
-                    .toURI()
-                    .getPath();
-            java.io.File jarFile = new java.io.File(jarPath);
-            String jarDir = jarFile.getParent();
-            
-            if (jarDir != null) {
-                Dotenv env = Dotenv.configure()
-                        .directory(jarDir)
-                        .ignoreIfMissing()
-                        .load();
-                if (env.get("DB_URL") != null || env.get("LEDGER_API_URL") != null) {
-                    System.out.println("✓ Loaded .env from jar directory: " + jarDir);
-                    return env;
-                }
+            Path jarDir = Paths.get(Config.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                    .getParent();
+            if (jarDir != null && Files.isRegularFile(jarDir.resolve(".env"))) {
+                return found(jarDir.resolve(".env"), "jar directory: " + jarDir);
             }
         } catch (Exception e) {
-            // Silent fail, try next location
+            // No code source (e.g. custom class loader); try next location
         }
 
-        // Try user home directory as fallback
-        try {
-            String userHome = System.getProperty("user.home");
-            Dotenv env = Dotenv.configure()
-                    .directory(userHome)
-                    .filename(".vaultify.env")
-                    .ignoreIfMissing()
-                    .load();
-            if (env.get("DB_URL") != null || env.get("LEDGER_API_URL") != null) {
-                System.out.println("✓ Loaded .vaultify.env from home directory: " + userHome);
-                return env;
-            }
-        } catch (Exception e) {
-            // Silent fail
+        // User home directory
+        Path home = Paths.get(System.getProperty("user.home"), ".vaultify.env");
+        if (Files.isRegularFile(home)) {
+            return found(home, "home directory: " + home.getParent());
         }
 
-        // FALLBACK: Load bundled .env from jar resources
-        try {
-            InputStream is = Config.class.getClassLoader().getResourceAsStream(".env");
-            if (is != null) {
-                // Create a temporary file from the resource stream
-                java.nio.file.Path tempFile = java.nio.file.Files.createTempFile("vaultify-", ".env");
-                java.nio.file.Files.copy(is, tempFile, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-                
-                Dotenv env = Dotenv.configure()
-                        .filename(tempFile.getFileName().toString())
-                        .directory(tempFile.getParent().toString())
-                        .ignoreIfMissing()
-                        .load();
-                
-                System.out.println("✓ Loaded bundled .env from jar resources");
-                return env;
-            }
-        } catch (Exception e) {
-            // If bundled .env doesn't exist, that's okay
+        // FALLBACK: bundled .env from jar resources (read in place, no temp copy)
+        if (Config.class.getClassLoader().getResource(".env") != null) {
+            System.out.println("✓ Loaded bundled .env from jar resources");
+            return new EnvSource(null, true, "bundled");
         }
 
         System.out.println("ℹ Using config.properties defaults and system environment variables");
         System.out.println("  For custom config, place .env file in the same directory as the jar");
-        // Return empty dotenv (will fall back to config.properties)
-        return Dotenv.configure()
-                .ignoreIfMissing()
-                .load();
+        return new EnvSource(null, false, "none");
     }
 
-    public static String get(String key) {
-        // Convert key format: db.url -> DB_URL
-        String envKey = key.toUpperCase().replace('.', '_');
-
-        // Priority 1: System environment variables (highest priority)
-        String envValue = System.getenv(envKey);
-        if (envValue != null && !envValue.isEmpty()) {
-            return envValue;
-        }
-
-        // Priority 2: .env file
-        String dotenvValue = dotenv.get(envKey);
-        if (dotenvValue != null && !dotenvValue.isEmpty()) {
-            return dotenvValue;
-        }
+    private static EnvSource found(Path file, String where) {
+        System.out.println("✓ Loaded .env from " + where);
+        return new EnvSource(file, false, where);
+    }
 
-        // Priority 3: config.properties (fallback)
-        return props.getProperty(key);
+    // Key format: db.url -> DB_URL
+    private static String envKey(String key) {
+        return key.toUpperCase().replace('.', '_');
     }
 
-    public static String get(String key, String defaultValue) {
-        String value = get(key);
-        return (value == null || value.isEmpty()) ? defaultValue : value;
+    private static String or(String value, String defaultValue) {
+        return value == null || value.isEmpty() ? defaultValue : value;
     }
 
-    public static int getInt(String key, int defaultValue) {
+    private static long parseLong(String value, long defaultValue) {
         try {
-            String value = get(key);
-            return value != null ? Integer.parseInt(value) : defaultValue;
+            return value == null || value.isEmpty() ? defaultValue : Long.parseLong(value.trim());
         } catch (NumberFormatException e) {
             return defaultValue;
         }
     }
-
-    public static boolean getBoolean(String key, boolean defaultValue) {
-        String value = get(key);
-        if (value == null || value.isEmpty()) {
-            return defaultValue;
-        }
-        return Boolean.parseBoolean(value);
-    }
-
-    public static boolean isDevMode() {
-        return getBoolean("dev.mode", false);
-    }
 }
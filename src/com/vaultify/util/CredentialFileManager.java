@@ -1,17 +1,20 @@
 package com.vaultify.util;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
 import java.util.UUID;
 
 import com.vaultify.crypto.AESEngine;
 import com.vaultify.crypto.HashUtil;
-import com.vaultify.crypto.RSAEngine;
+import com.vaultify.crypto.KeyWrap;
+import com.vaultify.crypto.SecureBuffer;
 import com.vaultify.models.CredentialMetadata;
 
 /**
@@ -19,26 +22,33 @@ import com.vaultify.models.CredentialMetadata;
  * 
  * Handles:
  * 1. File encryption with AES-256-GCM
- * 2. AES key wrapping with RSA-OAEP
+ * 2. AES key wrapping with RSA-OAEP or X25519 ({@link KeyWrap}, scheme kept per credential)
  * 3. Secure storage of encrypted files
  * 4. Decryption and retrieval
+ *
+ * With vault.dedup.enabled the plaintext goes to the {@link ChunkStore} and
+ * the <uuid>.bin holds the encrypted chunk manifest instead (storage format
+ * {@link ChunkStore#FORMAT}); key wrapping is unchanged. With
+ * vault.compression.enabled the plaintext is deflated first
+ * ({@link CompressionCodec}), so the pipeline is compress, chunk, encrypt.
+ *
+ * A credential can be shared with further users by wrapping the same AES key
+ * for each of them ({@link #wrapForRecipients}); they decrypt the same
+ * ciphertext with their own private key.
  */
 public class CredentialFileManager {
-    private static final String ENCRYPTED_DIR = Config.get("vault.storage", "./vault_data/credentials/");
+    public static final String FORMAT_PLAIN = "plain";
 
     /**
      * Encrypt and store a file securely.
      * 
      * @param plainFile     Path to the plaintext file to encrypt
-     * @param userPublicKey User's RSA public key (for wrapping AES key)
+     * @param userPublicKey User's RSA or X25519 public key (for wrapping AES key)
      * @param userId        Owner user ID
      * @return CredentialMetadata containing encryption details
      */
     public static CredentialMetadata encryptAndStore(Path plainFile, PublicKey userPublicKey, long userId)
             throws Exception {
-        // Ensure storage directory exists
-        Files.createDirectories(Paths.get(ENCRYPTED_DIR));
-
         // Read plaintext file
         byte[] plaintext = Files.readAllBytes(plainFile);
 
@@ -48,37 +58,82 @@ public class CredentialFileManager {
         // Calculate hash of original file
         String originalHash = HashUtil.sha256(new String(plaintext));
 
-        // Generate AES key and IV
-        byte[] aesKey = AESEngine.generateKey();
-        byte[] iv = AESEngine.generateIv();
-
-        // Encrypt file with AES-GCM (using ThreadManager for async execution if large,
-        // but here we block for result)
-        // Using EncryptionTask to utilize the threading layer
-        com.vaultify.threading.EncryptionTask task = new com.vaultify.threading.EncryptionTask(plaintext, aesKey, iv);
-        byte[] ciphertext = com.vaultify.threading.ThreadManager.submit(task).get();
-
-        // Wrap AES key with user's RSA public key
-        byte[] wrappedKey = RSAEngine.encryptWithKey(aesKey, userPublicKey);
-
-        // Save encrypted file to disk
-        Path encryptedFilePath = Paths.get(ENCRYPTED_DIR, credentialId + ".bin");
-        Files.write(encryptedFilePath, ciphertext);
-
-        // Create metadata
-        CredentialMetadata meta = new CredentialMetadata();
-        meta.credentialIdString = credentialId;
-        // Credential hash must bind to encrypted bytes for integrity (not just ID)
-        meta.credentialHash = HashUtil.sha256(ciphertext);
-        meta.filename = plainFile.getFileName().toString();
-        meta.dataHash = originalHash;
-        meta.fileSize = plaintext.length;
-        meta.timestamp = System.currentTimeMillis();
-        meta.encryptedKeyBase64 = Base64.getEncoder().encodeToString(wrappedKey);
-        meta.ivBase64 = Base64.getEncoder().encodeToString(iv);
-        meta.userId = userId;
-
-        return meta;
+        // Optional compression stage (skipped for high-entropy input)
+        CompressionCodec.Result compressed = CompressionCodec.compress(plaintext);
+        byte[] payload = compressed.data;
+
+        // Dedup mode: store content-addressed chunks, encrypt only the manifest
+        ChunkStore.Manifest manifest = null;
+        if (ChunkStore.isEnabled()) {
+            manifest = ChunkStore.put(payload, userId);
+            payload = manifest.serialize();
+        }
+
+        // From here on a failure must give the chunk references back
+        boolean committed = false;
+        try {
+            // Generate AES key and IV
+            byte[] aesKey = AESEngine.generateKey();
+            byte[] iv = AESEngine.generateIv();
+
+            // Ciphertext goes into a pooled direct buffer and is written from there
+            try (BufferPool.Lease out = BufferPool.acquire(payload.length + AESEngine.GCM_TAG_BITS / 8)) {
+                ByteBuffer ciphertext = out.buffer();
+                byte[] wrappedKey;
+                try {
+                    // Encrypt file with AES-GCM on the CPU-bound pool (we block for the result)
+                    final byte[] input = payload;
+                    com.vaultify.threading.ThreadManager.submitCpu(
+                            () -> AESEngine.encryptInto(ByteBuffer.wrap(input), aesKey, iv, ciphertext)).get();
+                    ciphertext.flip();
+
+                    // Wrap AES key with user's public key
+                    wrappedKey = KeyWrap.wrap(aesKey, userPublicKey);
+                } finally {
+                    // Heap copies of the key and plaintext are not needed past this point
+                    SecureBuffer.wipe(aesKey);
+                    SecureBuffer.wipe(payload);
+                    SecureBuffer.wipe(compressed.data);
+                    SecureBuffer.wipe(plaintext);
+                    if (manifest != null) {
+                        manifest.wipeKeys();
+                    }
+                }
+                // Credential hash must bind to encrypted bytes for integrity (not just ID)
+                String credentialHash = HashUtil.sha256(ciphertext);
+
+                // Save ciphertext (packed segment for small payloads, else a sharded file)
+                CiphertextStores.put(credentialId, ciphertext);
+                if (manifest != null) {
+                    ChunkStore.writeRefs(StorageLayout.pathForWrite(credentialId, ".refs"), manifest);
+                    committed = true;
+                }
+
+                // Create metadata
+                CredentialMetadata meta = new CredentialMetadata();
+                meta.credentialIdString = credentialId;
+                meta.credentialHash = credentialHash;
+                meta.filename = plainFile.getFileName().toString();
+                meta.dataHash = originalHash;
+                meta.fileSize = plaintext.length;
+                meta.timestamp = System.currentTimeMillis();
+                meta.encryptedKeyBase64 = Base64.getEncoder().encodeToString(wrappedKey);
+                meta.keyScheme = KeyWrap.schemeOf(userPublicKey);
+                meta.wrapPublicKeyBase64 = Base64.getEncoder().encodeToString(userPublicKey.getEncoded());
+                meta.ivBase64 = Base64.getEncoder().encodeToString(iv);
+                meta.userId = userId;
+                meta.storageFormat = manifest != null ? ChunkStore.FORMAT : FORMAT_PLAIN;
+                meta.compression = compressed.algorithm;
+                meta.compressionLevel = compressed.level;
+
+                return meta;
+            }
+        } catch (Exception e) {
+            if (manifest != null && !committed) {
+                ChunkStore.abort(manifest);
+            }
+            throw e;
+        }
     }
 
     /**
@@ -87,29 +142,84 @@ public class CredentialFileManager {
      * @param credentialId       UUID of the credential
      * @param encryptedKeyBase64 Base64-encoded wrapped AES key
      * @param ivBase64           Base64-encoded IV
-     * @param userPrivateKey     User's RSA private key (for unwrapping AES key)
+     * @param userPrivateKey     User's private key of the scheme the AES key was wrapped with
      * @return Decrypted file contents
      */
     public static byte[] decryptAndRetrieve(String credentialId, String encryptedKeyBase64,
             String ivBase64, PrivateKey userPrivateKey) throws Exception {
-        // Load encrypted file
-        Path encryptedFilePath = Paths.get(ENCRYPTED_DIR, credentialId + ".bin");
-        if (!Files.exists(encryptedFilePath)) {
-            throw new IOException("Encrypted file not found: " + credentialId);
+        try (SecureBuffer plaintext = decryptPayload(credentialId, KeyWrap.schemeOf(userPrivateKey),
+                encryptedKeyBase64, ivBase64, userPrivateKey)) {
+            return plaintext.toByteArray();
         }
-        byte[] ciphertext = Files.readAllBytes(encryptedFilePath);
+    }
 
-        // Unwrap AES key using user's private key
-        byte[] wrappedKey = Base64.getDecoder().decode(encryptedKeyBase64);
-        byte[] aesKey = RSAEngine.decryptWithKey(wrappedKey, userPrivateKey);
+    /**
+     * Decrypt and retrieve a stored credential, honouring its storage format
+     * and compression. Heap copy of {@link #decryptToBuffer}.
+     */
+    public static byte[] decryptAndRetrieve(CredentialMetadata meta, PrivateKey userPrivateKey) throws Exception {
+        try (SecureBuffer plaintext = decryptToBuffer(meta, userPrivateKey)) {
+            return plaintext.toByteArray();
+        }
+    }
 
-        // Decode IV
-        byte[] iv = Base64.getDecoder().decode(ivBase64);
+    /**
+     * Decrypt a stored credential into off-heap memory. The unwrapped AES key
+     * and every intermediate (manifest, compressed payload) are zeroed before
+     * this returns; the caller must close the returned buffer.
+     */
+    public static SecureBuffer decryptToBuffer(CredentialMetadata meta, PrivateKey userPrivateKey) throws Exception {
+        SecureBuffer payload = decryptPayload(meta.credentialIdString, meta.keyScheme, meta.encryptedKeyBase64,
+                meta.ivBase64, userPrivateKey);
+        if (ChunkStore.FORMAT.equals(meta.storageFormat)) {
+            try (SecureBuffer manifest = payload) {
+                payload = ChunkStore.assemble(manifest);
+            }
+        }
+        return CompressionCodec.decompress(payload, meta.compression, meta.fileSize);
+    }
 
-        // Decrypt file
-        byte[] plaintext = AESEngine.decryptWithParams(ciphertext, aesKey, iv);
+    private static SecureBuffer decryptPayload(String credentialId, String keyScheme, String encryptedKeyBase64,
+            String ivBase64, PrivateKey userPrivateKey) throws Exception {
+        // Load ciphertext into a pooled buffer
+        try (BufferPool.Lease ciphertext = CiphertextStores.read(credentialId)) {
+            if (ciphertext == null) {
+                throw new IOException("Encrypted file not found: " + credentialId);
+            }
+
+            // Unwrap AES key using user's private key (moved off-heap at once)
+            byte[] wrappedKey = Base64.getDecoder().decode(encryptedKeyBase64);
+            try (SecureBuffer aesKey = SecureBuffer.moveFrom(KeyWrap.unwrap(keyScheme, wrappedKey, userPrivateKey))) {
+                // Decode IV
+                byte[] iv = Base64.getDecoder().decode(ivBase64);
+
+                // Decrypt file
+                return AESEngine.decryptToBuffer(ciphertext.buffer(), aesKey, iv);
+            }
+        }
+    }
 
-        return plaintext;
+    /**
+     * Wrap a credential's AES data key for further recipients: the key is
+     * unwrapped once with the owner's private key and wrapped with each public
+     * key (RSA or X25519, see {@link KeyWrap#schemeOf}). The ciphertext is
+     * untouched, so each recipient costs one key wrap.
+     *
+     * @return Base64-encoded wrapped keys, in the order of {@code recipients}
+     */
+    public static List<String> wrapForRecipients(String keyScheme, String encryptedKeyBase64,
+            PrivateKey ownerPrivateKey, List<PublicKey> recipients) throws Exception {
+        byte[] wrappedKey = Base64.getDecoder().decode(encryptedKeyBase64);
+        byte[] aesKey = KeyWrap.unwrap(keyScheme, wrappedKey, ownerPrivateKey);
+        try {
+            List<String> wrapped = new ArrayList<>(recipients.size());
+            for (PublicKey recipient : recipients) {
+                wrapped.add(Base64.getEncoder().encodeToString(KeyWrap.wrap(aesKey, recipient)));
+            }
+            return wrapped;
+        } finally {
+            SecureBuffer.wipe(aesKey);
+        }
     }
 
     /**
@@ -118,9 +228,10 @@ public class CredentialFileManager {
      * @param credentialId UUID of the credential to delete
      */
     public static void deleteEncryptedFile(String credentialId) throws IOException {
-        Path encryptedFilePath = Paths.get(ENCRYPTED_DIR, credentialId + ".bin");
-        if (Files.exists(encryptedFilePath)) {
-            Files.delete(encryptedFilePath);
+        CiphertextStores.delete(credentialId);
+        // Dedup credentials: drop chunk references, collecting unreferenced chunks
+        for (Path sidecar : StorageLayout.candidates(credentialId, ".refs")) {
+            ChunkStore.release(sidecar);
         }
     }
 
@@ -128,7 +239,6 @@ public class CredentialFileManager {
      * Check if an encrypted file exists.
      */
     public static boolean exists(String credentialId) {
-        Path encryptedFilePath = Paths.get(ENCRYPTED_DIR, credentialId + ".bin");
-        return Files.exists(encryptedFilePath);
+        return CiphertextStores.contains(credentialId);
     }
 }
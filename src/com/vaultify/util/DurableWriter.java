@@ -0,0 +1,337 @@
+package com.vaultify.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.vaultify.threading.ThreadManager;
+
+/**
+ * Crash-safe file writes with group-committed fsync.
+ *
+ * A write goes to a hidden temp file next to the target, which is fsynced
+ * and renamed over the target (atomic on the same file system), so readers
+ * and a crash see either the old file or the complete new one, never a torn
+ * file; the rename itself becomes durable with an fsync of the parent
+ * directory. The caller only writes the temp file and hands its open channel
+ * to a single committer thread. That thread takes every request queued while
+ * the previous batch was committing (optionally waiting
+ * vault.fsync.groupWindowMillis for more, up to vault.fsync.maxBatch), forces
+ * the temp files back to back, renames them, fsyncs each distinct directory
+ * once and only then releases the waiting callers, so a bulk ingest into one
+ * directory shares the directory fsyncs and keeps the file fsyncs off the
+ * writing threads. At most twice vault.fsync.maxBatch temp files are open at
+ * a time; further writers wait for the committer.
+ *
+ * {@link #force(FileChannel)} batches the same way for append-only files such
+ * as packed segments: all writers that appended within one window share a
+ * single fsync of that file. With vault.fsync.enabled=false writes are still
+ * atomic (temp + rename) but not forced to disk. Once the committer has
+ * been stopped at shutdown, callers fsync inline instead.
+ */
+public final class DurableWriter {
+    private static final boolean FSYNC = Config.getBoolean("vault.fsync.enabled", true);
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS
+            .toNanos(Math.max(0, Config.getInt("vault.fsync.groupWindowMillis", 0)));
+    private static final int MAX_BATCH = Math.max(1, Config.getInt("vault.fsync.maxBatch", 256));
+
+    private static final BlockingQueue<Request> QUEUE = new LinkedBlockingQueue<>();
+    private static final Semaphore OPEN_TEMPS = new Semaphore(2 * MAX_BATCH);
+    private static final AtomicLong TEMP_COUNTER = new AtomicLong();
+    private static final AtomicLong REQUESTS = new AtomicLong();
+    private static final AtomicLong BATCHES = new AtomicLong();
+    private static final AtomicLong FSYNCS = new AtomicLong();
+    private static final Request STOP = new Request(null, null, null, null);
+    private static volatile boolean started;
+    private static volatile boolean stopped;
+
+    private DurableWriter() {
+    }
+
+    private static final class Request {
+        final FileChannel channel; // file to fsync
+        final Path temp; // for a write: the channel's file, renamed to target once forced
+        final Path target;
+        final Path dir; // directory to fsync after the rename
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Request(FileChannel channel, Path temp, Path target, Path dir) {
+            this.channel = channel;
+            this.temp = temp;
+            this.target = target;
+            this.dir = dir;
+        }
+    }
+
+    /**
+     * Atomically replace target with data and wait until it is durable.
+     */
+    public static void write(Path target, byte[] data) throws IOException {
+        await(writeAsync(target, data));
+    }
+
+    public static void write(Path target, ByteBuffer data) throws IOException {
+        await(writeAsync(target, data));
+    }
+
+    /**
+     * Atomically replace target with data; the returned future completes once
+     * the new file is in place and durable (next group commit). Until then
+     * target still holds its old content, if any.
+     */
+    public static CompletableFuture<Void> writeAsync(Path target, byte[] data) throws IOException {
+        return writeAsync(target, ByteBuffer.wrap(data));
+    }
+
+    /**
+     * {@link #writeAsync(Path, byte[])} for the remaining bytes of a buffer
+     * (heap or pooled direct).
+     */
+    public static CompletableFuture<Void> writeAsync(Path target, ByteBuffer data) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path temp = dir.resolve("." + target.getFileName() + ".tmp-" + ProcessHandle.current().pid() + "-"
+                + TEMP_COUNTER.incrementAndGet());
+        if (!FSYNC) {
+            try (FileChannel ch = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                while (data.hasRemaining()) {
+                    ch.write(data);
+                }
+                publish(temp, target);
+            } catch (IOException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+
+        try {
+            OPEN_TEMPS.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for durable write", e);
+        }
+        FileChannel ch = null;
+        try {
+            ch = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            while (data.hasRemaining()) {
+                ch.write(data);
+            }
+        } catch (IOException e) {
+            if (ch != null) {
+                ch.close();
+            }
+            Files.deleteIfExists(temp);
+            OPEN_TEMPS.release();
+            throw e;
+        }
+        // The committer forces, closes and renames it
+        return submit(new Request(ch, temp, target, dir));
+    }
+
+    /**
+     * fsync an open channel as part of the next group commit and wait for it.
+     */
+    public static void force(FileChannel channel) throws IOException {
+        if (!FSYNC) {
+            return;
+        }
+        await(submit(new Request(channel, null, null, null)));
+    }
+
+    /**
+     * {requests, batches, fsync calls} since startup.
+     */
+    public static long[] stats() {
+        return new long[] { REQUESTS.get(), BATCHES.get(), FSYNCS.get() };
+    }
+
+    private static CompletableFuture<Void> submit(Request request) {
+        ensureStarted();
+        REQUESTS.incrementAndGet();
+        if (!stopped) {
+            QUEUE.add(request);
+            // The committer may have drained its last batch just before the add
+            if (!stopped || !QUEUE.remove(request)) {
+                return request.done;
+            }
+        }
+        commit(List.of(request));
+        return request.done;
+    }
+
+    private static void await(CompletableFuture<Void> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for durable write", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Durable write failed", cause);
+        }
+    }
+
+    private static synchronized void ensureStarted() {
+        if (!started) {
+            ThreadManager.startDedicated("vaultify-fsync", DurableWriter::commitLoop, () -> QUEUE.add(STOP));
+            started = true;
+        }
+    }
+
+    private static void publish(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void forceDirectory(Path dir) throws IOException {
+        try (FileChannel d = FileChannel.open(dir, StandardOpenOption.READ)) {
+            d.force(true);
+        } catch (IOException e) {
+            if (Files.isDirectory(dir)) {
+                // Some platforms cannot open or sync directories; the rename itself is done
+                return;
+            }
+            throw e;
+        }
+    }
+
+    // ---------------------------
+    // Committer thread
+    // ---------------------------
+
+    private static void commitLoop() {
+        List<Request> batch = new ArrayList<>(MAX_BATCH);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                batch.add(QUEUE.take());
+                long deadline = System.nanoTime() + WINDOW_NANOS;
+                while (batch.size() < MAX_BATCH) {
+                    long remaining = deadline - System.nanoTime();
+                    Request next = remaining > 0 ? QUEUE.poll(remaining, TimeUnit.NANOSECONDS) : QUEUE.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                stopping = true;
+            }
+            stopping |= batch.remove(STOP);
+            commit(batch);
+            batch.clear();
+        }
+        // Shutdown: later callers commit inline; finish whatever was queued before they noticed
+        stopped = true;
+        QUEUE.drainTo(batch);
+        batch.remove(STOP);
+        commit(batch);
+    }
+
+    private static void commit(List<Request> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        BATCHES.incrementAndGet();
+
+        // Force each file once, then put the new files in place
+        Map<Object, IOException> errors = new HashMap<>();
+        Set<Object> synced = new HashSet<>();
+        for (Request r : batch) {
+            if (r.channel == null || !synced.add(r.channel)) {
+                continue;
+            }
+            try {
+                r.channel.force(false);
+                FSYNCS.incrementAndGet();
+            } catch (ClosedChannelException e) {
+                if (r.temp != null) {
+                    errors.put(r.channel, e);
+                }
+                // else closed (and forced) by its owner in the meantime
+            } catch (IOException e) {
+                errors.put(r.channel, e);
+            }
+        }
+        for (Request r : batch) {
+            if (r.temp != null) {
+                rename(r, errors);
+            }
+        }
+
+        // Then one fsync per distinct directory that received a new file
+        for (Request r : batch) {
+            if (r.dir == null || errors.containsKey(r.channel) || !synced.add(r.dir)) {
+                continue;
+            }
+            try {
+                forceDirectory(r.dir);
+                FSYNCS.incrementAndGet();
+            } catch (IOException e) {
+                errors.put(r.dir, e);
+            }
+        }
+
+        for (Request r : batch) {
+            IOException t = r.channel != null ? errors.get(r.channel) : null;
+            if (t == null && r.dir != null) {
+                t = errors.get(r.dir);
+            }
+            if (t != null) {
+                r.done.completeExceptionally(t);
+            } else {
+                r.done.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Close a forced temp file and rename it over its target, or delete it
+     * when forcing, closing or renaming failed (recorded under its channel).
+     */
+    private static void rename(Request r, Map<Object, IOException> errors) {
+        try {
+            r.channel.close();
+            if (!errors.containsKey(r.channel)) {
+                publish(r.temp, r.target);
+            }
+        } catch (IOException e) {
+            errors.putIfAbsent(r.channel, e);
+        } finally {
+            OPEN_TEMPS.release();
+        }
+        if (errors.containsKey(r.channel)) {
+            try {
+                Files.deleteIfExists(r.temp);
+            } catch (IOException ignored) {
+                // A stray hidden temp file; never read
+            }
+        }
+    }
+}
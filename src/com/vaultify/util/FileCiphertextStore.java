@@ -0,0 +1,67 @@
+package com.vaultify.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+/**
+ * One <uuid>.bin file per credential, located through {@link StorageLayout}.
+ * Writes are atomic and group-committed through {@link DurableWriter}.
+ */
+public class FileCiphertextStore implements CiphertextStore {
+
+    @Override
+    public void put(String credentialId, byte[] ciphertext) throws IOException {
+        DurableWriter.write(StorageLayout.pathForWrite(credentialId, ".bin"), ciphertext);
+    }
+
+    @Override
+    public void put(String credentialId, ByteBuffer ciphertext) throws IOException {
+        DurableWriter.write(StorageLayout.pathForWrite(credentialId, ".bin"), ciphertext);
+    }
+
+    @Override
+    public byte[] get(String credentialId) throws IOException {
+        for (Path path : StorageLayout.candidates(credentialId, ".bin")) {
+            try {
+                return Files.readAllBytes(path);
+            } catch (NoSuchFileException e) {
+                // Absent, or moved by a migration: try the other layout
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public BufferPool.Lease read(String credentialId) throws IOException {
+        for (Path path : StorageLayout.candidates(credentialId, ".bin")) {
+            try {
+                return FileStorageUtil.read(path);
+            } catch (NoSuchFileException e) {
+                // Absent, or moved by a migration: try the other layout
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean delete(String credentialId) throws IOException {
+        boolean deleted = false;
+        for (Path path : StorageLayout.candidates(credentialId, ".bin")) {
+            deleted |= Files.deleteIfExists(path);
+        }
+        return deleted;
+    }
+
+    @Override
+    public boolean contains(String credentialId) {
+        for (Path path : StorageLayout.candidates(credentialId, ".bin")) {
+            if (Files.exists(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,7 +1,15 @@
 package com.vaultify.util;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 
@@ -30,4 +38,74 @@ public class FileStorageUtil {
             throw new RuntimeException("Error reading file from " + path, e);
         }
     }
-}
\ No newline at end of file
+
+    // ---------------------------
+    // Pooled I/O (see BufferPool)
+    // ---------------------------
+
+    /**
+     * Read a whole file into a pooled direct buffer (flipped, ready to read).
+     * The caller must close the lease.
+     */
+    public static BufferPool.Lease read(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to read into memory: " + path);
+            }
+            BufferPool.Lease lease = BufferPool.acquire((int) size);
+            try {
+                ByteBuffer buf = lease.buffer();
+                while (buf.hasRemaining() && ch.read(buf) >= 0) {
+                    // keep reading
+                }
+                if (buf.hasRemaining()) {
+                    throw new IOException("File shrank while reading: " + path);
+                }
+                buf.flip();
+                return lease;
+            } catch (IOException | RuntimeException e) {
+                lease.close();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Create or overwrite a file with the remaining bytes of data.
+     */
+    public static void write(Path path, ByteBuffer data) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            while (data.hasRemaining()) {
+                ch.write(data);
+            }
+        }
+    }
+
+    /**
+     * Read a UTF-8 text file through a pooled buffer.
+     */
+    public static String readString(Path path) throws IOException {
+        try (BufferPool.Lease lease = read(path)) {
+            return StandardCharsets.UTF_8.newDecoder().decode(lease.buffer()).toString();
+        }
+    }
+
+    /**
+     * Write text as UTF-8, encoding straight into a pooled buffer instead of
+     * an intermediate byte[].
+     */
+    public static void writeString(Path path, CharSequence text) throws IOException {
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        int maxBytes = (int) Math.min(Integer.MAX_VALUE, (long) text.length() * 3);
+        try (BufferPool.Lease lease = BufferPool.acquire(maxBytes)) {
+            ByteBuffer buf = lease.buffer();
+            CoderResult r = encoder.encode(CharBuffer.wrap(text), buf, true);
+            if (r.isError() || (r = encoder.flush(buf)).isError()) {
+                throw new CharacterCodingException();
+            }
+            write(path, buf.flip());
+        }
+    }
+}
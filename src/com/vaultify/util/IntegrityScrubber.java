@@ -0,0 +1,390 @@
+package com.vaultify.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.gson.JsonObject;
+import com.vaultify.db.Database;
+import com.vaultify.threading.ActivityLogger;
+import com.vaultify.threading.ThreadManager;
+
+/**
+ * Background integrity scrubber for ciphertext at rest (scrub.enabled).
+ *
+ * On every scheduler tick (scrub.intervalMinutes) a pass continues where the
+ * last one stopped: credentials are read from the DB in credential-id order
+ * (keyset pages of scrub.pageSize), each ciphertext is streamed through a
+ * reused direct buffer into SHA-256 and compared with credential_hash. Reads
+ * are throttled to scrub.budgetMBps so foreground traffic keeps the disk.
+ *
+ * The position is checkpointed (vault_data/scrub/checkpoint.properties,
+ * written atomically) every scrub.checkpointEvery credentials, so a restart
+ * resumes the pass instead of starting over. Corrupt, missing and unreadable
+ * ciphertexts are appended to corruptions.jsonl and logged as
+ * SCRUB_CORRUPTION activity.
+ *
+ * Dedup-format credentials are checked at the manifest level; their chunks
+ * are authenticated by GCM when read.
+ */
+public final class IntegrityScrubber {
+    private static final boolean ENABLED = Config.getBoolean("scrub.enabled", true);
+    private static final Path DIR = Paths.get(Config.get("scrub.dir", "./vault_data/scrub/"));
+    private static final long BUDGET_BYTES_PER_SEC = Math.max(1, Config.getInt("scrub.budgetMBps", 8)) * 1024L
+            * 1024L;
+    private static final int PAGE_SIZE = Math.max(10, Config.getInt("scrub.pageSize", 500));
+    private static final int CHECKPOINT_EVERY = Math.max(1, Config.getInt("scrub.checkpointEvery", 1000));
+    private static final int BUFFER_BYTES = 1024 * 1024;
+
+    private static final String PAGE_SQL = "SELECT id, user_id, filepath, credential_hash FROM credentials "
+            + "WHERE filepath COLLATE \"C\" > ? ORDER BY filepath COLLATE \"C\" LIMIT ?";
+    private static final String EXISTS_SQL = "SELECT 1 FROM credentials WHERE id = ?";
+
+    private static final AtomicBoolean RUNNING = new AtomicBoolean();
+    private static volatile Status last = new Status(0, "", 0, 0, 0, 0, false);
+
+    private IntegrityScrubber() {
+    }
+
+    /**
+     * Progress of the current (or last) pass.
+     */
+    public static final class Status {
+        public final long pass;
+        public final String position; // last filepath checked; "" = start of a pass
+        public final long checked;
+        public final long bytes;
+        public final long corrupt;
+        public final long passesCompleted;
+        public final boolean running;
+
+        Status(long pass, String position, long checked, long bytes, long corrupt, long passesCompleted,
+                boolean running) {
+            this.pass = pass;
+            this.position = position;
+            this.checked = checked;
+            this.bytes = bytes;
+            this.corrupt = corrupt;
+            this.passesCompleted = passesCompleted;
+            this.running = running;
+        }
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Schedule periodic passes; the first one starts after
+     * scrub.initialDelayMinutes so startup is not competing for the disk.
+     */
+    public static void schedule() {
+        long every = Math.max(1, Config.getInt("scrub.intervalMinutes", 60));
+        long initial = Math.max(0, Config.getInt("scrub.initialDelayMinutes", 5));
+        ThreadManager.scheduleAtFixedRate(IntegrityScrubber::runInBackground, initial, every, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Continue the pass on the I/O executor unless one is already running
+     * (a pass at a low budget can outlast the interval).
+     *
+     * @return false when a pass was already in progress
+     */
+    public static boolean runInBackground() {
+        if (!RUNNING.compareAndSet(false, true)) {
+            return false;
+        }
+        ThreadManager.runAsync(() -> {
+            try {
+                runPass();
+            } catch (Exception e) {
+                System.err.println("[Scrubber] Pass failed: " + e.getMessage());
+            } finally {
+                RUNNING.set(false);
+            }
+        });
+        return true;
+    }
+
+    public static Status status() {
+        Status s = last;
+        if (s.pass == 0) {
+            try {
+                s = readCheckpoint();
+            } catch (IOException e) {
+                // fall back to the empty status
+            }
+        }
+        return new Status(s.pass, s.position, s.checked, s.bytes, s.corrupt, s.passesCompleted, RUNNING.get());
+    }
+
+    // ---------------------------
+    // Pass
+    // ---------------------------
+
+    private static final class Row {
+        final long id;
+        final long userId;
+        final String filepath;
+        final String credentialHash;
+
+        Row(ResultSet rs) throws SQLException {
+            this.id = rs.getLong("id");
+            this.userId = rs.getLong("user_id");
+            this.filepath = rs.getString("filepath");
+            this.credentialHash = rs.getString("credential_hash");
+        }
+
+        String credentialId() {
+            String name = filepath.substring(Math.max(filepath.lastIndexOf('/'), filepath.lastIndexOf('\\')) + 1);
+            return name.endsWith(".bin") ? name.substring(0, name.length() - 4) : name;
+        }
+    }
+
+    /**
+     * Run the current pass to the end, resuming from the checkpoint.
+     */
+    static void runPass() throws IOException, SQLException {
+        Status cp = readCheckpoint();
+        long pass = cp.pass == 0 ? 1 : cp.pass;
+        String position = cp.position;
+        long checked = cp.checked;
+        long bytes = cp.bytes;
+        long corrupt = cp.corrupt;
+        long sinceCheckpoint = 0;
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        MessageDigest md = sha256();
+        PackedSegmentStore packed = CiphertextStores.packedIfPresent();
+        Throttle throttle = new Throttle(BUDGET_BYTES_PER_SEC);
+
+        while (true) {
+            List<Row> page = nextPage(position);
+            if (page.isEmpty()) {
+                break;
+            }
+            for (Row row : page) {
+                String id = row.credentialId();
+                String problem;
+                String actual = null;
+                long read = 0;
+                try {
+                    byte[] small = packed != null ? packed.get(id) : null;
+                    if (small != null) {
+                        md.update(small);
+                        read = small.length;
+                        throttle.consumed(read);
+                    } else {
+                        read = hashFile(id, buffer, md, throttle);
+                    }
+                    actual = HexFormat.of().formatHex(md.digest());
+                    problem = row.credentialHash == null || row.credentialHash.equalsIgnoreCase(actual) ? null
+                            : "HASH_MISMATCH";
+                } catch (NoSuchFileException e) {
+                    problem = "MISSING";
+                } catch (IOException e) {
+                    problem = "UNREADABLE";
+                } finally {
+                    md.reset();
+                }
+                if (problem != null && !"HASH_MISMATCH".equals(problem) && !rowExists(row.id)) {
+                    // Deleted after the page was read (the file goes before the row)
+                    problem = null;
+                }
+                bytes += read;
+                checked++;
+                position = row.filepath;
+                if (problem != null) {
+                    corrupt++;
+                    recordCorruption(pass, row, id, problem, actual);
+                }
+                last = new Status(pass, position, checked, bytes, corrupt, cp.passesCompleted, true);
+                if (++sinceCheckpoint >= CHECKPOINT_EVERY) {
+                    writeCheckpoint(last);
+                    sinceCheckpoint = 0;
+                }
+            }
+        }
+
+        if (corrupt > 0) {
+            System.err.println("[Scrubber] Pass " + pass + " complete: " + checked + " credential(s), "
+                    + PathValidator.formatSize(bytes) + ", " + corrupt + " problem(s) in "
+                    + DIR.resolve("corruptions.jsonl"));
+        }
+        last = new Status(pass + 1, "", 0, 0, 0, cp.passesCompleted + 1, false);
+        writeCheckpoint(last);
+    }
+
+    private static List<Row> nextPage(String after) throws SQLException {
+        List<Row> rows = new ArrayList<>(PAGE_SIZE);
+        try (Connection conn = Database.getConnection();
+                PreparedStatement ps = conn.prepareStatement(PAGE_SQL)) {
+            ps.setString(1, after);
+            ps.setInt(2, PAGE_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new Row(rs));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static boolean rowExists(long id) throws SQLException {
+        try (Connection conn = Database.getConnection();
+                PreparedStatement ps = conn.prepareStatement(EXISTS_SQL)) {
+            ps.setLong(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Stream one credential file through the digest, throttling between buffer
+     * fills. Looks in both layouts, as a migration may move the file after it
+     * was located.
+     */
+    private static long hashFile(String credentialId, ByteBuffer buffer, MessageDigest md, Throttle throttle)
+            throws IOException {
+        FileChannel opened = null;
+        NoSuchFileException missing = null;
+        for (Path file : StorageLayout.candidates(credentialId, ".bin")) {
+            try {
+                opened = FileChannel.open(file, StandardOpenOption.READ);
+                break;
+            } catch (NoSuchFileException e) {
+                missing = e;
+            }
+        }
+        if (opened == null) {
+            throw missing;
+        }
+        long total = 0;
+        try (FileChannel ch = opened) {
+            buffer.clear();
+            int n;
+            while ((n = ch.read(buffer)) >= 0) {
+                if (n == 0 && buffer.hasRemaining()) {
+                    continue;
+                }
+                buffer.flip();
+                md.update(buffer);
+                buffer.clear();
+                total += n;
+                throttle.consumed(n);
+            }
+        }
+        return total;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Sleeps so that bytes read since the start of the pass never get ahead
+     * of the budget.
+     */
+    private static final class Throttle {
+        private final long bytesPerSec;
+        private final long start = System.nanoTime();
+        private long consumed;
+
+        Throttle(long bytesPerSec) {
+            this.bytesPerSec = bytesPerSec;
+        }
+
+        void consumed(long n) {
+            consumed += n;
+            long due = start + (long) (consumed * 1e9 / bytesPerSec);
+            long wait = due - System.nanoTime();
+            if (wait > 1_000_000) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    // ---------------------------
+    // Checkpoint and corruption log
+    // ---------------------------
+
+    private static Status readCheckpoint() throws IOException {
+        Path file = DIR.resolve("checkpoint.properties");
+        if (!Files.exists(file)) {
+            return new Status(1, "", 0, 0, 0, 0, false);
+        }
+        Properties p = new Properties();
+        p.load(new StringReader(Files.readString(file, StandardCharsets.UTF_8)));
+        return new Status(Long.parseLong(p.getProperty("pass", "1")), p.getProperty("position", ""),
+                Long.parseLong(p.getProperty("checked", "0")), Long.parseLong(p.getProperty("bytes", "0")),
+                Long.parseLong(p.getProperty("corrupt", "0")), Long.parseLong(p.getProperty("passesCompleted", "0")),
+                false);
+    }
+
+    private static void writeCheckpoint(Status s) throws IOException {
+        Properties p = new Properties();
+        p.setProperty("pass", String.valueOf(s.pass));
+        p.setProperty("position", s.position);
+        p.setProperty("checked", String.valueOf(s.checked));
+        p.setProperty("bytes", String.valueOf(s.bytes));
+        p.setProperty("corrupt", String.valueOf(s.corrupt));
+        p.setProperty("passesCompleted", String.valueOf(s.passesCompleted));
+        StringWriter out = new StringWriter();
+        p.store(out, "Integrity scrubber position");
+        DurableWriter.write(DIR.resolve("checkpoint.properties"), out.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void recordCorruption(long pass, Row row, String credentialId, String problem, String actual)
+            throws IOException {
+        JsonObject o = new JsonObject();
+        o.addProperty("time", System.currentTimeMillis());
+        o.addProperty("pass", pass);
+        o.addProperty("type", problem);
+        o.addProperty("credentialId", credentialId);
+        o.addProperty("dbId", row.id);
+        o.addProperty("userId", row.userId);
+        o.addProperty("expected", row.credentialHash);
+        if (actual != null) {
+            o.addProperty("actual", actual);
+        }
+        Files.createDirectories(DIR);
+        try (BufferedWriter w = Files.newBufferedWriter(DIR.resolve("corruptions.jsonl"), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            w.write(o.toString());
+            w.newLine();
+        }
+        System.err.println("[Scrubber] " + problem + " for credential " + credentialId + " (user " + row.userId
+                + ")");
+        ActivityLogger.log("SCRUB_CORRUPTION", problem + " " + credentialId);
+    }
+}
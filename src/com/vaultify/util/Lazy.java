@@ -0,0 +1,42 @@
+package com.vaultify.util;
+
+import java.util.function.Supplier;
+
+/**
+ * Thread-safe value built on first {@link #get()}.
+ *
+ * Used to wire services and handlers so nothing that touches the database,
+ * the ledger or the file system is constructed until a command needs it.
+ */
+public final class Lazy<T> implements Supplier<T> {
+    private Supplier<? extends T> factory;
+    private volatile T value;
+
+    private Lazy(Supplier<? extends T> factory) {
+        this.factory = factory;
+    }
+
+    public static <T> Lazy<T> of(Supplier<? extends T> factory) {
+        return new Lazy<>(factory);
+    }
+
+    @Override
+    public T get() {
+        T v = value;
+        if (v == null) {
+            synchronized (this) {
+                v = value;
+                if (v == null) {
+                    v = factory.get();
+                    value = v;
+                    factory = null; // release captured state
+                }
+            }
+        }
+        return v;
+    }
+
+    public boolean isInitialized() {
+        return value != null;
+    }
+}
@@ -0,0 +1,693 @@
+package com.vaultify.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import com.vaultify.threading.ThreadManager;
+
+/**
+ * Log-structured store that packs small ciphertexts into large append-only
+ * segment files (vault.packed.enabled, entries up to vault.packed.maxEntryBytes).
+ *
+ * Record layout (big endian):
+ * [int magic][byte type][short idLen][int dataLen][id][data][int crc32]
+ * where type is PUT or DELETE (tombstone) and the CRC covers type..data.
+ *
+ * An in-memory offset index maps credential id to (segment, offset, length),
+ * so a read is one positional read on an already open channel and a write is
+ * one append: no per-credential inode, open or close. The index is rebuilt at
+ * startup from per-segment hint files (written durably when a segment is
+ * sealed) or, for the active segment, by scanning it; a torn tail is
+ * truncated. A hint ends with [byte 0][int entries][long segment size]
+ * [int crc32 of all preceding bytes]; a hint that is missing, truncated or
+ * does not match its segment is rebuilt from a scan of the segment.
+ *
+ * Every put/delete is made durable through the group-committed fsync of
+ * {@link DurableWriter}, so concurrent writers share one fsync per batch.
+ *
+ * Deletes append a tombstone. Sealed segments whose dead fraction exceeds
+ * vault.packed.compactThreshold are compacted in the background: live records
+ * are re-appended to the active segment and the old segment is removed.
+ */
+public class PackedSegmentStore implements CiphertextStore {
+    private static final int MAGIC = 0x56504B31; // "VPK1"
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final int HEADER_BYTES = 4 + 1 + 2 + 4;
+    private static final int TRAILER_BYTES = 4;
+    private static final byte HINT_END = 0;
+
+    private static PackedSegmentStore shared;
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final double compactThreshold;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Location> index = new HashMap<>();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private Segment active;
+
+    PackedSegmentStore(Path dir, long segmentBytes, double compactThreshold) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.compactThreshold = compactThreshold;
+        Files.createDirectories(dir);
+        load();
+    }
+
+    /**
+     * Process-wide store, opened on first use; schedules background compaction.
+     */
+    public static synchronized PackedSegmentStore get() throws IOException {
+        if (shared == null) {
+            shared = new PackedSegmentStore(
+                    Paths.get(Config.get("vault.packed.dir", "./vault_data/packed/")),
+                    Config.getInt("vault.packed.segmentMegabytes", 64) * 1024L * 1024L,
+                    Config.getInt("vault.packed.compactThresholdPercent", 50) / 100.0);
+            long every = Math.max(1, Config.getInt("vault.packed.compactIntervalMinutes", 10));
+            PackedSegmentStore store = shared;
+            ThreadManager.scheduleAtFixedRate(() -> {
+                try {
+                    store.compact();
+                } catch (Exception e) {
+                    System.err.println("[PackedStore] Compaction failed: " + e.getMessage());
+                }
+            }, every, every, TimeUnit.MINUTES);
+        }
+        return shared;
+    }
+
+    private static final class Location {
+        final int segment;
+        final long offset; // start of record
+        final int idLength;
+        final int dataLength;
+
+        Location(int segment, long offset, int idLength, int dataLength) {
+            this.segment = segment;
+            this.offset = offset;
+            this.idLength = idLength;
+            this.dataLength = dataLength;
+        }
+
+        long dataOffset() {
+            return offset + HEADER_BYTES + idLength;
+        }
+
+        int recordBytes() {
+            return HEADER_BYTES + idLength + dataLength + TRAILER_BYTES;
+        }
+    }
+
+    private final class Segment {
+        final int number;
+        final Path file;
+        final Path hintFile;
+        FileChannel channel;
+        long size;
+        long liveBytes;
+        DataOutputStream hint; // only while active
+        CRC32 hintCrc;
+        int hintEntries;
+
+        Segment(int number) {
+            this.number = number;
+            this.file = dir.resolve(String.format("seg-%06d.dat", number));
+            this.hintFile = dir.resolve(String.format("seg-%06d.hint", number));
+        }
+
+        boolean sealed() {
+            return hint == null;
+        }
+    }
+
+    // ---------------------------
+    // Startup
+    // ---------------------------
+
+    private void load() throws IOException {
+        List<Integer> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "seg-*.dat")) {
+            for (Path p : ds) {
+                String name = p.getFileName().toString();
+                numbers.add(Integer.parseInt(name.substring(4, name.length() - 4)));
+            }
+        }
+        numbers.sort(null);
+        for (int i = 0; i < numbers.size(); i++) {
+            Segment seg = new Segment(numbers.get(i));
+            seg.channel = FileChannel.open(seg.file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            seg.size = seg.channel.size();
+            segments.put(seg.number, seg);
+            boolean last = i == numbers.size() - 1;
+            List<HintEntry> entries = last ? null : readHint(seg);
+            if (entries == null) {
+                entries = scanData(seg);
+                if (!last) {
+                    if (Files.exists(seg.hintFile)) {
+                        System.err.println("[PackedStore] Hint of " + seg.file.getFileName()
+                                + " is incomplete; rebuilt from the segment");
+                    }
+                    writeHintFile(seg, entries);
+                }
+            }
+            for (HintEntry h : entries) {
+                apply(h.type, h.id, new Location(seg.number, h.offset, h.id.getBytes(StandardCharsets.UTF_8).length,
+                        h.dataLength));
+            }
+            if (last) {
+                // Resume appending to the newest segment; its hint is rebuilt from the scan
+                Files.deleteIfExists(seg.hintFile);
+                openHint(seg);
+                for (HintEntry h : entries) {
+                    writeHint(seg, h.type, h.id.getBytes(StandardCharsets.UTF_8), h.offset, h.dataLength);
+                }
+                active = seg;
+            }
+        }
+        for (Location loc : index.values()) {
+            segments.get(loc.segment).liveBytes += loc.recordBytes();
+        }
+    }
+
+    /**
+     * Entries of a sealed segment's hint, or null when the hint is missing,
+     * cut short, fails its CRC or was written for a different segment size.
+     */
+    private static List<HintEntry> readHint(Segment seg) {
+        if (!Files.exists(seg.hintFile)) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(seg.hintFile), 64 * 1024), crc))) {
+            List<HintEntry> entries = new ArrayList<>();
+            while (true) {
+                byte type = in.readByte();
+                if (type == HINT_END) {
+                    int count = in.readInt();
+                    long segmentSize = in.readLong();
+                    int expected = (int) crc.getValue();
+                    boolean valid = in.readInt() == expected && count == entries.size() && segmentSize == seg.size
+                            && in.read() < 0;
+                    return valid ? entries : null;
+                }
+                if (type != PUT && type != DELETE) {
+                    return null;
+                }
+                String id = readId(in);
+                long offset = in.readLong();
+                int dataLength = in.readInt();
+                entries.add(new HintEntry(type, id, offset, dataLength));
+            }
+        } catch (IOException e) {
+            return null; // includes EOFException: no trailer
+        }
+    }
+
+    private static final class HintEntry {
+        final byte type;
+        final String id;
+        final long offset;
+        final int dataLength;
+
+        HintEntry(byte type, String id, long offset, int dataLength) {
+            this.type = type;
+            this.id = id;
+            this.offset = offset;
+            this.dataLength = dataLength;
+        }
+    }
+
+    /**
+     * Entries of a segment from its records; a torn tail is truncated.
+     */
+    private static List<HintEntry> scanData(Segment seg) throws IOException {
+        List<HintEntry> entries = new ArrayList<>();
+        long pos = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (pos + HEADER_BYTES <= seg.size) {
+            header.clear();
+            readFully(seg.channel, header, pos);
+            header.flip();
+            int magic = header.getInt();
+            byte type = header.get();
+            int idLength = header.getShort() & 0xFFFF;
+            int dataLength = header.getInt();
+            long recordEnd = pos + HEADER_BYTES + idLength + (long) dataLength + TRAILER_BYTES;
+            if (magic != MAGIC || dataLength < 0 || recordEnd > seg.size) {
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate(idLength + dataLength + TRAILER_BYTES);
+            readFully(seg.channel, body, pos + HEADER_BYTES);
+            body.flip();
+            CRC32 crc = new CRC32();
+            crc.update(type);
+            crc.update(body.array(), 0, idLength + dataLength);
+            if ((int) crc.getValue() != body.getInt(idLength + dataLength)) {
+                break;
+            }
+            String id = new String(body.array(), 0, idLength, StandardCharsets.UTF_8);
+            entries.add(new HintEntry(type, id, pos, dataLength));
+            pos = recordEnd;
+        }
+        if (pos < seg.size) {
+            System.err.println("[PackedStore] Truncating torn tail of " + seg.file.getFileName() + " at " + pos);
+            seg.channel.truncate(pos);
+            seg.size = pos;
+        }
+        return entries;
+    }
+
+    private void apply(byte type, String id, Location loc) {
+        if (type == PUT) {
+            index.put(id, loc);
+        } else {
+            index.remove(id);
+        }
+    }
+
+    // ---------------------------
+    // CiphertextStore
+    // ---------------------------
+
+    @Override
+    public void put(String credentialId, byte[] ciphertext) throws IOException {
+        FileChannel written;
+        lock.writeLock().lock();
+        try {
+            Location loc = append(PUT, credentialId, ciphertext);
+            Location old = index.put(credentialId, loc);
+            if (old != null) {
+                segments.get(old.segment).liveBytes -= old.recordBytes();
+            }
+            active.liveBytes += loc.recordBytes();
+            written = active.channel;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // Group-committed fsync, shared with concurrent writers (outside the lock)
+        DurableWriter.force(written);
+    }
+
+    @Override
+    public byte[] get(String credentialId) throws IOException {
+        lock.readLock().lock();
+        try {
+            Location loc = index.get(credentialId);
+            if (loc == null) {
+                return null;
+            }
+            ByteBuffer buf = ByteBuffer.allocate(loc.dataLength);
+            readFully(segments.get(loc.segment).channel, buf, loc.dataOffset());
+            return buf.array();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public BufferPool.Lease read(String credentialId) throws IOException {
+        lock.readLock().lock();
+        try {
+            Location loc = index.get(credentialId);
+            if (loc == null) {
+                return null;
+            }
+            BufferPool.Lease lease = BufferPool.acquire(loc.dataLength);
+            try {
+                readFully(segments.get(loc.segment).channel, lease.buffer(), loc.dataOffset());
+                lease.buffer().flip();
+                return lease;
+            } catch (IOException | RuntimeException e) {
+                lease.close();
+                throw e;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean delete(String credentialId) throws IOException {
+        FileChannel written;
+        lock.writeLock().lock();
+        try {
+            Location old = index.remove(credentialId);
+            if (old == null) {
+                return false;
+            }
+            segments.get(old.segment).liveBytes -= old.recordBytes();
+            append(DELETE, credentialId, new byte[0]);
+            written = active.channel;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        DurableWriter.force(written);
+        return true;
+    }
+
+    @Override
+    public boolean contains(String credentialId) {
+        lock.readLock().lock();
+        try {
+            return index.containsKey(credentialId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stored ciphertext length, or -1 when the id is not in the store.
+     */
+    public int sizeOf(String credentialId) {
+        lock.readLock().lock();
+        try {
+            Location loc = index.get(credentialId);
+            return loc == null ? -1 : loc.dataLength;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<String> ids() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(index.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Flush the active segment and its hint to disk.
+     */
+    public void sync() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (active != null) {
+                active.hint.flush();
+                active.channel.force(false);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Caller holds the write lock
+    private Location append(byte type, String id, byte[] data) throws IOException {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        int recordBytes = HEADER_BYTES + idBytes.length + data.length + TRAILER_BYTES;
+        if (active == null || (active.size > 0 && active.size + recordBytes > segmentBytes)) {
+            roll();
+        }
+        ByteBuffer buf = ByteBuffer.allocate(recordBytes);
+        buf.putInt(MAGIC).put(type).putShort((short) idBytes.length).putInt(data.length).put(idBytes).put(data);
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(idBytes);
+        crc.update(data);
+        buf.putInt((int) crc.getValue());
+        buf.flip();
+
+        long offset = active.size;
+        while (buf.hasRemaining()) {
+            active.channel.write(buf, offset + buf.position());
+        }
+        active.size += recordBytes;
+
+        writeHint(active, type, idBytes, offset, data.length);
+        return new Location(active.number, offset, idBytes.length, data.length);
+    }
+
+    private void roll() throws IOException {
+        int next = 1;
+        if (active != null) {
+            seal(active);
+            next = active.number + 1;
+        } else if (!segments.isEmpty()) {
+            next = segments.lastKey() + 1;
+        }
+        Segment seg = new Segment(next);
+        seg.channel = FileChannel.open(seg.file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        openHint(seg);
+        segments.put(seg.number, seg);
+        active = seg;
+    }
+
+    private void openHint(Segment seg) throws IOException {
+        Path tmp = seg.hintFile.resolveSibling(seg.hintFile.getFileName() + ".tmp");
+        seg.hintCrc = new CRC32();
+        seg.hintEntries = 0;
+        seg.hint = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING), 64 * 1024), seg.hintCrc));
+    }
+
+    private static void writeHint(Segment seg, byte type, byte[] idBytes, long offset, int dataLength)
+            throws IOException {
+        writeHintEntry(seg.hint, type, idBytes, offset, dataLength);
+        seg.hintEntries++;
+    }
+
+    private static void writeHintEntry(DataOutputStream out, byte type, byte[] idBytes, long offset, int dataLength)
+            throws IOException {
+        out.writeByte(type);
+        out.writeShort(idBytes.length);
+        out.write(idBytes);
+        out.writeLong(offset);
+        out.writeInt(dataLength);
+    }
+
+    private static void writeHintTrailer(DataOutputStream out, CRC32 crc, int entries, long segmentSize)
+            throws IOException {
+        out.writeByte(HINT_END);
+        out.writeInt(entries);
+        out.writeLong(segmentSize);
+        out.writeInt((int) crc.getValue()); // value before these four bytes are added
+    }
+
+    /**
+     * Seal the active segment: fsync it, then publish its hint with a trailer
+     * through {@link DurableWriter} (fsynced file, atomic rename, fsynced
+     * directory), so a hint that exists after a crash is complete.
+     */
+    private void seal(Segment seg) throws IOException {
+        seg.channel.force(false);
+        writeHintTrailer(seg.hint, seg.hintCrc, seg.hintEntries, seg.size);
+        seg.hint.close();
+        seg.hint = null;
+        Path tmp = seg.hintFile.resolveSibling(seg.hintFile.getFileName() + ".tmp");
+        DurableWriter.write(seg.hintFile, Files.readAllBytes(tmp));
+        Files.delete(tmp);
+    }
+
+    /**
+     * Durably write a sealed segment's hint from scanned entries.
+     */
+    private static void writeHintFile(Segment seg, List<HintEntry> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CRC32 crc = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(bytes, crc))) {
+            for (HintEntry h : entries) {
+                writeHintEntry(out, h.type, h.id.getBytes(StandardCharsets.UTF_8), h.offset, h.dataLength);
+            }
+            writeHintTrailer(out, crc, entries.size(), seg.size);
+        }
+        DurableWriter.write(seg.hintFile, bytes.toByteArray());
+    }
+
+    // ---------------------------
+    // Compaction
+    // ---------------------------
+
+    /**
+     * Rewrite sealed segments whose dead fraction exceeds the threshold.
+     *
+     * @return number of segments reclaimed
+     */
+    public int compact() throws IOException {
+        List<Segment> candidates = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Segment seg : segments.values()) {
+                if (seg != active && seg.sealed() && seg.size > 0
+                        && 1.0 - (double) seg.liveBytes / seg.size >= compactThreshold) {
+                    candidates.add(seg);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        int reclaimed = 0;
+        for (Segment seg : candidates) {
+            compactSegment(seg);
+            reclaimed++;
+        }
+        return reclaimed;
+    }
+
+    private void compactSegment(Segment seg) throws IOException {
+        // Snapshot live entries of this segment (plus tombstones an older segment may still need)
+        List<Map.Entry<String, Location>> live = new ArrayList<>();
+        boolean olderExists;
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<String, Location> e : index.entrySet()) {
+                if (e.getValue().segment == seg.number) {
+                    live.add(Map.entry(e.getKey(), e.getValue()));
+                }
+            }
+            olderExists = segments.firstKey() < seg.number;
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<String> tombstones = olderExists ? readTombstones(seg) : List.of();
+
+        for (Map.Entry<String, Location> e : live) {
+            Location loc = e.getValue();
+            ByteBuffer buf = ByteBuffer.allocate(loc.dataLength);
+            readFully(seg.channel, buf, loc.dataOffset());
+            lock.writeLock().lock();
+            try {
+                // Skip if overwritten or deleted since the snapshot
+                if (index.get(e.getKey()) == loc) {
+                    Location moved = append(PUT, e.getKey(), buf.array());
+                    index.put(e.getKey(), moved);
+                    seg.liveBytes -= loc.recordBytes();
+                    active.liveBytes += moved.recordBytes();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (String id : tombstones) {
+                if (!index.containsKey(id)) {
+                    append(DELETE, id, new byte[0]);
+                }
+            }
+            // Copies must be durable before the original segment disappears
+            active.hint.flush();
+            active.channel.force(false);
+            segments.remove(seg.number);
+            seg.channel.close();
+            Files.deleteIfExists(seg.file);
+            Files.deleteIfExists(seg.hintFile);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<String> readTombstones(Segment seg) throws IOException {
+        // Sealed segments always have a valid hint once loaded or sealed
+        List<HintEntry> entries = readHint(seg);
+        if (entries == null) {
+            throw new IOException("Hint of " + seg.file.getFileName() + " is unreadable; not compacting it");
+        }
+        List<String> ids = new ArrayList<>();
+        for (HintEntry h : entries) {
+            if (h.type == DELETE) {
+                ids.add(h.id);
+            }
+        }
+        return ids;
+    }
+
+    // ---------------------------
+    // Stats / lifecycle
+    // ---------------------------
+
+    /**
+     * {entries, segments, bytes on disk, live bytes}.
+     */
+    public long[] stats() {
+        lock.readLock().lock();
+        try {
+            long size = 0;
+            long live = 0;
+            for (Segment seg : segments.values()) {
+                size += seg.size;
+                live += seg.liveBytes;
+            }
+            return new long[] { index.size(), segments.size(), size, live };
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Seal and close the shared store if it was opened (shutdown hook).
+     */
+    public static synchronized void closeIfOpen() {
+        if (shared != null) {
+            try {
+                shared.close();
+            } catch (IOException e) {
+                System.err.println("[PackedStore] Failed to close: " + e.getMessage());
+            }
+            shared = null;
+        }
+    }
+
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (active != null) {
+                seal(active);
+                active = null;
+            }
+            for (Segment seg : segments.values()) {
+                seg.channel.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ---------------------------
+    // Helpers
+    // ---------------------------
+
+    private static String readId(DataInputStream in) throws IOException {
+        byte[] id = new byte[in.readShort() & 0xFFFF];
+        in.readFully(id);
+        return new String(id, StandardCharsets.UTF_8);
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        long pos = position;
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, pos);
+            if (n < 0) {
+                throw new EOFException("Unexpected end of segment");
+            }
+            pos += n;
+        }
+    }
+}
@@ -4,8 +4,6 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Arrays;
-import java.util.HashSet;
 import java.util.Set;
 
 /**
@@ -23,13 +21,11 @@ public class PathValidator {
     private static final Set<String> BLACKLISTED_EXTENSIONS;
 
     static {
-        // Load from config
-        MAX_FILE_SIZE = Long.parseLong(Config.get("vault.maxFileSize", "10485760")); // 10MB default
-        BASE_PATH = Paths.get(Config.get("vault.basePath", "./vault_data")).toAbsolutePath().normalize();
-
-        String blacklistStr = Config.get("vault.blacklist.extensions",
-                ".mp4,.avi,.mov,.mkv,.flv,.wmv,.webm,.gif,.m4v,.mpg,.mpeg,.3gp,.ogv");
-        BLACKLISTED_EXTENSIONS = new HashSet<>(Arrays.asList(blacklistStr.toLowerCase().split(",")));
+        // Load from config (parsed once by the snapshot)
+        Config.Snapshot config = Config.snapshot();
+        MAX_FILE_SIZE = config.maxFileSize;
+        BASE_PATH = config.basePath;
+        BLACKLISTED_EXTENSIONS = config.blacklistedExtensions;
     }
 
     public static class ValidationResult {
@@ -0,0 +1,700 @@
+package com.vaultify.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.vaultify.crypto.AESEngine;
+import com.vaultify.threading.ThreadManager;
+
+/**
+ * Streaming reconciliation of credential metadata (DB) against the stored
+ * ciphertexts (sharded/flat files and packed segments) and, optionally, the
+ * ledger.
+ *
+ * Both sides are read in credential-id order and merge-joined, so memory is
+ * bounded by one storage shard rather than the size of the vault:
+ * - DB rows come from a server-side cursor ordered by filepath
+ * (reconcile.fetchSize rows per round trip)
+ * - storage is walked one top-level shard at a time, with the next shards
+ * listed ahead on the I/O executor; legacy flat-layout files are bucketed by
+ * the same two-character prefix and spill to temp files past
+ * reconcile.spillThreshold names
+ * - packed ids come from the (already in-memory) packed index, sorted once
+ * - ledger ids are sorted once into an array and merged against the DB rows;
+ * the ledger API returns every block in one response, so this side is held
+ * in memory (one reference per id) and grows with the ledger, not the vault
+ *
+ * With hash verification every matched ciphertext is re-hashed on the CPU
+ * executor and compared with credential_hash, with at most
+ * reconcile.maxInFlight hashes outstanding. Each drift item is written as one
+ * JSON object per line to the report file, followed by a SUMMARY line.
+ */
+public final class ReconcileEngine {
+    private static final int FETCH_SIZE = Math.max(100, Config.getInt("reconcile.fetchSize", 5000));
+    private static final int SPILL_THRESHOLD = Math.max(1000, Config.getInt("reconcile.spillThreshold", 200000));
+    private static final int PREFETCH_SHARDS = 4;
+    private static final int SAMPLE_LIMIT = 200;
+    private static final int GCM_TAG_BYTES = AESEngine.GCM_TAG_BITS / 8;
+    private static final Gson GSON = new Gson();
+
+    private static final String SELECT = "SELECT id, user_id, filename, filepath, file_size, credential_hash, "
+            + "storage_format, compression FROM credentials ORDER BY filepath COLLATE \"C\"";
+
+    private ReconcileEngine() {
+    }
+
+    public enum Drift {
+        MISSING_FILE, // DB row without a stored ciphertext
+        ORPHAN_FILE, // stored ciphertext without a DB row
+        ORPHAN_REFS, // dedup .refs sidecar without a DB row or ciphertext
+        MISSING_REFS, // dedup-format row without its .refs sidecar
+        DUPLICATE_FILE, // ciphertext present in both layouts (interrupted migration)
+        SIZE_MISMATCH, // stored size differs from what the DB row implies
+        HASH_MISMATCH, // SHA-256 of the ciphertext differs from credential_hash
+        UNREADABLE, // stored ciphertext could not be read
+        LEDGER_ONLY // referenced by the ledger but unknown to the DB
+    }
+
+    /**
+     * Outcome of {@link #run}: totals, per-kind counts and the first few items
+     * of each kind for display. The full list is in {@link #file}.
+     */
+    public static final class Report {
+        public final Path file;
+        public final long dbRows;
+        public final long storedIds;
+        public final long hashed;
+        public final long elapsedMs;
+        public final Map<Drift, Long> counts;
+        public final Map<Drift, List<String>> samples;
+
+        Report(Path file, long dbRows, long storedIds, long hashed, long elapsedMs, Map<Drift, Long> counts,
+                Map<Drift, List<String>> samples) {
+            this.file = file;
+            this.dbRows = dbRows;
+            this.storedIds = storedIds;
+            this.hashed = hashed;
+            this.elapsedMs = elapsedMs;
+            this.counts = counts;
+            this.samples = samples;
+        }
+
+        public long count(Drift kind) {
+            return counts.getOrDefault(kind, 0L);
+        }
+
+        public long total() {
+            return counts.values().stream().mapToLong(Long::longValue).sum();
+        }
+    }
+
+    /**
+     * Reconcile the credentials table behind conn against storage.
+     *
+     * @param ledgerIds    credential-like ids referenced by the ledger, or null
+     *                     to skip the ledger check
+     * @param verifyHashes re-hash every matched ciphertext (reads all data)
+     */
+    public static Report run(Connection conn, Set<String> ledgerIds, boolean verifyHashes)
+            throws IOException, SQLException {
+        Path dir = Paths.get(Config.get("reconcile.reportDir", "./vault_data/reports/"));
+        Files.createDirectories(dir);
+        Path file = dir.resolve("drift-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".jsonl");
+        long start = System.nanoTime();
+
+        try (Sink sink = new Sink(file);
+                DbCursor db = new DbCursor(conn);
+                StorageCursor storage = new StorageCursor(StorageLayout.root(), CiphertextStores.packedIfPresent())) {
+            String[] ledger = ledgerIds != null ? ledgerIds.toArray(new String[0]) : new String[0];
+            Arrays.sort(ledger);
+            int ledgerNext = 0;
+            Hasher hasher = verifyHashes ? new Hasher(sink, storage.packed) : null;
+            long dbRows = 0;
+            long storedIds = 0;
+
+            DbRow d = db.next();
+            StoredEntry s = storage.next();
+            try {
+                while (d != null || s != null) {
+                    int cmp = d == null ? 1 : s == null ? -1 : d.credentialId.compareTo(s.credentialId);
+                    if (cmp <= 0) {
+                        dbRows++;
+                        ledgerNext = ledgerOnly(sink, ledger, ledgerNext, d.credentialId);
+                    }
+                    if (cmp >= 0) {
+                        storedIds++;
+                    }
+                    if (cmp < 0) {
+                        sink.record(Drift.MISSING_FILE, d.credentialId, d, null, "expected file for " + d.filename);
+                        d = db.next();
+                    } else if (cmp > 0) {
+                        orphan(sink, s);
+                        s = storage.next();
+                    } else {
+                        matched(sink, hasher, d, s);
+                        d = db.next();
+                        s = storage.next();
+                    }
+                }
+            } finally {
+                if (hasher != null) {
+                    hasher.awaitAll();
+                }
+            }
+
+            ledgerOnly(sink, ledger, ledgerNext, null);
+
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            long hashed = hasher != null ? hasher.hashed.get() : 0;
+            sink.summary(dbRows, storedIds, hashed, elapsedMs);
+            return new Report(file, dbRows, storedIds, hashed, elapsedMs, sink.counts, sink.samples);
+        }
+    }
+
+    /**
+     * Record the sorted ledger ids from next up to dbId (all remaining when
+     * null) as LEDGER_ONLY, except dbId itself.
+     *
+     * @return index of the first ledger id after dbId
+     */
+    private static int ledgerOnly(Sink sink, String[] ledger, int next, String dbId) throws IOException {
+        while (next < ledger.length && (dbId == null || ledger[next].compareTo(dbId) <= 0)) {
+            if (!ledger[next].equals(dbId)) {
+                sink.record(Drift.LEDGER_ONLY, ledger[next], null, null, "not in DB");
+            }
+            next++;
+        }
+        return next;
+    }
+
+    private static void orphan(Sink sink, StoredEntry s) throws IOException {
+        if (s.hasCiphertext()) {
+            sink.record(Drift.ORPHAN_FILE, s.credentialId, null, s.location(), "no DB row");
+        } else {
+            sink.record(Drift.ORPHAN_REFS, s.credentialId, null, s.refs, "no DB row or ciphertext");
+        }
+    }
+
+    private static void matched(Sink sink, Hasher hasher, DbRow d, StoredEntry s) throws IOException {
+        if (!s.hasCiphertext()) {
+            sink.record(Drift.MISSING_FILE, d.credentialId, d, s.refs, "only the .refs sidecar is present");
+            return;
+        }
+        if (s.binCount > 1) {
+            sink.record(Drift.DUPLICATE_FILE, d.credentialId, d, s.bin, s.binCount + " copies (flat and sharded)");
+        }
+        if (ChunkStore.FORMAT.equals(d.storageFormat) && s.refs == null) {
+            sink.record(Drift.MISSING_REFS, d.credentialId, d, s.location(), "dedup manifest without .refs");
+        }
+        // Only plain, uncompressed payloads have a predictable ciphertext size
+        boolean plain = d.storageFormat == null || CredentialFileManager.FORMAT_PLAIN.equals(d.storageFormat);
+        boolean uncompressed = d.compression == null || CompressionCodec.NONE.equals(d.compression);
+        long actual = s.ciphertextSize();
+        if (plain && uncompressed && actual != d.fileSize + GCM_TAG_BYTES) {
+            sink.record(Drift.SIZE_MISMATCH, d.credentialId, d, s.location(),
+                    "DB " + d.fileSize + " (+" + GCM_TAG_BYTES + " tag) vs stored " + actual);
+        }
+        if (hasher != null && d.credentialHash != null && !d.credentialHash.isBlank()) {
+            hasher.submit(d, s);
+        }
+    }
+
+    // ---------------------------
+    // DB side
+    // ---------------------------
+
+    private static final class DbRow {
+        final String credentialId;
+        final long id;
+        final long userId;
+        final String filename;
+        final long fileSize;
+        final String credentialHash;
+        final String storageFormat;
+        final String compression;
+
+        DbRow(ResultSet rs) throws SQLException {
+            String path = rs.getString("filepath");
+            String name = path.substring(Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\')) + 1);
+            this.credentialId = name.endsWith(".bin") ? name.substring(0, name.length() - 4) : name;
+            this.id = rs.getLong("id");
+            this.userId = rs.getLong("user_id");
+            this.filename = rs.getString("filename");
+            this.fileSize = rs.getLong("file_size");
+            this.credentialHash = rs.getString("credential_hash");
+            this.storageFormat = rs.getString("storage_format");
+            this.compression = rs.getString("compression");
+        }
+    }
+
+    /**
+     * Forward-only cursor over credentials in credential-id order. PostgreSQL
+     * only honours the fetch size inside a transaction, so auto-commit is
+     * switched off for the duration and restored on close.
+     */
+    private static final class DbCursor implements AutoCloseable {
+        private final Connection conn;
+        private final boolean autoCommit;
+        private final PreparedStatement ps;
+        private final ResultSet rs;
+        private String last;
+
+        DbCursor(Connection conn) throws SQLException {
+            this.conn = conn;
+            this.autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            this.ps = conn.prepareStatement(SELECT, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            this.rs = ps.executeQuery();
+        }
+
+        DbRow next() throws SQLException {
+            if (!rs.next()) {
+                return null;
+            }
+            DbRow row = new DbRow(rs);
+            // Every filepath shares one prefix, so this only trips on hand-edited rows
+            if (last != null && row.credentialId.compareTo(last) < 0) {
+                throw new SQLException("credentials not in credential-id order at " + row.credentialId);
+            }
+            last = row.credentialId;
+            return row;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                rs.close();
+                ps.close();
+                conn.rollback(); // read-only
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    // ---------------------------
+    // Storage side
+    // ---------------------------
+
+    /**
+     * Everything stored under one credential id.
+     */
+    private static final class StoredEntry {
+        final String credentialId;
+        Path bin;
+        long binSize;
+        int binCount;
+        Path refs;
+        int packedSize = -1;
+
+        StoredEntry(String credentialId) {
+            this.credentialId = credentialId;
+        }
+
+        boolean hasCiphertext() {
+            return bin != null || packedSize >= 0;
+        }
+
+        /**
+         * Size of the ciphertext reads would return (packed wins, as in
+         * CiphertextStores).
+         */
+        long ciphertextSize() {
+            return packedSize >= 0 ? packedSize : binSize;
+        }
+
+        Path location() {
+            return packedSize >= 0 || bin == null ? null : bin;
+        }
+    }
+
+    private static String prefix(String name) {
+        return name.length() <= 2 ? name : name.substring(0, 2);
+    }
+
+    /**
+     * Yields stored entries in credential-id order, one two-character prefix
+     * partition at a time.
+     */
+    private static final class StorageCursor implements AutoCloseable {
+        final PackedSegmentStore packed;
+        private final Map<String, Path> shardDirs = new HashMap<>();
+        private final FlatBuckets flat;
+        private final List<String> partitions;
+        private final String[] packedIds;
+        private final ArrayDeque<Future<List<StorageLayout.StoredFile>>> ahead = new ArrayDeque<>();
+        private int nextPartition;
+        private int nextPrefetch;
+        private int packedPos;
+        private Iterator<StoredEntry> current = Collections.emptyIterator();
+
+        StorageCursor(Path root, PackedSegmentStore packed) throws IOException {
+            this.packed = packed;
+            this.flat = new FlatBuckets(root);
+            TreeSet<String> prefixes = new TreeSet<>();
+            if (Files.isDirectory(root)) {
+                try (DirectoryStream<Path> ds = Files.newDirectoryStream(root)) {
+                    for (Path p : ds) {
+                        if (StorageLayout.isTemp(p)) {
+                            continue;
+                        }
+                        BasicFileAttributes attrs = Files.readAttributes(p, BasicFileAttributes.class);
+                        String name = p.getFileName().toString();
+                        if (attrs.isRegularFile()) {
+                            flat.add(name, attrs.size());
+                            prefixes.add(prefix(name));
+                        } else if (attrs.isDirectory() && name.length() == 2) {
+                            shardDirs.put(name, p);
+                            prefixes.add(name);
+                        }
+                    }
+                }
+            }
+            if (packed != null) {
+                List<String> ids = packed.ids();
+                packedIds = ids.toArray(new String[0]);
+                Arrays.sort(packedIds);
+                for (String id : packedIds) {
+                    prefixes.add(prefix(id));
+                }
+            } else {
+                packedIds = new String[0];
+            }
+            this.partitions = new ArrayList<>(prefixes);
+        }
+
+        StoredEntry next() throws IOException {
+            while (!current.hasNext()) {
+                if (nextPartition >= partitions.size()) {
+                    return null;
+                }
+                current = loadPartition(partitions.get(nextPartition++)).values().iterator();
+            }
+            return current.next();
+        }
+
+        private TreeMap<String, StoredEntry> loadPartition(String prefix) throws IOException {
+            // Keep the next few shard listings in flight on the I/O executor
+            while (nextPrefetch < partitions.size() && ahead.size() <= PREFETCH_SHARDS) {
+                Path shard = shardDirs.get(partitions.get(nextPrefetch++));
+                ahead.add(shard == null ? null : ThreadManager.submit(() -> StorageLayout.scanShard(shard)));
+            }
+            TreeMap<String, StoredEntry> entries = new TreeMap<>();
+            Future<List<StorageLayout.StoredFile>> listing = ahead.poll();
+            if (listing != null) {
+                for (StorageLayout.StoredFile f : await(listing)) {
+                    addFile(entries, f);
+                }
+            }
+            for (StorageLayout.StoredFile f : flat.take(prefix)) {
+                addFile(entries, f);
+            }
+            while (packedPos < packedIds.length && prefix(packedIds[packedPos]).equals(prefix)) {
+                String id = packedIds[packedPos++];
+                int size = packed.sizeOf(id);
+                if (size >= 0) { // not deleted since the id snapshot
+                    entries.computeIfAbsent(id, StoredEntry::new).packedSize = size;
+                }
+            }
+            return entries;
+        }
+
+        private static void addFile(TreeMap<String, StoredEntry> entries, StorageLayout.StoredFile f) {
+            StoredEntry e = entries.computeIfAbsent(f.credentialId, StoredEntry::new);
+            if (f.name.endsWith(".refs")) {
+                e.refs = f.path;
+            } else {
+                e.bin = f.path;
+                e.binSize = f.size;
+                e.binCount++;
+            }
+        }
+
+        private static List<StorageLayout.StoredFile> await(Future<List<StorageLayout.StoredFile>> f)
+                throws IOException {
+            try {
+                return f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Storage scan interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Storage scan failed: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (Future<?> f : ahead) {
+                if (f != null) {
+                    f.cancel(true);
+                }
+            }
+            flat.close();
+        }
+    }
+
+    /**
+     * Flat-layout file names grouped by prefix. Past SPILL_THRESHOLD names
+     * the buckets are appended to temp files, so a large un-migrated store
+     * costs one bucket of memory at a time.
+     */
+    private static final class FlatBuckets implements AutoCloseable {
+        private final Path root;
+        private final Map<String, List<StorageLayout.StoredFile>> memory = new HashMap<>();
+        private final Set<String> spilled = new HashSet<>();
+        private Path spillDir;
+        private int held;
+
+        FlatBuckets(Path root) {
+            this.root = root;
+        }
+
+        void add(String name, long size) throws IOException {
+            memory.computeIfAbsent(prefix(name), k -> new ArrayList<>())
+                    .add(new StorageLayout.StoredFile(root.resolve(name), size));
+            if (++held >= SPILL_THRESHOLD) {
+                spill();
+            }
+        }
+
+        List<StorageLayout.StoredFile> take(String prefix) throws IOException {
+            List<StorageLayout.StoredFile> out = memory.remove(prefix);
+            if (out == null) {
+                out = new ArrayList<>();
+            }
+            if (spilled.remove(prefix)) {
+                Path bucket = bucketFile(prefix);
+                for (String line : Files.readAllLines(bucket, StandardCharsets.UTF_8)) {
+                    int tab = line.lastIndexOf('\t');
+                    out.add(new StorageLayout.StoredFile(root.resolve(line.substring(0, tab)),
+                            Long.parseLong(line.substring(tab + 1))));
+                }
+                Files.delete(bucket);
+            }
+            return out;
+        }
+
+        private void spill() throws IOException {
+            if (spillDir == null) {
+                spillDir = Files.createTempDirectory("vaultify-reconcile-");
+            }
+            for (Map.Entry<String, List<StorageLayout.StoredFile>> e : memory.entrySet()) {
+                try (BufferedWriter w = Files.newBufferedWriter(bucketFile(e.getKey()), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    for (StorageLayout.StoredFile f : e.getValue()) {
+                        w.write(f.name + "\t" + f.size + "\n");
+                    }
+                }
+                spilled.add(e.getKey());
+            }
+            memory.clear();
+            held = 0;
+        }
+
+        private Path bucketFile(String prefix) {
+            return spillDir.resolve(HexFormat.of().formatHex(prefix.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (spillDir == null) {
+                return;
+            }
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(spillDir)) {
+                for (Path p : ds) {
+                    Files.deleteIfExists(p);
+                }
+            }
+            Files.deleteIfExists(spillDir);
+        }
+    }
+
+    // ---------------------------
+    // Hash verification
+    // ---------------------------
+
+    /**
+     * Fans ciphertext hashing out over the CPU executor with a bounded number
+     * of tasks in flight (each holds at most one buffer).
+     */
+    private static final class Hasher {
+        private final Sink sink;
+        private final PackedSegmentStore packed;
+        private final int maxInFlight;
+        private final Semaphore permits;
+        final AtomicLong hashed = new AtomicLong();
+
+        Hasher(Sink sink, PackedSegmentStore packed) {
+            this.sink = sink;
+            this.packed = packed;
+            int configured = Config.getInt("reconcile.maxInFlight", 0);
+            this.maxInFlight = configured > 0 ? configured : 4 * Runtime.getRuntime().availableProcessors();
+            this.permits = new Semaphore(maxInFlight);
+        }
+
+        void submit(DbRow d, StoredEntry s) throws IOException {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Reconcile interrupted", e);
+            }
+            ThreadManager.submitCpu(() -> {
+                try {
+                    String actual = s.packedSize >= 0 ? sha256(packed.get(d.credentialId)) : sha256(s.bin);
+                    if (!actual.equalsIgnoreCase(d.credentialHash)) {
+                        sink.record(Drift.HASH_MISMATCH, d.credentialId, d, s.location(),
+                                "expected " + d.credentialHash + ", got " + actual);
+                    }
+                } catch (IOException e) {
+                    sink.record(Drift.UNREADABLE, d.credentialId, d, s.location(), e.getMessage());
+                } finally {
+                    hashed.incrementAndGet();
+                    permits.release();
+                }
+                return null;
+            });
+        }
+
+        void awaitAll() throws IOException {
+            try {
+                permits.acquire(maxInFlight);
+                permits.release(maxInFlight);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Reconcile interrupted", e);
+            }
+        }
+
+        private static String sha256(byte[] data) throws IOException {
+            if (data == null) {
+                throw new IOException("deleted during reconcile");
+            }
+            MessageDigest md = digest();
+            md.update(data);
+            return HexFormat.of().formatHex(md.digest());
+        }
+
+        private static String sha256(Path file) throws IOException {
+            MessageDigest md = digest();
+            ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                while (ch.read(buf) >= 0) {
+                    buf.flip();
+                    md.update(buf);
+                    buf.clear();
+                }
+            }
+            return HexFormat.of().formatHex(md.digest());
+        }
+
+        private static MessageDigest digest() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    // ---------------------------
+    // Report output
+    // ---------------------------
+
+    /**
+     * Thread-safe JSON-lines writer plus per-kind counts and samples.
+     */
+    private static final class Sink implements AutoCloseable {
+        final Map<Drift, Long> counts = new EnumMap<>(Drift.class);
+        final Map<Drift, List<String>> samples = new EnumMap<>(Drift.class);
+        private final BufferedWriter out;
+
+        Sink(Path file) throws IOException {
+            this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        }
+
+        synchronized void record(Drift kind, String credentialId, DbRow d, Path path, String detail)
+                throws IOException {
+            counts.merge(kind, 1L, Long::sum);
+            List<String> list = samples.computeIfAbsent(kind, k -> new ArrayList<>());
+            if (list.size() < SAMPLE_LIMIT) {
+                list.add(credentialId + (detail != null ? " (" + detail + ")" : ""));
+            }
+            JsonObject o = new JsonObject();
+            o.addProperty("type", kind.name());
+            o.addProperty("credentialId", credentialId);
+            if (d != null) {
+                o.addProperty("dbId", d.id);
+                o.addProperty("userId", d.userId);
+                o.addProperty("filename", d.filename);
+            }
+            if (path != null) {
+                o.addProperty("path", path.toAbsolutePath().toString());
+            }
+            if (detail != null) {
+                o.addProperty("detail", detail);
+            }
+            out.write(GSON.toJson(o));
+            out.newLine();
+        }
+
+        synchronized void summary(long dbRows, long storedIds, long hashed, long elapsedMs) throws IOException {
+            JsonObject o = new JsonObject();
+            o.addProperty("type", "SUMMARY");
+            o.addProperty("dbRows", dbRows);
+            o.addProperty("storedIds", storedIds);
+            o.addProperty("hashed", hashed);
+            o.addProperty("elapsedMs", elapsedMs);
+            JsonObject c = new JsonObject();
+            for (Drift kind : Drift.values()) {
+                c.addProperty(kind.name(), counts.getOrDefault(kind, 0L));
+            }
+            o.add("counts", c);
+            out.write(GSON.toJson(o));
+            out.newLine();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.vaultify.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Per-phase startup timings.
+ *
+ * VaultifyApplication wraps each startup step in {@link #phase}; the CLI
+ * calls {@link #ready()} right before the first prompt, so time-to-prompt is
+ * the headline number. With startup.timings=true (or --timings) the
+ * breakdown is printed at the prompt, including JVM boot time before main
+ * (read from the runtime MXBean only then, since loading it costs a few ms).
+ */
+public final class StartupTimer {
+    private static final long MAIN_NANOS = System.nanoTime();
+    private static final List<String> PHASES = new ArrayList<>();
+    private static volatile long mainToPromptMs = -1;
+    private static volatile long timeToPromptMs = -1;
+    private static volatile boolean print;
+
+    private StartupTimer() {
+    }
+
+    /**
+     * Start the clock; call first thing in main.
+     */
+    public static void start() {
+        // Class initialisation captured MAIN_NANOS
+    }
+
+    /**
+     * Print the breakdown when the prompt is reached.
+     */
+    public static void printAtPrompt() {
+        print = true;
+    }
+
+    public static void phase(String name, Runnable step) {
+        long t0 = System.nanoTime();
+        try {
+            step.run();
+        } finally {
+            record(name, t0);
+        }
+    }
+
+    public static <T> T phase(String name, Supplier<T> step) {
+        long t0 = System.nanoTime();
+        try {
+            return step.get();
+        } finally {
+            record(name, t0);
+        }
+    }
+
+    /**
+     * Mark the prompt as shown; only the first call counts.
+     */
+    public static void ready() {
+        if (mainToPromptMs >= 0) {
+            return;
+        }
+        mainToPromptMs = (System.nanoTime() - MAIN_NANOS) / 1_000_000;
+        if (print) {
+            timeToPromptMs = ManagementFactory.getRuntimeMXBean().getUptime();
+            System.out.println("[Startup] " + summary());
+        }
+    }
+
+    /**
+     * Milliseconds from JVM start (when known, else from main) to the first
+     * prompt; -1 before the prompt.
+     */
+    public static long timeToPromptMs() {
+        return timeToPromptMs >= 0 ? timeToPromptMs : mainToPromptMs;
+    }
+
+    public static String summary() {
+        StringBuilder sb = new StringBuilder();
+        if (timeToPromptMs >= 0) {
+            sb.append("jvm ").append(Math.max(0, timeToPromptMs - mainToPromptMs)).append(" ms | ");
+        }
+        synchronized (PHASES) {
+            sb.append(String.join(" | ", PHASES));
+        }
+        if (mainToPromptMs >= 0) {
+            sb.append(" | main-to-prompt ").append(mainToPromptMs).append(" ms");
+        }
+        if (timeToPromptMs >= 0) {
+            sb.append(" | time-to-prompt ").append(timeToPromptMs).append(" ms");
+        }
+        return sb.toString();
+    }
+
+    private static void record(String name, long t0) {
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+        synchronized (PHASES) {
+            PHASES.add(name + " " + ms + " ms");
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.vaultify.util;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import com.vaultify.threading.ThreadManager;
+
+/**
+ * Resolves where credential files live under vault.storage.
+ *
+ * Layouts (vault.storage.layout):
+ * - sharded (default): two levels of hex prefixes from the credential UUID,
+ * e.g. 3f/a2/3fa2...-....bin, so no directory grows past a few hundred
+ * entries
+ * - flat: legacy single directory
+ *
+ * Reads always fall back to the other layout, so a store can be migrated
+ * online with {@link #migrateToSharded()} while the vault is in use. A file
+ * can still be moved between being located and being opened, so callers try
+ * each of {@link #candidates} in turn rather than trusting one lookup.
+ */
+public final class StorageLayout {
+    private static final Path ROOT = Paths.get(Config.get("vault.storage", "./vault_data/credentials/"));
+    private static final boolean SHARDED = !"flat"
+            .equalsIgnoreCase(Config.get("vault.storage.layout", "sharded").trim());
+
+    private StorageLayout() {
+    }
+
+    public static Path root() {
+        return ROOT;
+    }
+
+    public static boolean isSharded() {
+        return SHARDED;
+    }
+
+    /**
+     * One stored file found by {@link #scan()}.
+     */
+    public static final class StoredFile {
+        public final String credentialId;
+        public final String name;
+        public final Path path;
+        public final long size;
+
+        StoredFile(Path path, long size) {
+            this.path = path;
+            this.name = path.getFileName().toString();
+            int dot = name.indexOf('.');
+            this.credentialId = dot > 0 ? name.substring(0, dot) : name;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Path new files for this credential are written to (parent directories
+     * are created).
+     */
+    public static Path pathForWrite(String credentialId, String suffix) throws IOException {
+        Path p = SHARDED ? shardedPath(credentialId, suffix) : flatPath(credentialId, suffix);
+        Files.createDirectories(p.getParent());
+        return p;
+    }
+
+    /**
+     * Existing location of a credential file in either layout, or the
+     * preferred location when it does not exist.
+     */
+    public static Path locate(String credentialId, String suffix) {
+        Path preferred = SHARDED ? shardedPath(credentialId, suffix) : flatPath(credentialId, suffix);
+        if (Files.exists(preferred)) {
+            return preferred;
+        }
+        Path other = SHARDED ? flatPath(credentialId, suffix) : shardedPath(credentialId, suffix);
+        if (Files.exists(other)) {
+            return other;
+        }
+        // A concurrent migration may have moved it between the two checks
+        return preferred;
+    }
+
+    /**
+     * {@link #locate} followed by the same file in the other layout. A
+     * migration only moves files flat to sharded, so when the located file has
+     * gone by the time it is opened, it is at the second path.
+     */
+    public static List<Path> candidates(String credentialId, String suffix) {
+        Path located = locate(credentialId, suffix);
+        Path flat = flatPath(credentialId, suffix);
+        Path sharded = shardedPath(credentialId, suffix);
+        if (flat.equals(sharded)) {
+            return List.of(located);
+        }
+        return List.of(located, located.equals(flat) ? sharded : flat);
+    }
+
+    static Path shardedPath(String credentialId, String suffix) {
+        String hex = credentialId.replace("-", "").toLowerCase();
+        if (hex.length() < 4) {
+            return flatPath(credentialId, suffix);
+        }
+        return ROOT.resolve(hex.substring(0, 2)).resolve(hex.substring(2, 4)).resolve(credentialId + suffix);
+    }
+
+    static Path flatPath(String credentialId, String suffix) {
+        return ROOT.resolve(credentialId + suffix);
+    }
+
+    // ---------------------------
+    // Scanning
+    // ---------------------------
+
+    /**
+     * List every stored file (both layouts). Top-level shard directories are
+     * walked in parallel on the I/O executor.
+     */
+    public static List<StoredFile> scan() throws IOException {
+        List<StoredFile> out = new ArrayList<>();
+        if (!Files.isDirectory(ROOT)) {
+            return out;
+        }
+        List<Future<List<StoredFile>>> shards = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(ROOT)) {
+            for (Path p : ds) {
+                if (isTemp(p)) {
+                    continue;
+                }
+                BasicFileAttributes attrs = Files.readAttributes(p, BasicFileAttributes.class);
+                if (attrs.isRegularFile()) {
+                    out.add(new StoredFile(p, attrs.size())); // flat-layout file
+                } else if (attrs.isDirectory()) {
+                    shards.add(ThreadManager.submit(() -> scanShard(p)));
+                }
+            }
+        }
+        for (Future<List<StoredFile>> shard : shards) {
+            try {
+                out.addAll(shard.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Storage scan interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Storage scan failed: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+        return out;
+    }
+
+    static List<StoredFile> scanShard(Path shard) throws IOException {
+        List<StoredFile> out = new ArrayList<>();
+        try (DirectoryStream<Path> level1 = Files.newDirectoryStream(shard)) {
+            for (Path sub : level1) {
+                if (!Files.isDirectory(sub)) {
+                    continue;
+                }
+                try (DirectoryStream<Path> level2 = Files.newDirectoryStream(sub)) {
+                    for (Path p : level2) {
+                        if (isTemp(p)) {
+                            continue;
+                        }
+                        BasicFileAttributes attrs = Files.readAttributes(p, BasicFileAttributes.class);
+                        if (attrs.isRegularFile()) {
+                            out.add(new StoredFile(p, attrs.size()));
+                        }
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Hidden files are in-progress atomic writes (see DurableWriter).
+     */
+    static boolean isTemp(Path p) {
+        return p.getFileName().toString().startsWith(".");
+    }
+
+    // ---------------------------
+    // Migration
+    // ---------------------------
+
+    /**
+     * Move flat-layout files into their shards. Safe to run while the vault
+     * is in use (reads fall back to the flat path) and to re-run after an
+     * interruption.
+     *
+     * @return {files moved, files skipped}
+     */
+    public static long[] migrateToSharded() throws IOException {
+        long moved = 0;
+        long skipped = 0;
+        if (!Files.isDirectory(ROOT)) {
+            return new long[] { 0, 0 };
+        }
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(ROOT)) {
+            for (Path p : ds) {
+                if (!Files.isRegularFile(p)) {
+                    continue;
+                }
+                String name = p.getFileName().toString();
+                int dot = name.indexOf('.');
+                if (dot <= 0) {
+                    skipped++;
+                    continue;
+                }
+                Path target = shardedPath(name.substring(0, dot), name.substring(dot));
+                if (target.equals(p) || Files.exists(target)) {
+                    skipped++;
+                    continue;
+                }
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(p, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(p, target);
+                }
+                moved++;
+            }
+        }
+        return new long[] { moved, skipped };
+    }
+}
@@ -38,35 +38,9 @@ public class CertificateVerifier {
             System.out.println("🔵 LAYER 1: Certificate Signature Validation");
             System.out.println("   Verifying RSA signature...");
 
-            // Reconstruct payloadHash from cert data (for integrity check)
-            String payloadData = cert.tokenHash + "|" + cert.credentialId + "|" +
-                    cert.issuerPublicKeyPem + "|" + cert.expiryEpochMs;
-            String recomputedPayloadHash = HashUtil.sha256(payloadData);
-
-            if (!recomputedPayloadHash.equals(cert.payloadHash)) {
-                return fail("   ✗ PayloadHash mismatch - certificate tampered");
-            }
-
-            // Reconstruct the JSON payload that was signed (matches server format)
-            String payloadJson = String.format(
-                    "{\"issuerUserId\":%d,\"credentialId\":%d,\"tokenHash\":\"%s\",\"expiry\":%d,\"ledgerBlockHash\":\"%s\"}",
-                    cert.issuerUserId,
-                    cert.credentialId,
-                    cert.tokenHash,
-                    cert.expiryEpochMs,
-                    cert.ledgerBlockHash);
-
-            // Load issuer public key from PEM string
-            PublicKey issuerPublicKey = loadPublicKeyFromPem(cert.issuerPublicKeyPem);
-
-            // Verify signature over the JSON payload (not the hash)
-            Signature sig = Signature.getInstance("SHA256withRSA");
-            sig.initVerify(issuerPublicKey);
-            sig.update(payloadJson.getBytes(java.nio.charset.StandardCharsets.UTF_8));
-            byte[] signatureBytes = Base64.getDecoder().decode(cert.signatureBase64);
-
-            if (!sig.verify(signatureBytes)) {
-                return fail("   ✗ RSA signature verification FAILED");
+            String signatureFailure = verifySignature(cert);
+            if (signatureFailure != null) {
+                return fail(signatureFailure);
             }
             System.out.println("   ✓ Signature valid\n");
 
@@ -174,6 +148,46 @@ public class CertificateVerifier {
         }
     }
 
+    /**
+     * Layer 1 on its own (no output, no network): payloadHash binding and the
+     * issuer's RSA signature over the signed JSON payload.
+     *
+     * @return null when the certificate passes, else the failure message
+     */
+    public static String verifySignature(Certificate cert) throws Exception {
+        // Reconstruct payloadHash from cert data (for integrity check)
+        String payloadData = cert.tokenHash + "|" + cert.credentialId + "|" +
+                cert.issuerPublicKeyPem + "|" + cert.expiryEpochMs;
+        String recomputedPayloadHash = HashUtil.sha256(payloadData);
+
+        if (!recomputedPayloadHash.equals(cert.payloadHash)) {
+            return "   ✗ PayloadHash mismatch - certificate tampered";
+        }
+
+        // Reconstruct the JSON payload that was signed (matches server format)
+        String payloadJson = String.format(
+                "{\"issuerUserId\":%d,\"credentialId\":%d,\"tokenHash\":\"%s\",\"expiry\":%d,\"ledgerBlockHash\":\"%s\"}",
+                cert.issuerUserId,
+                cert.credentialId,
+                cert.tokenHash,
+                cert.expiryEpochMs,
+                cert.ledgerBlockHash);
+
+        // Load issuer public key from PEM string
+        PublicKey issuerPublicKey = loadPublicKeyFromPem(cert.issuerPublicKeyPem);
+
+        // Verify signature over the JSON payload (not the hash)
+        Signature sig = Signature.getInstance("SHA256withRSA");
+        sig.initVerify(issuerPublicKey);
+        sig.update(payloadJson.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        byte[] signatureBytes = Base64.getDecoder().decode(cert.signatureBase64);
+
+        if (!sig.verify(signatureBytes)) {
+            return "   ✗ RSA signature verification FAILED";
+        }
+        return null;
+    }
+
     /**
      * Load RSA public key from PEM string
      */
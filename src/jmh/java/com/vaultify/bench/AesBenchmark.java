@@ -0,0 +1,89 @@
+package com.vaultify.bench;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vaultify.crypto.AESEngine;
+
+/**
+ * AES-256-GCM encrypt/decrypt of a whole payload, as done for every stored
+ * credential (AESEngine.encryptWithParams / decryptWithParams), plus the
+ * framed IV || ciphertext variants on heap arrays and on reused direct
+ * buffers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx3g" })
+public class AesBenchmark {
+    @Param({ "1024", "65536", "1048576", "16777216", "104857600" })
+    public int size;
+
+    private byte[] key;
+    private byte[] iv;
+    private byte[] plaintext;
+    private byte[] ciphertext;
+    private byte[] framed;
+    private ByteBuffer directIn;
+    private ByteBuffer directOut;
+    private ByteBuffer directFramed;
+
+    @Setup
+    public void setup() throws Exception {
+        key = AESEngine.generateKey();
+        iv = AESEngine.generateIv();
+        plaintext = new byte[size];
+        ThreadLocalRandom.current().nextBytes(plaintext);
+        ciphertext = AESEngine.encryptWithParams(plaintext, key, iv);
+        framed = AESEngine.encryptFramed(plaintext, key);
+
+        directIn = ByteBuffer.allocateDirect(size).put(plaintext).flip();
+        directOut = ByteBuffer.allocateDirect(AESEngine.framedSize(size));
+        directFramed = ByteBuffer.allocateDirect(framed.length).put(framed).flip();
+    }
+
+    @Benchmark
+    public byte[] encrypt() throws Exception {
+        return AESEngine.encryptWithParams(plaintext, key, iv);
+    }
+
+    @Benchmark
+    public byte[] decrypt() throws Exception {
+        return AESEngine.decryptWithParams(ciphertext, key, iv);
+    }
+
+    @Benchmark
+    public byte[] encryptFramed() throws Exception {
+        return AESEngine.encryptFramed(plaintext, key);
+    }
+
+    @Benchmark
+    public byte[] decryptFramed() throws Exception {
+        return AESEngine.decryptFramed(framed, key);
+    }
+
+    @Benchmark
+    public int encryptDirect() throws Exception {
+        return AESEngine.encrypt(directIn.clear(), directOut.clear(), key);
+    }
+
+    @Benchmark
+    public int decryptDirect() throws Exception {
+        return AESEngine.decrypt(directFramed.clear(), directIn.clear(), key);
+    }
+}
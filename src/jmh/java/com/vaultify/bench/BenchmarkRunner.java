@@ -0,0 +1,83 @@
+package com.vaultify.bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+
+/**
+ * Entry point of the jmh Gradle task.
+ *
+ * Takes ordinary JMH command-line options, runs the selection once per thread
+ * count in vaultify.bench.threads (e.g. "1,4") and merges the JMH JSON
+ * results into results-&lt;timestamp&gt;.json under vaultify.bench.out. Every
+ * entry keeps JMH's own fields ("benchmark", "threads", "params",
+ * "primaryMetric"), so files from successive runs can be compared directly
+ * or loaded into any JMH result viewer.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        if (cli.shouldHelp() || cli.shouldList() || cli.shouldListWithParams() || cli.shouldListProfilers()
+                || cli.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+
+        Path outDir = Paths.get(System.getProperty("vaultify.bench.out", "build/reports/jmh"));
+        Files.createDirectories(outDir);
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+
+        JsonArray merged = new JsonArray();
+        for (int threads : parseThreads(System.getProperty("vaultify.bench.threads", "1"))) {
+            Path part = Files.createTempFile(outDir, "run-t" + threads + "-", ".json");
+            try {
+                Options options = new OptionsBuilder()
+                        .parent(cli)
+                        .threads(threads)
+                        .resultFormat(ResultFormatType.JSON)
+                        .result(part.toString())
+                        .build();
+                new Runner(options).run();
+                merged.addAll(JsonParser.parseString(Files.readString(part)).getAsJsonArray());
+            } finally {
+                Files.deleteIfExists(part);
+            }
+        }
+
+        Path out = outDir.resolve("results-" + stamp + ".json");
+        Files.writeString(out, new GsonBuilder().setPrettyPrinting().create().toJson(merged));
+        System.out.println("[Bench] " + merged.size() + " result(s) written to " + out.toAbsolutePath());
+    }
+
+    private static List<Integer> parseThreads(String spec) {
+        List<Integer> counts = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            if (!part.isBlank()) {
+                counts.add(Math.max(1, Integer.parseInt(part.trim())));
+            }
+        }
+        if (counts.isEmpty()) {
+            counts.add(1);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,80 @@
+package com.vaultify.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vaultify.crypto.HashUtil;
+import com.vaultify.crypto.RSAEngine;
+import com.vaultify.util.TokenUtil;
+import com.vaultify.verifier.Certificate;
+import com.vaultify.verifier.CertificateVerifier;
+
+/**
+ * Offline certificate checks: layer 1 (payload hash + SHA256withRSA over the
+ * signed JSON, including PEM key parsing) and the layer 2 token hash. The
+ * certificate is built the way TokenService.createCertificate builds it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class CertificateBenchmark {
+    private Certificate cert;
+    private String token;
+
+    @Setup
+    public void setup() throws Exception {
+        KeyPair issuer = RSAEngine.generateKeyPair(2048);
+        String pemBody = Base64.getMimeEncoder(64, "\n".getBytes()).encodeToString(issuer.getPublic().getEncoded());
+
+        token = TokenUtil.generateToken();
+        cert = new Certificate();
+        cert.tokenHash = HashUtil.sha256(token);
+        cert.credentialId = 42;
+        cert.issuerUserId = 7;
+        cert.issuerPublicKeyPem = "-----BEGIN PUBLIC KEY-----\n" + pemBody + "\n-----END PUBLIC KEY-----\n";
+        cert.expiryEpochMs = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
+        cert.createdAtMs = System.currentTimeMillis();
+        cert.ledgerBlockHash = HashUtil.sha256("block");
+        cert.payloadHash = HashUtil.sha256(cert.tokenHash + "|" + cert.credentialId + "|"
+                + cert.issuerPublicKeyPem + "|" + cert.expiryEpochMs);
+
+        String payloadJson = String.format(
+                "{\"issuerUserId\":%d,\"credentialId\":%d,\"tokenHash\":\"%s\",\"expiry\":%d,\"ledgerBlockHash\":\"%s\"}",
+                cert.issuerUserId, cert.credentialId, cert.tokenHash, cert.expiryEpochMs, cert.ledgerBlockHash);
+        Signature sig = Signature.getInstance("SHA256withRSA");
+        sig.initSign(issuer.getPrivate());
+        sig.update(payloadJson.getBytes(StandardCharsets.UTF_8));
+        cert.signatureBase64 = Base64.getEncoder().encodeToString(sig.sign());
+
+        if (CertificateVerifier.verifySignature(cert) != null) {
+            throw new IllegalStateException("Benchmark certificate does not verify");
+        }
+    }
+
+    @Benchmark
+    public String verifySignature() throws Exception {
+        return CertificateVerifier.verifySignature(cert);
+    }
+
+    @Benchmark
+    public String tokenHash() {
+        return HashUtil.sha256(token);
+    }
+}
@@ -0,0 +1,140 @@
+package com.vaultify.bench;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.vaultify.crypto.AESEngine;
+import com.vaultify.util.CompressionCodec;
+import com.vaultify.util.PathValidator;
+
+/**
+ * Disk savings versus CPU cost of the compress-then-encrypt stage over a
+ * sample corpus (a file or directory of representative credentials).
+ *
+ * For each Deflater level it reports stored size, savings, and the time
+ * spent compressing + encrypting versus encrypting the raw input, so the
+ * level can be chosen from measured numbers.
+ *
+ * Usage: gradle compressionBench -Pcorpus=&lt;file-or-dir&gt; [-Prounds=5]
+ */
+public final class CompressionBenchmark {
+    private static final int[] LEVELS = { 1, 3, 6, 9 };
+    private static final long MAX_FILE_BYTES = 64L * 1024 * 1024;
+
+    private CompressionBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: CompressionBenchmark <file-or-dir> [rounds]");
+            System.exit(2);
+        }
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        run(Paths.get(args[0]), rounds, System.out);
+    }
+
+    public static void run(Path corpus, int rounds, PrintStream out) throws Exception {
+        List<byte[]> files = load(corpus);
+        if (files.isEmpty()) {
+            out.println("No readable files under " + corpus.toAbsolutePath());
+            return;
+        }
+        long rawBytes = files.stream().mapToLong(f -> f.length).sum();
+        int highEntropy = 0;
+        for (byte[] f : files) {
+            if (CompressionCodec.estimateEntropy(f) > 7.5) {
+                highEntropy++;
+            }
+        }
+        byte[] key = AESEngine.generateKey();
+        byte[] iv = AESEngine.generateIv();
+        rounds = Math.max(1, rounds);
+
+        out.printf("Corpus: %d file(s), %s, %d above the entropy threshold%n", files.size(),
+                PathValidator.formatSize(rawBytes), highEntropy);
+
+        // Warm up JIT for both paths
+        for (byte[] f : files) {
+            AESEngine.encryptWithParams(f, key, iv);
+            AESEngine.encryptWithParams(CompressionCodec.deflate(f, 6), key, iv);
+        }
+
+        long encryptOnlyNs = 0;
+        for (int r = 0; r < rounds; r++) {
+            long t0 = System.nanoTime();
+            for (byte[] f : files) {
+                AESEngine.encryptWithParams(f, key, iv);
+            }
+            encryptOnlyNs += System.nanoTime() - t0;
+        }
+        encryptOnlyNs /= rounds;
+        out.printf("%-8s %12s %8s %14s %14s %12s%n", "level", "stored", "saved", "write ms/pass", "read ms/pass",
+                "write MB/s");
+        out.printf("%-8s %12s %8s %14.2f %14s %12.1f%n", "none", PathValidator.formatSize(rawBytes), "0.0%",
+                encryptOnlyNs / 1e6, "-", mbPerSec(rawBytes, encryptOnlyNs));
+
+        for (int level : LEVELS) {
+            long stored = 0;
+            long writeNs = 0;
+            long readNs = 0;
+            for (int r = 0; r < rounds; r++) {
+                stored = 0;
+                long t0 = System.nanoTime();
+                List<byte[]> compressed = new ArrayList<>(files.size());
+                for (byte[] f : files) {
+                    // Mirror CompressionCodec.compress: probe, then keep only if smaller
+                    byte[] c = CompressionCodec.estimateEntropy(f) > 7.5 ? f : CompressionCodec.deflate(f, level);
+                    if (c.length >= f.length) {
+                        c = f;
+                    }
+                    compressed.add(c);
+                    stored += AESEngine.encryptWithParams(c, key, iv).length;
+                }
+                long t1 = System.nanoTime();
+                for (int i = 0; i < files.size(); i++) {
+                    byte[] c = compressed.get(i);
+                    if (c != files.get(i)) {
+                        CompressionCodec.inflate(c, files.get(i).length);
+                    }
+                }
+                long t2 = System.nanoTime();
+                writeNs += t1 - t0;
+                readNs += t2 - t1;
+            }
+            writeNs /= rounds;
+            readNs /= rounds;
+            out.printf("%-8s %12s %7.1f%% %14.2f %14.2f %12.1f%n", "deflate" + level,
+                    PathValidator.formatSize(stored), 100.0 * (rawBytes - stored) / rawBytes, writeNs / 1e6,
+                    readNs / 1e6, mbPerSec(rawBytes, writeNs));
+        }
+    }
+
+    private static List<byte[]> load(Path corpus) throws IOException {
+        List<byte[]> files = new ArrayList<>();
+        if (Files.isRegularFile(corpus)) {
+            files.add(Files.readAllBytes(corpus));
+            return files;
+        }
+        if (!Files.isDirectory(corpus)) {
+            return files;
+        }
+        try (Stream<Path> walk = Files.walk(corpus)) {
+            for (Path p : (Iterable<Path>) walk.filter(Files::isRegularFile)::iterator) {
+                if (Files.isReadable(p) && Files.size(p) <= MAX_FILE_BYTES) {
+                    files.add(Files.readAllBytes(p));
+                }
+            }
+        }
+        return files;
+    }
+
+    private static double mbPerSec(long bytes, long nanos) {
+        return nanos == 0 ? 0 : (bytes / 1024.0 / 1024.0) / (nanos / 1e9);
+    }
+}
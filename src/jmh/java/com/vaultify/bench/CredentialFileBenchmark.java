@@ -0,0 +1,103 @@
+package com.vaultify.bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vaultify.crypto.RSAEngine;
+import com.vaultify.crypto.SecureBuffer;
+import com.vaultify.models.CredentialMetadata;
+import com.vaultify.threading.ThreadManager;
+import com.vaultify.util.CredentialFileManager;
+
+/**
+ * End-to-end credential storage: CredentialFileManager.encryptAndStore (read,
+ * hash, optional compress/chunk, AES-GCM, RSA wrap, durable write) and
+ * decryptAndRetrieve(meta, key), plus decryptToBuffer for the off-heap
+ * retrieve path. Storage settings come from config.properties and the
+ * environment, so the same run measures whichever store is enabled; files
+ * land under ./vault_data of the working directory (build/jmh-work for the
+ * jmh task) and stored credentials are deleted after each iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx4g" })
+public class CredentialFileBenchmark {
+    @Param({ "1024", "65536", "1048576", "16777216", "104857600" })
+    public int size;
+
+    private KeyPair keyPair;
+    private Path plainFile;
+    private CredentialMetadata stored;
+    private final ConcurrentLinkedQueue<String> created = new ConcurrentLinkedQueue<>();
+
+    @Setup
+    public void setup() throws Exception {
+        keyPair = RSAEngine.generateKeyPair(2048);
+
+        // Printable text, like most credential files
+        byte[] content = new byte[size];
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) (' ' + rnd.nextInt(95));
+        }
+        plainFile = Files.createTempFile("vaultify-bench-", ".txt");
+        Files.write(plainFile, content);
+
+        stored = CredentialFileManager.encryptAndStore(plainFile, keyPair.getPublic(), 1L);
+    }
+
+    @Benchmark
+    public CredentialMetadata encryptAndStore() throws Exception {
+        CredentialMetadata meta = CredentialFileManager.encryptAndStore(plainFile, keyPair.getPublic(), 1L);
+        created.add(meta.credentialIdString);
+        return meta;
+    }
+
+    @Benchmark
+    public byte[] decryptAndRetrieve() throws Exception {
+        return CredentialFileManager.decryptAndRetrieve(stored, keyPair.getPrivate());
+    }
+
+    @Benchmark
+    public int decryptToBuffer() throws Exception {
+        try (SecureBuffer plaintext = CredentialFileManager.decryptToBuffer(stored, keyPair.getPrivate())) {
+            return plaintext.size();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteCreated() throws Exception {
+        for (String id; (id = created.poll()) != null;) {
+            CredentialFileManager.deleteEncryptedFile(id);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        deleteCreated();
+        CredentialFileManager.deleteEncryptedFile(stored.credentialIdString);
+        Files.deleteIfExists(plainFile);
+        ThreadManager.shutdown();
+    }
+}
@@ -0,0 +1,58 @@
+package com.vaultify.bench;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vaultify.crypto.HashUtil;
+
+/**
+ * SHA-256 hex digests (HashUtil.sha256): the credential hash over the
+ * ciphertext and the data hash over the plaintext on every store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx3g" })
+public class HashBenchmark {
+    @Param({ "1024", "65536", "1048576", "16777216", "104857600" })
+    public int size;
+
+    private byte[] data;
+    private String text;
+
+    @Setup
+    public void setup() {
+        data = new byte[size];
+        ThreadLocalRandom.current().nextBytes(data);
+        // Printable text, like the plaintext credentials hashed via sha256(String)
+        char[] chars = new char[size];
+        for (int i = 0; i < size; i++) {
+            chars[i] = (char) ('a' + (data[i] & 0x0f));
+        }
+        text = new String(chars);
+    }
+
+    @Benchmark
+    public String sha256Bytes() {
+        return HashUtil.sha256(data);
+    }
+
+    @Benchmark
+    public String sha256String() {
+        return HashUtil.sha256(text);
+    }
+}
@@ -0,0 +1,64 @@
+package com.vaultify.bench;
+
+import java.security.KeyPair;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vaultify.crypto.AESEngine;
+import com.vaultify.crypto.KeyWrap;
+import com.vaultify.crypto.RSAEngine;
+import com.vaultify.crypto.X25519Engine;
+
+/**
+ * Wrap/unwrap of a per-credential AES key through {@link KeyWrap}: RSA-OAEP
+ * with 2048-bit (the registration default) and 4096-bit keys, and X25519 +
+ * HKDF + AES key wrap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class KeyWrapBenchmark {
+    @Param({ "rsa2048", "rsa4096", "x25519" })
+    public String scheme;
+
+    private KeyPair keyPair;
+    private String keyScheme;
+    private byte[] aesKey;
+    private byte[] wrappedKey;
+
+    @Setup
+    public void setup() throws Exception {
+        keyPair = switch (scheme) {
+            case "rsa2048" -> RSAEngine.generateKeyPair(2048);
+            case "rsa4096" -> RSAEngine.generateKeyPair(4096);
+            default -> X25519Engine.generateKeyPair();
+        };
+        keyScheme = KeyWrap.schemeOf(keyPair.getPublic());
+        aesKey = AESEngine.generateKey();
+        wrappedKey = KeyWrap.wrap(aesKey, keyPair.getPublic());
+    }
+
+    @Benchmark
+    public byte[] wrap() throws Exception {
+        return KeyWrap.wrap(aesKey, keyPair.getPublic());
+    }
+
+    @Benchmark
+    public byte[] unwrap() throws Exception {
+        return KeyWrap.unwrap(keyScheme, wrappedKey, keyPair.getPrivate());
+    }
+}
@@ -0,0 +1,206 @@
+package com.vaultify.bench;
+
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.vaultify.crypto.RSAEngine;
+import com.vaultify.crypto.SecureBuffer;
+import com.vaultify.models.CredentialMetadata;
+import com.vaultify.threading.ThreadManager;
+import com.vaultify.util.BufferPool;
+import com.vaultify.util.CredentialFileManager;
+import com.vaultify.util.PathValidator;
+
+/**
+ * Concurrent ingest/retrieve load against the configured credential store,
+ * run with {@link BufferPool} off and then on in the same process.
+ *
+ * Each worker loops encryptAndStore, decryptToBuffer, delete on a payload of
+ * the given size. Per mode it reports operations per second, heap allocation
+ * rate (all threads, from the JVM's per-thread allocation counters) and the
+ * GC pauses the collectors reported during the run. A short unmeasured
+ * warm-up comes first so both modes run JIT-compiled code.
+ *
+ * Usage: gradle storageLoad [-Pload.args="threads seconds sizeKiB"].
+ * Credentials are written under the task's working directory and deleted
+ * again.
+ */
+public final class StorageLoadTest {
+
+    private StorageLoadTest() {
+    }
+
+    /**
+     * Measurements for one mode.
+     */
+    public static final class Result {
+        public final boolean pooled;
+        public final long operations;
+        public final double seconds;
+        public final long allocatedBytes; // -1 when the JVM cannot report it
+        public final long gcCount;
+        public final long gcPauseMillis;
+        public final long maxPauseMillis;
+
+        Result(boolean pooled, long operations, double seconds, long allocatedBytes, long gcCount,
+                long gcPauseMillis, long maxPauseMillis) {
+            this.pooled = pooled;
+            this.operations = operations;
+            this.seconds = seconds;
+            this.allocatedBytes = allocatedBytes;
+            this.gcCount = gcCount;
+            this.gcPauseMillis = gcPauseMillis;
+            this.maxPauseMillis = maxPauseMillis;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int sizeKiB = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+        run(threads, seconds, sizeKiB, System.out);
+        ThreadManager.shutdown();
+    }
+
+    public static List<Result> run(int threads, int seconds, int sizeKiB, PrintStream out) throws Exception {
+        threads = Math.max(1, threads);
+        seconds = Math.max(1, seconds);
+        int size = Math.max(1, sizeKiB) * 1024;
+
+        KeyPair keyPair = RSAEngine.generateKeyPair(2048);
+        Path plainFile = Files.createTempFile("vaultify-load-", ".txt");
+        boolean wasEnabled = BufferPool.isEnabled();
+        List<Result> results = new ArrayList<>();
+        try {
+            // Printable text, like most credential files
+            byte[] content = new byte[size];
+            ThreadLocalRandom rnd = ThreadLocalRandom.current();
+            for (int i = 0; i < size; i++) {
+                content[i] = (byte) (' ' + rnd.nextInt(95));
+            }
+            Files.write(plainFile, content);
+
+            out.printf("Load: %d thread(s), %s payload, %d s per mode%n", threads, PathValidator.formatSize(size),
+                    seconds);
+            BufferPool.setEnabled(true);
+            phase(true, threads, Math.max(1, seconds / 2), plainFile, size, keyPair); // warm-up
+            for (boolean pooled : new boolean[] { false, true }) {
+                BufferPool.setEnabled(pooled);
+                results.add(phase(pooled, threads, seconds, plainFile, size, keyPair));
+            }
+        } finally {
+            BufferPool.setEnabled(wasEnabled);
+            Files.deleteIfExists(plainFile);
+        }
+
+        out.printf("%-8s %10s %14s %14s %8s %12s %12s%n", "pool", "ops/s", "alloc MB/s", "alloc KB/op", "GCs",
+                "pause ms", "max pause");
+        for (Result r : results) {
+            double ops = r.operations / r.seconds;
+            out.printf("%-8s %10.1f %14s %14s %8d %12d %12d%n", r.pooled ? "on" : "off", ops,
+                    r.allocatedBytes < 0 ? "n/a" : String.format("%.1f", r.allocatedBytes / 1048576.0 / r.seconds),
+                    r.allocatedBytes < 0 || r.operations == 0 ? "n/a"
+                            : String.format("%.1f", r.allocatedBytes / 1024.0 / r.operations),
+                    r.gcCount, r.gcPauseMillis, r.maxPauseMillis);
+        }
+        BufferPool.Stats s = BufferPool.stats();
+        out.printf("Buffer pool: %d acquire(s), %d reused, %s retained%n", s.acquires, s.hits,
+                PathValidator.formatSize(s.retainedBytes));
+        return results;
+    }
+
+    private static Result phase(boolean pooled, int threads, int seconds, Path plainFile, int size,
+            KeyPair keyPair) throws Exception {
+        System.gc(); // start each mode from a clean heap (before listening for GCs)
+        AtomicLong operations = new AtomicLong();
+        AtomicLong gcCount = new AtomicLong();
+        AtomicLong gcPause = new AtomicLong();
+        AtomicLong maxPause = new AtomicLong();
+        NotificationListener listener = (Notification n, Object handback) -> {
+            if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(n.getType())) {
+                long ms = GarbageCollectionNotificationInfo.from((CompositeData) n.getUserData()).getGcInfo()
+                        .getDuration();
+                gcCount.incrementAndGet();
+                gcPause.addAndGet(ms);
+                maxPause.accumulateAndGet(ms, Math::max);
+            }
+        };
+        List<NotificationEmitter> emitters = new ArrayList<>();
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter emitter) {
+                emitter.addNotificationListener(listener, null, null);
+                emitters.add(emitter);
+            }
+        }
+
+        long allocBefore = totalAllocatedBytes();
+        long start = System.nanoTime();
+        long deadline = start + seconds * 1_000_000_000L;
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                running.add(workers.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        CredentialMetadata meta = CredentialFileManager.encryptAndStore(plainFile,
+                                keyPair.getPublic(), 0L);
+                        try (SecureBuffer plaintext = CredentialFileManager.decryptToBuffer(meta,
+                                keyPair.getPrivate())) {
+                            if (plaintext.size() != size) {
+                                throw new IllegalStateException("Round trip returned " + plaintext.size()
+                                        + " of " + size + " bytes");
+                            }
+                            operations.addAndGet(2);
+                        } finally {
+                            CredentialFileManager.deleteEncryptedFile(meta.credentialIdString);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : running) {
+                f.get();
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        long allocAfter = totalAllocatedBytes();
+
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(listener);
+            } catch (Exception ignored) {
+                // already removed
+            }
+        }
+        return new Result(pooled, operations.get(), elapsed,
+                allocBefore < 0 || allocAfter < 0 ? -1 : allocAfter - allocBefore, gcCount.get(), gcPause.get(),
+                maxPause.get());
+    }
+
+    private static long totalAllocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean mx
+                && mx.isThreadAllocatedMemorySupported() && mx.isThreadAllocatedMemoryEnabled()) {
+            return mx.getTotalThreadAllocatedBytes();
+        }
+        return -1;
+    }
+}
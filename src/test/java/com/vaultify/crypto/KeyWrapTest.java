@@ -0,0 +1,67 @@
+package com.vaultify.crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class KeyWrapTest {
+    private static KeyPair rsa;
+    private static KeyPair otherRsa;
+
+    @BeforeAll
+    static void keys() {
+        rsa = RSAEngine.generateKeyPair(2048);
+        otherRsa = RSAEngine.generateKeyPair(2048);
+    }
+
+    @Test
+    void x25519RoundTrip() throws Exception {
+        KeyPair pair = X25519Engine.generateKeyPair();
+        byte[] dataKey = AESEngine.generateKey();
+        byte[] wrapped = KeyWrap.wrap(dataKey, pair.getPublic());
+        assertEquals(KeyWrap.X25519, KeyWrap.schemeOf(pair.getPublic()));
+        assertArrayEquals(dataKey, KeyWrap.unwrap(KeyWrap.X25519, wrapped, pair.getPrivate()));
+    }
+
+    @Test
+    void rsaRoundTrip() throws Exception {
+        byte[] dataKey = AESEngine.generateKey();
+        byte[] wrapped = KeyWrap.wrap(dataKey, rsa.getPublic());
+        assertEquals(KeyWrap.RSA_OAEP, KeyWrap.schemeOf(rsa.getPublic()));
+        assertArrayEquals(dataKey, KeyWrap.unwrap(KeyWrap.RSA_OAEP, wrapped, rsa.getPrivate()));
+    }
+
+    @Test
+    void missingSchemeMeansRsa() throws Exception {
+        byte[] dataKey = AESEngine.generateKey();
+        byte[] wrapped = KeyWrap.wrap(dataKey, rsa.getPublic());
+        assertArrayEquals(dataKey, KeyWrap.unwrap(null, wrapped, rsa.getPrivate()));
+        assertArrayEquals(dataKey, KeyWrap.unwrap("", wrapped, rsa.getPrivate()));
+    }
+
+    @Test
+    void x25519RejectsWrongKey() throws Exception {
+        byte[] wrapped = KeyWrap.wrap(AESEngine.generateKey(), X25519Engine.generateKeyPair().getPublic());
+        KeyPair other = X25519Engine.generateKeyPair();
+        assertThrows(GeneralSecurityException.class, () -> KeyWrap.unwrap(KeyWrap.X25519, wrapped, other.getPrivate()));
+    }
+
+    @Test
+    void rsaRejectsWrongKey() throws Exception {
+        byte[] wrapped = KeyWrap.wrap(AESEngine.generateKey(), rsa.getPublic());
+        assertThrows(Exception.class, () -> KeyWrap.unwrap(KeyWrap.RSA_OAEP, wrapped, otherRsa.getPrivate()));
+    }
+
+    @Test
+    void rejectsKeyOfOtherScheme() throws Exception {
+        byte[] wrapped = KeyWrap.wrap(AESEngine.generateKey(), X25519Engine.generateKeyPair().getPublic());
+        assertThrows(IllegalArgumentException.class, () -> KeyWrap.unwrap(KeyWrap.X25519, wrapped, rsa.getPrivate()));
+        assertThrows(IllegalArgumentException.class, () -> KeyWrap.unwrap(KeyWrap.X25519, wrapped, null));
+    }
+}
@@ -0,0 +1,97 @@
+package com.vaultify.crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyAgreement;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Test;
+
+class X25519EngineTest {
+    private static final HexFormat HEX = HexFormat.of();
+
+    // RFC 5869 appendix A, test cases 1-3 (SHA-256)
+
+    @Test
+    void hkdfMatchesRfc5869Case1() throws Exception {
+        byte[] okm = X25519Engine.hkdfSha256(HEX.parseHex("0b".repeat(22)), HEX.parseHex("000102030405060708090a0b0c"),
+                HEX.parseHex("f0f1f2f3f4f5f6f7f8f9"), 42);
+        assertEquals("3cb25f25faacd57a90434f64d0362f2a2d2d0a90cf1a5a4c5db02d56ecc4c5bf34007208d5b887185865",
+                HEX.formatHex(okm));
+    }
+
+    @Test
+    void hkdfMatchesRfc5869Case2() throws Exception {
+        byte[] okm = X25519Engine.hkdfSha256(range(0x00, 80), range(0x60, 80), range(0xb0, 80), 82);
+        assertEquals("b11e398dc80327a1c8e7f78c596a49344f012eda2d4efad8a050cc4c19afa97c"
+                + "59045a99cac7827271cb41c65e590e09da3275600c2f09b8367793a9aca3db71"
+                + "cc30c58179ec3e87c14c01d5c1f3434f1d87", HEX.formatHex(okm));
+    }
+
+    @Test
+    void hkdfMatchesRfc5869Case3WithEmptySalt() throws Exception {
+        byte[] okm = X25519Engine.hkdfSha256(HEX.parseHex("0b".repeat(22)), new byte[0], new byte[0], 42);
+        assertEquals("8da4e775a563c18f715f802a063c5a31b8a11f5c5ee1879ec3454e5f3c738d2d9d201395faa4b61a96c8",
+                HEX.formatHex(okm));
+    }
+
+    @Test
+    void publicKeyOfMatchesGeneratedPublicKey() throws Exception {
+        KeyPair pair = X25519Engine.generateKeyPair();
+        byte[] encoded = pair.getPublic().getEncoded();
+        assertArrayEquals(Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length),
+                X25519Engine.publicKeyOf(pair.getPrivate()));
+    }
+
+    @Test
+    void wrapIsEphemeralKeyAndWrappedDataKey() throws Exception {
+        byte[] wrapped = X25519Engine.wrap(AESEngine.generateKey(), X25519Engine.generateKeyPair().getPublic());
+        assertEquals(0x30, wrapped[0]); // X.509 SEQUENCE
+        assertEquals(44 + 40, wrapped.length);
+    }
+
+    @Test
+    void wrapIsBoundToTheRecipientKey() throws Exception {
+        KeyPair recipient = X25519Engine.generateKeyPair();
+        byte[] dataKey = AESEngine.generateKey();
+        byte[] wrapped = X25519Engine.wrap(dataKey, recipient.getPublic());
+        assertArrayEquals(dataKey, X25519Engine.unwrap(wrapped, recipient.getPrivate()));
+        // The same shared secret without the recipient in the KDF info does not unwrap it
+        KeyAgreement agreement = KeyAgreement.getInstance("X25519");
+        agreement.init(recipient.getPrivate());
+        agreement.doPhase(KeyFactory.getInstance("X25519")
+                .generatePublic(new X509EncodedKeySpec(Arrays.copyOf(wrapped, 44))), true);
+        byte[] unboundKek = X25519Engine.hkdfSha256(agreement.generateSecret(), Arrays.copyOf(wrapped, 44),
+                "vaultify-kem-v1".getBytes(StandardCharsets.US_ASCII), 32);
+        Cipher cipher = Cipher.getInstance("AESWrap");
+        cipher.init(Cipher.UNWRAP_MODE, new SecretKeySpec(unboundKek, "AES"));
+        assertThrows(GeneralSecurityException.class,
+                () -> cipher.unwrap(Arrays.copyOfRange(wrapped, 44, wrapped.length), "AES", Cipher.SECRET_KEY));
+    }
+
+    @Test
+    void rejectsTruncatedWrap() {
+        KeyPair recipient = X25519Engine.generateKeyPair();
+        assertThrows(GeneralSecurityException.class,
+                () -> X25519Engine.unwrap(new byte[] { 0x30 }, recipient.getPrivate()));
+    }
+
+    private static byte[] range(int first, int count) {
+        byte[] out = new byte[count];
+        for (int i = 0; i < count; i++) {
+            out[i] = (byte) (first + i);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,144 @@
+package com.vaultify.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.Test;
+
+class ChunkStoreTest {
+    private static final int CHUNK = 64 * 1024; // vault.dedup.chunkKiB default
+
+    private static byte[] random(int size) {
+        byte[] data = new byte[size];
+        ThreadLocalRandom.current().nextBytes(data);
+        return data;
+    }
+
+    /**
+     * Two identical chunks followed by a distinct one.
+     */
+    private static byte[] repeatingPayload() {
+        byte[] first = random(CHUNK);
+        byte[] data = new byte[3 * CHUNK];
+        System.arraycopy(first, 0, data, 0, CHUNK);
+        System.arraycopy(first, 0, data, CHUNK, CHUNK);
+        System.arraycopy(random(CHUNK), 0, data, 2 * CHUNK, CHUNK);
+        return data;
+    }
+
+    private static long references() throws IOException {
+        return ChunkStore.usage()[2];
+    }
+
+    private static boolean allStored(ChunkStore.Manifest m) {
+        return m.chunkIds().stream().allMatch(id -> Files.exists(ChunkStore.chunkPath(id)));
+    }
+
+    private static boolean noneStored(ChunkStore.Manifest m) {
+        return m.chunkIds().stream().noneMatch(id -> Files.exists(ChunkStore.chunkPath(id)));
+    }
+
+    private static Path sidecar() throws IOException {
+        return StorageLayout.pathForWrite(UUID.randomUUID().toString(), ".refs");
+    }
+
+    @Test
+    void putTakesOneReferencePerDistinctChunk() throws Exception {
+        long before = references();
+        ChunkStore.Manifest m = ChunkStore.put(repeatingPayload(), 1);
+        assertEquals(3, m.chunkCount());
+        assertEquals(2, m.chunkIds().size());
+        assertEquals(before + 2, references());
+        assertTrue(allStored(m));
+        ChunkStore.abort(m);
+    }
+
+    @Test
+    void abortReleasesReferencesAndDeletesUnsharedChunks() throws Exception {
+        long before = references();
+        ChunkStore.Manifest m = ChunkStore.put(repeatingPayload(), 1);
+        assertEquals(2, ChunkStore.abort(m));
+        assertEquals(before, references());
+        assertTrue(noneStored(m));
+    }
+
+    @Test
+    void abortKeepsChunksStillReferencedByACommittedCredential() throws Exception {
+        byte[] data = random(2 * CHUNK);
+        ChunkStore.Manifest committed = ChunkStore.put(data, 1);
+        Path refs = sidecar();
+        ChunkStore.writeRefs(refs, committed);
+
+        ChunkStore.Manifest failed = ChunkStore.put(data, 1);
+        assertEquals(0, ChunkStore.abort(failed));
+        assertTrue(allStored(committed));
+        assertEquals(2, ChunkStore.release(refs));
+        assertTrue(noneStored(committed));
+    }
+
+    @Test
+    void releaseDeletesChunksWithTheirLastReference() throws Exception {
+        byte[] data = random(CHUNK + 100);
+        long before = references();
+        ChunkStore.Manifest a = ChunkStore.put(data, 1);
+        Path refsA = sidecar();
+        ChunkStore.writeRefs(refsA, a);
+        ChunkStore.Manifest b = ChunkStore.put(data, 1);
+        Path refsB = sidecar();
+        ChunkStore.writeRefs(refsB, b);
+        assertEquals(before + 4, references());
+
+        assertEquals(0, ChunkStore.release(refsA));
+        assertTrue(allStored(b));
+        assertFalse(Files.exists(refsA));
+        assertEquals(2, ChunkStore.release(refsB));
+        assertTrue(noneStored(b));
+        assertEquals(before, references());
+    }
+
+    @Test
+    void assembleRoundTrip() throws Exception {
+        byte[] data = repeatingPayload();
+        ChunkStore.Manifest m = ChunkStore.put(data, 7);
+        try {
+            assertArrayEquals(data, ChunkStore.assemble(m.serialize()));
+        } finally {
+            ChunkStore.abort(m);
+        }
+    }
+
+    @Test
+    void garbageCollectionKeepsUncommittedAndCommittedChunks() throws Exception {
+        ChunkStore.Manifest uncommitted = ChunkStore.put(random(CHUNK), 1);
+        ChunkStore.Manifest committed = ChunkStore.put(random(CHUNK), 1);
+        Path refs = sidecar();
+        ChunkStore.writeRefs(refs, committed);
+
+        ChunkStore.collectGarbage();
+        assertTrue(allStored(uncommitted));
+        assertTrue(allStored(committed));
+
+        ChunkStore.abort(uncommitted);
+        ChunkStore.release(refs);
+    }
+
+    @Test
+    void garbageCollectionDeletesUnreferencedChunk() throws Exception {
+        String id = HexFormat.of().formatHex(random(32));
+        Path orphan = ChunkStore.chunkPath(id);
+        Files.createDirectories(orphan.getParent());
+        Files.write(orphan, random(64));
+
+        assertTrue(ChunkStore.collectGarbage() >= 1);
+        assertFalse(Files.exists(orphan));
+    }
+}
@@ -0,0 +1,59 @@
+package com.vaultify.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class ConfigTest {
+
+    private static Map<String, String> parse(String text) throws IOException {
+        return Config.parseEnv(new BufferedReader(new StringReader(text)));
+    }
+
+    @Test
+    void readsKeyValueLines() throws IOException {
+        Map<String, String> env = parse("DB_URL=jdbc:postgresql://localhost/vault\n  DB_USER = vault  \n");
+        assertEquals("jdbc:postgresql://localhost/vault", env.get("DB_URL"));
+        assertEquals("vault", env.get("DB_USER"));
+    }
+
+    @Test
+    void skipsCommentsBlankAndMalformedLines() throws IOException {
+        Map<String, String> env = parse("# comment\n\n//// banner\nNO_EQUALS\n=novalue\nKEY=1\n");
+        assertEquals(Map.of("KEY", "1"), env);
+    }
+
+    @Test
+    void dropsTrailingCommentFromUnquotedValue() throws IOException {
+        assertEquals("8080", parse("PORT=8080 # default\n").get("PORT"));
+    }
+
+    @Test
+    void doubleQuotesAreRemovedAndKeepHashes() throws IOException {
+        assertEquals("p#ss word", parse("PASSWORD=\"p#ss word\" # note\n").get("PASSWORD"));
+    }
+
+    @Test
+    void singleQuotesAreKept() throws IOException {
+        assertEquals("'a # b'", parse("VALUE='a # b'\n").get("VALUE"));
+    }
+
+    @Test
+    void emptyValuesAreIgnored() throws IOException {
+        Map<String, String> env = parse("EMPTY=\nCOMMENT_ONLY=# nothing\nQUOTED_EMPTY=\"\"\n");
+        assertFalse(env.containsKey("EMPTY"));
+        assertFalse(env.containsKey("COMMENT_ONLY"));
+        assertFalse(env.containsKey("QUOTED_EMPTY"));
+    }
+
+    @Test
+    void valueMayContainEquals() throws IOException {
+        assertEquals("a=b=c", parse("KEY=a=b=c\n").get("KEY"));
+    }
+}